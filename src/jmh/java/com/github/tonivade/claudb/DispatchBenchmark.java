@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb;
+
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.github.tonivade.purefun.data.ImmutableArray;
+import com.github.tonivade.resp.command.DefaultRequest;
+import com.github.tonivade.resp.command.DefaultSession;
+import com.github.tonivade.resp.command.Request;
+import com.github.tonivade.resp.command.RespCommand;
+import com.github.tonivade.resp.command.Session;
+import com.github.tonivade.resp.protocol.RedisToken;
+
+/**
+ * Measures the cost of dispatching GET and SET commands, without the network. The main method
+ * runs it with the gc profiler and fails if a command allocates more than {@link #MAX_ALLOCATION}
+ * bytes, as given by gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+public class DispatchBenchmark {
+
+  // a GET allocates the key and the reply, a SET the value too, about 56 and 128 bytes
+  private static final double MAX_ALLOCATION = 256;
+
+  private ClauDB server;
+  private RespCommand get;
+  private RespCommand set;
+  private Request getRequest;
+  private Request setRequest;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    server = new ClauDB("localhost", 7086, DBConfig.builder().build());
+    server.start();
+
+    Session session = new DefaultSession("benchmark", null);
+    session.putValue("state", new DBSessionState());
+
+    get = server.getCommand("get");
+    set = server.getCommand("set");
+    getRequest = new DefaultRequest(server, session, safeString("get"), ImmutableArray.of(safeString("key")));
+    setRequest = new DefaultRequest(server, session, safeString("set"),
+        ImmutableArray.of(safeString("key"), safeString("value")));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    server.stop();
+  }
+
+  @Benchmark
+  public RedisToken set() {
+    return set.execute(setRequest);
+  }
+
+  @Benchmark
+  public RedisToken get() {
+    return get.execute(getRequest);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Collection<RunResult> results = new Runner(new OptionsBuilder()
+        .include(DispatchBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build()).run();
+    for (RunResult result : results) {
+      double allocated = allocated(result);
+      if (allocated > MAX_ALLOCATION) {
+        throw new IllegalStateException(result.getParams().getBenchmark()
+            + " allocates " + allocated + " bytes per command, more than " + MAX_ALLOCATION);
+      }
+    }
+  }
+
+  private static double allocated(RunResult result) {
+    return result.getSecondaryResults().entrySet().stream()
+        .filter(entry -> entry.getKey().endsWith("gc.alloc.rate.norm"))
+        .mapToDouble(entry -> entry.getValue().getScore())
+        .findFirst()
+        .orElseThrow(() -> new IllegalStateException("missing gc.alloc.rate.norm"));
+  }
+}
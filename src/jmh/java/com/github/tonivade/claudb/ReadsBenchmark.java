@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.github.tonivade.resp.RespServer;
+
+import redis.clients.jedis.Jedis;
+
+/**
+ * Measures the throughput of many clients with 90% of reads and 10% of writes, with and
+ * without concurrent reads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(16)
+public class ReadsBenchmark {
+
+  private static final int PORT = 7084;
+  private static final int KEYS = 10000;
+
+  @Param({ "false", "true" })
+  public boolean concurrent;
+
+  private RespServer server;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    DBConfig.Builder builder = DBConfig.builder();
+    if (concurrent) {
+      builder.withConcurrentReads();
+    }
+    server = ClauDB.builder().port(PORT).config(builder.build()).build();
+    server.start();
+    try (Jedis jedis = new Jedis("localhost", PORT)) {
+      for (int i = 0; i < KEYS; i++) {
+        jedis.set("key:" + i, "value:" + i);
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    server.stop();
+  }
+
+  @State(Scope.Thread)
+  public static class Client {
+
+    private Jedis jedis;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      jedis = new Jedis("localhost", PORT);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      jedis.close();
+    }
+  }
+
+  @Benchmark
+  public String readWrite(Client client) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    String key = "key:" + random.nextInt(KEYS);
+    if (random.nextInt(10) == 0) {
+      return client.jedis.set(key, "value");
+    }
+    return client.jedis.get(key);
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.github.tonivade.resp.RespServer;
+
+import redis.clients.jedis.Jedis;
+
+/**
+ * Measures the GET/SET throughput of many clients with the keyspace split in a different number
+ * of shards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(16)
+public class ShardsBenchmark {
+
+  private static final int PORT = 7083;
+  private static final int KEYS = 10000;
+
+  @Param({ "1", "2", "4", "8", "16" })
+  public int shards;
+
+  private RespServer server;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    server = ClauDB.builder().port(PORT).config(DBConfig.builder().withShards(shards).build()).build();
+    server.start();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    server.stop();
+  }
+
+  @State(Scope.Thread)
+  public static class Client {
+
+    private Jedis jedis;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      jedis = new Jedis("localhost", PORT);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      jedis.close();
+    }
+  }
+
+  @Benchmark
+  public String set(Client client) {
+    return client.jedis.set(key(), "value");
+  }
+
+  @Benchmark
+  public String get(Client client) {
+    return client.jedis.get(key());
+  }
+
+  private static String key() {
+    return "key:" + ThreadLocalRandom.current().nextInt(KEYS);
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.persistence;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.OnHeapDatabaseFactory;
+
+/**
+ * Measures the time to write a RDB snapshot to disk, the size of the snapshot is printed
+ * at the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RDBBenchmark {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  @Param({ "100000" })
+  public int keys;
+
+  @Param({ "true", "false" })
+  public boolean compression;
+
+  private File file;
+  private Database database;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    file = File.createTempFile("dump", ".rdb");
+    database = new OnHeapDatabaseFactory().create("benchmark");
+    for (int i = 0; i < keys; i++) {
+      database.put(safeKey("user:" + i), string("{\"id\":" + i + ",\"name\":\"user" + i
+          + "\",\"email\":\"user" + i + "@example.com\",\"active\":true,\"roles\":[\"user\",\"reader\"]}"));
+      database.put(safeKey("counter:" + i), string(String.valueOf(i)));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    System.out.println("snapshot size (compression=" + compression + "): " + file.length() + " bytes");
+    file.delete();
+  }
+
+  @Benchmark
+  public void write() throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), CREATE, WRITE, TRUNCATE_EXISTING)) {
+      OutputStream output = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+      RDBOutputStream rdb = new RDBOutputStream(output, compression);
+      rdb.preamble(6);
+      rdb.select(0);
+      rdb.dabatase(database);
+      rdb.end();
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.persistence;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.tonivade.claudb.ClauDB;
+import com.github.tonivade.claudb.DBConfig;
+import com.github.tonivade.claudb.data.DatabaseKey;
+import com.github.tonivade.claudb.data.DatabaseSnapshot;
+import com.github.tonivade.claudb.data.DatabaseValue;
+import com.github.tonivade.purefun.Tuple;
+import com.github.tonivade.purefun.Tuple2;
+import com.github.tonivade.purefun.data.ImmutableList;
+import com.github.tonivade.purefun.data.ImmutableSet;
+import com.github.tonivade.resp.RespServer;
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Measures the time to start a server with an AOF of the given size, written as plain commands
+ * or as a RDB preamble (1 GB of 1 KB strings by default).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class StartupBenchmark {
+
+  private static final int VALUE_SIZE = 1024;
+  private static final int PORT = 7082;
+
+  @Param({ "1024" })
+  public int megabytes;
+
+  @Param({ "commands", "preamble" })
+  public String format;
+
+  private File directory;
+  private DBConfig config;
+  private RespServer server;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("claudb").toFile();
+
+    config = DBConfig.builder().withPersistence().build();
+    config.setAofFile(new File(directory, "redo.aof").getPath());
+    config.setRdbFile(new File(directory, "dump.rdb").getPath());
+
+    ImmutableSet<Tuple2<DatabaseKey, DatabaseValue>> entries = dataset();
+    File aof = new File(config.getAofFile());
+    if ("preamble".equals(format)) {
+      try (OutputStream output = new BufferedOutputStream(new FileOutputStream(aof))) {
+        AOFRewrite.preamble(output, ImmutableList.of(DatabaseSnapshot.of(entries)));
+      }
+    } else {
+      try (RespWriter output = new RespWriter(FileChannel.open(aof.toPath(), CREATE, WRITE, TRUNCATE_EXISTING))) {
+        new AOFRewrite(output).database(0, entries, System.currentTimeMillis());
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    for (File file : directory.listFiles()) {
+      file.delete();
+    }
+    directory.delete();
+  }
+
+  @TearDown(Level.Invocation)
+  public void stop() {
+    server.stop();
+  }
+
+  @Benchmark
+  public void startup() {
+    server = ClauDB.builder().port(PORT).config(config).build();
+    server.start();
+  }
+
+  private ImmutableSet<Tuple2<DatabaseKey, DatabaseValue>> dataset() {
+    int keys = (int) ((long) megabytes * 1024 * 1024 / VALUE_SIZE);
+    byte[] value = new byte[VALUE_SIZE];
+    Arrays.fill(value, (byte) 'x');
+    List<Tuple2<DatabaseKey, DatabaseValue>> entries = new ArrayList<>(keys);
+    for (int i = 0; i < keys; i++) {
+      entries.add(Tuple.of(safeKey("key:" + i), string(new SafeString(value))));
+    }
+    return ImmutableSet.from(entries);
+  }
+}
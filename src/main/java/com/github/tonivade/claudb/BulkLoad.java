@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import com.github.tonivade.claudb.persistence.RDBBuilder;
+import com.github.tonivade.claudb.persistence.RDBBuilder.Format;
+
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+
+public class BulkLoad {
+
+  private static final int BUFFER_SIZE = 1024 * 1024;
+
+  public static void main(String[] args) throws IOException {
+    OptionParser parser = new OptionParser();
+    OptionSpec<Void> help = parser.accepts("help", "print help");
+    OptionSpec<String> input = parser.accepts("i", "input file, or - to read the standard input")
+        .withRequiredArg().ofType(String.class).defaultsTo("-");
+    OptionSpec<String> output = parser.accepts("o", "output file").withRequiredArg().ofType(String.class)
+        .defaultsTo("dump.rdb");
+    OptionSpec<Format> format = parser.accepts("f", "input format, CSV (key,value) or TAB (key<tab>value)")
+        .withRequiredArg().ofType(Format.class).defaultsTo(Format.CSV);
+    OptionSpec<Integer> database = parser.accepts("d", "database").withRequiredArg().ofType(Integer.class)
+        .defaultsTo(0);
+    OptionSpec<Integer> chunkSize = parser.accepts("c", "lines sorted in memory at once").withRequiredArg()
+        .ofType(Integer.class).defaultsTo(1_000_000);
+    OptionSpec<Integer> threads = parser.accepts("t", "threads that sort and encode the chunks").withRequiredArg()
+        .ofType(Integer.class).defaultsTo(Runtime.getRuntime().availableProcessors());
+    OptionSpec<File> tempDir = parser.accepts("T", "directory for the temporary files").withRequiredArg()
+        .ofType(File.class);
+
+    OptionSet options = parser.parse(args);
+
+    if (options.has(help)) {
+      parser.printHelpOn(System.out);
+    } else {
+      RDBBuilder builder = RDBBuilder.builder()
+          .withFormat(options.valueOf(format))
+          .withDatabase(options.valueOf(database))
+          .withChunkSize(options.valueOf(chunkSize))
+          .withThreads(options.valueOf(threads))
+          .withTempDir(options.valueOf(tempDir))
+          .build();
+
+      long start = System.currentTimeMillis();
+      try (BufferedReader reader = new BufferedReader(
+              new InputStreamReader(open(options.valueOf(input)), StandardCharsets.UTF_8), BUFFER_SIZE);
+           OutputStream rdb = new BufferedOutputStream(new FileOutputStream(options.valueOf(output)), BUFFER_SIZE)) {
+        long keys = builder.build(reader, rdb);
+        System.out.println(keys + " keys written to " + options.valueOf(output)
+            + " in " + (System.currentTimeMillis() - start) + "ms");
+      }
+    }
+  }
+
+  private static InputStream open(String input) throws IOException {
+    return "-".equals(input) ? System.in : new FileInputStream(input);
+  }
+}
@@ -9,26 +9,49 @@ import static com.github.tonivade.resp.protocol.RedisToken.error;
 import static com.github.tonivade.resp.protocol.SafeString.safeString;
 import static java.lang.String.valueOf;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import io.reactivex.rxjava3.core.Observable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.tonivade.claudb.command.CommandKeys;
 import com.github.tonivade.claudb.command.DBCommandSuite;
 import com.github.tonivade.claudb.data.Database;
 import com.github.tonivade.claudb.data.DatabaseCleaner;
+import com.github.tonivade.claudb.data.DatabaseClock;
 import com.github.tonivade.claudb.data.DatabaseFactory;
+import com.github.tonivade.claudb.data.DatabaseFullException;
+import com.github.tonivade.claudb.data.DatabaseSnapshot;
+import com.github.tonivade.claudb.data.LSMDatabaseFactory;
+import com.github.tonivade.claudb.data.MappedDatabaseFactory;
 import com.github.tonivade.claudb.data.OffHeapDatabaseFactory;
 import com.github.tonivade.claudb.data.OnHeapDatabaseFactory;
+import com.github.tonivade.claudb.data.ShardedDatabase;
+import com.github.tonivade.claudb.data.ShardedDatabaseFactory;
+import com.github.tonivade.claudb.data.TieredDatabaseFactory;
+import com.github.tonivade.claudb.data.TrackedDatabase.Delta;
+import com.github.tonivade.claudb.data.VersionedDatabaseFactory;
 import com.github.tonivade.claudb.event.Event;
 import com.github.tonivade.claudb.event.NotificationManager;
+import com.github.tonivade.claudb.persistence.AppendFsync;
 import com.github.tonivade.claudb.persistence.PersistenceManager;
+import com.github.tonivade.purefun.Tuple;
+import com.github.tonivade.purefun.Tuple2;
 import com.github.tonivade.purefun.data.ImmutableArray;
 import com.github.tonivade.purefun.data.ImmutableList;
+import com.github.tonivade.purefun.data.Sequence;
 import com.github.tonivade.purefun.type.Option;
 import com.github.tonivade.resp.RespServer;
 import com.github.tonivade.resp.RespServerContext;
@@ -37,16 +60,24 @@ import com.github.tonivade.resp.command.Request;
 import com.github.tonivade.resp.command.RespCommand;
 import com.github.tonivade.resp.command.Session;
 import com.github.tonivade.resp.protocol.RedisToken;
+import com.github.tonivade.resp.protocol.SafeString;
 
 public class ClauDB extends RespServerContext implements DBServerContext {
 
   private static final String STATE = "state";
+  private static final String TRANSACTION = "tx";
+
+  private static final int ANY_SHARD = -1;
+  private static final int ALL_SHARDS = -2;
+  private static final int ADMIN_SHARD = 0;
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ClauDB.class);
 
   private DatabaseCleaner cleaner;
   private Option<PersistenceManager> persistence;
   private Option<NotificationManager> notifications;
+  private Option<ShardExecutor> shards = Option.none();
+  private Option<ReadWriteExecutor> readWrite = Option.none();
 
   private final DBConfig config;
 
@@ -69,6 +100,8 @@ public class ClauDB extends RespServerContext implements DBServerContext {
 
   @Override
   public void start() {
+    config.getClock().start();
+
     super.start();
 
     init();
@@ -85,6 +118,7 @@ public class ClauDB extends RespServerContext implements DBServerContext {
     persistence.ifPresent(PersistenceManager::stop);
     notifications.ifPresent(NotificationManager::stop);
     cleaner.stop();
+    shards.ifPresent(ShardExecutor::shutdown);
 
     getState().clear();
 
@@ -93,6 +127,13 @@ public class ClauDB extends RespServerContext implements DBServerContext {
     cleaner = null;
 
     super.stop();
+
+    config.getClock().stop();
+  }
+
+  @Override
+  public DatabaseClock getClock() {
+    return config.getClock();
   }
 
   @Override
@@ -121,20 +162,56 @@ public class ClauDB extends RespServerContext implements DBServerContext {
     return getState().getDatabase(i);
   }
 
+  /**
+   * Only the snapshot is taken while the commands are stopped (see {@link #global}), it does
+   * not copy the keys, every database starts to write to a new version (see
+   * {@link com.github.tonivade.claudb.data.VersionedDatabase}), and then the snapshot is read
+   * and serialized in the calling thread while commands keep running.
+   */
   @Override
   public void exportRDB(OutputStream output) throws IOException {
-    executeOn(Observable.create(observable -> {
-      getState().exportRDB(output);
+    long start = System.nanoTime();
+    ImmutableList<DatabaseSnapshot> snapshot = snapshot(() -> { });
+    getState().getPersistenceStats().snapshotTaken(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    try {
+      DBServerState.exportRDB(output, snapshot);
+    } finally {
+      snapshot.forEach(DatabaseSnapshot::close);
+    }
+  }
+
+  @Override
+  public boolean bgsave() {
+    return persistence.map(PersistenceManager::bgsave).getOrElse(false);
+  }
+
+  @Override
+  public ImmutableList<DatabaseSnapshot> snapshot(Runnable onSnapshot) {
+    return global(() -> executeOn(Observable.<ImmutableList<DatabaseSnapshot>>create(observable -> {
+      onSnapshot.run();
+      observable.onNext(getState().snapshot());
       observable.onComplete();
-    })).blockingSubscribe();
+    })).blockingFirst());
   }
 
   @Override
-  public void importRDB(InputStream input) throws IOException {
-    executeOn(Observable.create(observable -> {
-      getState().importRDB(input);
+  public ImmutableList<Delta> delta(Runnable onDelta) {
+    return global(() -> executeOn(Observable.<ImmutableList<Delta>>create(observable -> {
+      onDelta.run();
+      observable.onNext(getState().delta());
       observable.onComplete();
-    })).blockingSubscribe();
+    })).blockingFirst());
+  }
+
+  @Override
+  public void importRDB(InputStream input) throws IOException {
+    global(() -> {
+      executeOn(Observable.create(observable -> {
+        getState().importRDB(input, getClock());
+        observable.onComplete();
+      })).blockingSubscribe();
+      return null;
+    });
   }
 
   @Override
@@ -148,21 +225,255 @@ public class ClauDB extends RespServerContext implements DBServerContext {
   }
 
   @Override
-  public void clean(Instant now) {
-    executeOn(Observable.create(observable -> {
-      getState().evictExpired(now);
-      observable.onComplete();
-    })).blockingSubscribe();
+  public void clean(long nowMillis) {
+    global(() -> {
+      executeOn(Observable.create(observable -> {
+        getState().evictExpired(nowMillis);
+        observable.onComplete();
+      })).blockingSubscribe();
+      return null;
+    });
+  }
+
+  /**
+   * runs the task while no command is running: with the command thread or the shards, the task
+   * runs with all of them stopped, and with the concurrent reads it runs as a write. The lock is
+   * taken in the calling thread, so a command that is already running alone can call it again
+   */
+  private <T> T global(Supplier<T> task) {
+    if (shards.isPresent()) {
+      return shards.get().executeAll(task);
+    }
+    if (readWrite.isPresent()) {
+      return readWrite.get().write(task);
+    }
+    return task.get();
+  }
+
+  @Override
+  public Session getSession(String sourceKey) {
+    return super.getSession(sourceKey);
+  }
+
+  /**
+   * Executes the requests received together from a client, one after the other, and gives
+   * all the responses at once, so they can be written with a single flush.
+   *
+   * With the command thread the whole batch runs in a single task, and with the shards the
+   * consecutive requests over the keys of a single shard are grouped by shard and every group
+   * runs in a single task. The rest of requests (without keys, over many shards, or inside a
+   * transaction) run alone, in order.
+   *
+   * When a command suspends the client (like WAIT), the requests after it are not executed,
+   * and the responses are given when its reply is completed. With appendfsync always, the
+   * responses of a batch with writes are given when the AOF file is forced.
+   *
+   * It is called from the I/O thread and it waits there until the tasks of the shards are
+   * done, so the other clients of that thread wait for the batch too. Only the commands that
+   * suspend the client (like a blocking pop or WAIT) complete the reply later, in other thread.
+   */
+  public Batch processBatch(List<Request> requests) {
+    RedisToken[] responses = new RedisToken[requests.size()];
+    int executed;
+    if (shards.isPresent() && shards.get().size() == 1) {
+      executed = shards.get().execute(0, () -> executeInOrder(requests, 0, requests.size(), responses));
+    } else if (shards.isPresent()) {
+      executed = executeSharded(shards.get(), requests, responses);
+    } else {
+      executed = executeInOrder(requests, 0, requests.size(), responses);
+    }
+    Option<CompletableFuture<RedisToken>> suspended =
+        executed > 0 ? resume(requests.get(executed - 1).getSession()) : Option.none();
+    CompletableFuture<ImmutableList<Tuple2<Request, RedisToken>>> replies = suspended
+        .map(reply -> reply.thenApply(token -> {
+          responses[executed - 1] = token;
+          return collect(requests, responses, executed);
+        }))
+        .getOrElse(() -> CompletableFuture.completedFuture(collect(requests, responses, executed)));
+    if (persistence.isPresent() && hasWrites(requests, executed)) {
+      // with appendfsync always the replies wait until the commands are forced to disk
+      replies = replies.thenCombine(persistence.get().sync(), (result, synced) -> result);
+    }
+    return new Batch(executed, replies);
+  }
+
+  private boolean hasWrites(List<Request> requests, int executed) {
+    for (int i = 0; i < executed; i++) {
+      if (!isReadOnlyCommand(requests.get(i).getCommand())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private ImmutableList<Tuple2<Request, RedisToken>> collect(List<Request> requests, RedisToken[] responses, int executed) {
+    List<Tuple2<Request, RedisToken>> result = new ArrayList<>(executed);
+    for (int i = 0; i < executed; i++) {
+      if (responses[i] != NO_REPLY) {
+        result.add(Tuple.of(requests.get(i), responses[i]));
+      }
+    }
+    return ImmutableList.from(result);
+  }
+
+  /**
+   * @return the index after the last request executed
+   */
+  private int executeInOrder(List<Request> requests, int from, int to, RedisToken[] responses) {
+    for (int i = from; i < to; i++) {
+      responses[i] = executeRequest(requests.get(i));
+      if (isSuspended(requests.get(i).getSession())) {
+        return i + 1;
+      }
+    }
+    return to;
+  }
+
+  private Void executeInOrder(List<Request> requests, List<Integer> indexes, RedisToken[] responses) {
+    for (int i : indexes) {
+      responses[i] = executeRequest(requests.get(i));
+    }
+    return null;
+  }
+
+  private int executeSharded(ShardExecutor executor, List<Request> requests, RedisToken[] responses) {
+    int next = 0;
+    while (next < requests.size()) {
+      Map<Integer, List<Integer>> groups = new HashMap<>();
+      int end = next;
+      if (!isInTransaction(requests.get(next).getSession())) {
+        for (; end < requests.size(); end++) {
+          int shard = shardOf(requests.get(end), executor.size());
+          if (shard < 0) {
+            break;
+          }
+          groups.computeIfAbsent(shard, key -> new ArrayList<>()).add(end);
+        }
+      }
+      if (end == next) {
+        end = executeInOrder(requests, next, next + 1, responses);
+        if (isSuspended(requests.get(next).getSession())) {
+          return end;
+        }
+      } else {
+        Map<Integer, Supplier<Void>> tasks = new HashMap<>(groups.size());
+        groups.forEach((shard, indexes) -> tasks.put(shard, () -> executeInOrder(requests, indexes, responses)));
+        executor.executeEach(tasks);
+      }
+      next = end;
+    }
+    return next;
+  }
+
+  private RedisToken executeRequest(Request request) {
+    LOGGER.debug("received command: {}", request);
+    return executeCommand(getCommand(request.getCommand()), request);
+  }
+
+  private boolean isSuspended(Session session) {
+    return sessionState(session).map(DBSessionState::isSuspended).getOrElse(false);
+  }
+
+  private Option<CompletableFuture<RedisToken>> resume(Session session) {
+    return sessionState(session).flatMap(DBSessionState::resume);
+  }
+
+  private boolean isInTransaction(Session session) {
+    return session.getValue(TRANSACTION).isPresent();
+  }
+
+  @Override
+  protected <T> Observable<T> executeOn(Observable<T> observable) {
+    return super.executeOn(observable).filter(response -> response != NO_REPLY);
   }
 
   @Override
   protected RedisToken executeCommand(RespCommand command, Request request) {
-    if (!isReadOnly(request.getCommand())) {
+    if (shards.isPresent()) {
+      return executeSharded(shards.get(), command, request);
+    }
+    if (readWrite.isPresent()) {
+      return executeReadWrite(readWrite.get(), command, request);
+    }
+    return execute(command, request);
+  }
+
+  private RedisToken executeSharded(ShardExecutor executor, RespCommand command, Request request) {
+    int shard = shardOf(request, executor.size());
+    if (shard == ALL_SHARDS) {
+      return executor.executeAll(() -> execute(command, request));
+    }
+    if (shard == ANY_SHARD) {
+      return execute(command, request);
+    }
+    return executor.execute(shard, () -> execute(command, request));
+  }
+
+  @Override
+  public <T> T executeOnKeys(Sequence<SafeString> keys, Supplier<T> task) {
+    if (shards.isPresent()) {
+      int shard = shardOf(keys, shards.get().size());
+      return shard >= 0 ? shards.get().execute(shard, task) : shards.get().executeAll(task);
+    }
+    if (readWrite.isPresent()) {
+      return readWrite.get().write(task);
+    }
+    return task.get();
+  }
+
+  /**
+   * the shard that owns the keys of the request, {@link #ANY_SHARD} when the request has no keys,
+   * and {@link #ALL_SHARDS} when the keys are unknown or belong to many shards. The requests that
+   * only use the admin database run always in {@link #ADMIN_SHARD}, so they do not stop the others.
+   */
+  private static int shardOf(Request request, int size) {
+    if (CommandKeys.isAdmin(request)) {
+      return ADMIN_SHARD;
+    }
+    Option<Sequence<SafeString>> keys = CommandKeys.keys(request);
+    if (!keys.isPresent()) {
+      return ALL_SHARDS;
+    }
+    return shardOf(keys.get(), size);
+  }
+
+  private static int shardOf(Sequence<SafeString> keys, int size) {
+    int shard = ANY_SHARD;
+    for (SafeString key : keys) {
+      int current = ShardedDatabase.shard(key, size);
+      if (shard >= 0 && shard != current) {
+        return ALL_SHARDS;
+      }
+      shard = current;
+    }
+    return shard;
+  }
+
+  private RedisToken executeReadWrite(ReadWriteExecutor executor, RespCommand command, Request request) {
+    Option<Sequence<SafeString>> keys = CommandKeys.keys(request);
+    if (keys.isPresent() && keys.get().isEmpty()) {
+      return execute(command, request);
+    }
+    if (keys.isPresent() && isReadOnlyCommand(request.getCommand())) {
+      return executor.read(() -> execute(command, request));
+    }
+    return executor.write(() -> execute(command, request));
+  }
+
+  private RedisToken execute(RespCommand command, Request request) {
+    boolean readOnly = isReadOnlyCommand(request.getCommand());
+    if (isMaster() || readOnly) {
       try {
         RedisToken response = command.execute(request);
-        replication(request);
-        notification(request);
+        if (!readOnly) {
+          if (!getDBCommands().isSelfReplicated(request.getCommand())) {
+            replication(request);
+          }
+          notification(request);
+        }
         return response;
+      } catch (DatabaseFullException e) {
+        return error("OOM " + e.getMessage());
       } catch (RuntimeException e) {
         LOGGER.error("error executing command: " + request, e);
         return error("error executing command: " + request);
@@ -172,22 +483,29 @@ public class ClauDB extends RespServerContext implements DBServerContext {
     }
   }
 
-  private boolean isReadOnly(String command) {
-    return !isMaster() && !isReadOnlyCommand(command);
+  @Override
+  public void replicate(int db, ImmutableList<SafeString> command) {
+    if (hasSlaves() || persistence.isPresent()) {
+      ImmutableList<RedisToken> array = ImmutableList.of(RedisToken.string(valueOf(db)));
+      replication(RedisToken.array(array.appendAll(command.map(RedisToken::string))));
+    }
   }
 
   private void replication(Request request) {
-    if (!isReadOnlyCommand(request.getCommand())) {
-      RedisToken array = requestToArray(request);
-      if (hasSlaves()) {
-        getState().append(array);
-      }
-      persistence.ifPresent(manager -> manager.append(array));
+    if (hasSlaves() || persistence.isPresent()) {
+      replication(requestToArray(request));
     }
   }
 
+  private void replication(RedisToken array) {
+    if (hasSlaves()) {
+      getState().append(array);
+    }
+    persistence.ifPresent(manager -> manager.append(array));
+  }
+
   private void notification(Request request) {
-    if (!isReadOnlyCommand(request.getCommand()) && request.getLength() > 1) {
+    if (request.getLength() > 1) {
       notifications.ifPresent(manager -> publishEvent(manager, request));
     }
   }
@@ -262,13 +580,50 @@ public class ClauDB extends RespServerContext implements DBServerContext {
   private void init() {
     DatabaseFactory factory = initFactory();
 
-    putValue(STATE, new DBServerState(factory, config.getNumDatabases()));
+    DBServerState state = new DBServerState(factory, initFactories(), config.getNumDatabases());
+    state.setReplicationCompression(config.isReplicationCompression());
+    if (config.isPersistenceActive() && config.getSnapshotPeriod() > 0) {
+      state.trackChanges();
+    }
+    putValue(STATE, state);
 
+    initShards();
+    initReadWrite();
     initPersistence();
     initNotifications();
     initCleaner();
   }
 
+  private void initShards() {
+    if (config.getShards() > 0) {
+      this.shards = Option.some(new ShardExecutor(config.getShards()));
+    } else if (!isConcurrentReads()) {
+      // the io threads only parse and encode, all the commands run in a single thread, so
+      // a global task (a snapshot, a rewrite) never runs at the same time as a command
+      this.shards = Option.some(new ShardExecutor(1));
+    } else {
+      this.shards = Option.none();
+    }
+  }
+
+  private void initReadWrite() {
+    if (isConcurrentReads()) {
+      this.readWrite = Option.some(new ReadWriteExecutor());
+    } else {
+      this.readWrite = Option.none();
+    }
+  }
+
+  /**
+   * the default factory is created concurrent, but the ones configured for some databases
+   * must be already
+   */
+  private boolean isConcurrentReads() {
+    return config.isConcurrentReads() && config.getShards() == 0
+        && !config.isMappedActive() && !config.isDiskActive() && !config.isOffHeapActive()
+        && config.getDatabaseFactories().values().stream().allMatch(DatabaseFactory::isConcurrent);
+  }
+
   private void initCleaner() {
     this.cleaner = new DatabaseCleaner(this, config);
   }
@@ -283,7 +638,7 @@ public class ClauDB extends RespServerContext implements DBServerContext {
 
   private void initPersistence() {
     if (config.isPersistenceActive()) {
-      this.persistence = Option.some(new PersistenceManager(this, config));
+      this.persistence = Option.some(new PersistenceManager(this, config, getState().getPersistenceStats()));
     } else {
       this.persistence = Option.none();
     }
@@ -291,14 +646,64 @@ public class ClauDB extends RespServerContext implements DBServerContext {
 
   private DatabaseFactory initFactory() {
     DatabaseFactory factory = null;
-    if (config.isOffHeapActive()) {
-      factory = new OffHeapDatabaseFactory();
+    if (config.isMappedActive()) {
+      factory = new MappedDatabaseFactory(
+          new File(config.getMappedDirectory()), forcePeriod(config.getAppendFsync()), config.getClock());
+    } else if (config.isDiskActive()) {
+      factory = new LSMDatabaseFactory(
+          new File(config.getDiskDirectory()), forcePeriod(config.getAppendFsync()), config.getClock());
+    } else if (config.isOffHeapActive() && config.getHotKeys() > 0) {
+      factory = new TieredDatabaseFactory(
+          new OffHeapDatabaseFactory(0, config.getClock()), config.getHotKeys(), config.getClock());
+    } else if (config.isOffHeapActive()) {
+      factory = new OffHeapDatabaseFactory(0, config.getClock());
     } else {
-      factory = new OnHeapDatabaseFactory();
+      factory = new OnHeapDatabaseFactory(isConcurrentReads(), config.getClock());
+    }
+    factory = versioned(factory);
+    if (config.getShards() > 0) {
+      factory = new ShardedDatabaseFactory(factory, config.getShards());
     }
     return factory;
   }
 
+  /**
+   * the factories configured for some databases are sharded too, because the shard threads
+   * write to the same database at the same time, the same factory is wrapped only once
+   */
+  private Map<Integer, DatabaseFactory> initFactories() {
+    Map<Integer, DatabaseFactory> factories = new HashMap<>(config.getDatabaseFactories());
+    Map<DatabaseFactory, DatabaseFactory> wrapped = new IdentityHashMap<>();
+    factories.replaceAll((db, factory) -> wrapped.computeIfAbsent(factory, f -> {
+      DatabaseFactory versioned = versioned(f);
+      return config.getShards() > 0 ? new ShardedDatabaseFactory(versioned, config.getShards()) : versioned;
+    }));
+    return factories;
+  }
+
+  /**
+   * the databases that cannot take a snapshot without copying the keys are versioned, below
+   * the shards, so every version is written only by the thread of its shard
+   */
+  private DatabaseFactory versioned(DatabaseFactory factory) {
+    return factory.isVersioned() ? factory : new VersionedDatabaseFactory(factory, config.getClock());
+  }
+
+  /**
+   * the mapped files and the logs of the disk databases are written to disk following the
+   * fsync policy of the AOF file
+   */
+  private static int forcePeriod(AppendFsync appendFsync) {
+    switch (appendFsync) {
+    case ALWAYS:
+      return 0;
+    case NO:
+      return -1;
+    default:
+      return 1;
+    }
+  }
+
   private static final class DBSessionListener implements SessionListener {
     @Override
     public void sessionDeleted(Session session) {
@@ -332,7 +737,29 @@ public class ClauDB extends RespServerContext implements DBServerContext {
     }
 
     public RespServer build() {
-      return new RespServer(new ClauDB(host, port, config));
+      return new ClauDBServer(new ClauDB(host, port, config), config.getIoThreads());
+    }
+  }
+
+  /**
+   * The requests of a batch that were executed, and their responses
+   */
+  public static final class Batch {
+
+    private final int executed;
+    private final CompletableFuture<ImmutableList<Tuple2<Request, RedisToken>>> responses;
+
+    private Batch(int executed, CompletableFuture<ImmutableList<Tuple2<Request, RedisToken>>> responses) {
+      this.executed = executed;
+      this.responses = responses;
+    }
+
+    public int getExecuted() {
+      return executed;
+    }
+
+    public CompletableFuture<ImmutableList<Tuple2<Request, RedisToken>>> getResponses() {
+      return responses;
     }
   }
 }
@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb;
+
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.tonivade.claudb.ClauDB.Batch;
+import com.github.tonivade.purefun.Tuple2;
+import com.github.tonivade.purefun.data.ImmutableArray;
+import com.github.tonivade.purefun.data.ImmutableList;
+import com.github.tonivade.resp.RespServer;
+import com.github.tonivade.resp.command.DefaultRequest;
+import com.github.tonivade.resp.command.Request;
+import com.github.tonivade.resp.command.Session;
+import com.github.tonivade.resp.protocol.AbstractRedisToken.ArrayRedisToken;
+import com.github.tonivade.resp.protocol.AbstractRedisToken.StringRedisToken;
+import com.github.tonivade.resp.protocol.AbstractRedisToken.UnknownRedisToken;
+import com.github.tonivade.resp.protocol.RedisDecoder;
+import com.github.tonivade.resp.protocol.RedisEncoder;
+import com.github.tonivade.resp.protocol.RedisToken;
+import com.github.tonivade.resp.protocol.SafeString;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+
+/**
+ * Server with a configurable number of I/O threads, they read and parse the requests, and
+ * encode and write the responses, the commands are executed by the server context.
+ *
+ * All the requests decoded from the same read of a client (many of them when pipelining) are
+ * executed as a batch, and the responses are written in the I/O thread with a single flush.
+ */
+public class ClauDBServer extends RespServer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ClauDBServer.class);
+
+  private static final int BUFFER_SIZE = 1024 * 1024;
+  private static final int MAX_FRAME_SIZE = 100 * 1024 * 1024;
+
+  private final ClauDB serverContext;
+  private final int ioThreads;
+
+  private EventLoopGroup bossGroup;
+  private EventLoopGroup workerGroup;
+  private ChannelFuture future;
+
+  /**
+   * @param ioThreads number of I/O threads, 0 to use twice the number of processors
+   */
+  public ClauDBServer(ClauDB serverContext, int ioThreads) {
+    super(serverContext);
+    this.serverContext = serverContext;
+    this.ioThreads = ioThreads > 0 ? ioThreads : Runtime.getRuntime().availableProcessors() * 2;
+  }
+
+  @Override
+  public void start() {
+    bossGroup = new NioEventLoopGroup(1);
+    workerGroup = new NioEventLoopGroup(ioThreads);
+
+    ServerBootstrap bootstrap = new ServerBootstrap();
+    bootstrap.group(bossGroup, workerGroup)
+        .channel(NioServerSocketChannel.class)
+        .childHandler(new ChannelInitializer<SocketChannel>() {
+          @Override
+          protected void initChannel(SocketChannel channel) {
+            channel(channel);
+          }
+
+          @Override
+          public void channelInactive(ChannelHandlerContext ctx) {
+            disconnected(ctx);
+          }
+        })
+        .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+        .option(ChannelOption.SO_RCVBUF, BUFFER_SIZE)
+        .option(ChannelOption.SO_SNDBUF, BUFFER_SIZE)
+        .childOption(ChannelOption.SO_KEEPALIVE, true)
+        .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+
+    future = bootstrap.bind(serverContext.getHost(), serverContext.getPort());
+    future.syncUninterruptibly();
+
+    serverContext.start();
+
+    LOGGER.info("server started: {}:{} with {} io threads", serverContext.getHost(), serverContext.getPort(), ioThreads);
+  }
+
+  @Override
+  public void stop() {
+    try {
+      if (future != null) {
+        future.channel().close().syncUninterruptibly();
+      }
+      future = null;
+    } finally {
+      workerGroup = close(workerGroup);
+      bossGroup = close(bossGroup);
+    }
+
+    serverContext.stop();
+
+    LOGGER.info("server stopped");
+  }
+
+  @Override
+  public void channel(SocketChannel channel) {
+    channel.pipeline().addLast("redisEncoder", new RedisEncoder());
+    channel.pipeline().addLast("linDelimiter", new RedisDecoder(MAX_FRAME_SIZE));
+    channel.pipeline().addLast(new BatchHandler());
+  }
+
+  /**
+   * @return false when the client asked to close the connection
+   */
+  private boolean write(ChannelHandlerContext ctx, ImmutableList<Tuple2<Request, RedisToken>> responses) {
+    for (Tuple2<Request, RedisToken> response : responses) {
+      ctx.write(response.get2());
+      if (response.get1().isExit()) {
+        ctx.flush();
+        response.get1().getSession().close();
+        return false;
+      }
+    }
+    ctx.flush();
+    return true;
+  }
+
+  private Request parseMessage(RedisToken message, Session session) {
+    if (message instanceof ArrayRedisToken) {
+      List<SafeString> params = new ArrayList<>();
+      for (RedisToken token : ((ArrayRedisToken) message).getValue()) {
+        if (token instanceof StringRedisToken) {
+          params.add(((StringRedisToken) token).getValue());
+        }
+      }
+      if (params.isEmpty()) {
+        return null;
+      }
+      return new DefaultRequest(serverContext, session, params.remove(0), ImmutableArray.from(params));
+    }
+    if (message instanceof UnknownRedisToken) {
+      String[] params = ((UnknownRedisToken) message).getValue().toString().split(" ");
+      List<SafeString> array = new ArrayList<>(params.length - 1);
+      for (int i = 1; i < params.length; i++) {
+        array.add(safeString(params[i]));
+      }
+      return new DefaultRequest(serverContext, session, safeString(params[0]), ImmutableArray.from(array));
+    }
+    return null;
+  }
+
+  private static String sourceKey(ChannelHandlerContext ctx) {
+    InetSocketAddress remoteAddress = (InetSocketAddress) ctx.channel().remoteAddress();
+    return remoteAddress.getHostName() + ":" + remoteAddress.getPort();
+  }
+
+  private static EventLoopGroup close(EventLoopGroup group) {
+    if (group != null) {
+      group.shutdownGracefully().syncUninterruptibly();
+    }
+    return null;
+  }
+
+  /**
+   * Keeps the requests decoded from a read of the socket and processes them as a batch. While
+   * the client is suspended by a command, the socket is not read and the next requests wait
+   * until its reply is written.
+   *
+   * The batch is executed in the I/O thread, see {@link ClauDB#processBatch(List)}.
+   */
+  private final class BatchHandler extends ChannelInboundHandlerAdapter {
+
+    private final List<RedisToken> messages = new ArrayList<>();
+    private final List<Request> pending = new ArrayList<>();
+
+    private String sourceKey;
+    private boolean suspended;
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) {
+      sourceKey = sourceKey(ctx);
+      connected(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+      messages.add((RedisToken) msg);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+      if (!messages.isEmpty()) {
+        receive(ctx, new ArrayList<>(messages));
+      }
+      messages.clear();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+      LOGGER.debug("channel inactive");
+      messages.clear();
+      pending.clear();
+      disconnected(ctx);
+      ctx.close();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+      LOGGER.debug("uncaught exception", cause);
+      disconnected(ctx);
+      ctx.close();
+    }
+
+    private void receive(ChannelHandlerContext ctx, List<RedisToken> messages) {
+      Session session = serverContext.getSession(sourceKey);
+      if (session == null) {
+        messages.forEach(message -> ClauDBServer.this.receive(ctx, message));
+        return;
+      }
+      for (RedisToken message : messages) {
+        Request request = parseMessage(message, session);
+        if (request != null) {
+          pending.add(request);
+        }
+      }
+      process(ctx);
+    }
+
+    private void process(ChannelHandlerContext ctx) {
+      while (!suspended && !pending.isEmpty()) {
+        List<Request> requests = new ArrayList<>(pending);
+        pending.clear();
+        Batch batch = serverContext.processBatch(requests);
+        pending.addAll(requests.subList(batch.getExecuted(), requests.size()));
+        CompletableFuture<ImmutableList<Tuple2<Request, RedisToken>>> responses = batch.getResponses();
+        if (responses.isDone()) {
+          if (!write(ctx, responses.join())) {
+            pending.clear();
+          }
+        } else {
+          suspended = true;
+          ctx.channel().config().setAutoRead(false);
+          responses.whenComplete((result, error) -> ctx.executor().execute(() -> resume(ctx, result, error)));
+        }
+      }
+    }
+
+    private void resume(ChannelHandlerContext ctx,
+                        ImmutableList<Tuple2<Request, RedisToken>> responses, Throwable error) {
+      suspended = false;
+      ctx.channel().config().setAutoRead(true);
+      if (error != null) {
+        LOGGER.error("error executing commands", error);
+        ctx.close();
+      } else if (write(ctx, responses)) {
+        process(ctx);
+      } else {
+        pending.clear();
+      }
+    }
+  }
+}
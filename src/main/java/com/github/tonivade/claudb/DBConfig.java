@@ -4,26 +4,54 @@
  */
 package com.github.tonivade.claudb;
 
+import java.util.HashMap;
+import java.util.Map;
+
+import com.github.tonivade.claudb.data.DatabaseClock;
+import com.github.tonivade.claudb.data.DatabaseFactory;
+import com.github.tonivade.claudb.persistence.AppendFsync;
+
 public class DBConfig {
 
-  private static final int DEFAULT_SYNC_PERIOD = 60;
   private static final int DEFAULT_CLEAN_PERIOD = 30;
   private static final int DEFAULT_DATABASES = 10;
   private static final String DUMP_FILE = "dump.rdb";
   private static final String REDO_FILE = "redo.aof";
+  private static final int DEFAULT_REWRITE_PERCENTAGE = 100;
+  private static final long DEFAULT_REWRITE_MIN_SIZE = 64 * 1024 * 1024;
+  private static final int DEFAULT_MAX_SNAPSHOT_DELTAS = 10;
+  private static final String MAPPED_DIRECTORY = "data";
+  private static final String DISK_DIRECTORY = "segments";
 
   private int numDatabases = DEFAULT_DATABASES;
 
   private boolean persistenceActive;
   private boolean notificationsActive;
   private boolean offHeapActive;
+  private boolean mappedActive;
+  private boolean diskActive;
+  private boolean replicationCompression;
 
   private String rdbFile;
   private String aofFile;
+  private String mappedDirectory;
+  private String diskDirectory;
+  private int hotKeys;
+  private int shards;
+  private boolean concurrentReads;
+  private int ioThreads;
+  private final Map<Integer, DatabaseFactory> databaseFactories = new HashMap<>();
+  private DatabaseClock clock = DatabaseClock.system();
 
-  private int syncPeriod = DEFAULT_SYNC_PERIOD;
   private int cleanPeriod = DEFAULT_CLEAN_PERIOD;
 
+  private AppendFsync appendFsync = AppendFsync.EVERYSEC;
+  private int rewritePercentage = DEFAULT_REWRITE_PERCENTAGE;
+  private long rewriteMinSize = DEFAULT_REWRITE_MIN_SIZE;
+  private boolean rdbPreamble = true;
+  private int snapshotPeriod;
+  private int maxSnapshotDeltas = DEFAULT_MAX_SNAPSHOT_DELTAS;
+
   public boolean isPersistenceActive() {
     return persistenceActive;
   }
@@ -48,6 +76,112 @@ public class DBConfig {
     return offHeapActive;
   }
 
+  public void setMappedActive(boolean mappedActive) {
+    this.mappedActive = mappedActive;
+  }
+
+  public boolean isMappedActive() {
+    return mappedActive;
+  }
+
+  public String getMappedDirectory() {
+    return mappedDirectory;
+  }
+
+  public void setMappedDirectory(String mappedDirectory) {
+    this.mappedDirectory = mappedDirectory;
+  }
+
+  public void setDiskActive(boolean diskActive) {
+    this.diskActive = diskActive;
+  }
+
+  public boolean isDiskActive() {
+    return diskActive;
+  }
+
+  public String getDiskDirectory() {
+    return diskDirectory;
+  }
+
+  public void setDiskDirectory(String diskDirectory) {
+    this.diskDirectory = diskDirectory;
+  }
+
+  /**
+   * max number of keys kept on heap when the off heap cache is active, 0 if disabled
+   */
+  public int getHotKeys() {
+    return hotKeys;
+  }
+
+  public void setHotKeys(int hotKeys) {
+    this.hotKeys = hotKeys;
+  }
+
+  /**
+   * factories configured for specific database indexes, the rest use the default one
+   */
+  public Map<Integer, DatabaseFactory> getDatabaseFactories() {
+    return databaseFactories;
+  }
+
+  public void setDatabaseFactory(int db, DatabaseFactory factory) {
+    this.databaseFactories.put(db, factory);
+  }
+
+  /**
+   * number of threads that own a partition of the keys, 0 if disabled
+   */
+  public int getShards() {
+    return shards;
+  }
+
+  public void setShards(int shards) {
+    this.shards = shards;
+  }
+
+  /**
+   * the read only commands run in parallel, only with the on heap storage and without shards
+   */
+  public boolean isConcurrentReads() {
+    return concurrentReads;
+  }
+
+  public void setConcurrentReads(boolean concurrentReads) {
+    this.concurrentReads = concurrentReads;
+  }
+
+  /**
+   * number of threads that read and write the connections, 0 to use the default
+   */
+  public int getIoThreads() {
+    return ioThreads;
+  }
+
+  public void setIoThreads(int ioThreads) {
+    this.ioThreads = ioThreads;
+  }
+
+  /**
+   * clock used to check and set the expiration of the keys
+   */
+  public DatabaseClock getClock() {
+    return clock;
+  }
+
+  public void setClock(DatabaseClock clock) {
+    this.clock = clock;
+  }
+
+  public void setReplicationCompression(boolean replicationCompression) {
+    this.replicationCompression = replicationCompression;
+  }
+
+  public boolean isReplicationCompression() {
+    return replicationCompression;
+  }
+
   public String getRdbFile() {
     return rdbFile;
   }
@@ -64,14 +198,6 @@ public class DBConfig {
     this.aofFile = aofFile;
   }
 
-  public int getSyncPeriod() {
-    return syncPeriod;
-  }
-
-  public void setSyncPeriod(int syncPeriod) {
-    this.syncPeriod = syncPeriod;
-  }
-
   public int getNumDatabases() {
     return numDatabases;
   }
@@ -88,6 +214,57 @@ public class DBConfig {
     this.cleanPeriod = cleanPeriod;
   }
 
+  public AppendFsync getAppendFsync() {
+    return appendFsync;
+  }
+
+  public void setAppendFsync(AppendFsync appendFsync) {
+    this.appendFsync = appendFsync;
+  }
+
+  public int getRewritePercentage() {
+    return rewritePercentage;
+  }
+
+  public void setRewritePercentage(int rewritePercentage) {
+    this.rewritePercentage = rewritePercentage;
+  }
+
+  public long getRewriteMinSize() {
+    return rewriteMinSize;
+  }
+
+  public void setRewriteMinSize(long rewriteMinSize) {
+    this.rewriteMinSize = rewriteMinSize;
+  }
+
+  public boolean isRdbPreamble() {
+    return rdbPreamble;
+  }
+
+  public void setRdbPreamble(boolean rdbPreamble) {
+    this.rdbPreamble = rdbPreamble;
+  }
+
+  /**
+   * seconds between incremental snapshots, 0 if disabled
+   */
+  public int getSnapshotPeriod() {
+    return snapshotPeriod;
+  }
+
+  public void setSnapshotPeriod(int snapshotPeriod) {
+    this.snapshotPeriod = snapshotPeriod;
+  }
+
+  public int getMaxSnapshotDeltas() {
+    return maxSnapshotDeltas;
+  }
+
+  public void setMaxSnapshotDeltas(int maxSnapshotDeltas) {
+    this.maxSnapshotDeltas = maxSnapshotDeltas;
+  }
+
   public static Builder builder() {
     return new Builder();
   }
@@ -107,16 +284,98 @@ public class DBConfig {
       return this;
     }
 
+    public Builder withAppendFsync(AppendFsync appendFsync) {
+      config.setAppendFsync(appendFsync);
+      return this;
+    }
+
+    public Builder withAutoRewrite(int percentage, long minSize) {
+      config.setRewritePercentage(percentage);
+      config.setRewriteMinSize(minSize);
+      return this;
+    }
+
+    public Builder withoutRdbPreamble() {
+      config.setRdbPreamble(false);
+      return this;
+    }
+
+    public Builder withIncrementalSnapshots(int period, int maxDeltas) {
+      config.setSnapshotPeriod(period);
+      config.setMaxSnapshotDeltas(maxDeltas);
+      return this;
+    }
+
     public Builder withOffHeapCache() {
       config.setOffHeapActive(true);
       return this;
     }
 
+    public Builder withDatabaseFactory(int db, DatabaseFactory factory) {
+      config.setDatabaseFactory(db, factory);
+      return this;
+    }
+
+    public Builder withTieredStorage(int hotKeys) {
+      config.setOffHeapActive(true);
+      config.setHotKeys(hotKeys);
+      return this;
+    }
+
+    public Builder withMappedStorage() {
+      return withMappedStorage(MAPPED_DIRECTORY);
+    }
+
+    /**
+     * The data file of every database is limited to 2 GB, a write that does not fit is
+     * rejected with an OOM error.
+     */
+    public Builder withMappedStorage(String directory) {
+      config.setMappedActive(true);
+      config.setMappedDirectory(directory);
+      return this;
+    }
+
+    public Builder withDiskStorage() {
+      return withDiskStorage(DISK_DIRECTORY);
+    }
+
+    public Builder withDiskStorage(String directory) {
+      config.setDiskActive(true);
+      config.setDiskDirectory(directory);
+      return this;
+    }
+
+    public Builder withShards(int shards) {
+      config.setShards(shards);
+      return this;
+    }
+
+    public Builder withConcurrentReads() {
+      config.setConcurrentReads(true);
+      return this;
+    }
+
+    public Builder withIoThreads(int ioThreads) {
+      config.setIoThreads(ioThreads);
+      return this;
+    }
+
     public Builder withNotifications() {
       config.setNotificationsActive(true);
       return this;
     }
 
+    public Builder withReplicationCompression() {
+      config.setReplicationCompression(true);
+      return this;
+    }
+
+    public Builder withClock(DatabaseClock clock) {
+      config.setClock(clock);
+      return this;
+    }
+
     public DBConfig build() {
       return config;
     }
@@ -7,25 +7,59 @@ package com.github.tonivade.claudb;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.time.Instant;
+import java.util.function.Supplier;
 
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseClock;
+import com.github.tonivade.claudb.data.DatabaseSnapshot;
+import com.github.tonivade.claudb.data.TrackedDatabase.Delta;
 import com.github.tonivade.purefun.data.ImmutableList;
+import com.github.tonivade.purefun.data.Sequence;
 import com.github.tonivade.resp.command.ServerContext;
 import com.github.tonivade.resp.protocol.RedisToken;
+import com.github.tonivade.resp.protocol.SafeString;
 
 public interface DBServerContext extends ServerContext {
 
   int DEFAULT_PORT = 7081;
   String DEFAULT_HOST = "localhost";
 
+  RedisToken NO_REPLY = RedisToken.status("");
+
   boolean isMaster();
   void setMaster(boolean master);
   void importRDB(InputStream input) throws IOException;
   void exportRDB(OutputStream output) throws IOException;
+  /**
+   * saves the RDB file in background, returns false if the save cannot be started
+   */
+  boolean bgsave();
+  /**
+   * the snapshots of every database, taken with the commands stopped, as the given task that
+   * runs just before, they must be closed after they are read
+   */
+  ImmutableList<DatabaseSnapshot> snapshot(Runnable onSnapshot);
+  /**
+   * the changes of every database since the last delta, taken with the commands stopped, as the
+   * given task that runs just before
+   */
+  ImmutableList<Delta> delta(Runnable onDelta);
   Database getDatabase(int i);
   Database getAdminDatabase();
+  /**
+   * the clock of the configuration, used to check and set the expiration of the keys
+   */
+  DatabaseClock getClock();
   void publish(String sourceKey, RedisToken message);
   ImmutableList<RedisToken> getCommandsToReplicate();
-  void clean(Instant now);
+  /**
+   * sends the command to the slaves and the persistence, as if it was executed in the database
+   */
+  void replicate(int db, ImmutableList<SafeString> command);
+  /**
+   * runs the task with the commands over the given keys stopped, in the shard that owns them, so
+   * a command that runs without stopping anything can use its keys only while it needs them
+   */
+  <T> T executeOnKeys(Sequence<SafeString> keys, Supplier<T> task);
+  void clean(long nowMillis);
 }
@@ -10,24 +10,35 @@ import static com.github.tonivade.claudb.data.DatabaseValue.entry;
 import static com.github.tonivade.claudb.data.DatabaseValue.hash;
 import static com.github.tonivade.claudb.data.DatabaseValue.set;
 import static com.github.tonivade.resp.protocol.SafeString.safeString;
+import static java.util.Collections.emptyMap;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseClock;
 import com.github.tonivade.claudb.data.DatabaseFactory;
 import com.github.tonivade.claudb.data.DatabaseKey;
+import com.github.tonivade.claudb.data.DatabaseSnapshot;
 import com.github.tonivade.claudb.data.DatabaseValue;
-import com.github.tonivade.claudb.persistence.RDBInputStream;
+import com.github.tonivade.claudb.data.LazyFree;
+import com.github.tonivade.claudb.data.TrackedDatabase;
+import com.github.tonivade.claudb.data.TrackedDatabase.Delta;
+import com.github.tonivade.claudb.persistence.PersistenceStats;
+import com.github.tonivade.claudb.persistence.RDBLoader;
 import com.github.tonivade.claudb.persistence.RDBOutputStream;
+import com.github.tonivade.claudb.replication.ReplicationAcks;
+import com.github.tonivade.claudb.replication.ReplicationStats;
 import com.github.tonivade.purefun.data.ImmutableList;
 import com.github.tonivade.purefun.data.ImmutableMap;
 import com.github.tonivade.purefun.data.ImmutableSet;
@@ -44,23 +55,47 @@ public class DBServerState {
   private static final DatabaseKey SCRIPTS_KEY = safeKey("scripts");
 
   private boolean master = true;
+  private boolean replicationCompression;
 
-  private final List<Database> databases = new ArrayList<>();
+  private final AtomicReferenceArray<Database> databases;
   private final Database admin;
   private final DatabaseFactory factory;
+  private final Map<Integer, DatabaseFactory> factories;
 
-  private final Queue<RedisToken> queue = new LinkedList<>();
+  private volatile boolean tracked;
+  private volatile int version;
+
+  private final Queue<RedisToken> queue = new ConcurrentLinkedQueue<>();
+  private final ReplicationAcks acks = new ReplicationAcks();
+  private final ReplicationStats stats = new ReplicationStats();
+  private final PersistenceStats persistenceStats = new PersistenceStats();
+  private final LazyFree lazyFree = new LazyFree();
+  private final Set<String> compressedSlaves = ConcurrentHashMap.newKeySet();
 
   public DBServerState(DatabaseFactory factory, int numDatabases) {
+    this(factory, emptyMap(), numDatabases);
+  }
+
+  /**
+   * the databases are created the first time they are used, with the factory configured for
+   * the database index, or with the default factory. The databases stored in files are opened
+   * at start, because they may already have keys.
+   */
+  public DBServerState(DatabaseFactory factory, Map<Integer, DatabaseFactory> factories, int numDatabases) {
     this.factory = factory;
+    this.factories = factories;
     this.admin = factory.create("admin");
+    this.databases = new AtomicReferenceArray<>(numDatabases);
     for (int i = 0; i < numDatabases; i++) {
-      this.databases.add(factory.create("db-" + i));
+      if (!factoryOf(i).isLazyFree()) {
+        createDatabase(i);
+      }
     }
   }
 
   public void append(RedisToken command) {
     queue.offer(command);
+    acks.increment();
   }
 
   public void setMaster(boolean master) {
@@ -71,17 +106,95 @@ public class DBServerState {
     return master;
   }
 
+  public void setReplicationCompression(boolean replicationCompression) {
+    this.replicationCompression = replicationCompression;
+  }
+
+  public boolean isReplicationCompression() {
+    return replicationCompression;
+  }
+
   public Database getAdminDatabase() {
     return admin;
   }
 
+  /**
+   * changes every time the databases are replaced, so the databases kept by the sessions are
+   * not valid anymore
+   */
+  public int getVersion() {
+    return version;
+  }
+
   public Database getDatabase(int id) {
-    return databases.get(id);
+    Database database = databases.get(id);
+    if (database == null) {
+      database = createDatabase(id);
+    }
+    return database;
   }
 
   public void clear() {
-    databases.clear();
+    for (int i = 0; i < databases.length(); i++) {
+      databases.set(i, null);
+    }
+    version++;
     factory.clear();
+    factories.values().stream().distinct().filter(f -> f != factory).forEach(DatabaseFactory::clear);
+    acks.clear();
+  }
+
+  /**
+   * removes the keys of the database, when async the database is replaced by an empty one and
+   * the old one is cleared in background, if the factory allows it. The replace does not depend
+   * on the number of keys, a tracked database is only marked as reset.
+   */
+  public void flush(int id, boolean async) {
+    Database database = databases.get(id);
+    if (database != null) {
+      if (async && factoryOf(id).isLazyFree()) {
+        replaceDatabase(id, database);
+      } else {
+        database.clear();
+      }
+    }
+  }
+
+  public void flushAll(boolean async) {
+    for (int i = 0; i < databases.length(); i++) {
+      flush(i, async);
+    }
+  }
+
+  /**
+   * swaps the databases of both indexes, the sessions get the new ones because the version
+   * changes, when the changes are tracked both databases are marked as reset.
+   */
+  public synchronized void swap(int first, int second) {
+    if (!factoryOf(first).isLazyFree() || !factoryOf(second).isLazyFree()) {
+      throw new IllegalStateException("databases stored in files cannot be swapped");
+    }
+    if (factoryOf(first) != factoryOf(second)) {
+      // a database created again after a flush would use the factory of its index
+      throw new IllegalStateException("databases with different storage cannot be swapped");
+    }
+    Database database = getDatabase(first);
+    Database other = getDatabase(second);
+    if (database instanceof TrackedDatabase && other instanceof TrackedDatabase) {
+      ((TrackedDatabase) database).swap((TrackedDatabase) other);
+    } else {
+      databases.set(first, other);
+      databases.set(second, database);
+    }
+    version++;
+  }
+
+  public int getNumDatabases() {
+    return databases.length();
+  }
+
+  public LazyFree getLazyFree() {
+    return lazyFree;
   }
 
   public boolean hasSlaves() {
@@ -89,25 +202,62 @@ public class DBServerState {
   }
 
   public void exportRDB(OutputStream output) throws IOException {
+    ImmutableList<DatabaseSnapshot> snapshot = snapshot();
+    try {
+      exportRDB(output, snapshot);
+    } finally {
+      snapshot.forEach(DatabaseSnapshot::close);
+    }
+  }
+
+  public static void exportRDB(OutputStream output, ImmutableList<DatabaseSnapshot> snapshot) throws IOException {
     RDBOutputStream rdb = new RDBOutputStream(output);
     rdb.preamble(RDB_VERSION);
-    for (int i = 0; i < databases.size(); i++) {
-      Database db = databases.get(i);
-      if (!db.isEmpty()) {
-        rdb.select(i);
-        rdb.dabatase(db);
+    rdb.databases(snapshot);
+    rdb.end();
+  }
+
+  /**
+   * starts tracking the keys modified in every database, needed by {@link #delta()}
+   */
+  public synchronized void trackChanges() {
+    tracked = true;
+    for (int i = 0; i < databases.length(); i++) {
+      Database database = databases.get(i);
+      if (database != null && !(database instanceof TrackedDatabase)) {
+        databases.set(i, new TrackedDatabase(database));
       }
     }
-    rdb.end();
+    version++;
   }
 
-  public void importRDB(InputStream input) throws IOException {
-    RDBInputStream rdb = new RDBInputStream(input);
+  public ImmutableList<Delta> delta() {
+    List<Delta> delta = new ArrayList<>(databases.length());
+    for (int i = 0; i < databases.length(); i++) {
+      Database db = databases.get(i);
+      if (db instanceof TrackedDatabase) {
+        delta.add(((TrackedDatabase) db).delta());
+      } else {
+        delta.add(Delta.empty());
+      }
+    }
+    return ImmutableList.from(delta);
+  }
 
-    Map<Integer, Map<DatabaseKey, DatabaseValue>> load = rdb.parse();
-    for (Map.Entry<Integer, Map<DatabaseKey, DatabaseValue>> entry : load.entrySet()) {
-      databases.get(entry.getKey()).overrideAll(ImmutableMap.from(entry.getValue()));
+  /**
+   * the snapshots of every database, they must be closed after they are read
+   */
+  public ImmutableList<DatabaseSnapshot> snapshot() {
+    List<DatabaseSnapshot> snapshot = new ArrayList<>(databases.length());
+    for (int i = 0; i < databases.length(); i++) {
+      Database db = databases.get(i);
+      snapshot.add(db != null ? db.snapshot() : DatabaseSnapshot.empty());
     }
+    return ImmutableList.from(snapshot);
+  }
+
+  public void importRDB(InputStream input, DatabaseClock clock) throws IOException {
+    new RDBLoader(this::getDatabase, clock).load(input);
   }
 
   public void saveScript(SafeString sha1, SafeString script) {
@@ -143,17 +293,71 @@ public class DBServerState {
     getAdminDatabase().merge(SLAVES_KEY, set(safeString(id)), (oldValue, newValue) -> {
       return set(oldValue.getSet().difference(newValue.getSet()));
     });
+    acks.remove(id);
+    compressedSlaves.remove(id);
+  }
+
+  public void addCompressedSlave(String id) {
+    compressedSlaves.add(id);
+  }
+
+  public boolean isCompressedSlave(String id) {
+    return compressedSlaves.contains(id);
+  }
+
+  public ReplicationAcks getReplicationAcks() {
+    return acks;
+  }
+
+  public ReplicationStats getReplicationStats() {
+    return stats;
+  }
+
+  public PersistenceStats getPersistenceStats() {
+    return persistenceStats;
   }
 
   public ImmutableList<RedisToken> getCommandsToReplicate() {
-    ImmutableList<RedisToken> list = ImmutableList.from(queue);
-    queue.clear();
-    return list;
+    List<RedisToken> list = new ArrayList<>();
+    for (RedisToken command = queue.poll(); command != null; command = queue.poll()) {
+      list.add(command);
+    }
+    return ImmutableList.from(list);
+  }
+
+  public void evictExpired(long nowMillis) {
+    for (int i = 0; i < databases.length(); i++) {
+      Database database = databases.get(i);
+      if (database != null) {
+        database.evictableKeys(nowMillis).forEach(database::delete);
+      }
+    }
+  }
+
+  private synchronized void replaceDatabase(int id, Database database) {
+    Database empty = factoryOf(id).create("db-" + id);
+    if (database instanceof TrackedDatabase) {
+      lazyFree.free(((TrackedDatabase) database).replace(empty));
+    } else {
+      databases.set(id, empty);
+      lazyFree.free(database);
+    }
+    version++;
   }
 
-  public void evictExpired(Instant now) {
-    for (Database database : databases) {
-      database.evictableKeys(now).forEach(database::remove);
+  private synchronized Database createDatabase(int id) {
+    Database database = databases.get(id);
+    if (database == null) {
+      database = factoryOf(id).create("db-" + id);
+      if (tracked) {
+        database = new TrackedDatabase(database);
+      }
+      databases.set(id, database);
     }
+    return database;
+  }
+
+  private DatabaseFactory factoryOf(int id) {
+    return factories.getOrDefault(id, factory);
   }
 }
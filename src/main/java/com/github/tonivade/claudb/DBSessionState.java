@@ -6,23 +6,44 @@ package com.github.tonivade.claudb;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
+import com.github.tonivade.claudb.data.Database;
 import com.github.tonivade.purefun.data.ImmutableSet;
 import com.github.tonivade.purefun.data.Sequence;
+import com.github.tonivade.purefun.type.Option;
+import com.github.tonivade.resp.protocol.RedisToken;
 import com.github.tonivade.resp.protocol.SafeString;
 
 public class DBSessionState {
 
   private int db;
 
+  // the selected database, valid while the databases of the server are the same
+  private Database database;
+  private int version;
+
   private final Set<SafeString> subscriptions = new HashSet<>();
 
+  // reply of a command that completes later, the client waits for it before the next command
+  private CompletableFuture<RedisToken> suspended;
+
   public int getCurrentDB() {
     return db;
   }
 
   public void setCurrentDB(int db) {
     this.db = db;
+    this.database = null;
+  }
+
+  public Database getDatabase(int version) {
+    return this.version == version ? database : null;
+  }
+
+  public void setDatabase(Database database, int version) {
+    this.database = database;
+    this.version = version;
   }
 
   public Sequence<SafeString> getSubscriptions() {
@@ -40,4 +61,18 @@ public class DBSessionState {
   public boolean isSubscribed() {
     return !subscriptions.isEmpty();
   }
+
+  public void suspend(CompletableFuture<RedisToken> reply) {
+    this.suspended = reply;
+  }
+
+  public boolean isSuspended() {
+    return suspended != null;
+  }
+
+  public Option<CompletableFuture<RedisToken>> resume() {
+    Option<CompletableFuture<RedisToken>> reply = Option.of(suspended);
+    this.suspended = null;
+    return reply;
+  }
 }
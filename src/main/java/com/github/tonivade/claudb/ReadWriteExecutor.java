@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * The writes run one at a time, and the reads run in parallel in the calling threads.
+ *
+ * Every write moves the version of the keyspace. A read runs first without any lock, and its
+ * result is used only if no write has started or finished meanwhile, otherwise it runs again
+ * while the writes are stopped. So a read sees all the changes of a write or none of them.
+ * The values are immutable and the reads do not change the keyspace, so a read can always be
+ * repeated.
+ */
+public class ReadWriteExecutor {
+
+  private final StampedLock lock = new StampedLock();
+  private final AtomicLong retries = new AtomicLong();
+
+  private volatile Thread writer;
+
+  public <T> T read(Supplier<T> task) {
+    if (writer == Thread.currentThread()) {
+      return task.get();
+    }
+    long stamp = lock.tryOptimisticRead();
+    if (stamp != 0) {
+      try {
+        T result = task.get();
+        if (lock.validate(stamp)) {
+          return result;
+        }
+      } catch (RuntimeException e) {
+        if (lock.validate(stamp)) {
+          throw e;
+        }
+      }
+      retries.incrementAndGet();
+    }
+    stamp = lock.readLock();
+    try {
+      return task.get();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  public <T> T write(Supplier<T> task) {
+    if (writer == Thread.currentThread()) {
+      return task.get();
+    }
+    long stamp = lock.writeLock();
+    writer = Thread.currentThread();
+    try {
+      return task.get();
+    } finally {
+      writer = null;
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * number of reads that have been executed again because of a concurrent write
+   */
+  public long getRetries() {
+    return retries.get();
+  }
+}
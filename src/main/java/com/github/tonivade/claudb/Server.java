@@ -24,7 +24,17 @@ public class Server {
     OptionSpec<Void> verbose = parser.accepts("V", "verbose");
     OptionSpec<Void> persist = parser.accepts("P", "persistence (experimental)");
     OptionSpec<Void> offHeap = parser.accepts("O", "off heap memory (experimental)");
+    OptionSpec<Void> mapped = parser.accepts("M", "memory mapped storage (experimental)");
+    OptionSpec<Void> disk = parser.accepts("D", "disk storage larger than memory (experimental)");
     OptionSpec<Void> notifications = parser.accepts("N", "keyspace notifications (experimental)");
+    OptionSpec<Void> compression = parser.accepts("C", "compressed replication (experimental)");
+    OptionSpec<Integer> hotKeys = parser.accepts("T", "hot keys on heap, the rest off heap (experimental)")
+        .withRequiredArg().ofType(Integer.class);
+    OptionSpec<Integer> shards = parser.accepts("S", "shards, threads that run commands in parallel (experimental)")
+        .withRequiredArg().ofType(Integer.class);
+    OptionSpec<Void> reads = parser.accepts("R", "enable concurrent read only commands (experimental)");
+    OptionSpec<Integer> ioThreads = parser.accepts("I", "io threads, threads that read and write the connections")
+        .withRequiredArg().ofType(Integer.class);
     OptionSpec<String> host = parser.accepts("h", "host").withRequiredArg().ofType(String.class)
         .defaultsTo(ClauDB.DEFAULT_HOST);
     OptionSpec<Integer> port = parser.accepts("p", "port").withRequiredArg().ofType(Integer.class)
@@ -39,7 +49,14 @@ public class Server {
       int optionPort = parsePort(options.valueOf(port));
       DBConfig config = parseConfig(options.has(persist),
                                     options.has(offHeap),
-                                    options.has(notifications));
+                                    options.has(mapped),
+                                    options.has(disk),
+                                    options.has(hotKeys) ? options.valueOf(hotKeys) : 0,
+                                    options.has(shards) ? options.valueOf(shards) : 0,
+                                    options.has(reads),
+                                    options.has(ioThreads) ? options.valueOf(ioThreads) : 0,
+                                    options.has(notifications),
+                                    options.has(compression));
 
       readBanner().forEach(System.out::println);
 
@@ -61,7 +78,8 @@ public class Server {
     return optionPort != null ? optionPort : DBServerContext.DEFAULT_PORT;
   }
 
-  private static DBConfig parseConfig(boolean persist, boolean offHeap, boolean notifications) {
+  private static DBConfig parseConfig(boolean persist, boolean offHeap, boolean mapped, boolean disk, int hotKeys, int shards,
+                                      boolean reads, int ioThreads, boolean notifications, boolean compression) {
     DBConfig.Builder builder = DBConfig.builder();
     if (persist) {
       builder.withPersistence();
@@ -69,9 +87,30 @@ public class Server {
     if (offHeap) {
       builder.withOffHeapCache();
     }
+    if (hotKeys > 0) {
+      builder.withTieredStorage(hotKeys);
+    }
+    if (shards > 0) {
+      builder.withShards(shards);
+    }
+    if (reads) {
+      builder.withConcurrentReads();
+    }
+    if (ioThreads > 0) {
+      builder.withIoThreads(ioThreads);
+    }
+    if (mapped) {
+      builder.withMappedStorage();
+    }
+    if (disk) {
+      builder.withDiskStorage();
+    }
     if (notifications) {
       builder.withNotifications();
     }
+    if (compression) {
+      builder.withReplicationCompression();
+    }
     return builder.build();
   }
 }
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * One thread per shard, every shard owns a partition of the keys of every database, so the
+ * commands over keys of different shards run in parallel.
+ *
+ * The commands that may use keys of many shards run in the calling thread while all the
+ * shards are stopped.
+ */
+public class ShardExecutor {
+
+  private final ExecutorService[] executors;
+  private final Thread[] threads;
+  private final ReentrantLock global = new ReentrantLock();
+
+  public ShardExecutor(int shards) {
+    this.executors = new ExecutorService[shards];
+    this.threads = new Thread[shards];
+    for (int i = 0; i < shards; i++) {
+      int shard = i;
+      executors[i] = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "shard-" + shard);
+        thread.setDaemon(true);
+        threads[shard] = thread;
+        return thread;
+      });
+    }
+  }
+
+  public int size() {
+    return executors.length;
+  }
+
+  /**
+   * runs the task in the thread that owns the shard, and waits for the result
+   */
+  public <T> T execute(int shard, Supplier<T> task) {
+    if (Thread.currentThread() == threads[shard] || global.isHeldByCurrentThread()) {
+      return task.get();
+    }
+    return await(executors[shard].submit(task::get));
+  }
+
+  /**
+   * runs the task of every shard in the thread that owns it, the shards run in parallel, and
+   * waits for all the results
+   */
+  public <T> Map<Integer, T> executeEach(Map<Integer, Supplier<T>> tasks) {
+    Map<Integer, Future<T>> futures = new HashMap<>(tasks.size());
+    Map<Integer, T> results = new HashMap<>(tasks.size());
+    for (Map.Entry<Integer, Supplier<T>> task : tasks.entrySet()) {
+      int shard = task.getKey();
+      if (Thread.currentThread() == threads[shard] || global.isHeldByCurrentThread()) {
+        results.put(shard, task.getValue().get());
+      } else {
+        futures.put(shard, executors[shard].submit(task.getValue()::get));
+      }
+    }
+    for (Map.Entry<Integer, Future<T>> future : futures.entrySet()) {
+      results.put(future.getKey(), await(future.getValue()));
+    }
+    return results;
+  }
+
+  /**
+   * runs the task in the calling thread when all the shards are stopped
+   */
+  public <T> T executeAll(Supplier<T> task) {
+    // a single shard is already stopped when the task comes from its own thread
+    if (global.isHeldByCurrentThread() || (threads.length == 1 && Thread.currentThread() == threads[0])) {
+      return task.get();
+    }
+    global.lock();
+    CountDownLatch stopped = new CountDownLatch(executors.length);
+    CountDownLatch resume = new CountDownLatch(1);
+    try {
+      for (ExecutorService executor : executors) {
+        executor.execute(() -> {
+          stopped.countDown();
+          awaitUninterruptibly(resume);
+        });
+      }
+      awaitUninterruptibly(stopped);
+      return task.get();
+    } finally {
+      resume.countDown();
+      global.unlock();
+    }
+  }
+
+  public void shutdown() {
+    for (ExecutorService executor : executors) {
+      executor.shutdown();
+    }
+  }
+
+  private static <T> T await(Future<T> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        latch.await();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.command;
+
+import static java.util.Arrays.asList;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.github.tonivade.purefun.data.ImmutableList;
+import com.github.tonivade.purefun.data.Sequence;
+import com.github.tonivade.purefun.type.Option;
+import com.github.tonivade.resp.command.Request;
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Knows which params of a request are keys. Most of the commands have a single key as the
+ * first param, the rest are listed here.
+ */
+public final class CommandKeys {
+
+  // commands that do not use any key
+  private static final Set<String> NO_KEYS = new HashSet<>(asList(
+      "ping", "echo", "quit", "time", "select", "multi", "discard", "wait"));
+
+  // commands that may use any key, or other shared state
+  private static final Set<String> ANY_KEY = new HashSet<>(asList(
+      "keys", "dbsize", "flushdb", "flushall", "swapdb", "info", "bgsave", "lastsave", "sync", "slaveof",
+      "role", "replconf", "eval", "evalsha", "script", "exec"));
+
+  // commands that run without stopping anything, and stop the shard of their keys themselves,
+  // only while they use them
+  private static final Set<String> OWN_KEYS = new HashSet<>(asList("migrate"));
+
+  // commands that only use the admin database, not the keys of the databases
+  private static final Set<String> ADMIN = new HashSet<>(asList(
+      "publish", "subscribe", "unsubscribe", "psubscribe", "punsubscribe"));
+
+  // commands where all the params are keys
+  private static final Set<String> ALL_KEYS = new HashSet<>(asList(
+      "del", "unlink", "exists", "mget", "rename", "sdiff", "sinter", "sunion"));
+
+  // commands where the params are pairs of key and value
+  private static final Set<String> KEY_VALUE = new HashSet<>(asList("mset", "msetnx"));
+
+  private CommandKeys() { }
+
+  /**
+   * the keys used by the request, or none if it may use any key
+   */
+  public static Option<Sequence<SafeString>> keys(Request request) {
+    String command = request.getCommand().toLowerCase();
+    if (ANY_KEY.contains(command) || ADMIN.contains(command)) {
+      return Option.none();
+    }
+    if (NO_KEYS.contains(command) || OWN_KEYS.contains(command) || request.getLength() == 0) {
+      return Option.some(ImmutableList.empty());
+    }
+    if (ALL_KEYS.contains(command)) {
+      return Option.some(request.getParams());
+    }
+    if (KEY_VALUE.contains(command)) {
+      return Option.some(keyValues(request));
+    }
+    return Option.some(ImmutableList.of(request.getParam(0)));
+  }
+
+  /**
+   * true if the request only uses the admin database, like the pub/sub commands
+   */
+  public static boolean isAdmin(Request request) {
+    return ADMIN.contains(request.getCommand().toLowerCase());
+  }
+
+  private static ImmutableList<SafeString> keyValues(Request request) {
+    List<SafeString> keys = new ArrayList<>();
+    for (int i = 0; i < request.getLength(); i += 2) {
+      keys.add(request.getParam(i));
+    }
+    return ImmutableList.from(keys);
+  }
+}
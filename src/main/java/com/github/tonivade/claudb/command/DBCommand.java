@@ -10,6 +10,7 @@ import com.github.tonivade.claudb.DBServerContext;
 import com.github.tonivade.claudb.DBServerState;
 import com.github.tonivade.claudb.DBSessionState;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseClock;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.purefun.data.Sequence;
 import com.github.tonivade.purefun.type.Option;
@@ -26,6 +27,10 @@ public interface DBCommand {
     return (DBServerContext) server;
   }
 
+  default DatabaseClock getClock(ServerContext server) {
+    return getClauDB(server).getClock();
+  }
+
   default Database getAdminDatabase(ServerContext server) {
     return getServerState(server).getAdminDatabase();
   }
@@ -7,9 +7,12 @@ package com.github.tonivade.claudb.command;
 import static java.util.Arrays.asList;
 
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
+import com.github.tonivade.claudb.command.annotation.SelfReplicated;
 import com.github.tonivade.claudb.command.bitset.BitCountCommand;
 import com.github.tonivade.claudb.command.bitset.GetBitCommand;
 import com.github.tonivade.claudb.command.bitset.SetBitCommand;
@@ -24,14 +27,19 @@ import com.github.tonivade.claudb.command.hash.HashMultiSetCommand;
 import com.github.tonivade.claudb.command.hash.HashSetCommand;
 import com.github.tonivade.claudb.command.hash.HashValuesCommand;
 import com.github.tonivade.claudb.command.key.DeleteCommand;
+import com.github.tonivade.claudb.command.key.DumpCommand;
 import com.github.tonivade.claudb.command.key.ExistsCommand;
+import com.github.tonivade.claudb.command.key.ExpireAtMillisCommand;
 import com.github.tonivade.claudb.command.key.ExpireCommand;
 import com.github.tonivade.claudb.command.key.KeysCommand;
+import com.github.tonivade.claudb.command.key.MigrateCommand;
 import com.github.tonivade.claudb.command.key.PersistCommand;
 import com.github.tonivade.claudb.command.key.RenameCommand;
+import com.github.tonivade.claudb.command.key.RestoreCommand;
 import com.github.tonivade.claudb.command.key.TimeToLiveMillisCommand;
 import com.github.tonivade.claudb.command.key.TimeToLiveSecondsCommand;
 import com.github.tonivade.claudb.command.key.TypeCommand;
+import com.github.tonivade.claudb.command.key.UnlinkCommand;
 import com.github.tonivade.claudb.command.list.LeftPopCommand;
 import com.github.tonivade.claudb.command.list.LeftPushCommand;
 import com.github.tonivade.claudb.command.list.ListIndexCommand;
@@ -48,13 +56,19 @@ import com.github.tonivade.claudb.command.pubsub.UnsubscribeCommand;
 import com.github.tonivade.claudb.command.scripting.EvalCommand;
 import com.github.tonivade.claudb.command.scripting.EvalShaCommand;
 import com.github.tonivade.claudb.command.scripting.ScriptCommands;
+import com.github.tonivade.claudb.command.server.BackgroundSaveCommand;
 import com.github.tonivade.claudb.command.server.DatabaseSizeCommand;
+import com.github.tonivade.claudb.command.server.FlushAllCommand;
 import com.github.tonivade.claudb.command.server.FlushDBCommand;
 import com.github.tonivade.claudb.command.server.InfoCommand;
+import com.github.tonivade.claudb.command.server.LastSaveCommand;
+import com.github.tonivade.claudb.command.server.ReplConfCommand;
 import com.github.tonivade.claudb.command.server.RoleCommand;
 import com.github.tonivade.claudb.command.server.SelectCommand;
 import com.github.tonivade.claudb.command.server.SlaveOfCommand;
+import com.github.tonivade.claudb.command.server.SwapDatabaseCommand;
 import com.github.tonivade.claudb.command.server.SyncCommand;
+import com.github.tonivade.claudb.command.server.WaitCommand;
 import com.github.tonivade.claudb.command.set.SetAddCommand;
 import com.github.tonivade.claudb.command.set.SetCardinalityCommand;
 import com.github.tonivade.claudb.command.set.SetDifferenceCommand;
@@ -92,18 +106,28 @@ public class DBCommandSuite extends CommandSuite {
 
   private static final Set<String> COMMAND_BLACK_LIST = new HashSet<>(asList("ping", "echo", "quit", "time"));
 
+  // only the known commands, by the name in lower case
+  private final Map<String, Boolean> readOnly = new ConcurrentHashMap<>();
+  private final Map<String, Boolean> selfReplicated = new ConcurrentHashMap<>();
+
   public DBCommandSuite() {
     super(new DBCommandWrapperFactory());
     // connection
     addCommand(SelectCommand.class);
     addCommand(SyncCommand.class);
     addCommand(SlaveOfCommand.class);
+    addCommand(ReplConfCommand.class);
 
     // server
     addCommand(FlushDBCommand.class);
+    addCommand(FlushAllCommand.class);
+    addCommand(SwapDatabaseCommand.class);
     addCommand(InfoCommand.class);
     addCommand(RoleCommand.class);
     addCommand(DatabaseSizeCommand.class);
+    addCommand(WaitCommand.class);
+    addCommand(BackgroundSaveCommand.class);
+    addCommand(LastSaveCommand.class);
 
     // strings
     addCommand(GetCommand.class);
@@ -125,14 +149,19 @@ public class DBCommandSuite extends CommandSuite {
 
     // keys
     addCommand(DeleteCommand.class);
+    addCommand(UnlinkCommand.class);
     addCommand(ExistsCommand.class);
     addCommand(TypeCommand.class);
     addCommand(RenameCommand.class);
     addCommand(KeysCommand.class);
     addCommand(ExpireCommand.class);
+    addCommand(ExpireAtMillisCommand.class);
     addCommand(PersistCommand.class);
     addCommand(TimeToLiveMillisCommand.class);
     addCommand(TimeToLiveSecondsCommand.class);
+    addCommand(DumpCommand.class);
+    addCommand(RestoreCommand.class);
+    addCommand(MigrateCommand.class);
 
     // hash
     addCommand(HashSetCommand.class);
@@ -194,6 +223,28 @@ public class DBCommandSuite extends CommandSuite {
   }
 
   public boolean isReadOnly(String command) {
-    return COMMAND_BLACK_LIST.contains(command) || isPresent(command, ReadOnly.class);
+    String name = command.toLowerCase();
+    Boolean cached = readOnly.get(name);
+    if (cached != null) {
+      return cached;
+    }
+    boolean value = COMMAND_BLACK_LIST.contains(name) || isPresent(name, ReadOnly.class);
+    if (contains(name)) {
+      readOnly.put(name, value);
+    }
+    return value;
+  }
+
+  public boolean isSelfReplicated(String command) {
+    String name = command.toLowerCase();
+    Boolean cached = selfReplicated.get(name);
+    if (cached != null) {
+      return cached;
+    }
+    boolean value = isPresent(name, SelfReplicated.class);
+    if (contains(name)) {
+      selfReplicated.put(name, value);
+    }
+    return value;
   }
 }
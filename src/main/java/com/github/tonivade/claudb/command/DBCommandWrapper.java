@@ -17,6 +17,7 @@ import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.command.annotation.TxIgnore;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.purefun.type.Option;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
@@ -27,6 +28,10 @@ import com.github.tonivade.resp.protocol.RedisToken;
 
 public class DBCommandWrapper implements RespCommand {
 
+  private static final RedisToken QUEUED = status("QUEUED");
+  private static final RedisToken WRONG_TYPE = error("WRONGTYPE Operation against a key holding the wrong kind of value");
+  private static final RedisToken PUBSUB_ONLY = error("ERR only (P)SUBSCRIBE / (P)UNSUBSCRIBE / QUIT allowed in this context");
+
   private int params;
 
   private DataType dataType;
@@ -36,6 +41,9 @@ public class DBCommandWrapper implements RespCommand {
   private final boolean readOnly;
 
   private final Object command;
+  private final DBCommand dbCommand;
+  private final DBKeyCommand keyCommand;
+  private final RespCommand respCommand;
 
   public DBCommandWrapper(Object command) {
     this.command = command;
@@ -50,6 +58,9 @@ public class DBCommandWrapper implements RespCommand {
     this.readOnly = command.getClass().isAnnotationPresent(ReadOnly.class);
     this.txIgnore = command.getClass().isAnnotationPresent(TxIgnore.class);
     this.pubSubAllowed = command.getClass().isAnnotationPresent(PubSubAllowed.class);
+    this.dbCommand = command instanceof DBCommand ? (DBCommand) command : null;
+    this.keyCommand = command instanceof DBKeyCommand ? (DBKeyCommand) command : null;
+    this.respCommand = command instanceof RespCommand ? (RespCommand) command : null;
   }
 
   public boolean isReadOnly() {
@@ -66,52 +77,47 @@ public class DBCommandWrapper implements RespCommand {
 
   @Override
   public RedisToken execute(Request request) {
-    // FIXME: ugly piece of code, please refactor
-    Database db = getCurrentDB(request);
+    Session session = request.getSession();
+    DBSessionState sessionState = getSessionState(session);
     if (request.getLength() < params) {
       return error("ERR wrong number of arguments for '" + request.getCommand() + "' command");
-    } else if (dataType != null && !db.isType(safeKey(request.getParam(0)), dataType)) {
-      return error("WRONGTYPE Operation against a key holding the wrong kind of value");
-    } else if (isSubscribed(request) && !pubSubAllowed) {
-      return error("ERR only (P)SUBSCRIBE / (P)UNSUBSCRIBE / QUIT allowed in this context");
-    } else if (isTxActive(request) && !txIgnore) {
-      enqueueRequest(request);
-      return status("QUEUED");
     }
-    if (command instanceof DBCommand) {
-      return executeDBCommand(db, request);
-    } else if (command instanceof RespCommand) {
-      return executeCommand(request);
+    Database db = getCurrentDB(getServerState(request.getServerContext()), sessionState);
+    DatabaseKey key = dataType != null || keyCommand != null ? safeKey(request.getParam(0)) : null;
+    if (dataType != null && !db.isType(key, dataType)) {
+      return WRONG_TYPE;
+    } else if (!pubSubAllowed && sessionState.isSubscribed()) {
+      return PUBSUB_ONLY;
+    }
+    Option<TransactionState> transaction = getTransactionState(session);
+    if (transaction.isPresent() && !txIgnore) {
+      transaction.get().enqueue(request);
+      return QUEUED;
+    }
+    if (keyCommand != null) {
+      return keyCommand.execute(db, key, request);
+    } else if (dbCommand != null) {
+      return dbCommand.execute(db, request);
+    } else if (respCommand != null) {
+      return respCommand.execute(request);
     }
     return error("invalid command type: " + command.getClass());
   }
 
-  private RedisToken executeCommand(Request request) {
-    return ((RespCommand) command).execute(request);
-  }
-
-  private RedisToken executeDBCommand(Database db, Request request) {
-    return ((DBCommand) command).execute(db, request);
-  }
-
-  private void enqueueRequest(Request request) {
-    getTransactionState(request.getSession()).ifPresent(tx -> tx.enqueue(request));
-  }
-
-  private boolean isTxActive(Request request) {
-    return getTransactionState(request.getSession()).isPresent();
+  private Database getCurrentDB(DBServerState serverState, DBSessionState sessionState) {
+    int version = serverState.getVersion();
+    Database db = sessionState.getDatabase(version);
+    if (db == null) {
+      db = serverState.getDatabase(sessionState.getCurrentDB());
+      sessionState.setDatabase(db, version);
+    }
+    return db;
   }
 
   private Option<TransactionState> getTransactionState(Session session) {
     return session.getValue("tx");
   }
 
-  private Database getCurrentDB(Request request) {
-    DBServerState serverState = getServerState(request.getServerContext());
-    DBSessionState sessionState = getSessionState(request.getSession());
-    return serverState.getDatabase(sessionState.getCurrentDB());
-  }
-
   private DBServerState getServerState(ServerContext server) {
     return serverState(server).getOrElseThrow(() -> new IllegalStateException("missing server state"));
   }
@@ -127,8 +133,4 @@ public class DBCommandWrapper implements RespCommand {
   private Option<DBSessionState> sessionState(Session session) {
     return session.getValue("state");
   }
-
-  private boolean isSubscribed(Request request) {
-    return getSessionState(request.getSession()).isSubscribed();
-  }
 }
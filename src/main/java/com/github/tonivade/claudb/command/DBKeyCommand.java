@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.command;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+
+import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
+import com.github.tonivade.resp.command.Request;
+import com.github.tonivade.resp.protocol.RedisToken;
+
+/**
+ * Command over the key of the first param. The key is resolved once by {@link DBCommandWrapper},
+ * that uses it to check the type of the value too, so the command does not create it again.
+ */
+@FunctionalInterface
+public interface DBKeyCommand extends DBCommand {
+  RedisToken execute(Database db, DatabaseKey key, Request request);
+
+  @Override
+  default RedisToken execute(Database db, Request request) {
+    return execute(db, safeKey(request.getParam(0)), request);
+  }
+}
@@ -4,17 +4,17 @@
  */
 package com.github.tonivade.claudb.command.hash;
 
-import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.hash;
 import static com.github.tonivade.resp.protocol.RedisToken.integer;
 
 import java.util.LinkedList;
 import java.util.List;
 
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.purefun.data.ImmutableList;
 import com.github.tonivade.purefun.data.ImmutableMap;
@@ -27,18 +27,18 @@ import com.github.tonivade.resp.protocol.SafeString;
 @Command("hdel")
 @ParamLength(2)
 @ParamType(DataType.HASH)
-public class HashDeleteCommand implements DBCommand {
+public class HashDeleteCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
     ImmutableList<SafeString> keys = request.getParams().asList().tail();
 
     List<SafeString> removedKeys = new LinkedList<>();
-    db.merge(safeKey(request.getParam(0)), DatabaseValue.EMPTY_HASH, (oldValue, newValue) -> {
+    db.merge(key, DatabaseValue.EMPTY_HASH, (oldValue, newValue) -> {
       ImmutableMap<SafeString, SafeString> merge = oldValue.getHash();
-      for (SafeString key : keys) {
-        merge.get(key).stream().forEach(removedKeys::add);
-        merge = merge.remove(key);
+      for (SafeString field : keys) {
+        merge.get(field).stream().forEach(removedKeys::add);
+        merge = merge.remove(field);
       }
       return hash(merge);
     });
@@ -6,11 +6,12 @@ package com.github.tonivade.claudb.command.hash;
 
 import static com.github.tonivade.resp.protocol.RedisToken.integer;
 
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.purefun.data.ImmutableMap;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
@@ -22,11 +23,11 @@ import com.github.tonivade.resp.protocol.SafeString;
 @Command("hexists")
 @ParamLength(2)
 @ParamType(DataType.HASH)
-public class HashExistsCommand implements DBCommand {
+public class HashExistsCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
-    ImmutableMap<SafeString, SafeString> map = db.getHash(request.getParam(0));
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
+    ImmutableMap<SafeString, SafeString> map = db.getHash(key);
     return integer(map.containsKey(request.getParam(1)));
   }
 }
@@ -5,29 +5,29 @@
 package com.github.tonivade.claudb.command.hash;
 
 import static com.github.tonivade.resp.protocol.RedisToken.array;
-import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
 import com.github.tonivade.resp.protocol.RedisToken;
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 
 @ReadOnly
 @Command("hgetall")
 @ParamLength(1)
 @ParamType(DataType.HASH)
-public class HashGetAllCommand implements DBCommand {
+public class HashGetAllCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
-    DatabaseValue value = db.get(safeKey(request.getParam(0)));
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
+    DatabaseValue value = db.get(key);
     if (value != null) {
       return convert(value);
     } else {
@@ -7,11 +7,12 @@ package com.github.tonivade.claudb.command.hash;
 import java.util.ArrayList;
 import java.util.List;
 
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.purefun.data.ImmutableMap;
 import com.github.tonivade.purefun.type.Option;
 import com.github.tonivade.resp.annotation.Command;
@@ -24,12 +25,12 @@ import com.github.tonivade.resp.protocol.SafeString;
 @Command("hmget")
 @ParamLength(2)
 @ParamType(DataType.HASH)
-public class HashMultiGetCommand implements DBCommand {
+public class HashMultiGetCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
 
-    ImmutableMap<SafeString, SafeString> map = db.getHash(request.getParam(0));
+    ImmutableMap<SafeString, SafeString> map = db.getHash(key);
 
     List<RedisToken> rtList = new ArrayList<>();
 
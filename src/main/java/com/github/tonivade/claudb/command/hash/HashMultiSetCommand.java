@@ -4,10 +4,11 @@
  */
 package com.github.tonivade.claudb.command.hash;
 
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.purefun.data.ImmutableMap;
 import com.github.tonivade.resp.annotation.Command;
@@ -19,7 +20,6 @@ import com.github.tonivade.resp.protocol.SafeString;
 import java.util.HashMap;
 import java.util.Map;
 
-import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.entry;
 import static com.github.tonivade.claudb.data.DatabaseValue.hash;
 import static com.github.tonivade.resp.protocol.RedisToken.responseOk;
@@ -27,10 +27,10 @@ import static com.github.tonivade.resp.protocol.RedisToken.responseOk;
 @Command("hmset")
 @ParamLength(3)
 @ParamType(DataType.HASH)
-public class HashMultiSetCommand implements DBCommand {
+public class HashMultiSetCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
 
     for (int paramNumber = 1; paramNumber < request.getParams().size(); paramNumber += 2) {
 
@@ -39,7 +39,7 @@ public class HashMultiSetCommand implements DBCommand {
 
       DatabaseValue value = hash(entry(mapKey, mapVal));
 
-      db.merge(safeKey(request.getParam(0)), value,
+      db.merge(key, value,
           (oldValue, newValue) -> {
             Map<SafeString, SafeString> merge = new HashMap<>();
             merge.putAll(oldValue.getHash().toMap());
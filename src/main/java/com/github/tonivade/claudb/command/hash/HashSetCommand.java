@@ -4,7 +4,6 @@
  */
 package com.github.tonivade.claudb.command.hash;
 
-import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.entry;
 import static com.github.tonivade.claudb.data.DatabaseValue.hash;
 import static com.github.tonivade.resp.protocol.RedisToken.integer;
@@ -12,10 +11,11 @@ import static com.github.tonivade.resp.protocol.RedisToken.integer;
 import java.util.HashMap;
 import java.util.Map;
 
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.purefun.data.ImmutableMap;
 import com.github.tonivade.resp.annotation.Command;
@@ -27,13 +27,13 @@ import com.github.tonivade.resp.protocol.SafeString;
 @Command("hset")
 @ParamLength(3)
 @ParamType(DataType.HASH)
-public class HashSetCommand implements DBCommand {
+public class HashSetCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
     DatabaseValue value = hash(entry(request.getParam(1), request.getParam(2)));
 
-    DatabaseValue resultValue = db.merge(safeKey(request.getParam(0)), value,
+    DatabaseValue resultValue = db.merge(key, value,
         (oldValue, newValue) -> {
           Map<SafeString, SafeString> merge = new HashMap<>();
           merge.putAll(oldValue.getHash().toMap());
@@ -4,11 +4,12 @@
  */
 package com.github.tonivade.claudb.command.hash;
 
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.purefun.data.ImmutableMap;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
@@ -20,11 +21,11 @@ import com.github.tonivade.resp.protocol.SafeString;
 @Command("hvals")
 @ParamLength(1)
 @ParamType(DataType.HASH)
-public class HashValuesCommand implements DBCommand {
+public class HashValuesCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
-    ImmutableMap<SafeString, SafeString> map = db.getHash(request.getParam(0));
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
+    ImmutableMap<SafeString, SafeString> map = db.getHash(key);
     return convert(map.values());
   }
 }
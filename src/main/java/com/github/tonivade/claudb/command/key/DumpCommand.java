@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.command.key;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.resp.protocol.RedisToken.error;
+import static com.github.tonivade.resp.protocol.RedisToken.nullString;
+import static com.github.tonivade.resp.protocol.RedisToken.string;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.annotation.ReadOnly;
+import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseValue;
+import com.github.tonivade.claudb.persistence.RDBOutputStream;
+import com.github.tonivade.resp.annotation.Command;
+import com.github.tonivade.resp.annotation.ParamLength;
+import com.github.tonivade.resp.command.Request;
+import com.github.tonivade.resp.protocol.RedisToken;
+import com.github.tonivade.resp.protocol.SafeString;
+
+@ReadOnly
+@Command("dump")
+@ParamLength(1)
+public class DumpCommand implements DBCommand {
+
+  @Override
+  public RedisToken execute(Database db, Request request) {
+    DatabaseValue value = db.get(safeKey(request.getParam(0)));
+    if (value == null) {
+      return nullString();
+    }
+    try {
+      return string(dump(value));
+    } catch (IOException e) {
+      return error("ERR " + e.getMessage());
+    }
+  }
+
+  static SafeString dump(DatabaseValue value) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new RDBOutputStream(output).dump(value);
+    return new SafeString(output.toByteArray());
+  }
+}
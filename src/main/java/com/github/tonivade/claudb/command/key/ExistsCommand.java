@@ -7,8 +7,6 @@ package com.github.tonivade.claudb.command.key;
 import static com.github.tonivade.resp.protocol.RedisToken.integer;
 import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 
-import java.time.Instant;
-
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
@@ -26,6 +24,6 @@ public class ExistsCommand implements DBCommand {
   @Override
   public RedisToken execute(Database db, Request request) {
     DatabaseValue value = db.get(safeKey(request.getParam(0)));
-    return integer(value != null ? !value.isExpired(Instant.now()) : false);
+    return integer(value != null ? !value.isExpired(getClock(request.getServerContext()).millis()) : false);
   }
 }
@@ -7,6 +7,7 @@ package com.github.tonivade.claudb.command.key;
 import static com.github.tonivade.resp.protocol.RedisToken.error;
 import static com.github.tonivade.resp.protocol.RedisToken.integer;
 import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
@@ -26,7 +27,9 @@ public class ExpireCommand implements DBCommand {
     try {
       DatabaseValue value = db.get(safeKey(request.getParam(0)));
       if (value != null) {
-        db.put(safeKey(request.getParam(0)), value.expiredAt(parsetTtl(request.getParam(1))));
+        long expiredAt = getClock(request.getServerContext()).preciseMillis()
+            + SECONDS.toMillis(parsetTtl(request.getParam(1)));
+        db.put(safeKey(request.getParam(0)), value.expiredAtMillis(expiredAt));
       }
       return integer(value != null);
     } catch (NumberFormatException e) {
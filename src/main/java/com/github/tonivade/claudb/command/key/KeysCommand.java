@@ -4,8 +4,6 @@
  */
 package com.github.tonivade.claudb.command.key;
 
-import java.time.Instant;
-
 import com.github.tonivade.claudb.command.DBCommand;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.Database;
@@ -31,7 +29,7 @@ public class KeysCommand implements DBCommand {
     GlobPattern pattern = createPattern(request.getParam(0));
     ImmutableSet<SafeString> keys = db.entrySet()
         .filter(matchPattern(pattern))
-        .filter(filterExpired(Instant.now()).negate())
+        .filter(filterExpired(getClock(request.getServerContext()).millis()).negate())
         .map(Tuple2::get1)
         .map(DatabaseKey::getValue);
     return convert(keys);
@@ -41,8 +39,8 @@ public class KeysCommand implements DBCommand {
     return new GlobPattern(param.toString());
   }
 
-  private Matcher1<Tuple2<DatabaseKey, DatabaseValue>> filterExpired(Instant now) {
-    return entry -> entry.get2().isExpired(now);
+  private Matcher1<Tuple2<DatabaseKey, DatabaseValue>> filterExpired(long nowMillis) {
+    return entry -> entry.get2().isExpired(nowMillis);
   }
 
   private Matcher1<Tuple2<DatabaseKey, DatabaseValue>> matchPattern(GlobPattern pattern) {
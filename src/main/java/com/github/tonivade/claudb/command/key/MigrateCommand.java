@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.command.key;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.resp.protocol.RedisToken.error;
+import static com.github.tonivade.resp.protocol.RedisToken.responseOk;
+import static com.github.tonivade.resp.protocol.RedisToken.status;
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.tonivade.claudb.DBServerContext;
+import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.annotation.SelfReplicated;
+import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseValue;
+import com.github.tonivade.claudb.persistence.RedisSourceInputStream;
+import com.github.tonivade.purefun.data.ImmutableList;
+import com.github.tonivade.resp.annotation.Command;
+import com.github.tonivade.resp.annotation.ParamLength;
+import com.github.tonivade.resp.command.Request;
+import com.github.tonivade.resp.protocol.AbstractRedisToken.ErrorRedisToken;
+import com.github.tonivade.resp.protocol.RedisParser;
+import com.github.tonivade.resp.protocol.RedisSerializer;
+import com.github.tonivade.resp.protocol.RedisToken;
+import com.github.tonivade.resp.protocol.RedisTokenType;
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Sends the keys to another instance, all the RESTORE commands are written before reading the
+ * first reply, so a batch of keys only waits one round trip.
+ *
+ * It runs without stopping the commands of other clients. The values are dumped in the shard of
+ * the keys, they are sent to the other instance outside of it, and then the keys migrated are
+ * removed in the shard again, only if they have not been changed meanwhile.
+ *
+ * The request is not replicated, the keys removed are replicated as a DEL command instead.
+ */
+@SelfReplicated
+@Command("migrate")
+@ParamLength(5)
+public class MigrateCommand implements DBCommand {
+
+  private static final int MAX_FRAME_SIZE = 100 * 1024 * 1024;
+
+  private static final String COPY = "COPY";
+  private static final String REPLACE = "REPLACE";
+  private static final String KEYS = "KEYS";
+
+  @Override
+  public RedisToken execute(Database db, Request request) {
+    int port;
+    int targetDb;
+    int timeout;
+    try {
+      port = parseInt(request.getParam(1));
+      targetDb = parseInt(request.getParam(3));
+      timeout = parseInt(request.getParam(4));
+    } catch (NumberFormatException e) {
+      return error("ERR value is not an integer or out of range");
+    }
+
+    boolean copy = false;
+    boolean replace = false;
+    List<SafeString> keys = new ArrayList<>();
+    for (int i = 5; i < request.getLength(); i++) {
+      String option = request.getParam(i).toString();
+      if (COPY.equalsIgnoreCase(option)) {
+        copy = true;
+      } else if (REPLACE.equalsIgnoreCase(option)) {
+        replace = true;
+      } else if (KEYS.equalsIgnoreCase(option)) {
+        if (!request.getParam(2).isEmpty()) {
+          return error("ERR When using MIGRATE KEYS option, the key argument must be set to the empty string");
+        }
+        for (int j = i + 1; j < request.getLength(); j++) {
+          keys.add(request.getParam(j));
+        }
+        break;
+      } else {
+        return error("ERR syntax error");
+      }
+    }
+    if (keys.isEmpty()) {
+      keys.add(request.getParam(2));
+    }
+
+    DBServerContext server = getClauDB(request.getServerContext());
+    Dump dump;
+    try {
+      dump = server.executeOnKeys(ImmutableList.from(keys), () -> dump(db, keys, server.getClock().millis()));
+    } catch (UncheckedIOException e) {
+      return error("ERR " + e.getCause().getMessage());
+    }
+    List<SafeString> existing = dump.keys;
+    if (existing.isEmpty()) {
+      return status("NOKEY");
+    }
+
+    List<RedisToken> replies;
+    try {
+      replies = send(request.getParam(0).toString(), port, timeout, targetDb, existing, dump.payloads, dump.ttls, replace);
+    } catch (IOException | RuntimeException e) {
+      return error("IOERR error or timeout writing to target instance");
+    }
+
+    String targetError = null;
+    if (replies.get(0).getType() == RedisTokenType.ERROR) {
+      targetError = ((ErrorRedisToken) replies.get(0)).getValue();
+    }
+    List<SafeString> migrated = new ArrayList<>(existing.size());
+    List<DatabaseValue> values = new ArrayList<>(existing.size());
+    for (int i = 0; i < existing.size(); i++) {
+      RedisToken reply = replies.get(i + 1);
+      if (reply.getType() == RedisTokenType.ERROR) {
+        if (targetError == null) {
+          targetError = ((ErrorRedisToken) reply).getValue();
+        }
+      } else {
+        migrated.add(existing.get(i));
+        values.add(dump.values.get(i));
+      }
+    }
+
+    if (!copy && !migrated.isEmpty()) {
+      int currentDb = getSessionState(request.getSession()).getCurrentDB();
+      server.executeOnKeys(ImmutableList.from(migrated), () -> {
+        List<SafeString> removed = new ArrayList<>(migrated.size());
+        for (int i = 0; i < migrated.size(); i++) {
+          SafeString key = migrated.get(i);
+          DatabaseValue value = db.get(safeKey(key));
+          if (value != null && value.equals(values.get(i))) {
+            db.remove(safeKey(key));
+            removed.add(key);
+          }
+        }
+        if (!removed.isEmpty()) {
+          server.replicate(currentDb, ImmutableList.of(safeString("del")).appendAll(ImmutableList.from(removed)));
+        }
+        return null;
+      });
+    }
+
+    if (targetError != null) {
+      return error("ERR Target instance replied with error: " + targetError);
+    }
+    return responseOk();
+  }
+
+  private Dump dump(Database db, List<SafeString> keys, long now) {
+    Dump dump = new Dump(keys.size());
+    for (SafeString key : keys) {
+      DatabaseValue value = db.get(safeKey(key));
+      if (value != null) {
+        try {
+          dump.payloads.add(DumpCommand.dump(value));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        long ttl = value.timeToLiveMillis(now);
+        dump.ttls.add(ttl < 0 ? 0 : Math.max(ttl, 1));
+        dump.values.add(value);
+        dump.keys.add(key);
+      }
+    }
+    return dump;
+  }
+
+  private List<RedisToken> send(String host, int port, int timeout, int targetDb, List<SafeString> keys,
+                                List<SafeString> payloads, List<Long> ttls, boolean replace) throws IOException {
+    try (Socket socket = new Socket()) {
+      socket.connect(new InetSocketAddress(host, port), timeout);
+      socket.setSoTimeout(timeout);
+
+      OutputStream output = new BufferedOutputStream(socket.getOutputStream());
+      output.write(command(safeString("select"), safeString(String.valueOf(targetDb))));
+      for (int i = 0; i < keys.size(); i++) {
+        SafeString ttl = safeString(String.valueOf(ttls.get(i)));
+        if (replace) {
+          output.write(command(safeString("restore"), keys.get(i), ttl, payloads.get(i), safeString(REPLACE)));
+        } else {
+          output.write(command(safeString("restore"), keys.get(i), ttl, payloads.get(i)));
+        }
+      }
+      output.flush();
+
+      RedisParser parser = new RedisParser(MAX_FRAME_SIZE, new RedisSourceInputStream(socket.getInputStream()));
+      List<RedisToken> replies = new ArrayList<>(keys.size() + 1);
+      for (int i = 0; i <= keys.size(); i++) {
+        RedisToken reply = parser.next();
+        if (reply == null) {
+          throw new IOException("connection closed");
+        }
+        replies.add(reply);
+      }
+      return replies;
+    }
+  }
+
+  private byte[] command(SafeString... params) {
+    RedisToken[] tokens = new RedisToken[params.length];
+    for (int i = 0; i < params.length; i++) {
+      tokens[i] = RedisToken.string(params[i]);
+    }
+    return new RedisSerializer().encodeToken(RedisToken.array(tokens));
+  }
+
+  private int parseInt(SafeString param) {
+    return Integer.parseInt(param.toString());
+  }
+
+  private static final class Dump {
+
+    private final List<SafeString> keys;
+    private final List<DatabaseValue> values;
+    private final List<SafeString> payloads;
+    private final List<Long> ttls;
+
+    private Dump(int size) {
+      this.keys = new ArrayList<>(size);
+      this.values = new ArrayList<>(size);
+      this.payloads = new ArrayList<>(size);
+      this.ttls = new ArrayList<>(size);
+    }
+  }
+}
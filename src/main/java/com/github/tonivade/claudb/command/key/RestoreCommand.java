@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.command.key;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.resp.protocol.RedisToken.error;
+import static com.github.tonivade.resp.protocol.RedisToken.responseOk;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
+import com.github.tonivade.claudb.data.DatabaseValue;
+import com.github.tonivade.claudb.persistence.RDBInputStream;
+import com.github.tonivade.resp.annotation.Command;
+import com.github.tonivade.resp.annotation.ParamLength;
+import com.github.tonivade.resp.command.Request;
+import com.github.tonivade.resp.protocol.RedisToken;
+import com.github.tonivade.resp.protocol.SafeString;
+
+@Command("restore")
+@ParamLength(3)
+public class RestoreCommand implements DBCommand {
+
+  private static final String REPLACE = "REPLACE";
+
+  @Override
+  public RedisToken execute(Database db, Request request) {
+    long ttl;
+    try {
+      ttl = Long.parseLong(request.getParam(1).toString());
+    } catch (NumberFormatException e) {
+      return error("ERR value is not an integer or out of range");
+    }
+    if (ttl < 0) {
+      return error("ERR Invalid TTL value, must be >= 0");
+    }
+    boolean replace = false;
+    for (int i = 3; i < request.getLength(); i++) {
+      if (REPLACE.equalsIgnoreCase(request.getParam(i).toString())) {
+        replace = true;
+      } else {
+        return error("ERR syntax error");
+      }
+    }
+    DatabaseKey key = safeKey(request.getParam(0));
+    if (!replace && db.get(key) != null) {
+      return error("BUSYKEY Target key name already exists.");
+    }
+    DatabaseValue value;
+    try {
+      value = restore(request.getParam(2));
+    } catch (IOException | RuntimeException e) {
+      return error("ERR DUMP payload version or checksum are wrong");
+    }
+    if (ttl > 0) {
+      value = value.expiredAtMillis(getClock(request.getServerContext()).preciseMillis() + ttl);
+    }
+    db.put(key, value);
+    return responseOk();
+  }
+
+  private DatabaseValue restore(SafeString payload) throws IOException {
+    return new RDBInputStream(new ByteArrayInputStream(payload.getBytes())).restore();
+  }
+}
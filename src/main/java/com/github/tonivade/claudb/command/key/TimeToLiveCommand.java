@@ -7,8 +7,6 @@ package com.github.tonivade.claudb.command.key;
 import static com.github.tonivade.resp.protocol.RedisToken.integer;
 import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 
-import java.time.Instant;
-
 import com.github.tonivade.resp.command.Request;
 import com.github.tonivade.resp.protocol.RedisToken;
 import com.github.tonivade.claudb.command.DBCommand;
@@ -21,24 +19,18 @@ public abstract class TimeToLiveCommand implements DBCommand {
   public RedisToken execute(Database db, Request request) {
     DatabaseValue value = db.get(safeKey(request.getParam(0)));
     if (value != null) {
-      return keyExists(value);
+      return keyExists(value, getClock(request.getServerContext()).millis());
     } else {
       return notExists();
     }
   }
 
-  protected abstract int timeToLive(DatabaseValue value, Instant now);
-
-  private RedisToken keyExists(DatabaseValue value) {
-    if (value.getExpiredAt() != null) {
-      return hasExpiredAt(value);
-    } else {
-      return integer(-1);
-    }
-  }
+  /**
+   * @return the time to live, or -1 if the value does not expire
+   */
+  protected abstract int timeToLive(DatabaseValue value, long nowMillis);
 
-  private RedisToken hasExpiredAt(DatabaseValue value) {
-    Instant now = Instant.now();
+  private RedisToken keyExists(DatabaseValue value, long now) {
     if (!value.isExpired(now)) {
       return integer(timeToLive(value, now));
     } else {
@@ -4,8 +4,6 @@
  */
 package com.github.tonivade.claudb.command.key;
 
-import java.time.Instant;
-
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.claudb.data.DatabaseValue;
@@ -15,7 +13,7 @@ import com.github.tonivade.claudb.data.DatabaseValue;
 public class TimeToLiveSecondsCommand extends TimeToLiveCommand {
 
   @Override
-  protected int timeToLive(DatabaseValue value, Instant now) {
-    return value.timeToLiveSeconds(now);
+  protected int timeToLive(DatabaseValue value, long nowMillis) {
+    return value.timeToLiveSeconds(nowMillis);
   }
 }
@@ -4,7 +4,6 @@
  */
 package com.github.tonivade.claudb.command.list;
 
-import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.list;
 import static com.github.tonivade.resp.protocol.RedisToken.nullString;
 import static com.github.tonivade.resp.protocol.RedisToken.string;
@@ -12,10 +11,11 @@ import static com.github.tonivade.resp.protocol.RedisToken.string;
 import java.util.LinkedList;
 import java.util.List;
 
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.purefun.data.ImmutableList;
 import com.github.tonivade.resp.annotation.Command;
@@ -27,12 +27,12 @@ import com.github.tonivade.resp.protocol.SafeString;
 @Command("lpop")
 @ParamLength(1)
 @ParamType(DataType.LIST)
-public class LeftPopCommand implements DBCommand {
+public class LeftPopCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
     List<SafeString> removed = new LinkedList<>();
-    db.merge(safeKey(request.getParam(0)), DatabaseValue.EMPTY_LIST,
+    db.merge(key, DatabaseValue.EMPTY_LIST,
         (oldValue, newValue) -> {
           ImmutableList<SafeString> list = oldValue.getList();
           list.head().stream().forEach(removed::add);
@@ -4,13 +4,13 @@
  */
 package com.github.tonivade.claudb.command.list;
 
-import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.list;
 
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.purefun.data.ImmutableList;
 import com.github.tonivade.resp.annotation.Command;
@@ -22,13 +22,13 @@ import com.github.tonivade.resp.protocol.SafeString;
 @Command("lpush")
 @ParamLength(2)
 @ParamType(DataType.LIST)
-public class LeftPushCommand implements DBCommand {
+public class LeftPushCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
     ImmutableList<SafeString> values = request.getParams().asList().tail().reverse();
 
-    DatabaseValue result = db.merge(safeKey(request.getParam(0)), list(values),
+    DatabaseValue result = db.merge(key, list(values),
         (oldValue, newValue) -> list(newValue.getList().appendAll(oldValue.getList())));
 
     return RedisToken.integer(result.size());
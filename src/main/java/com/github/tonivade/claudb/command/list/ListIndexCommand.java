@@ -8,11 +8,12 @@ import static com.github.tonivade.resp.protocol.RedisToken.error;
 import static com.github.tonivade.resp.protocol.RedisToken.nullString;
 import static com.github.tonivade.resp.protocol.RedisToken.string;
 
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.purefun.data.ImmutableList;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
@@ -24,12 +25,12 @@ import com.github.tonivade.resp.protocol.SafeString;
 @Command("lindex")
 @ParamLength(2)
 @ParamType(DataType.LIST)
-public class ListIndexCommand implements DBCommand {
+public class ListIndexCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
     try {
-      ImmutableList<SafeString> list = db.getList(request.getParam(0));
+      ImmutableList<SafeString> list = db.getList(key);
 
       int index = Integer.parseInt(request.getParam(1).toString());
       if (index < 0) {
@@ -4,14 +4,14 @@
  */
 package com.github.tonivade.claudb.command.list;
 
-import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.resp.protocol.RedisToken.error;
 
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.purefun.data.ImmutableList;
 import com.github.tonivade.resp.annotation.Command;
@@ -24,12 +24,12 @@ import com.github.tonivade.resp.protocol.SafeString;
 @Command("lrange")
 @ParamLength(3)
 @ParamType(DataType.LIST)
-public class ListRangeCommand implements DBCommand {
+public class ListRangeCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
     try {
-      DatabaseValue value = db.getOrDefault(safeKey(request.getParam(0)), DatabaseValue.EMPTY_LIST);
+      DatabaseValue value = db.getOrDefault(key, DatabaseValue.EMPTY_LIST);
       ImmutableList<SafeString> list = value.getList();
 
       int from = Integer.parseInt(request.getParam(1).toString());
@@ -4,7 +4,6 @@
  */
 package com.github.tonivade.claudb.command.list;
 
-import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.list;
 import static com.github.tonivade.resp.protocol.RedisToken.error;
 import static com.github.tonivade.resp.protocol.RedisToken.status;
@@ -12,10 +11,11 @@ import static com.github.tonivade.resp.protocol.RedisToken.status;
 import java.util.ArrayList;
 import java.util.List;
 
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.purefun.data.ImmutableList;
 import com.github.tonivade.resp.annotation.Command;
@@ -27,13 +27,13 @@ import com.github.tonivade.resp.protocol.SafeString;
 @Command("lset")
 @ParamLength(3)
 @ParamType(DataType.LIST)
-public class ListSetCommand implements DBCommand {
+public class ListSetCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
     try {
       int index = Integer.parseInt(request.getParam(1).toString());
-      db.merge(safeKey(request.getParam(0)), DatabaseValue.EMPTY_LIST,
+      db.merge(key, DatabaseValue.EMPTY_LIST,
           (oldValue, newValue) -> {
             ImmutableList<SafeString> oldList = oldValue.getList();
             // TODO: use Array
@@ -4,14 +4,14 @@
  */
 package com.github.tonivade.claudb.command.list;
 
-import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.list;
 import static com.github.tonivade.resp.protocol.RedisToken.integer;
 
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.purefun.data.ImmutableList;
 import com.github.tonivade.resp.annotation.Command;
@@ -23,13 +23,13 @@ import com.github.tonivade.resp.protocol.SafeString;
 @Command("rpush")
 @ParamLength(2)
 @ParamType(DataType.LIST)
-public class RightPushCommand implements DBCommand {
+public class RightPushCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
     ImmutableList<SafeString> values = request.getParams().asList().tail();
 
-    DatabaseValue result = db.merge(safeKey(request.getParam(0)), list(values),
+    DatabaseValue result = db.merge(key, list(values),
         (oldValue, newValue) -> list(oldValue.getList().appendAll(newValue.getList())));
 
     return integer(result.size());
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+
+package com.github.tonivade.claudb.command.server;
+
+import static com.github.tonivade.claudb.command.server.FlushDBCommand.isAsync;
+import static com.github.tonivade.resp.protocol.RedisToken.error;
+import static com.github.tonivade.resp.protocol.RedisToken.responseOk;
+
+import com.github.tonivade.resp.annotation.Command;
+import com.github.tonivade.resp.command.Request;
+import com.github.tonivade.resp.protocol.RedisToken;
+import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.data.Database;
+
+@Command("flushall")
+public class FlushAllCommand implements DBCommand {
+
+  @Override
+  public RedisToken execute(Database db, Request request) {
+    if (request.getLength() > 1 || (request.getLength() == 1 && !isAsync(request))) {
+      return error("ERR syntax error");
+    }
+    getServerState(request.getServerContext()).flushAll(request.getLength() == 1);
+    return responseOk();
+  }
+}
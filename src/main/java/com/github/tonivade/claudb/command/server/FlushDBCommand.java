@@ -5,6 +5,7 @@
 
 package com.github.tonivade.claudb.command.server;
 
+import static com.github.tonivade.resp.protocol.RedisToken.error;
 import static com.github.tonivade.resp.protocol.RedisToken.responseOk;
 
 import com.github.tonivade.resp.annotation.Command;
@@ -18,7 +19,19 @@ public class FlushDBCommand implements DBCommand {
 
   @Override
   public RedisToken execute(Database db, Request request) {
-    db.clear();
+    if (request.getLength() > 1 || (request.getLength() == 1 && !isAsync(request))) {
+      return error("ERR syntax error");
+    }
+    if (request.getLength() == 1) {
+      int current = getSessionState(request.getSession()).getCurrentDB();
+      getServerState(request.getServerContext()).flush(current, true);
+    } else {
+      db.clear();
+    }
     return responseOk();
   }
+
+  static boolean isAsync(Request request) {
+    return "async".equalsIgnoreCase(request.getParam(0).toString());
+  }
 }
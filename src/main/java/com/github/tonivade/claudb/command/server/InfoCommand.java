@@ -15,6 +15,7 @@ import static java.util.stream.Collectors.toMap;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
@@ -23,6 +24,9 @@ import java.util.stream.Stream;
 import com.github.tonivade.claudb.command.DBCommand;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.persistence.PersistenceStats;
+import com.github.tonivade.claudb.replication.ReplicationAcks;
+import com.github.tonivade.claudb.replication.ReplicationStats;
 import com.github.tonivade.purefun.type.Option;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.command.Request;
@@ -124,8 +128,20 @@ public class InfoCommand implements DBCommand {
   }
 
   private Map<String, String> replication(ServerContext ctx) {
-    return map(entry("role", getServerState(ctx).isMaster() ? "master" : "slave"),
-        entry("connected_slaves", slaves(ctx)));
+    ReplicationAcks acks = getServerState(ctx).getReplicationAcks();
+    ReplicationStats stats = getServerState(ctx).getReplicationStats();
+    Map<String, String> replication = map(entry("role", getServerState(ctx).isMaster() ? "master" : "slave"),
+        entry("connected_slaves", slaves(ctx)),
+        entry("master_repl_offset", valueOf(acks.getOffset())),
+        entry("repl_raw_bytes", valueOf(stats.getRawBytes())),
+        entry("repl_sent_bytes", valueOf(stats.getSentBytes())),
+        entry("repl_compression_ratio", String.format(Locale.ROOT, "%.2f", stats.getCompressionRatio())),
+        entry("repl_throughput_bytes_per_sec", valueOf(stats.getThroughput())));
+    int i = 0;
+    for (Entry<String, String> slave : acks.lag().entrySet()) {
+      replication.put("slave" + i++, "id=" + slave.getKey() + "," + slave.getValue());
+    }
+    return replication;
   }
 
   private String slaves(ServerContext ctx) {
@@ -137,17 +153,37 @@ public class InfoCommand implements DBCommand {
   }
 
   private Map<String, String> memory(ServerContext ctx) {
-    return map(entry("used_memory", valueOf(Runtime.getRuntime().totalMemory())));
+    return map(entry("used_memory", valueOf(Runtime.getRuntime().totalMemory())),
+               entry("lazyfree_pending_objects", valueOf(getServerState(ctx).getLazyFree().getPendingObjects())));
   }
 
   private Map<String, String> persistence(ServerContext ctx) {
-    // TODO:
-    return map();
+    PersistenceStats stats = getServerState(ctx).getPersistenceStats();
+    return map(entry("rdb_bgsave_in_progress", stats.isSaveInProgress() ? "1" : "0"),
+               entry("rdb_last_save_time", valueOf(stats.getLastSave())),
+               entry("rdb_last_bgsave_status", stats.isLastSaveOk() ? "ok" : "err"),
+               entry("rdb_last_bgsave_time_ms", valueOf(stats.getLastSaveTime())),
+               entry("rdb_last_snapshot_usec", valueOf(stats.getLastSnapshotTime())),
+               entry("rdb_deltas", valueOf(stats.getDeltas())),
+               entry("rdb_delta_size", valueOf(stats.getDeltaSize())),
+               entry("aof_current_size", valueOf(stats.getAofSize())),
+               entry("aof_base_size", valueOf(stats.getAofBaseSize())),
+               entry("aof_rewrites", valueOf(stats.getRewrites())),
+               entry("aof_rewrite_in_progress", stats.isRewriteInProgress() ? "1" : "0"),
+               entry("aof_last_bgrewrite_status", stats.isLastRewriteOk() ? "ok" : "err"),
+               entry("aof_pending_commands", valueOf(stats.getPendingCommands())),
+               entry("aof_buffer_length", valueOf(stats.getUnsyncedBytes())),
+               entry("aof_fsyncs", valueOf(stats.getFsyncs())),
+               entry("aof_last_fsync_usec", valueOf(stats.getLastFsyncTime())),
+               entry("aof_avg_fsync_usec", valueOf(stats.getAvgFsyncTime())),
+               entry("aof_max_fsync_usec", valueOf(stats.getMaxFsyncTime())),
+               entry("aof_loaded_bytes", valueOf(stats.getLoadedBytes())),
+               entry("aof_load_time_ms", valueOf(stats.getLoadTime())),
+               entry("aof_load_mb_per_sec", valueOf(stats.getLoadThroughput())));
   }
 
   private Map<String, String> stats(ServerContext ctx) {
-    // TODO:
-    return map();
+    return map(entry("lazyfreed_objects", valueOf(getServerState(ctx).getLazyFree().getFreedObjects())));
   }
 
   private Map<String, String> cpu(ServerContext ctx) {
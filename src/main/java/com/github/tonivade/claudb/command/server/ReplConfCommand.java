@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+
+package com.github.tonivade.claudb.command.server;
+
+import static com.github.tonivade.claudb.DBServerContext.NO_REPLY;
+import static com.github.tonivade.resp.protocol.RedisToken.error;
+import static com.github.tonivade.resp.protocol.RedisToken.responseOk;
+import static java.lang.Long.parseLong;
+
+import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.annotation.ReadOnly;
+import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.resp.annotation.Command;
+import com.github.tonivade.resp.annotation.ParamLength;
+import com.github.tonivade.resp.command.Request;
+import com.github.tonivade.resp.protocol.RedisToken;
+
+@ReadOnly
+@Command("replconf")
+@ParamLength(2)
+public class ReplConfCommand implements DBCommand {
+
+  private static final String ACK = "ack";
+  private static final String CAPA = "capa";
+  private static final String LZF = "lzf";
+
+  @Override
+  public RedisToken execute(Database db, Request request) {
+    String option = request.getParam(0).toString();
+    if (ACK.equalsIgnoreCase(option)) {
+      try {
+        long offset = parseLong(request.getParam(1).toString());
+        getServerState(request.getServerContext())
+          .getReplicationAcks().ack(request.getSession().getId(), offset);
+        return NO_REPLY;
+      } catch (NumberFormatException e) {
+        return error("ERR value is not an integer or out of range");
+      }
+    }
+    if (CAPA.equalsIgnoreCase(option) && LZF.equalsIgnoreCase(request.getParam(1).toString())) {
+      getServerState(request.getServerContext()).addCompressedSlave(request.getSession().getId());
+    }
+    return responseOk();
+  }
+}
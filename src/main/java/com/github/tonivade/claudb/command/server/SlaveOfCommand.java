@@ -47,7 +47,8 @@ public class SlaveOfCommand implements DBCommand {
 
   private void startReplication(Request request, String host, String port) {
     slave = new SlaveReplication(
-        getClauDB(request.getServerContext()), request.getSession(), host, Integer.parseInt(port));
+        getClauDB(request.getServerContext()), request.getSession(), host, Integer.parseInt(port),
+        getServerState(request.getServerContext()).isReplicationCompression());
 
     slave.start();
   }
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+
+package com.github.tonivade.claudb.command.server;
+
+import static com.github.tonivade.resp.protocol.RedisToken.error;
+import static com.github.tonivade.resp.protocol.RedisToken.responseOk;
+import static java.lang.Integer.parseInt;
+
+import com.github.tonivade.resp.annotation.Command;
+import com.github.tonivade.resp.annotation.ParamLength;
+import com.github.tonivade.resp.command.Request;
+import com.github.tonivade.resp.protocol.RedisToken;
+import com.github.tonivade.resp.protocol.SafeString;
+import com.github.tonivade.claudb.DBServerState;
+import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.data.Database;
+
+@Command("swapdb")
+@ParamLength(2)
+public class SwapDatabaseCommand implements DBCommand {
+
+  @Override
+  public RedisToken execute(Database db, Request request) {
+    int first;
+    int second;
+    try {
+      first = parseIndex(request.getParam(0));
+    } catch (NumberFormatException e) {
+      return error("ERR invalid first DB index");
+    }
+    try {
+      second = parseIndex(request.getParam(1));
+    } catch (NumberFormatException e) {
+      return error("ERR invalid second DB index");
+    }
+    DBServerState serverState = getServerState(request.getServerContext());
+    if (isOutOfRange(serverState, first) || isOutOfRange(serverState, second)) {
+      return error("ERR DB index is out of range");
+    }
+    try {
+      serverState.swap(first, second);
+      return responseOk();
+    } catch (IllegalStateException e) {
+      return error("ERR " + e.getMessage());
+    }
+  }
+
+  private boolean isOutOfRange(DBServerState serverState, int index) {
+    return index < 0 || index >= serverState.getNumDatabases();
+  }
+
+  private int parseIndex(SafeString param) {
+    return parseInt(param.toString());
+  }
+}
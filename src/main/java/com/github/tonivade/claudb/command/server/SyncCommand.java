@@ -15,10 +15,12 @@ import com.github.tonivade.resp.command.Request;
 import com.github.tonivade.resp.protocol.RedisToken;
 import com.github.tonivade.resp.protocol.SafeString;
 import com.github.tonivade.claudb.DBServerContext;
+import com.github.tonivade.claudb.DBServerState;
 import com.github.tonivade.claudb.command.DBCommand;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.Database;
 import com.github.tonivade.claudb.persistence.ByteBufferOutputStream;
+import com.github.tonivade.claudb.persistence.LZF;
 import com.github.tonivade.claudb.replication.MasterReplication;
 
 @ReadOnly
@@ -40,9 +42,15 @@ public class SyncCommand implements DBCommand {
         master.start();
       }
 
-      master.addSlave(request.getSession().getId());
+      String slave = request.getSession().getId();
+      master.addSlave(slave);
 
-      return string(new SafeString(output.toByteArray()));
+      DBServerState serverState = getServerState(server);
+      byte[] rdb = output.toByteArray();
+      byte[] sent = serverState.isCompressedSlave(slave) ? LZF.frame(rdb) : rdb;
+      serverState.getReplicationStats().sent(rdb.length, sent.length);
+
+      return string(new SafeString(sent));
     } catch (IOException e) {
       return error("ERROR replication error");
     }
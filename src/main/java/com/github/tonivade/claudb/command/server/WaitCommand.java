@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+
+package com.github.tonivade.claudb.command.server;
+
+import static com.github.tonivade.claudb.DBServerContext.NO_REPLY;
+import static com.github.tonivade.resp.protocol.RedisToken.error;
+import static com.github.tonivade.resp.protocol.RedisToken.integer;
+import static java.lang.Integer.parseInt;
+import static java.lang.Long.parseLong;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.github.tonivade.claudb.DBServerState;
+import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.annotation.ReadOnly;
+import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.replication.ReplicationAcks;
+import com.github.tonivade.resp.annotation.Command;
+import com.github.tonivade.resp.annotation.ParamLength;
+import com.github.tonivade.resp.command.Request;
+import com.github.tonivade.resp.protocol.RedisToken;
+
+@ReadOnly
+@Command("wait")
+@ParamLength(2)
+public class WaitCommand implements DBCommand {
+
+  @Override
+  public RedisToken execute(Database db, Request request) {
+    DBServerState serverState = getServerState(request.getServerContext());
+    if (!serverState.isMaster()) {
+      return error("ERR WAIT cannot be used with slave instances");
+    }
+    try {
+      int numReplicas = parseInt(request.getParam(0).toString());
+      long timeout = parseLong(request.getParam(1).toString());
+      if (timeout < 0) {
+        return error("ERR timeout is negative");
+      }
+      ReplicationAcks acks = serverState.getReplicationAcks();
+      long offset = acks.getOffset();
+      int count = acks.count(offset);
+      if (count >= numReplicas || !serverState.hasSlaves()) {
+        return integer(count);
+      }
+      // the client is suspended, its next commands run after the reply
+      CompletableFuture<RedisToken> reply = new CompletableFuture<>();
+      getSessionState(request.getSession()).suspend(reply);
+      acks.await(offset, numReplicas, timeout, acked -> reply.complete(integer(acked)));
+      return NO_REPLY;
+    } catch (NumberFormatException e) {
+      return error("ERR value is not an integer or out of range");
+    }
+  }
+}
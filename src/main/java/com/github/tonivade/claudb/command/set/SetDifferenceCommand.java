@@ -4,11 +4,12 @@
  */
 package com.github.tonivade.claudb.command.set;
 
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.purefun.data.ImmutableSet;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
@@ -20,11 +21,11 @@ import com.github.tonivade.resp.protocol.SafeString;
 @Command("sdiff")
 @ParamLength(2)
 @ParamType(DataType.SET)
-public class SetDifferenceCommand implements DBCommand {
+public class SetDifferenceCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
-    ImmutableSet<SafeString> result = db.getSet(request.getParam(0));
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
+    ImmutableSet<SafeString> result = db.getSet(key);
     for (SafeString param : request.getParams().asList().tail()) {
       result = result.difference(db.getSet(param));
     }
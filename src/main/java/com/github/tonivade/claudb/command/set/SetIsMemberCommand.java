@@ -6,11 +6,12 @@ package com.github.tonivade.claudb.command.set;
 
 import static com.github.tonivade.resp.protocol.RedisToken.integer;
 
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.purefun.data.ImmutableSet;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
@@ -22,11 +23,11 @@ import com.github.tonivade.resp.protocol.SafeString;
 @Command("sismember")
 @ParamLength(2)
 @ParamType(DataType.SET)
-public class SetIsMemberCommand implements DBCommand {
+public class SetIsMemberCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
-    ImmutableSet<SafeString> set = db.getSet(request.getParam(0));
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
+    ImmutableSet<SafeString> set = db.getSet(key);
     return integer(set.contains(request.getParam(1)));
   }
 }
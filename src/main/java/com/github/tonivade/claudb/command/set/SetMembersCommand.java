@@ -4,28 +4,28 @@
  */
 package com.github.tonivade.claudb.command.set;
 
-import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
 import com.github.tonivade.resp.protocol.RedisToken;
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 
 @ReadOnly
 @Command("smembers")
 @ParamLength(1)
 @ParamType(DataType.SET)
-public class SetMembersCommand implements DBCommand {
+public class SetMembersCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
-    DatabaseValue value = db.getOrDefault(safeKey(request.getParam(0)), DatabaseValue.EMPTY_SET);
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
+    DatabaseValue value = db.getOrDefault(key, DatabaseValue.EMPTY_SET);
     return convert(value);
   }
 }
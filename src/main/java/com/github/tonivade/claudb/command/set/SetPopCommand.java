@@ -4,7 +4,6 @@
  */
 package com.github.tonivade.claudb.command.set;
 
-import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.set;
 import static com.github.tonivade.resp.protocol.RedisToken.nullString;
 import static com.github.tonivade.resp.protocol.RedisToken.string;
@@ -13,10 +12,11 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
 
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.purefun.data.ImmutableArray;
 import com.github.tonivade.purefun.data.ImmutableSet;
@@ -29,12 +29,12 @@ import com.github.tonivade.resp.protocol.SafeString;
 @Command("spop")
 @ParamLength(1)
 @ParamType(DataType.SET)
-public class SetPopCommand implements DBCommand {
+public class SetPopCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
     List<SafeString> removed = new LinkedList<>();
-    db.merge(safeKey(request.getParam(0)), DatabaseValue.EMPTY_SET,
+    db.merge(key, DatabaseValue.EMPTY_SET,
         (oldValue, newValue) -> {
           ImmutableSet<SafeString> oldSet = oldValue.getSet();
           SafeString item = getRandomItem(oldSet.asArray());
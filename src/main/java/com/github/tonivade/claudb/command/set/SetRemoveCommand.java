@@ -4,17 +4,17 @@
  */
 package com.github.tonivade.claudb.command.set;
 
-import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.set;
 import static com.github.tonivade.resp.protocol.RedisToken.integer;
 
 import java.util.LinkedList;
 import java.util.List;
 
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.purefun.data.ImmutableList;
 import com.github.tonivade.purefun.data.ImmutableSet;
@@ -27,13 +27,13 @@ import com.github.tonivade.resp.protocol.SafeString;
 @Command("srem")
 @ParamLength(2)
 @ParamType(DataType.SET)
-public class SetRemoveCommand implements DBCommand {
+public class SetRemoveCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
     ImmutableList<SafeString> items = request.getParams().asList().tail();
     List<SafeString> removed = new LinkedList<>();
-    db.merge(safeKey(request.getParam(0)), DatabaseValue.EMPTY_SET,
+    db.merge(key, DatabaseValue.EMPTY_SET,
         (oldValue, newValue) -> {
           ImmutableSet<SafeString> oldSet = oldValue.getSet();
           oldSet.intersection(items.asSet()).stream().forEach(removed::add);
@@ -6,28 +6,28 @@ package com.github.tonivade.claudb.command.string;
 
 import static com.github.tonivade.resp.protocol.RedisToken.error;
 import static com.github.tonivade.resp.protocol.RedisToken.integer;
-import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.string;
 
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
 import com.github.tonivade.resp.protocol.RedisToken;
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 
 @Command("decrby")
 @ParamLength(2)
 @ParamType(DataType.STRING)
-public class DecrementByCommand implements DBCommand {
+public class DecrementByCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
     try {
-      DatabaseValue value = db.merge(safeKey(request.getParam(0)), string("-" + request.getParam(1)),
+      DatabaseValue value = db.merge(key, string("-" + request.getParam(1)),
           (oldValue, newValue) -> {
             int decrement = Integer.parseInt(newValue.getString().toString());
             int current = Integer.parseInt(oldValue.getString().toString());
@@ -5,26 +5,26 @@
 
 package com.github.tonivade.claudb.command.string;
 
-import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
 import com.github.tonivade.resp.protocol.RedisToken;
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 
 @ReadOnly
 @Command("get")
 @ParamLength(1)
 @ParamType(DataType.STRING)
-public class GetCommand implements DBCommand {
+public class GetCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
-    return convert(db.get(safeKey(request.getParam(0))));
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
+    return convert(db.get(key));
   }
 }
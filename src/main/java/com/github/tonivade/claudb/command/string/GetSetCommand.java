@@ -4,25 +4,25 @@
  */
 package com.github.tonivade.claudb.command.string;
 
-import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.string;
 
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
 import com.github.tonivade.resp.protocol.RedisToken;
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 
 @Command("getset")
 @ParamLength(2)
 @ParamType(DataType.STRING)
-public class GetSetCommand implements DBCommand {
+public class GetSetCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
-    return convert(db.put(safeKey(request.getParam(0)), string(request.getParam(1))));
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
+    return convert(db.put(key, string(request.getParam(1))));
   }
 }
@@ -4,7 +4,6 @@
  */
 package com.github.tonivade.claudb.command.string;
 
-import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.string;
 import static com.github.tonivade.purefun.Matcher1.instanceOf;
 import static com.github.tonivade.resp.protocol.RedisToken.error;
@@ -12,10 +11,8 @@ import static com.github.tonivade.resp.protocol.RedisToken.nullString;
 import static com.github.tonivade.resp.protocol.RedisToken.responseOk;
 
 import java.time.Duration;
-import java.time.Instant;
-import java.time.temporal.TemporalAmount;
 
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.data.Database;
 import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.claudb.data.DatabaseValue;
@@ -29,18 +26,17 @@ import com.github.tonivade.resp.protocol.SafeString;
 
 @Command("set")
 @ParamLength(2)
-public class SetCommand implements DBCommand {
+public class SetCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
     return com.github.tonivade.purefun.type.Try.of(() -> parse(request))
-        .map(params -> onSuccess(db, request, params))
+        .map(params -> onSuccess(db, key, request, params))
         .recover(this::onFailure)
         .get();
   }
 
-  private RedisToken onSuccess(Database db, Request request, Parameters parameters) {
-    DatabaseKey key = safeKey(request.getParam(0));
+  private RedisToken onSuccess(Database db, DatabaseKey key, Request request, Parameters parameters) {
     DatabaseValue value = parseValue(request, parameters);
     return value.equals(saveValue(db, parameters, key, value)) ? responseOk() : nullString();
   }
@@ -48,7 +44,7 @@ public class SetCommand implements DBCommand {
   private DatabaseValue parseValue(Request request, Parameters parameters) {
     DatabaseValue value = string(request.getParam(1));
     if (parameters.ttl != null) {
-      value = value.expiredAt(Instant.now().plus(parameters.ttl));
+      value = value.expiredAtMillis(getClock(request.getServerContext()).preciseMillis() + parameters.ttl.toMillis());
     }
     return value;
   }
@@ -142,7 +138,7 @@ public class SetCommand implements DBCommand {
   private static class Parameters {
     private boolean ifExists;
     private boolean ifNotExists;
-    private TemporalAmount ttl;
+    private Duration ttl;
   }
 
   private static class SyntaxException extends RuntimeException {
@@ -8,6 +8,7 @@ import static com.github.tonivade.resp.protocol.RedisToken.error;
 import static com.github.tonivade.resp.protocol.RedisToken.responseOk;
 import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
@@ -24,8 +25,9 @@ public class SetExpiredCommand implements DBCommand {
   @Override
   public RedisToken execute(Database db, Request request) {
     try {
-      db.put(safeKey(request.getParam(0)), string(request.getParam(2))
-               .expiredAt(parseTtl(request.getParam(1))));
+      long expiredAt = getClock(request.getServerContext()).preciseMillis()
+          + SECONDS.toMillis(parseTtl(request.getParam(1)));
+      db.put(safeKey(request.getParam(0)), string(request.getParam(2)).expiredAtMillis(expiredAt));
       return responseOk();
     } catch (NumberFormatException e) {
       return error("ERR value is not an integer or out of range");
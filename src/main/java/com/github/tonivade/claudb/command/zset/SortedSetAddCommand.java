@@ -6,7 +6,6 @@ package com.github.tonivade.claudb.command.zset;
 
 import static com.github.tonivade.resp.protocol.RedisToken.error;
 import static com.github.tonivade.resp.protocol.RedisToken.integer;
-import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.score;
 import static com.github.tonivade.claudb.data.DatabaseValue.zset;
 import static java.lang.Float.parseFloat;
@@ -20,23 +19,24 @@ import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
 import com.github.tonivade.resp.protocol.RedisToken;
 import com.github.tonivade.resp.protocol.SafeString;
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.claudb.data.SortedSet;
 
 @Command("zadd")
 @ParamLength(3)
 @ParamType(DataType.ZSET)
-public class SortedSetAddCommand implements DBCommand {
+public class SortedSetAddCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
     try {
-      DatabaseValue initial = db.getOrDefault(safeKey(request.getParam(0)), DatabaseValue.EMPTY_ZSET);
-      DatabaseValue result = db.merge(safeKey(request.getParam(0)), parseInput(request),
+      DatabaseValue initial = db.getOrDefault(key, DatabaseValue.EMPTY_ZSET);
+      DatabaseValue result = db.merge(key, parseInput(request),
           (oldValue, newValue) -> {
             Set<Entry<Double, SafeString>> merge = new SortedSet();
             merge.addAll(oldValue.getSortedSet());
@@ -5,7 +5,6 @@
 package com.github.tonivade.claudb.command.zset;
 
 import static com.github.tonivade.resp.protocol.RedisToken.integer;
-import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 
 import java.util.Map.Entry;
 import java.util.Set;
@@ -15,22 +14,23 @@ import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
 import com.github.tonivade.resp.protocol.RedisToken;
 import com.github.tonivade.resp.protocol.SafeString;
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 
 @ReadOnly
 @Command("zcard")
 @ParamLength(1)
 @ParamType(DataType.ZSET)
-public class SortedSetCardinalityCommand implements DBCommand {
+public class SortedSetCardinalityCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
-    DatabaseValue value = db.getOrDefault(safeKey(request.getParam(0)), DatabaseValue.EMPTY_ZSET);
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
+    DatabaseValue value = db.getOrDefault(key, DatabaseValue.EMPTY_ZSET);
     Set<Entry<Double, SafeString>> set = value.getSortedSet();
     return integer(set.size());
   }
@@ -4,7 +4,6 @@
  */
 package com.github.tonivade.claudb.command.zset;
 
-import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.score;
 import static com.github.tonivade.claudb.data.DatabaseValue.zset;
 import static com.github.tonivade.resp.protocol.RedisToken.error;
@@ -13,7 +12,7 @@ import static com.github.tonivade.resp.protocol.RedisToken.string;
 import java.util.Map.Entry;
 import java.util.NavigableSet;
 
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
@@ -29,25 +28,24 @@ import com.github.tonivade.resp.protocol.SafeString;
 @Command("zincrby")
 @ParamLength(3)
 @ParamType(DataType.ZSET)
-public class SortedSetIncrementByCommand implements DBCommand {
+public class SortedSetIncrementByCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
     try {
-      DatabaseKey zkey = safeKey(request.getParam(0));
-      DatabaseValue value = db.getOrDefault(zkey, DatabaseValue.EMPTY_ZSET);
+      DatabaseValue value = db.getOrDefault(key, DatabaseValue.EMPTY_ZSET);
       NavigableSet<Entry<Double, SafeString>> set = value.getSortedSet();
 
-      SafeString key = request.getParam(2);
+      SafeString member = request.getParam(2);
       Double increment = Double.parseDouble(request.getParam(1).toString());
 
-      Entry<Double, SafeString> newValue = merge(set, key, increment);
+      Entry<Double, SafeString> newValue = merge(set, member, increment);
 
       SortedSet result = new SortedSet();
       result.addAll(set);
       result.remove(newValue);
       result.add(newValue);
-      db.put(zkey, zset(result));
+      db.put(key, zset(result));
 
       return string(newValue.getKey().toString());
     } catch (NumberFormatException e) {
@@ -5,7 +5,6 @@
 package com.github.tonivade.claudb.command.zset;
 
 import static com.github.tonivade.resp.protocol.RedisToken.error;
-import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.score;
 import static java.lang.Integer.parseInt;
 import static java.util.Collections.emptyList;
@@ -22,19 +21,20 @@ import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
 import com.github.tonivade.resp.protocol.RedisToken;
 import com.github.tonivade.resp.protocol.SafeString;
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 
 @ReadOnly
 @Command("zrangebyscore")
 @ParamLength(3)
 @ParamType(DataType.ZSET)
-public class SortedSetRangeByScoreCommand implements DBCommand {
+public class SortedSetRangeByScoreCommand implements DBKeyCommand {
 
   private static final String EXCLUSIVE = "(";
   private static final String MINUS_INFINITY = "-inf";
@@ -43,9 +43,9 @@ public class SortedSetRangeByScoreCommand implements DBCommand {
   private static final String PARAM_LIMIT = "LIMIT";
 
   @Override
-  public RedisToken execute(Database db, Request request) {
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
     try {
-      DatabaseValue value = db.getOrDefault(safeKey(request.getParam(0)), DatabaseValue.EMPTY_ZSET);
+      DatabaseValue value = db.getOrDefault(key, DatabaseValue.EMPTY_ZSET);
       NavigableSet<Entry<Double, SafeString>> set = value.getSortedSet();
 
       float from = parseRange(request.getParam(1).toString());
@@ -5,7 +5,6 @@
 package com.github.tonivade.claudb.command.zset;
 
 import static com.github.tonivade.resp.protocol.RedisToken.integer;
-import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.score;
 import static com.github.tonivade.claudb.data.DatabaseValue.zset;
 import static java.util.stream.Collectors.toList;
@@ -20,23 +19,24 @@ import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
 import com.github.tonivade.resp.protocol.RedisToken;
 import com.github.tonivade.resp.protocol.SafeString;
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.claudb.data.SortedSet;
 
 @Command("zrem")
 @ParamLength(2)
 @ParamType(DataType.ZSET)
-public class SortedSetRemoveCommand implements DBCommand {
+public class SortedSetRemoveCommand implements DBKeyCommand {
 
   @Override
-  public RedisToken execute(Database db, Request request) {
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
     List<SafeString> items =  request.getParams().stream().skip(1).collect(toList());
     List<SafeString> removed = new LinkedList<>();
-    db.merge(safeKey(request.getParam(0)), DatabaseValue.EMPTY_ZSET,
+    db.merge(key, DatabaseValue.EMPTY_ZSET,
              (oldValue, newValue) -> {
                Set<Entry<Double, SafeString>> merge = new SortedSet();
                merge.addAll(oldValue.getSortedSet());
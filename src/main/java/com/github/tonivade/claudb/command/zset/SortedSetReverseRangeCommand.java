@@ -4,7 +4,6 @@
  */
 package com.github.tonivade.claudb.command.zset;
 
-import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.resp.protocol.RedisToken.error;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.reverse;
@@ -15,11 +14,12 @@ import java.util.Map.Entry;
 import java.util.NavigableSet;
 import java.util.stream.Stream;
 
-import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.DBKeyCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.purefun.type.Option;
 import com.github.tonivade.resp.annotation.Command;
@@ -32,14 +32,14 @@ import com.github.tonivade.resp.protocol.SafeString;
 @Command("zrevrange")
 @ParamLength(3)
 @ParamType(DataType.ZSET)
-public class SortedSetReverseRangeCommand implements DBCommand {
+public class SortedSetReverseRangeCommand implements DBKeyCommand {
 
   private static final String PARAM_WITHSCORES = "WITHSCORES";
 
   @Override
-  public RedisToken execute(Database db, Request request) {
+  public RedisToken execute(Database db, DatabaseKey key, Request request) {
     try {
-      DatabaseValue value = db.getOrDefault(safeKey(request.getParam(0)), DatabaseValue.EMPTY_ZSET);
+      DatabaseValue value = db.getOrDefault(key, DatabaseValue.EMPTY_ZSET);
       NavigableSet<Entry<Double, SafeString>> set = value.getSortedSet();
 
       int from = Integer.parseInt(request.getParam(2).toString());
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * LRU cache of the blocks read from the segment files, limited by size in bytes and shared
+ * by all the databases of a {@link LSMDatabaseFactory}.
+ */
+public class BlockCache {
+
+  private final long capacity;
+  private final Map<Long, byte[]> blocks = new LinkedHashMap<>(16, 0.75f, true);
+
+  private long size;
+  private long hits;
+  private long misses;
+
+  public BlockCache(long capacity) {
+    this.capacity = capacity;
+  }
+
+  byte[] get(long segment, int block, Supplier<byte[]> loader) {
+    Long key = (segment << Integer.SIZE) | block;
+    synchronized (this) {
+      byte[] cached = blocks.get(key);
+      if (cached != null) {
+        hits++;
+        return cached;
+      }
+      misses++;
+    }
+    byte[] loaded = loader.get();
+    synchronized (this) {
+      byte[] previous = blocks.put(key, loaded);
+      if (previous != null) {
+        size -= previous.length;
+      }
+      size += loaded.length;
+      evict();
+    }
+    return loaded;
+  }
+
+  synchronized void invalidate(long segment) {
+    Iterator<Map.Entry<Long, byte[]>> iterator = blocks.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Long, byte[]> entry = iterator.next();
+      if (entry.getKey() >>> Integer.SIZE == segment) {
+        size -= entry.getValue().length;
+        iterator.remove();
+      }
+    }
+  }
+
+  public synchronized long getSize() {
+    return size;
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  private void evict() {
+    Iterator<byte[]> iterator = blocks.values().iterator();
+    while (size > capacity && iterator.hasNext()) {
+      size -= iterator.next().length;
+      iterator.remove();
+    }
+  }
+}
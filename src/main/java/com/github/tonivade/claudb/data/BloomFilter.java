@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+final class BloomFilter {
+
+  private static final int BITS_PER_KEY = 10;
+  private static final int HASHES = 7;
+
+  private final long[] bits;
+  private final int size;
+
+  BloomFilter(int keys) {
+    this.size = Math.max(Long.SIZE, keys * BITS_PER_KEY);
+    this.bits = new long[(size + Long.SIZE - 1) / Long.SIZE];
+  }
+
+  private BloomFilter(int size, long[] bits) {
+    this.size = size;
+    this.bits = bits;
+  }
+
+  void writeTo(DataOutput output) throws IOException {
+    output.writeInt(size);
+    output.writeInt(bits.length);
+    for (long word : bits) {
+      output.writeLong(word);
+    }
+  }
+
+  static BloomFilter readFrom(ByteBuffer buffer) {
+    int size = buffer.getInt();
+    long[] bits = new long[buffer.getInt()];
+    for (int i = 0; i < bits.length; i++) {
+      bits[i] = buffer.getLong();
+    }
+    return new BloomFilter(size, bits);
+  }
+
+  void add(byte[] key) {
+    int hash1 = Arrays.hashCode(key);
+    int hash2 = fnv(key);
+    for (int i = 0; i < HASHES; i++) {
+      int bit = Math.floorMod(hash1 + i * hash2, size);
+      bits[bit / Long.SIZE] |= 1L << (bit % Long.SIZE);
+    }
+  }
+
+  boolean mightContain(byte[] key) {
+    int hash1 = Arrays.hashCode(key);
+    int hash2 = fnv(key);
+    for (int i = 0; i < HASHES; i++) {
+      int bit = Math.floorMod(hash1 + i * hash2, size);
+      if ((bits[bit / Long.SIZE] & (1L << (bit % Long.SIZE))) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int fnv(byte[] key) {
+    int hash = 0x811c9dc5;
+    for (byte b : key) {
+      hash ^= b & 0xFF;
+      hash *= 0x01000193;
+    }
+    return hash | 1;
+  }
+}
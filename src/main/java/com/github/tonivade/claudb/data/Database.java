@@ -6,7 +6,6 @@ package com.github.tonivade.claudb.data;
 
 import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 
-import java.time.Instant;
 import java.util.Map.Entry;
 import java.util.NavigableSet;
 import java.util.function.BiFunction;
@@ -32,6 +31,24 @@ public interface Database {
 
   DatabaseValue remove(DatabaseKey key);
 
+  /**
+   * Removes the key without returning its value, so the stores that keep the values serialized
+   * do not read them. A key expired but not evicted yet counts as removed.
+   *
+   * @return true if the key was in the database
+   */
+  default boolean delete(DatabaseKey key) {
+    return remove(key) != null;
+  }
+
+  /**
+   * Same as {@link #delete(DatabaseKey)}, but the stores that release the memory of a large
+   * value in the calling thread leave it to the given lazy free.
+   */
+  default boolean unlink(DatabaseKey key, LazyFree lazyFree) {
+    return delete(key);
+  }
+
   void clear();
 
   ImmutableSet<DatabaseKey> keySet();
@@ -41,23 +58,43 @@ public interface Database {
   ImmutableSet<Tuple2<DatabaseKey, DatabaseValue>> entrySet();
 
   default SafeString getString(SafeString key) {
-    return getOrDefault(safeKey(key), DatabaseValue.EMPTY_STRING).getString();
+    return getString(safeKey(key));
+  }
+
+  default SafeString getString(DatabaseKey key) {
+    return getOrDefault(key, DatabaseValue.EMPTY_STRING).getString();
   }
 
   default ImmutableList<SafeString> getList(SafeString key) {
-    return getOrDefault(safeKey(key), DatabaseValue.EMPTY_LIST).getList();
+    return getList(safeKey(key));
+  }
+
+  default ImmutableList<SafeString> getList(DatabaseKey key) {
+    return getOrDefault(key, DatabaseValue.EMPTY_LIST).getList();
   }
 
   default ImmutableSet<SafeString> getSet(SafeString key) {
-    return getOrDefault(safeKey(key), DatabaseValue.EMPTY_SET).getSet();
+    return getSet(safeKey(key));
+  }
+
+  default ImmutableSet<SafeString> getSet(DatabaseKey key) {
+    return getOrDefault(key, DatabaseValue.EMPTY_SET).getSet();
   }
 
   default NavigableSet<Entry<Double, SafeString>> getSortedSet(SafeString key) {
-    return getOrDefault(safeKey(key), DatabaseValue.EMPTY_ZSET).getSortedSet();
+    return getSortedSet(safeKey(key));
+  }
+
+  default NavigableSet<Entry<Double, SafeString>> getSortedSet(DatabaseKey key) {
+    return getOrDefault(key, DatabaseValue.EMPTY_ZSET).getSortedSet();
   }
 
   default ImmutableMap<SafeString, SafeString> getHash(SafeString key) {
-    return getOrDefault(safeKey(key), DatabaseValue.EMPTY_HASH).getHash();
+    return getHash(safeKey(key));
+  }
+
+  default ImmutableMap<SafeString, SafeString> getHash(DatabaseKey key) {
+    return getOrDefault(key, DatabaseValue.EMPTY_HASH).getHash();
   }
 
   default void putAll(ImmutableMap<? extends DatabaseKey, ? extends DatabaseValue> map) {
@@ -108,9 +145,26 @@ public interface Database {
     putAll(value);
   }
 
-  default ImmutableSet<DatabaseKey> evictableKeys(Instant now) {
+  /**
+   * Takes a view of the entries that is iterated later while the database keeps changing, by
+   * default it is a copy of all the entries.
+   */
+  default DatabaseSnapshot snapshot() {
+    return DatabaseSnapshot.of(entrySet());
+  }
+
+  /**
+   * Reads the entries while they are iterated, without copying them, so the database must not
+   * change until the scan is closed, see {@link VersionedDatabase}. By default it is a copy of
+   * all the entries.
+   */
+  default DatabaseSnapshot scan() {
+    return DatabaseSnapshot.of(entrySet());
+  }
+
+  default ImmutableSet<DatabaseKey> evictableKeys(long nowMillis) {
     return entrySet()
-        .filter(entry -> entry.get2().isExpired(now))
+        .filter(entry -> entry.get2().isExpired(nowMillis))
         .map(Tuple2::get1);
   }
 }
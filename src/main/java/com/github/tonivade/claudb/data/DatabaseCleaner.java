@@ -4,7 +4,6 @@
  */
 package com.github.tonivade.claudb.data;
 
-import java.time.Instant;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -40,7 +39,7 @@ public class DatabaseCleaner {
 
   private void clean() {
     LOGGER.debug("cleaning database: running");
-    server.clean(Instant.now());
+    server.clean(server.getClock().preciseMillis());
     LOGGER.debug("cleaning database: done");
   }
 }
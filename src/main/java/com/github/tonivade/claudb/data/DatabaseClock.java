@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time used to check the expiration of the keys, in epoch millis.
+ *
+ * The system clock keeps the time cached while a server is running, updated every millisecond
+ * by a ticker thread, so the read path only loads a field, the precise time is used when a
+ * expiration is set. The clock is given to the server in the configuration, and the server
+ * gives it to the databases and the commands, so the tests can use a clock that they move.
+ */
+public abstract class DatabaseClock {
+
+  private static final DatabaseClock SYSTEM = new CachedClock(1);
+
+  /**
+   * @return the current time, it can be behind the precise time up to the resolution of the clock
+   */
+  public abstract long millis();
+
+  /**
+   * @return the precise current time
+   */
+  public abstract long preciseMillis();
+
+  public void start() {
+    // nothing to do
+  }
+
+  public void stop() {
+    // nothing to do
+  }
+
+  /**
+   * the clock used by default, shared by all the servers
+   */
+  public static DatabaseClock system() {
+    return SYSTEM;
+  }
+
+  public static ManualClock manual(long millis) {
+    return new ManualClock(millis);
+  }
+
+  /**
+   * the ticker only runs while there is a server using the clock, otherwise the precise time is returned
+   */
+  public static final class CachedClock extends DatabaseClock {
+
+    private final long resolution;
+
+    private volatile long millis;
+    private volatile boolean ticking;
+
+    private ScheduledExecutorService ticker;
+    private int users;
+
+    public CachedClock(long resolution) {
+      this.resolution = resolution;
+    }
+
+    @Override
+    public long millis() {
+      return ticking ? millis : System.currentTimeMillis();
+    }
+
+    @Override
+    public long preciseMillis() {
+      return System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized void start() {
+      if (users++ == 0) {
+        millis = System.currentTimeMillis();
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+          Thread thread = new Thread(runnable, "clock");
+          thread.setDaemon(true);
+          return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, resolution, resolution, TimeUnit.MILLISECONDS);
+        ticking = true;
+      }
+    }
+
+    @Override
+    public synchronized void stop() {
+      if (users > 0 && --users == 0) {
+        ticking = false;
+        ticker.shutdown();
+        ticker = null;
+      }
+    }
+
+    private void tick() {
+      millis = System.currentTimeMillis();
+    }
+  }
+
+  /**
+   * clock that only moves when it is told to
+   */
+  public static final class ManualClock extends DatabaseClock {
+
+    private volatile long millis;
+
+    private ManualClock(long millis) {
+      this.millis = millis;
+    }
+
+    @Override
+    public long millis() {
+      return millis;
+    }
+
+    @Override
+    public long preciseMillis() {
+      return millis;
+    }
+
+    public synchronized void set(long millis) {
+      this.millis = millis;
+    }
+
+    public synchronized void advance(long millis) {
+      this.millis += millis;
+    }
+  }
+}
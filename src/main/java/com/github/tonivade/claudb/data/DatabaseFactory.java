@@ -7,4 +7,28 @@ package com.github.tonivade.claudb.data;
 public interface DatabaseFactory {
   Database create(String name);
   void clear();
+
+  /**
+   * if a database can be replaced by a new one with the same name while the old one is cleared
+   * in background, or moved to other index, it is not possible when the name is used to store
+   * the keys in files
+   */
+  default boolean isLazyFree() {
+    return true;
+  }
+
+  /**
+   * if the databases can be read by many threads while other thread writes
+   */
+  default boolean isConcurrent() {
+    return false;
+  }
+
+  /**
+   * if the databases take a snapshot without copying the keys, otherwise they are wrapped by
+   * a {@link VersionedDatabase}
+   */
+  default boolean isVersioned() {
+    return false;
+  }
 }
@@ -0,0 +1,17 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+/**
+ * Thrown by a write that does not fit in the database, the database is not changed.
+ */
+public class DatabaseFullException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  public DatabaseFullException(String message) {
+    super(message);
+  }
+}
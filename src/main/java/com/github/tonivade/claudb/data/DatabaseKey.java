@@ -7,18 +7,18 @@ package com.github.tonivade.claudb.data;
 import static com.github.tonivade.resp.protocol.SafeString.safeString;
 
 import java.io.Serializable;
-import java.util.Objects;
 
-import com.github.tonivade.purefun.Equal;
 import com.github.tonivade.resp.protocol.SafeString;
 
 public class DatabaseKey implements Comparable<DatabaseKey>, Serializable {
 
   private static final long serialVersionUID = 7710472090270782053L;
-  private static final Equal<DatabaseKey> EQUAL = Equal.<DatabaseKey>of().comparing(k -> k.value);
 
   private final SafeString value;
 
+  // hash of the bytes of the key, calculated once
+  private transient int hash;
+
   public DatabaseKey(SafeString value) {
     this.value = value;
   }
@@ -34,12 +34,24 @@ public class DatabaseKey implements Comparable<DatabaseKey>, Serializable {
 
   @Override
   public int hashCode() {
-    return Objects.hash(value);
+    int h = hash;
+    if (h == 0) {
+      h = 31 + value.hashCode();
+      hash = h;
+    }
+    return h;
   }
 
   @Override
   public boolean equals(Object obj) {
-    return EQUAL.applyTo(this, obj);
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof DatabaseKey)) {
+      return false;
+    }
+    DatabaseKey other = (DatabaseKey) obj;
+    return hashCode() == other.hashCode() && value.equals(other.value);
   }
 
   @Override
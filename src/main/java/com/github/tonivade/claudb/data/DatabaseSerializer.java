@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import org.nustaq.serialization.FSTConfiguration;
+
+import com.github.tonivade.resp.protocol.SafeString;
+
+final class DatabaseSerializer {
+
+  private static final FSTConfiguration FST = FSTConfiguration.createDefaultConfiguration();
+
+  static {
+    FST.registerClass(DatabaseValue.class);
+    FST.registerClass(DatabaseKey.class);
+    FST.registerClass(SafeString.class);
+    FST.registerClass(SortedSet.class);
+  }
+
+  private DatabaseSerializer() { }
+
+  static byte[] serialize(Object value) {
+    return FST.asByteArray(value);
+  }
+
+  @SuppressWarnings("unchecked")
+  static <E> E deserialize(byte[] array) {
+    return (E) FST.asObject(array);
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.github.tonivade.purefun.Tuple2;
+
+/**
+ * The entries of a database at the time the snapshot is taken. It is iterated later, usually
+ * in other thread while the database keeps changing, and it must be closed after that so the
+ * database releases what it keeps for the snapshot.
+ */
+public interface DatabaseSnapshot extends Iterable<Tuple2<DatabaseKey, DatabaseValue>>, AutoCloseable {
+
+  @Override
+  void close();
+
+  static DatabaseSnapshot empty() {
+    return of(Collections.emptyList());
+  }
+
+  /**
+   * a snapshot of entries already copied, there is nothing to release
+   */
+  static DatabaseSnapshot of(Iterable<Tuple2<DatabaseKey, DatabaseValue>> entries) {
+    return new DatabaseSnapshot() {
+      @Override
+      public Iterator<Tuple2<DatabaseKey, DatabaseValue>> iterator() {
+        return entries.iterator();
+      }
+
+      @Override
+      public void close() {
+        // nothing to release
+      }
+    };
+  }
+
+  /**
+   * the entries of all the snapshots, one after the other
+   */
+  static DatabaseSnapshot concat(List<DatabaseSnapshot> snapshots) {
+    List<DatabaseSnapshot> parts = new ArrayList<>(snapshots);
+    return new DatabaseSnapshot() {
+      @Override
+      public Iterator<Tuple2<DatabaseKey, DatabaseValue>> iterator() {
+        Iterator<DatabaseSnapshot> current = parts.iterator();
+        return new Iterator<Tuple2<DatabaseKey, DatabaseValue>>() {
+          private Iterator<Tuple2<DatabaseKey, DatabaseValue>> entries = Collections.emptyIterator();
+
+          @Override
+          public boolean hasNext() {
+            while (!entries.hasNext() && current.hasNext()) {
+              entries = current.next().iterator();
+            }
+            return entries.hasNext();
+          }
+
+          @Override
+          public Tuple2<DatabaseKey, DatabaseValue> next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            return entries.next();
+          }
+        };
+      }
+
+      @Override
+      public void close() {
+        parts.forEach(DatabaseSnapshot::close);
+      }
+    };
+  }
+}
@@ -4,15 +4,12 @@
  */
 package com.github.tonivade.claudb.data;
 
-import static com.github.tonivade.purefun.Matcher1.instanceOf;
 import static com.github.tonivade.resp.protocol.SafeString.safeString;
-import static java.time.Instant.now;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.collectingAndThen;
 import static java.util.stream.Collectors.toCollection;
 
 import java.io.Serializable;
-import java.time.Duration;
 import java.time.Instant;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.BitSet;
@@ -20,13 +17,9 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Map.Entry;
 import java.util.NavigableSet;
-import java.util.Objects;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collector;
 import java.util.stream.Stream;
 
-import com.github.tonivade.purefun.Equal;
-import com.github.tonivade.purefun.Pattern1;
 import com.github.tonivade.purefun.Tuple;
 import com.github.tonivade.purefun.Tuple2;
 import com.github.tonivade.purefun.data.ImmutableList;
@@ -35,9 +28,17 @@ import com.github.tonivade.purefun.data.ImmutableSet;
 import com.github.tonivade.purefun.data.Sequence;
 import com.github.tonivade.resp.protocol.SafeString;
 
-public class DatabaseValue implements Serializable {
+/**
+ * Immutable value of a key. There is a subclass for every type, but it only tells the type, so
+ * it does not need a field, the content is the same immutable collection as before, and a
+ * subclass of it for the values with expiration, that keeps it as a primitive, so the values
+ * without expiration do not pay for it. They are not mutable containers updated in place, every
+ * write builds a new value, because the snapshots, the concurrent reads and the deltas keep
+ * reading the old one without copying it.
+ */
+public abstract class DatabaseValue implements Serializable {
 
-  private static final long serialVersionUID = -5178953336530559139L;
+  private static final long serialVersionUID = -1863212581936284102L;
 
   public static final DatabaseValue EMPTY_STRING = string("");
   public static final DatabaseValue EMPTY_LIST = list();
@@ -46,25 +47,26 @@ public class DatabaseValue implements Serializable {
   public static final DatabaseValue EMPTY_HASH = hash();
   public static final DatabaseValue NULL = null;
 
-  private static final Equal<DatabaseValue> EQUAL =
-      Equal.<DatabaseValue>of().comparing(v -> v.type).comparing(v -> v.value);
+  private static final long NO_EXPIRE = Long.MIN_VALUE;
 
-  private final DataType type;
   private final Object value;
-  private final Instant expiredAt;
-
-  private DatabaseValue(DataType type, Object value) {
-    this(type, value, null);
-  }
 
-  private DatabaseValue(DataType type, Object value, Instant expiredAt) {
-    this.type = requireNonNull(type);
+  private DatabaseValue(Object value) {
     this.value = requireNonNull(value);
-    this.expiredAt = expiredAt;
   }
 
-  public DataType getType() {
-    return type;
+  public abstract DataType getType();
+
+  /**
+   * the same value with the given expiration, in epoch millis
+   */
+  abstract DatabaseValue withExpiration(long expiredAt);
+
+  /**
+   * the expiration in epoch millis, overridden by the values with expiration
+   */
+  long expiredAt() {
+    return NO_EXPIRE;
   }
 
   public SafeString getString() {
@@ -93,70 +95,80 @@ public class DatabaseValue implements Serializable {
   }
 
   public int size() {
-    return Pattern1.<Object, Integer>build()
-        .when(instanceOf(Collection.class))
-          .then(collection -> ((Collection<?>) collection).size())
-        .when(instanceOf(Sequence.class))
-          .then(sequence -> ((Sequence<?>) sequence).size())
-        .when(instanceOf(ImmutableMap.class))
-          .then(map -> ((ImmutableMap<?, ?>) map).size())
-        .when(instanceOf(SafeString.class))
-          .returns(1)
-        .otherwise()
-          .returns(0)
-        .apply(this.value);
+    if (value instanceof Collection) {
+      return ((Collection<?>) value).size();
+    }
+    if (value instanceof Sequence) {
+      return ((Sequence<?>) value).size();
+    }
+    if (value instanceof ImmutableMap) {
+      return ((ImmutableMap<?, ?>) value).size();
+    }
+    if (value instanceof SafeString) {
+      return 1;
+    }
+    return 0;
   }
 
   public Instant getExpiredAt() {
-    return expiredAt;
+    long expiredAt = expiredAt();
+    if (expiredAt != NO_EXPIRE) {
+      return Instant.ofEpochMilli(expiredAt);
+    }
+    return null;
   }
 
-  public boolean isExpired(Instant now) {
-    if (expiredAt != null) {
-      return now.isAfter(expiredAt);
+  public boolean isExpired(long nowMillis) {
+    long expiredAt = expiredAt();
+    if (expiredAt != NO_EXPIRE) {
+      return nowMillis > expiredAt;
     }
     return false;
   }
 
-  public long timeToLiveMillis(Instant now) {
-    if (expiredAt != null) {
-      return timeToLive(now);
+  public long timeToLiveMillis(long nowMillis) {
+    long expiredAt = expiredAt();
+    if (expiredAt != NO_EXPIRE) {
+      return expiredAt - nowMillis;
     }
     return -1;
   }
 
-  public int timeToLiveSeconds(Instant now) {
-    if (expiredAt != null) {
-      return (int) Math.floorDiv(timeToLive(now), 1000L);
+  public int timeToLiveSeconds(long nowMillis) {
+    if (expiredAt() != NO_EXPIRE) {
+      return (int) Math.floorDiv(timeToLiveMillis(nowMillis), 1000L);
     }
     return -1;
   }
 
-  public DatabaseValue expiredAt(Instant instant) {
-    return new DatabaseValue(this.type, this.value, instant);
-  }
-
-  public DatabaseValue expiredAt(int ttlSeconds) {
-    return new DatabaseValue(this.type, this.value, toInstant(toMillis(ttlSeconds)));
+  public DatabaseValue expiredAtMillis(long millis) {
+    return withExpiration(millis != NO_EXPIRE ? millis : NO_EXPIRE + 1);
   }
 
   public DatabaseValue noExpire() {
-    return new DatabaseValue(this.type, this.value);
+    return withExpiration(NO_EXPIRE);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(type, value);
+    return 31 * (31 + getType().hashCode()) + value.hashCode();
   }
 
   @Override
   public boolean equals(Object obj) {
-    return EQUAL.applyTo(this, obj);
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof DatabaseValue)) {
+      return false;
+    }
+    DatabaseValue other = (DatabaseValue) obj;
+    return getType() == other.getType() && value.equals(other.value);
   }
 
   @Override
   public String toString() {
-    return "DatabaseValue [type=" + type + ", value=" + value + "]";
+    return "DatabaseValue [type=" + getType() + ", value=" + value + "]";
   }
 
   public static DatabaseValue string(String value) {
@@ -164,61 +176,61 @@ public class DatabaseValue implements Serializable {
   }
 
   public static DatabaseValue string(SafeString value) {
-    return new DatabaseValue(DataType.STRING, value);
+    return new StringValue(value);
   }
 
   public static DatabaseValue list(Sequence<SafeString> values) {
-    return new DatabaseValue(DataType.LIST, values.asList());
+    return new ListValue(values.asList());
   }
 
   public static DatabaseValue list(Collection<SafeString> values) {
-    return new DatabaseValue(DataType.LIST, ImmutableList.from(requireNonNull(values).stream()));
+    return new ListValue(ImmutableList.from(requireNonNull(values).stream()));
   }
 
   public static DatabaseValue list(SafeString... values) {
-    return new DatabaseValue(DataType.LIST, ImmutableList.from(Stream.of(values)));
+    return new ListValue(ImmutableList.from(Stream.of(values)));
   }
 
   public static DatabaseValue set(Sequence<SafeString> values) {
-    return new DatabaseValue(DataType.SET, values.asSet());
+    return new SetValue(values.asSet());
   }
 
   public static DatabaseValue set(Collection<SafeString> values) {
-    return new DatabaseValue(DataType.SET, ImmutableSet.from(requireNonNull(values).stream()));
+    return new SetValue(ImmutableSet.from(requireNonNull(values).stream()));
   }
 
   public static DatabaseValue set(SafeString... values) {
-    return new DatabaseValue(DataType.SET, ImmutableSet.from(Stream.of(values)));
+    return new SetValue(ImmutableSet.from(Stream.of(values)));
   }
 
   public static DatabaseValue zset(Collection<Entry<Double, SafeString>> values) {
-    return new DatabaseValue(DataType.ZSET,
+    return new SortedSetValue(
         requireNonNull(values).stream().collect(collectingAndThen(toSortedSet(),
                                                                   Collections::unmodifiableNavigableSet)));
   }
 
   @SafeVarargs
   public static DatabaseValue zset(Entry<Double, SafeString>... values) {
-    return new DatabaseValue(DataType.ZSET,
+    return new SortedSetValue(
         Stream.of(values).collect(collectingAndThen(toSortedSet(),
                                                     Collections::unmodifiableNavigableSet)));
   }
 
   public static DatabaseValue hash(ImmutableMap<SafeString, SafeString> values) {
-    return new DatabaseValue(DataType.HASH, values);
+    return new HashValue(values);
   }
 
   public static DatabaseValue hash(Collection<Tuple2<SafeString, SafeString>> values) {
-    return new DatabaseValue(DataType.HASH, ImmutableMap.from(requireNonNull(values).stream()));
+    return new HashValue(ImmutableMap.from(requireNonNull(values).stream()));
   }
 
   public static DatabaseValue hash(Sequence<Tuple2<SafeString, SafeString>> values) {
-    return new DatabaseValue(DataType.HASH, ImmutableMap.from(requireNonNull(values).stream()));
+    return new HashValue(ImmutableMap.from(requireNonNull(values).stream()));
   }
 
   @SafeVarargs
   public static DatabaseValue hash(Tuple2<SafeString, SafeString>... values) {
-    return new DatabaseValue(DataType.HASH, ImmutableMap.from(Stream.of(values)));
+    return new HashValue(ImmutableMap.from(Stream.of(values)));
   }
 
   public static DatabaseValue bitset(int... ones) {
@@ -226,7 +238,7 @@ public class DatabaseValue implements Serializable {
     for (int position : ones) {
       bitSet.set(position);
     }
-    return new DatabaseValue(DataType.STRING, new SafeString(bitSet.toByteArray()));
+    return new StringValue(new SafeString(bitSet.toByteArray()));
   }
 
   public static Tuple2<SafeString, SafeString> entry(SafeString key, SafeString value) {
@@ -241,26 +253,199 @@ public class DatabaseValue implements Serializable {
     return toCollection(SortedSet::new);
   }
 
-  private long timeToLive(Instant now) {
-    return Duration.between(now, expiredAt).toMillis();
+  @SuppressWarnings("unchecked")
+  <T> T getValue() {
+    return (T) value;
   }
 
-  private Instant toInstant(long ttlMillis) {
-    return now().plusMillis(ttlMillis);
+  private void requiredType(DataType type) {
+    if (getType() != type) {
+      throw new IllegalStateException("invalid type: " + type);
+    }
   }
 
-  private long toMillis(int ttlSeconds) {
-    return TimeUnit.SECONDS.toMillis(ttlSeconds);
+  private static class StringValue extends DatabaseValue {
+
+    private static final long serialVersionUID = 8253617476294946372L;
+
+    private StringValue(Object value) {
+      super(value);
+    }
+
+    @Override
+    public DataType getType() {
+      return DataType.STRING;
+    }
+
+    @Override
+    DatabaseValue withExpiration(long expiredAt) {
+      return expiredAt == NO_EXPIRE ? new StringValue(getValue()) : new ExpiringStringValue(getValue(), expiredAt);
+    }
   }
 
-  @SuppressWarnings("unchecked")
-  private <T> T getValue() {
-    return (T) value;
+  private static final class ExpiringStringValue extends StringValue {
+
+    private static final long serialVersionUID = -2416351278345629931L;
+
+    // epoch millis
+    private final long expiredAt;
+
+    private ExpiringStringValue(Object value, long expiredAt) {
+      super(value);
+      this.expiredAt = expiredAt;
+    }
+
+    @Override
+    long expiredAt() {
+      return expiredAt;
+    }
   }
 
-  private void requiredType(DataType type) {
-    if (this.type != type) {
-      throw new IllegalStateException("invalid type: " + type);
+  private static class ListValue extends DatabaseValue {
+
+    private static final long serialVersionUID = -3390627356421593170L;
+
+    private ListValue(Object value) {
+      super(value);
+    }
+
+    @Override
+    public DataType getType() {
+      return DataType.LIST;
+    }
+
+    @Override
+    DatabaseValue withExpiration(long expiredAt) {
+      return expiredAt == NO_EXPIRE ? new ListValue(getValue()) : new ExpiringListValue(getValue(), expiredAt);
+    }
+  }
+
+  private static final class ExpiringListValue extends ListValue {
+
+    private static final long serialVersionUID = 6742219361049718225L;
+
+    // epoch millis
+    private final long expiredAt;
+
+    private ExpiringListValue(Object value, long expiredAt) {
+      super(value);
+      this.expiredAt = expiredAt;
+    }
+
+    @Override
+    long expiredAt() {
+      return expiredAt;
+    }
+  }
+
+  private static class SetValue extends DatabaseValue {
+
+    private static final long serialVersionUID = 4915310727362380547L;
+
+    private SetValue(Object value) {
+      super(value);
+    }
+
+    @Override
+    public DataType getType() {
+      return DataType.SET;
+    }
+
+    @Override
+    DatabaseValue withExpiration(long expiredAt) {
+      return expiredAt == NO_EXPIRE ? new SetValue(getValue()) : new ExpiringSetValue(getValue(), expiredAt);
+    }
+  }
+
+  private static final class ExpiringSetValue extends SetValue {
+
+    private static final long serialVersionUID = -8153947291736254109L;
+
+    // epoch millis
+    private final long expiredAt;
+
+    private ExpiringSetValue(Object value, long expiredAt) {
+      super(value);
+      this.expiredAt = expiredAt;
+    }
+
+    @Override
+    long expiredAt() {
+      return expiredAt;
+    }
+  }
+
+  private static class SortedSetValue extends DatabaseValue {
+
+    private static final long serialVersionUID = -7187380416962316591L;
+
+    private SortedSetValue(Object value) {
+      super(value);
+    }
+
+    @Override
+    public DataType getType() {
+      return DataType.ZSET;
+    }
+
+    @Override
+    DatabaseValue withExpiration(long expiredAt) {
+      return expiredAt == NO_EXPIRE ? new SortedSetValue(getValue()) : new ExpiringSortedSetValue(getValue(), expiredAt);
+    }
+  }
+
+  private static final class ExpiringSortedSetValue extends SortedSetValue {
+
+    private static final long serialVersionUID = 3319574062851960428L;
+
+    // epoch millis
+    private final long expiredAt;
+
+    private ExpiringSortedSetValue(Object value, long expiredAt) {
+      super(value);
+      this.expiredAt = expiredAt;
+    }
+
+    @Override
+    long expiredAt() {
+      return expiredAt;
+    }
+  }
+
+  private static class HashValue extends DatabaseValue {
+
+    private static final long serialVersionUID = 2087403981364219046L;
+
+    private HashValue(Object value) {
+      super(value);
+    }
+
+    @Override
+    public DataType getType() {
+      return DataType.HASH;
+    }
+
+    @Override
+    DatabaseValue withExpiration(long expiredAt) {
+      return expiredAt == NO_EXPIRE ? new HashValue(getValue()) : new ExpiringHashValue(getValue(), expiredAt);
+    }
+  }
+
+  private static final class ExpiringHashValue extends HashValue {
+
+    private static final long serialVersionUID = -5571036249938152867L;
+
+    // epoch millis
+    private final long expiredAt;
+
+    private ExpiringHashValue(Object value, long expiredAt) {
+      super(value);
+      this.expiredAt = expiredAt;
+    }
+
+    @Override
+    long expiredAt() {
+      return expiredAt;
     }
   }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+/**
+ * Count-min sketch with the approximated number of accesses to every key, using a fixed amount
+ * of memory. The counters are halved periodically, so the old accesses are forgotten.
+ */
+final class FrequencySketch {
+
+  private static final int[] SEEDS = { 0x97cb3127, 0xb4b82e1d, 0x8f1b1f8b, 0xc2b2ae35 };
+  private static final int MAX_COUNT = 15;
+  private static final int RESET_FACTOR = 10;
+
+  private final int[] table;
+  private final int mask;
+  private final int resetSize;
+
+  private int additions;
+
+  FrequencySketch(int keys) {
+    int width = Integer.highestOneBit(Math.max(16, keys) * 2 - 1);
+    this.table = new int[width];
+    this.mask = width - 1;
+    this.resetSize = width * RESET_FACTOR;
+  }
+
+  void increment(Object key) {
+    int hash = key.hashCode();
+    boolean added = false;
+    for (int seed : SEEDS) {
+      int index = index(hash, seed);
+      if (table[index] < MAX_COUNT) {
+        table[index]++;
+        added = true;
+      }
+    }
+    if (added && ++additions >= resetSize) {
+      reset();
+    }
+  }
+
+  int frequency(Object key) {
+    int hash = key.hashCode();
+    int frequency = MAX_COUNT;
+    for (int seed : SEEDS) {
+      frequency = Math.min(frequency, table[index(hash, seed)]);
+    }
+    return frequency;
+  }
+
+  private void reset() {
+    for (int i = 0; i < table.length; i++) {
+      table[i] >>>= 1;
+    }
+    additions /= 2;
+  }
+
+  private int index(int hash, int seed) {
+    int spread = hash * seed;
+    return (spread ^ (spread >>> 16)) & mask;
+  }
+}
@@ -0,0 +1,770 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.tonivade.claudb.data.Segment.Entry;
+import com.github.tonivade.purefun.Tuple;
+import com.github.tonivade.purefun.Tuple2;
+import com.github.tonivade.purefun.data.ImmutableList;
+import com.github.tonivade.purefun.data.ImmutableSet;
+import com.github.tonivade.purefun.data.Sequence;
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Database backed by a log structured merge tree, so it can be larger than the available memory.
+ *
+ * The writes go to a sorted memtable and to its log, when it is full it is written in
+ * background to a new segment file. The keys are looked up first in memory, and then in the
+ * segments from the newest to the oldest one, the bloom filters avoid to read the segments
+ * that do not have the key, so a lookup reads at most one block of every segment, and the
+ * recently used blocks are cached.
+ *
+ * The segments are merged by size tiers: when there are enough consecutive segments of a
+ * similar size they are merged in a single one, so every key is rewritten a few times, once
+ * per tier, instead of every time a segment is added.
+ *
+ * The manifest has the segments of the database, so they are opened again on restart, and
+ * the logs of the memtables not written yet are replayed. The keys with expiration are kept
+ * in memory in an index sorted by time, so the expired keys are found without reading the
+ * segments, and a snapshot keeps the segments and a copy of the memtable, so it is read later
+ * from the files while the database keeps changing.
+ */
+public class LSMDatabase implements Database, Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(LSMDatabase.class);
+
+  private static final AtomicLong FILE_IDS = new AtomicLong();
+  private static final int MIN_MERGE = 4;
+  private static final long MIN_TIER_SIZE = 1024 * 1024;
+  private static final int MANIFEST_MAGIC = 0x4c534d31;
+  private static final String SEGMENT_SUFFIX = ".sst";
+  private static final String LOG_SUFFIX = ".log";
+  private static final String MANIFEST_SUFFIX = ".manifest";
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final byte[] NO_KEY = new byte[0];
+
+  private final File directory;
+  private final String name;
+  private final Executor executor;
+  private final BlockCache cache;
+  private final int memtableSize;
+  private final boolean forceWrites;
+  private final DatabaseClock clock;
+
+  private NavigableMap<byte[], Entry> memtable = newMemtable();
+  private MemtableLog log;
+  private final LinkedList<Table> immutables = new LinkedList<>();
+  private final LinkedList<Segment> segments = new LinkedList<>();
+
+  // expiration of every key that has one, and the keys sorted by expiration
+  private final NavigableMap<byte[], Long> expirations = new TreeMap<>(LSMDatabase::compare);
+  private final NavigableSet<Expiration> timeline = new TreeSet<>();
+
+  private int size;
+  private long epoch;
+  private boolean compacting;
+
+  LSMDatabase(File directory, String name, Executor executor, BlockCache cache, int memtableSize) {
+    this(directory, name, executor, cache, memtableSize, false);
+  }
+
+  LSMDatabase(File directory, String name, Executor executor, BlockCache cache, int memtableSize, boolean forceWrites) {
+    this(directory, name, executor, cache, memtableSize, forceWrites, DatabaseClock.system());
+  }
+
+  /**
+   * @param forceWrites if true every write is forced to disk before it returns
+   * @param clock used to check the expiration of the keys
+   */
+  LSMDatabase(File directory, String name, Executor executor, BlockCache cache, int memtableSize,
+              boolean forceWrites, DatabaseClock clock) {
+    this.directory = directory;
+    this.name = name;
+    this.executor = executor;
+    this.cache = cache;
+    this.memtableSize = memtableSize;
+    this.forceWrites = forceWrites;
+    this.clock = clock;
+    directory.mkdirs();
+    open();
+  }
+
+  @Override
+  public synchronized int size() {
+    return size;
+  }
+
+  @Override
+  public synchronized boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public synchronized boolean containsKey(DatabaseKey key) {
+    return exists(key.getValue().getBytes());
+  }
+
+  @Override
+  public synchronized DatabaseValue get(DatabaseKey key) {
+    byte[] bytes = key.getValue().getBytes();
+    Entry entry = lookup(bytes);
+    if (entry == null || entry.isTombstone()) {
+      return null;
+    }
+    if (entry.isExpired(clock.millis())) {
+      tombstone(bytes);
+      return null;
+    }
+    return entry.value();
+  }
+
+  @Override
+  public synchronized DatabaseValue put(DatabaseKey key, DatabaseValue value) {
+    byte[] bytes = key.getValue().getBytes();
+    if (!exists(bytes)) {
+      size++;
+    }
+    write(Entry.of(bytes, value));
+    return value;
+  }
+
+  @Override
+  public synchronized DatabaseValue remove(DatabaseKey key) {
+    byte[] bytes = key.getValue().getBytes();
+    Entry entry = lookup(bytes);
+    if (entry == null || entry.isTombstone()) {
+      return null;
+    }
+    tombstone(bytes);
+    return entry.isExpired(clock.millis()) ? null : entry.value();
+  }
+
+  @Override
+  public synchronized boolean delete(DatabaseKey key) {
+    byte[] bytes = key.getValue().getBytes();
+    if (!exists(bytes)) {
+      return false;
+    }
+    tombstone(bytes);
+    return true;
+  }
+
+  @Override
+  public synchronized void clear() {
+    // the manifest goes first, so the segments are not opened again if the process stops
+    try {
+      writeManifest(new ArrayList<>());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    epoch++;
+    memtable = newMemtable();
+    immutables.forEach(table -> table.log.delete());
+    immutables.clear();
+    segments.forEach(Segment::release);
+    segments.clear();
+    expirations.clear();
+    timeline.clear();
+    size = 0;
+    log.delete();
+    log = newLog();
+  }
+
+  @Override
+  public synchronized ImmutableSet<DatabaseKey> keySet() {
+    List<DatabaseKey> keys = new ArrayList<>(size);
+    scan((key, entry) -> keys.add(safeKey(new SafeString(key))));
+    return ImmutableSet.from(keys);
+  }
+
+  @Override
+  public synchronized Sequence<DatabaseValue> values() {
+    List<DatabaseValue> values = new ArrayList<>(size);
+    scan((key, entry) -> values.add(entry.value()));
+    return ImmutableList.from(values);
+  }
+
+  @Override
+  public synchronized ImmutableSet<Tuple2<DatabaseKey, DatabaseValue>> entrySet() {
+    List<Tuple2<DatabaseKey, DatabaseValue>> entries = new ArrayList<>(size);
+    scan((key, entry) -> entries.add(Tuple.of(safeKey(new SafeString(key)), entry.value())));
+    return ImmutableSet.from(entries);
+  }
+
+  /**
+   * Only the memtable is copied, it is bounded by its size, the immutable memtables and the
+   * segments are kept until the snapshot is closed, and the entries are read from them in
+   * order, one by one, while the snapshot is iterated.
+   */
+  @Override
+  public synchronized DatabaseSnapshot snapshot() {
+    List<Iterable<Entry>> tables = new ArrayList<>();
+    tables.add(new ArrayList<>(memtable.values()));
+    immutables.forEach(table -> tables.add(table.entries.values()));
+    List<Segment> pinned = new ArrayList<>(segments);
+    pinned.forEach(Segment::retain);
+    AtomicBoolean closed = new AtomicBoolean();
+    return new DatabaseSnapshot() {
+      @Override
+      public Iterator<Tuple2<DatabaseKey, DatabaseValue>> iterator() {
+        List<Iterator<Entry>> sources = new ArrayList<>();
+        tables.forEach(table -> sources.add(table.iterator()));
+        pinned.forEach(segment -> sources.add(segment.iterator()));
+        Iterator<Entry> entries = new MergeIterator(sources);
+        return new Iterator<Tuple2<DatabaseKey, DatabaseValue>>() {
+          private Entry next = advance();
+
+          @Override
+          public boolean hasNext() {
+            return next != null;
+          }
+
+          @Override
+          public Tuple2<DatabaseKey, DatabaseValue> next() {
+            if (next == null) {
+              throw new NoSuchElementException();
+            }
+            Entry current = next;
+            next = advance();
+            return Tuple.of(safeKey(new SafeString(current.key)), current.value());
+          }
+
+          private Entry advance() {
+            while (entries.hasNext()) {
+              Entry entry = entries.next();
+              if (!entry.isTombstone()) {
+                return entry;
+              }
+            }
+            return null;
+          }
+        };
+      }
+
+      @Override
+      public void close() {
+        if (closed.compareAndSet(false, true)) {
+          pinned.forEach(Segment::release);
+        }
+      }
+    };
+  }
+
+  /**
+   * the keys are found in the expiration index, no segment is read
+   */
+  @Override
+  public synchronized ImmutableSet<DatabaseKey> evictableKeys(long nowMillis) {
+    List<DatabaseKey> keys = new ArrayList<>();
+    for (Expiration expiration : timeline.headSet(new Expiration(nowMillis, NO_KEY), false)) {
+      keys.add(safeKey(new SafeString(expiration.key)));
+    }
+    return ImmutableSet.from(keys);
+  }
+
+  public synchronized int segments() {
+    return segments.size();
+  }
+
+  /**
+   * forces to disk the log of the memtable
+   */
+  public void force() {
+    MemtableLog current;
+    synchronized (this) {
+      current = log;
+    }
+    current.force();
+  }
+
+  /**
+   * closes the files, they are opened again by a new database with the same name, this one
+   * must not be used after that
+   */
+  @Override
+  public synchronized void close() {
+    // the memtables being written are discarded, their logs are replayed when opened again
+    epoch++;
+    log.force();
+    log.close();
+    immutables.forEach(table -> table.log.close());
+    segments.forEach(Segment::close);
+  }
+
+  private Entry lookup(byte[] key) {
+    Entry entry = memtable.get(key);
+    if (entry != null) {
+      return entry;
+    }
+    for (Table table : immutables) {
+      entry = table.entries.get(key);
+      if (entry != null) {
+        return entry;
+      }
+    }
+    for (Segment segment : segments) {
+      entry = segment.get(key);
+      if (entry != null) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  private boolean exists(byte[] key) {
+    Entry entry = lookup(key);
+    return entry != null && !entry.isTombstone();
+  }
+
+  private void tombstone(byte[] key) {
+    Entry entry = Entry.tombstone(key);
+    if (immutables.isEmpty() && segments.isEmpty()) {
+      log.append(entry);
+      untrack(key);
+      memtable.remove(key);
+    } else {
+      write(entry);
+    }
+    size--;
+  }
+
+  private void write(Entry entry) {
+    log.append(entry);
+    untrack(entry.key);
+    track(entry);
+    memtable.put(entry.key, entry);
+    checkMemtable();
+  }
+
+  private void track(Entry entry) {
+    if (!entry.isTombstone() && entry.hasExpiration()) {
+      expirations.put(entry.key, entry.expiredAt);
+      timeline.add(new Expiration(entry.expiredAt, entry.key));
+    }
+  }
+
+  private void untrack(byte[] key) {
+    Long expiredAt = expirations.remove(key);
+    if (expiredAt != null) {
+      timeline.remove(new Expiration(expiredAt, key));
+    }
+  }
+
+  private void scan(BiConsumer<byte[], Entry> consumer) {
+    List<Iterator<Entry>> sources = new ArrayList<>();
+    sources.add(memtable.values().iterator());
+    immutables.forEach(table -> sources.add(table.entries.values().iterator()));
+    segments.forEach(segment -> sources.add(segment.iterator()));
+    Iterator<Entry> iterator = new MergeIterator(sources);
+    while (iterator.hasNext()) {
+      Entry entry = iterator.next();
+      if (!entry.isTombstone()) {
+        consumer.accept(entry.key, entry);
+      }
+    }
+  }
+
+  private void checkMemtable() {
+    if (memtable.size() >= memtableSize) {
+      Table table = new Table(memtable, log);
+      memtable = newMemtable();
+      log = newLog();
+      immutables.addFirst(table);
+      long current = epoch;
+      executor.execute(() -> flush(table, current));
+    }
+  }
+
+  private void flush(Table table, long epoch) {
+    try {
+      Segment segment = writeSegment(table.entries.size(), table.entries.values().iterator(), false);
+      synchronized (this) {
+        if (this.epoch != epoch) {
+          segment.release();
+          return;
+        }
+        List<Segment> next = new ArrayList<>(segments);
+        next.add(0, segment);
+        if (!replaceSegments(next)) {
+          segment.release();
+          return;
+        }
+        immutables.remove(table);
+        table.log.delete();
+        if (!compacting && !pickRun().isEmpty()) {
+          compacting = true;
+          executor.execute(this::compact);
+        }
+      }
+    } catch (IOException | UncheckedIOException e) {
+      LOGGER.error("error writing segment", e);
+    }
+  }
+
+  private void compact() {
+    List<Segment> merged;
+    boolean oldest;
+    long current;
+    synchronized (this) {
+      merged = pickRun();
+      if (merged.isEmpty()) {
+        compacting = false;
+        return;
+      }
+      oldest = segments.getLast() == merged.get(merged.size() - 1);
+      current = epoch;
+      merged.forEach(Segment::retain);
+    }
+    try {
+      List<Iterator<Entry>> sources = new ArrayList<>();
+      int keys = 0;
+      for (Segment segment : merged) {
+        sources.add(segment.iterator());
+        keys += segment.count();
+      }
+      // if the oldest segment is merged the new one does not need tombstones
+      Segment segment = writeSegment(keys, new MergeIterator(sources), oldest);
+      synchronized (this) {
+        int index = segments.indexOf(merged.get(0));
+        if (this.epoch == current && index >= 0) {
+          List<Segment> next = new ArrayList<>(segments);
+          next.subList(index, index + merged.size()).clear();
+          next.add(index, segment);
+          if (replaceSegments(next)) {
+            merged.forEach(Segment::release);
+          } else {
+            segment.release();
+          }
+        } else {
+          segment.release();
+        }
+      }
+    } catch (IOException | UncheckedIOException e) {
+      LOGGER.error("error compacting segments", e);
+    } finally {
+      synchronized (this) {
+        merged.forEach(Segment::release);
+        compacting = !pickRun().isEmpty();
+        if (compacting) {
+          executor.execute(this::compact);
+        }
+      }
+    }
+  }
+
+  /**
+   * the newest run of at least {@link #MIN_MERGE} consecutive segments in the same tier
+   */
+  private List<Segment> pickRun() {
+    int start = 0;
+    for (int i = 1; i <= segments.size(); i++) {
+      if (i == segments.size() || tier(segments.get(i)) != tier(segments.get(start))) {
+        if (i - start >= MIN_MERGE) {
+          return new ArrayList<>(segments.subList(start, i));
+        }
+        start = i;
+      }
+    }
+    return new ArrayList<>();
+  }
+
+  /**
+   * the tiers grow by a factor of {@link #MIN_MERGE}, so a merge of a full tier goes to the next
+   */
+  private static int tier(Segment segment) {
+    int tier = 0;
+    for (long length = segment.length() / MIN_TIER_SIZE; length >= MIN_MERGE; length /= MIN_MERGE) {
+      tier++;
+    }
+    return tier;
+  }
+
+  /**
+   * the manifest is written before the segments are replaced, if it fails nothing is changed
+   */
+  private boolean replaceSegments(List<Segment> next) {
+    try {
+      writeManifest(next);
+    } catch (IOException e) {
+      LOGGER.error("error writing manifest", e);
+      return false;
+    }
+    segments.clear();
+    segments.addAll(next);
+    return true;
+  }
+
+  private Segment writeSegment(int keys, Iterator<Entry> entries, boolean dropTombstones) throws IOException {
+    long id = FILE_IDS.incrementAndGet();
+    return Segment.write(id, file(id, SEGMENT_SUFFIX), cache, keys, entries, dropTombstones);
+  }
+
+  private MemtableLog newLog() {
+    try {
+      return new MemtableLog(file(FILE_IDS.incrementAndGet(), LOG_SUFFIX), forceWrites);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void writeManifest(List<Segment> next) throws IOException {
+    File manifest = new File(directory, name + MANIFEST_SUFFIX);
+    File temp = new File(directory, name + MANIFEST_SUFFIX + TEMP_SUFFIX);
+    try (FileOutputStream stream = new FileOutputStream(temp)) {
+      DataOutputStream output = new DataOutputStream(stream);
+      output.writeInt(MANIFEST_MAGIC);
+      output.writeInt(next.size());
+      for (Segment segment : next) {
+        output.writeLong(segment.id());
+      }
+      output.flush();
+      stream.getChannel().force(true);
+    }
+    Files.move(temp.toPath(), manifest.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+  }
+
+  /**
+   * Opens the segments of the manifest, the other segments are removed because they were not
+   * finished, then the size and the expiration index are rebuilt reading only the keys and the
+   * expirations, and the logs are replayed in order.
+   */
+  private void open() {
+    try {
+      List<Long> ids = readManifest();
+      List<Long> logs = new ArrayList<>();
+      Set<Long> live = new HashSet<>(ids);
+      for (String file : files()) {
+        long id = idOf(file);
+        FILE_IDS.accumulateAndGet(id, Math::max);
+        if (file.endsWith(LOG_SUFFIX)) {
+          logs.add(id);
+        } else if (!file.endsWith(SEGMENT_SUFFIX) || !live.contains(id)) {
+          Files.deleteIfExists(new File(directory, file).toPath());
+        }
+      }
+      for (long id : ids) {
+        segments.add(Segment.open(id, file(id, SEGMENT_SUFFIX), cache));
+      }
+      scan((key, entry) -> {
+        size++;
+        track(entry);
+      });
+      log = newLog();
+      logs.sort(Long::compare);
+      for (long id : logs) {
+        MemtableLog.replay(file(id, LOG_SUFFIX), this::replay);
+      }
+      log.force();
+      for (long id : logs) {
+        Files.deleteIfExists(file(id, LOG_SUFFIX).toPath());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void replay(Entry entry) {
+    boolean exists = exists(entry.key);
+    if (entry.isTombstone()) {
+      if (exists) {
+        tombstone(entry.key);
+      }
+    } else {
+      if (!exists) {
+        size++;
+      }
+      write(entry);
+    }
+  }
+
+  private List<Long> readManifest() throws IOException {
+    File manifest = new File(directory, name + MANIFEST_SUFFIX);
+    List<Long> ids = new ArrayList<>();
+    if (manifest.exists()) {
+      ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(manifest.toPath()));
+      if (buffer.getInt() != MANIFEST_MAGIC) {
+        throw new IOException("invalid manifest: " + manifest);
+      }
+      int count = buffer.getInt();
+      for (int i = 0; i < count; i++) {
+        ids.add(buffer.getLong());
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * the segments, logs and temporary files of this database, the manifest is not included
+   */
+  private List<String> files() {
+    String prefix = name + ".";
+    String[] files = directory.list((dir, file) -> file.startsWith(prefix)
+        && !file.equals(name + MANIFEST_SUFFIX) && idOf(file) >= 0);
+    List<String> result = new ArrayList<>();
+    if (files != null) {
+      for (String file : files) {
+        result.add(file);
+      }
+    }
+    File temp = new File(directory, name + MANIFEST_SUFFIX + TEMP_SUFFIX);
+    if (temp.exists()) {
+      temp.delete();
+    }
+    return result;
+  }
+
+  private long idOf(String file) {
+    int end = file.lastIndexOf('.');
+    if (end <= name.length() + 1) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(file.substring(name.length() + 1, end));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private File file(long id, String suffix) {
+    return new File(directory, name + "." + id + suffix);
+  }
+
+  private static NavigableMap<byte[], Entry> newMemtable() {
+    return new TreeMap<>(LSMDatabase::compare);
+  }
+
+  static int compare(byte[] a, byte[] b) {
+    int length = Math.min(a.length, b.length);
+    for (int i = 0; i < length; i++) {
+      int compare = (a[i] & 0xFF) - (b[i] & 0xFF);
+      if (compare != 0) {
+        return compare;
+      }
+    }
+    return a.length - b.length;
+  }
+
+  /**
+   * a memtable waiting to be written to a segment, and its log
+   */
+  private static final class Table {
+
+    private final NavigableMap<byte[], Entry> entries;
+    private final MemtableLog log;
+
+    private Table(NavigableMap<byte[], Entry> entries, MemtableLog log) {
+      this.entries = entries;
+      this.log = log;
+    }
+  }
+
+  private static final class Expiration implements Comparable<Expiration> {
+
+    private final long time;
+    private final byte[] key;
+
+    private Expiration(long time, byte[] key) {
+      this.time = time;
+      this.key = key;
+    }
+
+    @Override
+    public int compareTo(Expiration other) {
+      int compare = Long.compare(time, other.time);
+      return compare != 0 ? compare : compare(key, other.key);
+    }
+  }
+
+  /**
+   * Merges sorted sources, given from the newest to the oldest, when the same key is in
+   * many sources only the newest entry is returned.
+   */
+  private static final class MergeIterator implements Iterator<Entry> {
+
+    private final PriorityQueue<Head> heads = new PriorityQueue<>();
+
+    private MergeIterator(List<Iterator<Entry>> sources) {
+      for (int i = 0; i < sources.size(); i++) {
+        advance(new Head(i, sources.get(i)));
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !heads.isEmpty();
+    }
+
+    @Override
+    public Entry next() {
+      Head head = heads.poll();
+      if (head == null) {
+        throw new NoSuchElementException();
+      }
+      Entry entry = head.current;
+      advance(head);
+      while (!heads.isEmpty() && compare(heads.peek().current.key, entry.key) == 0) {
+        advance(heads.poll());
+      }
+      return entry;
+    }
+
+    private void advance(Head head) {
+      if (head.source.hasNext()) {
+        head.current = head.source.next();
+        heads.add(head);
+      }
+    }
+  }
+
+  private static final class Head implements Comparable<Head> {
+
+    private final int order;
+    private final Iterator<Entry> source;
+    private Entry current;
+
+    private Head(int order, Iterator<Entry> source) {
+      this.order = order;
+      this.source = source;
+    }
+
+    @Override
+    public int compareTo(Head other) {
+      int compare = compare(current.key, other.current.key);
+      return compare != 0 ? compare : Integer.compare(order, other.order);
+    }
+  }
+}
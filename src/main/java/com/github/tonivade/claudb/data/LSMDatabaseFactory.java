@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates databases backed by segment files in the given directory, all of them share the
+ * same block cache and the same background thread to flush and compact the segments. The
+ * logs of the memtables are forced to disk periodically, or after every write.
+ */
+public class LSMDatabaseFactory implements DatabaseFactory {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(LSMDatabaseFactory.class);
+
+  private static final int MEMTABLE_SIZE = 64 * 1024;
+  private static final long BLOCK_CACHE_SIZE = 64 * 1024 * 1024;
+
+  private final File directory;
+  private final int forcePeriod;
+  private final DatabaseClock clock;
+  private final BlockCache cache = new BlockCache(BLOCK_CACHE_SIZE);
+  private final List<LSMDatabase> databases = new CopyOnWriteArrayList<>();
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "lsm-compactor");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public LSMDatabaseFactory(File directory) {
+    this(directory, 1);
+  }
+
+  public LSMDatabaseFactory(File directory, int forcePeriod) {
+    this(directory, forcePeriod, DatabaseClock.system());
+  }
+
+  /**
+   * @param forcePeriod seconds between the writes of the logs to disk, 0 to write them after
+   * every write, or -1 to leave it to the system
+   * @param clock used to check the expiration of the keys
+   */
+  public LSMDatabaseFactory(File directory, int forcePeriod, DatabaseClock clock) {
+    this.directory = directory;
+    this.forcePeriod = forcePeriod;
+    this.clock = clock;
+    if (forcePeriod > 0) {
+      this.executor.scheduleWithFixedDelay(this::force, forcePeriod, forcePeriod, TimeUnit.SECONDS);
+    }
+  }
+
+  @Override
+  public Database create(String name) {
+    LSMDatabase database = new LSMDatabase(directory, name, executor, cache, MEMTABLE_SIZE, forcePeriod == 0, clock);
+    databases.add(database);
+    return database;
+  }
+
+  @Override
+  public void clear() {
+    executor.shutdownNow();
+    for (LSMDatabase database : databases) {
+      database.close();
+    }
+    databases.clear();
+  }
+
+  @Override
+  public boolean isLazyFree() {
+    return false;
+  }
+
+  @Override
+  public boolean isVersioned() {
+    return true;
+  }
+
+  public BlockCache getBlockCache() {
+    return cache;
+  }
+
+  private void force() {
+    for (LSMDatabase database : databases) {
+      try {
+        database.force();
+      } catch (RuntimeException e) {
+        LOGGER.error("error writing disk database", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Clears in background the databases that are not used anymore, so a flush does not have to
+ * wait until every key is released, specially the off heap ones, and releases the large values
+ * removed by unlink. The thread is only alive while there is something to clear.
+ */
+public class LazyFree {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(LazyFree.class);
+
+  private final AtomicLong pending = new AtomicLong();
+  private final AtomicLong freed = new AtomicLong();
+
+  private final ThreadPoolExecutor executor;
+
+  public LazyFree() {
+    this.executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), runnable -> {
+      Thread thread = new Thread(runnable, "lazyfree");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  public void free(Database database) {
+    submit(database::clear);
+  }
+
+  /**
+   * Releases a value already removed from its database, when it is closed.
+   */
+  public void free(Closeable value) {
+    submit(() -> {
+      try {
+        value.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  private void submit(Runnable task) {
+    pending.incrementAndGet();
+    executor.execute(() -> {
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        LOGGER.error("error releasing memory", e);
+      } finally {
+        pending.decrementAndGet();
+        freed.incrementAndGet();
+      }
+    });
+  }
+
+  public long getPendingObjects() {
+    return pending.get();
+  }
+
+  public long getFreedObjects() {
+    return freed.get();
+  }
+}
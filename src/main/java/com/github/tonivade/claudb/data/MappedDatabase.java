@@ -0,0 +1,811 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.github.tonivade.purefun.Tuple;
+import com.github.tonivade.purefun.Tuple2;
+import com.github.tonivade.purefun.data.ImmutableList;
+import com.github.tonivade.purefun.data.ImmutableSet;
+import com.github.tonivade.purefun.data.Sequence;
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Database stored in memory mapped files, the keys are available as soon as the files are
+ * opened again, nothing needs to be loaded.
+ *
+ * The data file is a log of records, a new record is appended every time a key is written,
+ * and the previous one becomes dead space until {@link #compact()} copies the live records
+ * to the next generation of the data file. The index file is an open addressing hash table
+ * with the position of the live record of every key, and the generation of the data file.
+ *
+ * The positions are ints, so the data file of a database is limited to 2 GB, and a write
+ * that does not fit fails with {@link DatabaseFullException}.
+ *
+ * The pages are written to disk by {@link #force()}, the data file before the index file.
+ * When the writes are forced, a record is on disk before the slot that points to it, and
+ * both before the command returns. Otherwise a crash of the process loses nothing, the pages
+ * are kept by the system, but a power failure loses the writes not forced yet, and a slot
+ * written before its record points to zeros, because the data file is filled with zeros
+ * after its end, so the key is missing.
+ */
+public class MappedDatabase implements Database, Closeable {
+
+  private static final int MAGIC = 0x434c4442;
+  private static final int HEADER = 32;
+  private static final int SLOT = 16;
+  private static final int RECORD_HEADER = Integer.BYTES * 2;
+
+  private static final int MIN_CAPACITY = 1024;
+  private static final int MAX_CAPACITY = 1 << 26;
+  private static final long MIN_DATA = 1024 * 1024;
+  private static final long MAX_DATA = Integer.MAX_VALUE;
+  private static final long MIN_COMPACTION = 1024 * 1024;
+  private static final int SCAN_CHUNK = 1024;
+
+  private static final long EMPTY = 0;
+  private static final long DELETED = -1;
+
+  // index header
+  private static final int CAPACITY = 4;
+  private static final int SIZE = 8;
+  private static final int DELETED_SLOTS = 12;
+  private static final int GENERATION = 16;
+
+  // data header
+  private static final int END = 8;
+  private static final int DEAD = 16;
+
+  private final File directory;
+  private final String name;
+  private final boolean forceWrites;
+  private final DatabaseClock clock;
+
+  private MappedByteBuffer index;
+  private MappedByteBuffer data;
+  private int capacity;
+  private long generation;
+  // the last generation given to a data file
+  private long lastGeneration;
+  private int scans;
+  private Compaction compaction;
+
+  public MappedDatabase(File directory, String name) {
+    this(directory, name, false);
+  }
+
+  public MappedDatabase(File directory, String name, boolean forceWrites) {
+    this(directory, name, forceWrites, DatabaseClock.system());
+  }
+
+  /**
+   * @param forceWrites if true every write is forced to disk before it returns
+   * @param clock used to check the expiration of the keys
+   */
+  public MappedDatabase(File directory, String name, boolean forceWrites, DatabaseClock clock) {
+    this.directory = directory;
+    this.name = name;
+    this.forceWrites = forceWrites;
+    this.clock = clock;
+    open();
+  }
+
+  @Override
+  public synchronized int size() {
+    return index.getInt(SIZE);
+  }
+
+  @Override
+  public synchronized boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public synchronized boolean containsKey(DatabaseKey key) {
+    byte[] bytes = key.getValue().getBytes();
+    return find(bytes, hash(bytes)) >= 0;
+  }
+
+  @Override
+  public synchronized DatabaseValue get(DatabaseKey key) {
+    byte[] bytes = key.getValue().getBytes();
+    int slot = find(bytes, hash(bytes));
+    if (slot < 0) {
+      return null;
+    }
+    DatabaseValue value = readValue(position(index, slot));
+    if (value.isExpired(clock.millis())) {
+      delete(bytes, slot);
+      return null;
+    }
+    return value;
+  }
+
+  @Override
+  public synchronized DatabaseValue put(DatabaseKey key, DatabaseValue value) {
+    byte[] bytes = key.getValue().getBytes();
+    int hash = hash(bytes);
+    int slot = find(bytes, hash);
+    if (slot < 0 && isIndexFull()) {
+      rehash();
+    }
+    long position = append(bytes, DatabaseSerializer.serialize(value));
+    if (forceWrites) {
+      data.force();
+    }
+    if (slot >= 0) {
+      dead(recordLength(position(index, slot)));
+      setSlot(index, slot, hash, position);
+    } else {
+      insert(hash, position);
+    }
+    forceIndex();
+    changed(bytes);
+    return value;
+  }
+
+  @Override
+  public synchronized DatabaseValue remove(DatabaseKey key) {
+    byte[] bytes = key.getValue().getBytes();
+    int slot = find(bytes, hash(bytes));
+    if (slot < 0) {
+      return null;
+    }
+    DatabaseValue value = readValue(position(index, slot));
+    delete(bytes, slot);
+    return value.isExpired(clock.millis()) ? null : value;
+  }
+
+  @Override
+  public synchronized boolean delete(DatabaseKey key) {
+    byte[] bytes = key.getValue().getBytes();
+    int slot = find(bytes, hash(bytes));
+    if (slot < 0) {
+      return false;
+    }
+    delete(bytes, slot);
+    return true;
+  }
+
+  @Override
+  public synchronized void clear() {
+    // a compaction in progress gives up
+    compaction = null;
+    long next = ++lastGeneration;
+    MappedByteBuffer newData = createData(dataFile(next), MIN_DATA);
+    File temp = tempIndexFile();
+    replaceIndex(temp, createIndex(temp, MIN_CAPACITY, next));
+    switchData(newData, next);
+  }
+
+  @Override
+  public synchronized ImmutableSet<DatabaseKey> keySet() {
+    List<DatabaseKey> keys = new ArrayList<>(size());
+    for (int i = 0; i < capacity; i++) {
+      long position = position(index, i);
+      if (position > 0) {
+        keys.add(readKey(position));
+      }
+    }
+    return ImmutableSet.from(keys);
+  }
+
+  @Override
+  public synchronized Sequence<DatabaseValue> values() {
+    List<DatabaseValue> values = new ArrayList<>(size());
+    for (int i = 0; i < capacity; i++) {
+      long position = position(index, i);
+      if (position > 0) {
+        values.add(readValue(position));
+      }
+    }
+    return ImmutableList.from(values);
+  }
+
+  @Override
+  public synchronized ImmutableSet<Tuple2<DatabaseKey, DatabaseValue>> entrySet() {
+    List<Tuple2<DatabaseKey, DatabaseValue>> entries = new ArrayList<>(size());
+    for (int i = 0; i < capacity; i++) {
+      long position = position(index, i);
+      if (position > 0) {
+        entries.add(Tuple.of(readKey(position), readValue(position)));
+      }
+    }
+    return ImmutableSet.from(entries);
+  }
+
+  /**
+   * Reads the slots of the index in small chunks, every chunk with the lock, so the other
+   * threads are not blocked while the whole index is read. The compaction waits until the scan
+   * is closed, it moves the records to other slots, and a compaction in progress gives up.
+   */
+  @Override
+  public synchronized DatabaseSnapshot scan() {
+    scans++;
+    MappedByteBuffer scanned = index;
+    AtomicBoolean closed = new AtomicBoolean();
+    return new DatabaseSnapshot() {
+      @Override
+      public Iterator<Tuple2<DatabaseKey, DatabaseValue>> iterator() {
+        return new Iterator<Tuple2<DatabaseKey, DatabaseValue>>() {
+          private int slot = 0;
+          private Iterator<Tuple2<DatabaseKey, DatabaseValue>> chunk = Collections.emptyIterator();
+
+          @Override
+          public boolean hasNext() {
+            while (!chunk.hasNext() && slot < scanned.getInt(CAPACITY)) {
+              chunk = nextChunk().iterator();
+            }
+            return chunk.hasNext();
+          }
+
+          @Override
+          public Tuple2<DatabaseKey, DatabaseValue> next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            return chunk.next();
+          }
+
+          private List<Tuple2<DatabaseKey, DatabaseValue>> nextChunk() {
+            synchronized (MappedDatabase.this) {
+              if (scanned != index) {
+                throw new IllegalStateException("mapped database changed during scan: " + name);
+              }
+              List<Tuple2<DatabaseKey, DatabaseValue>> entries = new ArrayList<>(SCAN_CHUNK);
+              int end = Math.min(capacity, slot + SCAN_CHUNK);
+              for (; slot < end; slot++) {
+                long position = position(index, slot);
+                if (position > 0) {
+                  entries.add(Tuple.of(readKey(position), readValue(position)));
+                }
+              }
+              return entries;
+            }
+          }
+        };
+      }
+
+      @Override
+      public void close() {
+        if (closed.compareAndSet(false, true)) {
+          synchronized (MappedDatabase.this) {
+            scans--;
+          }
+        }
+      }
+    };
+  }
+
+  /**
+   * true when at least half of the data file is dead space, and nobody is scanning the index
+   * or compacting it
+   */
+  public synchronized boolean needsCompaction() {
+    long dead = data.getLong(DEAD);
+    return scans == 0 && compaction == null
+        && dead >= MIN_COMPACTION && dead * 2 >= data.getLong(END) - HEADER;
+  }
+
+  /**
+   * Copies the live records to a new generation of the data file, without blocking the writes
+   * while it copies them. The records written before the compaction started are read without
+   * the lock, and only the index is checked with the lock, a chunk of records at a time. The
+   * keys written meanwhile are copied again at the end, with the lock, and then the new index
+   * replaces atomically the current one, so the files are consistent even if the process dies
+   * in the middle.
+   *
+   * It gives up if the database is cleared or scanned before it ends.
+   */
+  public void compact() {
+    Compaction current;
+    synchronized (this) {
+      if (scans > 0 || compaction != null) {
+        return;
+      }
+      current = new Compaction(++lastGeneration);
+      compaction = current;
+    }
+    boolean done = false;
+    try {
+      done = current.copy() && current.finish();
+    } finally {
+      if (!done) {
+        current.abort();
+      }
+      synchronized (this) {
+        if (compaction == current) {
+          compaction = null;
+        }
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    force();
+  }
+
+  /**
+   * Writes the dirty pages to disk, the data file first, so the records are there before the
+   * slots of the index that point to them.
+   */
+  public synchronized void force() {
+    data.force();
+    index.force();
+  }
+
+  private void open() {
+    File indexFile = indexFile();
+    if (indexFile.exists()) {
+      index = map(indexFile, indexFile.length());
+      if (indexFile.length() < HEADER || index.getInt(0) != MAGIC) {
+        throw new IllegalStateException("invalid index file: " + indexFile);
+      }
+      capacity = index.getInt(CAPACITY);
+      generation = index.getLong(GENERATION);
+      lastGeneration = generation;
+      File dataFile = dataFile(generation);
+      data = map(dataFile, dataFile.length());
+      if (dataFile.length() < HEADER || data.getInt(0) != MAGIC) {
+        throw new IllegalStateException("invalid data file: " + dataFile);
+      }
+      deleteStaleFiles();
+    } else {
+      directory.mkdirs();
+      data = createData(dataFile(0), MIN_DATA);
+      File temp = tempIndexFile();
+      replaceIndex(temp, createIndex(temp, MIN_CAPACITY, 0));
+    }
+  }
+
+  private int find(byte[] key, int hash) {
+    return find(index, capacity, data, key, hash);
+  }
+
+  private boolean isIndexFull() {
+    return (size() + index.getInt(DELETED_SLOTS) + 1) * 4L > capacity * 3L;
+  }
+
+  private void insert(int hash, long position) {
+    if (insert(index, capacity, hash, position) == DELETED) {
+      index.putInt(DELETED_SLOTS, index.getInt(DELETED_SLOTS) - 1);
+    }
+    index.putInt(SIZE, size() + 1);
+  }
+
+  private void delete(byte[] key, int slot) {
+    dead(recordLength(position(index, slot)));
+    index.putLong(HEADER + slot * SLOT + Long.BYTES, DELETED);
+    index.putInt(SIZE, size() - 1);
+    index.putInt(DELETED_SLOTS, index.getInt(DELETED_SLOTS) + 1);
+    forceIndex();
+    changed(key);
+  }
+
+  /**
+   * the compaction in progress copies the key again at the end
+   */
+  private void changed(byte[] key) {
+    if (compaction != null) {
+      compaction.changed.add(new SafeString(key));
+    }
+  }
+
+  private void forceIndex() {
+    if (forceWrites) {
+      index.force();
+    }
+  }
+
+  private void rehash() {
+    int newCapacity = size() * 2 >= capacity ? capacity * 2 : capacity;
+    if (newCapacity > MAX_CAPACITY) {
+      throw new DatabaseFullException("mapped database is full: " + name);
+    }
+    File temp = tempIndexFile();
+    MappedByteBuffer newIndex = copyIndex(index, capacity, temp, newCapacity, generation);
+    newIndex.putInt(SIZE, size());
+    replaceIndex(temp, newIndex);
+  }
+
+  private long append(byte[] key, byte[] value) {
+    long position = data.getLong(END);
+    long length = RECORD_HEADER + key.length + value.length;
+    if (position + length > data.capacity()) {
+      grow(position + length);
+    }
+    data.putInt((int) position, key.length);
+    data.putInt((int) position + Integer.BYTES, value.length);
+    ByteBuffer record = data.duplicate();
+    record.position((int) position + RECORD_HEADER);
+    record.put(key);
+    record.put(value);
+    data.putLong(END, position + length);
+    return position;
+  }
+
+  private void grow(long required) {
+    data = grow(data, dataFile(generation), required);
+  }
+
+  private MappedByteBuffer grow(MappedByteBuffer buffer, File file, long required) {
+    if (required > MAX_DATA) {
+      throw new DatabaseFullException("mapped database is full: " + name);
+    }
+    return map(file, Math.min(MAX_DATA, Math.max(required, buffer.capacity() * 2L)));
+  }
+
+  private void dead(long length) {
+    data.putLong(DEAD, data.getLong(DEAD) + length);
+  }
+
+  private int recordLength(long position) {
+    return recordLength(data, position);
+  }
+
+  private DatabaseKey readKey(long position) {
+    return safeKey(new SafeString(readKey(data, position)));
+  }
+
+  private DatabaseValue readValue(long position) {
+    int keyLength = data.getInt((int) position);
+    int length = data.getInt((int) position + Integer.BYTES);
+    return DatabaseSerializer.deserialize(read(data, (int) position + RECORD_HEADER + keyLength, length));
+  }
+
+  private void replaceIndex(File temp, MappedByteBuffer newIndex) {
+    newIndex.force();
+    try {
+      Files.move(temp.toPath(), indexFile().toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    index = newIndex;
+    capacity = newIndex.getInt(CAPACITY);
+  }
+
+  private void switchData(MappedByteBuffer newData, long next) {
+    File old = dataFile(generation);
+    data = newData;
+    generation = next;
+    delete(old);
+  }
+
+  private void deleteStaleFiles() {
+    File current = dataFile(generation);
+    File[] files = directory.listFiles((dir, file) -> file.startsWith(name + ".")
+        && (file.endsWith(".dat") || file.endsWith(".idx.tmp")));
+    if (files != null) {
+      for (File file : files) {
+        if (!file.equals(current)) {
+          delete(file);
+        }
+      }
+    }
+  }
+
+  private File indexFile() {
+    return new File(directory, name + ".idx");
+  }
+
+  private File tempIndexFile() {
+    return new File(directory, name + ".idx.tmp");
+  }
+
+  private File dataFile(long generation) {
+    return new File(directory, name + "." + generation + ".dat");
+  }
+
+  private File compactedIndexFile(long generation) {
+    return new File(directory, name + "." + generation + ".idx.tmp");
+  }
+
+  private static int find(ByteBuffer index, int capacity, ByteBuffer data, byte[] key, int hash) {
+    int mask = capacity - 1;
+    int slot = hash & mask;
+    for (int i = 0; i < capacity; i++) {
+      long position = position(index, slot);
+      if (position == EMPTY) {
+        return -1;
+      }
+      if (position != DELETED && hash(index, slot) == hash && keyEquals(data, position, key)) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  private static boolean keyEquals(ByteBuffer data, long position, byte[] key) {
+    if (data.getInt((int) position) != key.length) {
+      return false;
+    }
+    int offset = (int) position + RECORD_HEADER;
+    for (int i = 0; i < key.length; i++) {
+      if (data.get(offset + i) != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int recordLength(ByteBuffer data, long position) {
+    return RECORD_HEADER + data.getInt((int) position) + data.getInt((int) position + Integer.BYTES);
+  }
+
+  private static byte[] readKey(ByteBuffer data, long position) {
+    return read(data, (int) position + RECORD_HEADER, data.getInt((int) position));
+  }
+
+  private static byte[] read(ByteBuffer data, int offset, int length) {
+    byte[] bytes = new byte[length];
+    ByteBuffer view = data.duplicate();
+    view.position(offset);
+    view.get(bytes);
+    return bytes;
+  }
+
+  private static void copyRecord(ByteBuffer source, long position, int length, ByteBuffer target, long end) {
+    ByteBuffer record = source.duplicate();
+    record.position((int) position);
+    record.limit((int) position + length);
+    ByteBuffer view = target.duplicate();
+    view.position((int) end);
+    view.put(record);
+  }
+
+  private static MappedByteBuffer copyIndex(ByteBuffer index, int capacity, File file, int newCapacity, long generation) {
+    MappedByteBuffer newIndex = createIndex(file, newCapacity, generation);
+    for (int i = 0; i < capacity; i++) {
+      long position = position(index, i);
+      if (position > 0) {
+        insert(newIndex, newCapacity, hash(index, i), position);
+      }
+    }
+    return newIndex;
+  }
+
+  private static long insert(ByteBuffer index, int capacity, int hash, long position) {
+    int mask = capacity - 1;
+    int slot = hash & mask;
+    while (position(index, slot) > 0) {
+      slot = (slot + 1) & mask;
+    }
+    long previous = position(index, slot);
+    setSlot(index, slot, hash, position);
+    return previous;
+  }
+
+  private static long position(ByteBuffer index, int slot) {
+    return index.getLong(HEADER + slot * SLOT + Long.BYTES);
+  }
+
+  private static int hash(ByteBuffer index, int slot) {
+    return index.getInt(HEADER + slot * SLOT);
+  }
+
+  private static void setSlot(ByteBuffer index, int slot, int hash, long position) {
+    index.putInt(HEADER + slot * SLOT, hash);
+    index.putLong(HEADER + slot * SLOT + Long.BYTES, position);
+  }
+
+  private static int hash(byte[] key) {
+    int hash = Arrays.hashCode(key);
+    return hash ^ (hash >>> 16);
+  }
+
+  private static MappedByteBuffer createIndex(File file, int capacity, long generation) {
+    delete(file);
+    MappedByteBuffer index = map(file, HEADER + (long) capacity * SLOT);
+    index.putInt(0, MAGIC);
+    index.putInt(CAPACITY, capacity);
+    index.putInt(SIZE, 0);
+    index.putInt(DELETED_SLOTS, 0);
+    index.putLong(GENERATION, generation);
+    return index;
+  }
+
+  private static MappedByteBuffer createData(File file, long size) {
+    delete(file);
+    MappedByteBuffer data = map(file, size);
+    data.putInt(0, MAGIC);
+    data.putLong(END, HEADER);
+    data.putLong(DEAD, 0);
+    return data;
+  }
+
+  private static MappedByteBuffer map(File file, long size) {
+    try (FileChannel channel = FileChannel.open(file.toPath(), CREATE, READ, WRITE)) {
+      return channel.map(MapMode.READ_WRITE, 0, size);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void delete(File file) {
+    try {
+      Files.deleteIfExists(file.toPath());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * A new generation of the data file and its index, they are not seen by the other threads
+   * until {@link #finish()} replaces the current ones.
+   */
+  private final class Compaction {
+
+    private final long next;
+    // the data file when the compaction started, the records before the end do not change
+    private final ByteBuffer source;
+    private final long end;
+    private final File indexFile;
+    // keys written since the compaction started
+    private final Set<SafeString> changed = new HashSet<>();
+
+    private MappedByteBuffer newData;
+    private MappedByteBuffer newIndex;
+    private int newCapacity;
+    private long written = HEADER;
+    private long dead;
+    private int copied;
+    private int deletedSlots;
+
+    private Compaction(long next) {
+      this.next = next;
+      this.source = data;
+      this.end = data.getLong(END);
+      this.indexFile = compactedIndexFile(next);
+      this.newCapacity = capacity;
+      this.newData = createData(dataFile(next), Math.max(MIN_DATA, end - data.getLong(DEAD)));
+      this.newIndex = createIndex(indexFile, newCapacity, next);
+    }
+
+    /**
+     * copies the records that are live, and not written since the compaction started
+     *
+     * @return false if the compaction gives up
+     */
+    private boolean copy() {
+      List<Long> chunk = new ArrayList<>(SCAN_CHUNK);
+      long position = HEADER;
+      while (position < end) {
+        chunk.clear();
+        for (; position < end && chunk.size() < SCAN_CHUNK; position += recordLength(source, position)) {
+          chunk.add(position);
+        }
+        List<Long> live = live(chunk);
+        if (live == null) {
+          return false;
+        }
+        for (long record : live) {
+          byte[] key = readKey(source, record);
+          insert(newIndex, newCapacity, hash(key), append(source, record));
+          copied++;
+        }
+      }
+      return true;
+    }
+
+    private List<Long> live(List<Long> chunk) {
+      synchronized (MappedDatabase.this) {
+        if (compaction != this) {
+          return null;
+        }
+        List<Long> live = new ArrayList<>(chunk.size());
+        for (long record : chunk) {
+          byte[] key = readKey(source, record);
+          if (!changed.contains(new SafeString(key))) {
+            int slot = find(key, hash(key));
+            if (slot >= 0 && position(index, slot) == record) {
+              live.add(record);
+            }
+          }
+        }
+        return live;
+      }
+    }
+
+    /**
+     * copies the keys written since the compaction started and replaces the current files
+     *
+     * @return false if the compaction gives up
+     */
+    private boolean finish() {
+      synchronized (MappedDatabase.this) {
+        if (compaction != this || scans > 0) {
+          return false;
+        }
+        int required = newCapacity;
+        while ((copied + changed.size()) * 4L > required * 3L) {
+          required *= 2;
+        }
+        if (required > MAX_CAPACITY) {
+          return false;
+        }
+        if (required > newCapacity) {
+          newIndex = copyIndex(newIndex, newCapacity, indexFile, required, next);
+          newCapacity = required;
+        }
+        for (SafeString key : changed) {
+          byte[] bytes = key.getBytes();
+          int hash = hash(bytes);
+          int slot = find(bytes, hash);
+          int target = find(newIndex, newCapacity, newData, bytes, hash);
+          if (target >= 0) {
+            dead += recordLength(newData, position(newIndex, target));
+            if (slot < 0) {
+              newIndex.putLong(HEADER + target * SLOT + Long.BYTES, DELETED);
+              deletedSlots++;
+            }
+          }
+          if (slot >= 0) {
+            long position = append(data, position(index, slot));
+            if (target >= 0) {
+              setSlot(newIndex, target, hash, position);
+            } else if (insert(newIndex, newCapacity, hash, position) == DELETED) {
+              deletedSlots--;
+            }
+          }
+        }
+        newData.putLong(END, written);
+        newData.putLong(DEAD, dead);
+        newIndex.putInt(SIZE, size());
+        newIndex.putInt(DELETED_SLOTS, deletedSlots);
+        newData.force();
+        replaceIndex(indexFile, newIndex);
+        switchData(newData, next);
+        return true;
+      }
+    }
+
+    private long append(ByteBuffer from, long position) {
+      int length = recordLength(from, position);
+      if (written + length > newData.capacity()) {
+        newData = grow(newData, dataFile(next), written + length);
+      }
+      copyRecord(from, position, length, newData, written);
+      long result = written;
+      written += length;
+      return result;
+    }
+
+    private void abort() {
+      synchronized (MappedDatabase.this) {
+        if (index != newIndex) {
+          delete(indexFile);
+          delete(dataFile(next));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates databases stored in memory mapped files in the given directory, and compacts them
+ * in background when they have too much dead space. The dirty pages are forced to disk
+ * periodically, or after every write.
+ */
+public class MappedDatabaseFactory implements DatabaseFactory {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MappedDatabaseFactory.class);
+
+  private static final int COMPACTION_PERIOD = 10;
+
+  private final File directory;
+  private final int forcePeriod;
+  private final DatabaseClock clock;
+  private final List<MappedDatabase> databases = new CopyOnWriteArrayList<>();
+  private final ScheduledExecutorService compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "mapped-compactor");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public MappedDatabaseFactory(File directory) {
+    this(directory, 1);
+  }
+
+  public MappedDatabaseFactory(File directory, int forcePeriod) {
+    this(directory, forcePeriod, DatabaseClock.system());
+  }
+
+  /**
+   * @param forcePeriod seconds between the writes of the dirty pages to disk, 0 to write them
+   * after every write, or -1 to leave it to the system
+   * @param clock used to check the expiration of the keys
+   */
+  public MappedDatabaseFactory(File directory, int forcePeriod, DatabaseClock clock) {
+    this.directory = directory;
+    this.forcePeriod = forcePeriod;
+    this.clock = clock;
+    this.compactor.scheduleWithFixedDelay(this::compact, COMPACTION_PERIOD, COMPACTION_PERIOD, TimeUnit.SECONDS);
+    if (forcePeriod > 0) {
+      this.compactor.scheduleWithFixedDelay(this::force, forcePeriod, forcePeriod, TimeUnit.SECONDS);
+    }
+  }
+
+  @Override
+  public Database create(String name) {
+    MappedDatabase database = new MappedDatabase(directory, name, forcePeriod == 0, clock);
+    databases.add(database);
+    return database;
+  }
+
+  @Override
+  public void clear() {
+    compactor.shutdown();
+    for (MappedDatabase database : databases) {
+      database.close();
+    }
+    databases.clear();
+  }
+
+  @Override
+  public boolean isLazyFree() {
+    return false;
+  }
+
+  private void force() {
+    for (MappedDatabase database : databases) {
+      try {
+        database.force();
+      } catch (RuntimeException e) {
+        LOGGER.error("error writing mapped database", e);
+      }
+    }
+  }
+
+  private void compact() {
+    for (MappedDatabase database : databases) {
+      try {
+        if (database.needsCompaction()) {
+          database.compact();
+          LOGGER.debug("mapped database compacted");
+        }
+      } catch (RuntimeException e) {
+        LOGGER.error("error compacting mapped database", e);
+      }
+    }
+  }
+}
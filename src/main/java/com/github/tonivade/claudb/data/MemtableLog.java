@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.function.Consumer;
+
+import com.github.tonivade.claudb.data.Segment.Entry;
+
+/**
+ * Log of the entries written to a memtable, so they are not lost if the database is not closed
+ * before the memtable is written to a segment. Every memtable has its own log, and it is
+ * deleted once the segment is in the manifest.
+ *
+ * The entries are written to the file before the command returns, so a crash of the process
+ * loses nothing, and they are forced to disk after every write, or periodically.
+ */
+final class MemtableLog {
+
+  private final File file;
+  private final FileChannel channel;
+  private final boolean forceWrites;
+
+  private boolean dirty;
+
+  MemtableLog(File file, boolean forceWrites) throws IOException {
+    this.file = file;
+    this.channel = FileChannel.open(file.toPath(), CREATE, WRITE, TRUNCATE_EXISTING);
+    this.forceWrites = forceWrites;
+  }
+
+  synchronized void append(Entry entry) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(entry.key.length + 64);
+    try {
+      Segment.writeEntry(new DataOutputStream(bytes), entry);
+      ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      if (forceWrites) {
+        channel.force(false);
+      } else {
+        dirty = true;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  synchronized void force() {
+    if (dirty && channel.isOpen()) {
+      try {
+        channel.force(false);
+        dirty = false;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  synchronized void close() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  void delete() {
+    close();
+    try {
+      Files.deleteIfExists(file.toPath());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Reads the entries of a log written before, an incomplete entry at the end, written when
+   * the process stopped, is ignored.
+   */
+  static void replay(File file, Consumer<Entry> consumer) throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+      buffer = ByteBuffer.allocate((int) channel.size());
+      while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+        // read until the end
+      }
+    }
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      Entry entry;
+      try {
+        entry = Segment.readEntry(buffer);
+      } catch (BufferUnderflowException | NegativeArraySizeException e) {
+        return;
+      }
+      consumer.accept(entry);
+    }
+  }
+}
@@ -6,13 +6,15 @@ package com.github.tonivade.claudb.data;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.time.Instant;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import org.caffinitas.ohc.CloseableIterator;
+import org.caffinitas.ohc.DirectValueAccess;
 import org.caffinitas.ohc.OHCache;
 
 import com.github.tonivade.purefun.Tuple;
@@ -23,10 +25,18 @@ import com.github.tonivade.purefun.data.Sequence;
 
 public class OffHeapDatabase implements Database {
 
+  private static final int LAZY_FREE_THRESHOLD = 64 * 1024;
+
   private OHCache<DatabaseKey, DatabaseValue> cache;
+  private final DatabaseClock clock;
 
   public OffHeapDatabase(OHCache<DatabaseKey, DatabaseValue> cache) {
+    this(cache, DatabaseClock.system());
+  }
+
+  public OffHeapDatabase(OHCache<DatabaseKey, DatabaseValue> cache, DatabaseClock clock) {
     this.cache = cache;
+    this.clock = clock;
   }
 
   @Override
@@ -48,7 +58,7 @@ public class OffHeapDatabase implements Database {
   public DatabaseValue get(DatabaseKey key) {
     DatabaseValue value = cache.get(key);
     if (value != null) {
-      if (!value.isExpired(Instant.now())) {
+      if (!value.isExpired(clock.millis())) {
         return value;
       }
       cache.remove(key);
@@ -69,6 +79,27 @@ public class OffHeapDatabase implements Database {
     return value;
   }
 
+  @Override
+  public boolean delete(DatabaseKey key) {
+    return cache.remove(key);
+  }
+
+  @Override
+  public boolean unlink(DatabaseKey key, LazyFree lazyFree) {
+    DirectValueAccess value = cache.getDirect(key, false);
+    if (value == null) {
+      return false;
+    }
+    if (value.buffer().remaining() < LAZY_FREE_THRESHOLD) {
+      close(value);
+      return cache.remove(key);
+    }
+    // the entry is freed when the last reference to it is closed, that is in the lazy free
+    boolean removed = cache.remove(key);
+    lazyFree.free(value);
+    return removed;
+  }
+
   @Override
   public void clear() {
     cache.clear();
@@ -100,4 +131,63 @@ public class OffHeapDatabase implements Database {
   public ImmutableSet<Tuple2<DatabaseKey, DatabaseValue>> entrySet() {
     return keySet().map(key -> Tuple.of(key, get(key)));
   }
+
+  /**
+   * the values are read one by one while the keys are iterated
+   */
+  @Override
+  public DatabaseSnapshot scan() {
+    CloseableIterator<DatabaseKey> keys = cache.keyIterator();
+    return new DatabaseSnapshot() {
+      @Override
+      public Iterator<Tuple2<DatabaseKey, DatabaseValue>> iterator() {
+        return new Iterator<Tuple2<DatabaseKey, DatabaseValue>>() {
+          private Tuple2<DatabaseKey, DatabaseValue> next = advance();
+
+          @Override
+          public boolean hasNext() {
+            return next != null;
+          }
+
+          @Override
+          public Tuple2<DatabaseKey, DatabaseValue> next() {
+            if (next == null) {
+              throw new NoSuchElementException();
+            }
+            Tuple2<DatabaseKey, DatabaseValue> current = next;
+            next = advance();
+            return current;
+          }
+
+          private Tuple2<DatabaseKey, DatabaseValue> advance() {
+            while (keys.hasNext()) {
+              DatabaseKey key = keys.next();
+              DatabaseValue value = cache.get(key);
+              if (value != null) {
+                return Tuple.of(key, value);
+              }
+            }
+            return null;
+          }
+        };
+      }
+
+      @Override
+      public void close() {
+        try {
+          keys.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    };
+  }
+
+  private static void close(DirectValueAccess value) {
+    try {
+      value.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
 }
@@ -10,19 +10,40 @@ import org.caffinitas.ohc.CacheSerializer;
 import org.caffinitas.ohc.Eviction;
 import org.caffinitas.ohc.OHCache;
 import org.caffinitas.ohc.OHCacheBuilder;
-import org.nustaq.serialization.FSTConfiguration;
-
-import com.github.tonivade.resp.protocol.SafeString;
 
 public class OffHeapDatabaseFactory implements DatabaseFactory {
 
+  private final long capacity;
+  private final DatabaseClock clock;
+
+  public OffHeapDatabaseFactory() {
+    this(0);
+  }
+
+  public OffHeapDatabaseFactory(long capacity) {
+    this(capacity, DatabaseClock.system());
+  }
+
+  /**
+   * @param capacity off heap memory of every database in bytes, or 0 to use the default size
+   * @param clock used to check the expiration of the keys
+   */
+  public OffHeapDatabaseFactory(long capacity, DatabaseClock clock) {
+    this.capacity = capacity;
+    this.clock = clock;
+  }
+
   @Override
   public Database create(String name) {
-    return new OffHeapDatabase(createCache());
+    return new OffHeapDatabase(createCache(), clock);
   }
 
   private OHCache<DatabaseKey, DatabaseValue> createCache() {
-    return builder()
+    OHCacheBuilder<DatabaseKey, DatabaseValue> builder = builder();
+    if (capacity > 0) {
+      builder.capacity(capacity);
+    }
+    return builder
         .eviction(Eviction.NONE)
         .throwOOME(true)
         .keySerializer(new FSTSerializer<>())
@@ -41,34 +62,24 @@ public class OffHeapDatabaseFactory implements DatabaseFactory {
 
   private static class FSTSerializer<E> implements CacheSerializer<E> {
 
-    private static final FSTConfiguration FST = FSTConfiguration.createDefaultConfiguration();
-
-    static {
-      FST.registerClass(DatabaseValue.class);
-      FST.registerClass(DatabaseKey.class);
-      FST.registerClass(SafeString.class);
-      FST.registerClass(SortedSet.class);
-    }
-
     @Override
     public void serialize(E value, ByteBuffer buf) {
-      byte[] array = FST.asByteArray(value);
+      byte[] array = DatabaseSerializer.serialize(value);
       buf.putInt(array.length);
       buf.put(array);
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public E deserialize(ByteBuffer buf) {
       int length = buf.getInt();
       byte[] array = new byte[length];
       buf.get(array);
-      return (E) FST.asObject(array);
+      return DatabaseSerializer.deserialize(array);
     }
 
     @Override
     public int serializedSize(E value) {
-      return FST.asByteArray(value).length + Integer.BYTES;
+      return DatabaseSerializer.serialize(value).length + Integer.BYTES;
     }
   }
 }
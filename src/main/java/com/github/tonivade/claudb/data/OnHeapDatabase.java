@@ -4,7 +4,6 @@
  */
 package com.github.tonivade.claudb.data;
 
-import java.time.Instant;
 import java.util.Map;
 
 import com.github.tonivade.purefun.Tuple;
@@ -15,9 +14,15 @@ import com.github.tonivade.purefun.data.Sequence;
 public class OnHeapDatabase implements Database {
 
   private final Map<DatabaseKey, DatabaseValue> cache;
+  private final DatabaseClock clock;
 
   public OnHeapDatabase(Map<DatabaseKey, DatabaseValue> cache) {
+    this(cache, DatabaseClock.system());
+  }
+
+  public OnHeapDatabase(Map<DatabaseKey, DatabaseValue> cache, DatabaseClock clock) {
     this.cache = cache;
+    this.clock = clock;
   }
 
   @Override
@@ -32,31 +37,35 @@ public class OnHeapDatabase implements Database {
 
   @Override
   public boolean containsKey(DatabaseKey key) {
-    return cache.containsKey(key);
+    return get(key) != null;
   }
 
+  /**
+   * An expired key is not removed here, the reads may run in many threads at the same time, so
+   * they never change the map, the key is removed by the next write or by the eviction of the
+   * expired keys.
+   */
   @Override
   public DatabaseValue get(DatabaseKey key) {
     DatabaseValue value = cache.get(key);
-    if (value != null) {
-      if (!value.isExpired(Instant.now())) {
-        return value;
-      }
-      cache.remove(key);
+    if (value != null && value.isExpired(clock.millis())) {
+      return null;
     }
-    return null;
+    return value;
   }
 
   @Override
   public DatabaseValue put(DatabaseKey key, DatabaseValue value) {
-    DatabaseValue oldValue = cache.remove(key);
-    cache.put(key, value);
-    return oldValue;
+    return cache.put(key, value);
   }
 
   @Override
   public DatabaseValue remove(DatabaseKey key) {
-    return cache.remove(key);
+    DatabaseValue value = cache.remove(key);
+    if (value != null && value.isExpired(clock.millis())) {
+      return null;
+    }
+    return value;
   }
 
   @Override
@@ -78,4 +87,9 @@ public class OnHeapDatabase implements Database {
   public ImmutableSet<Tuple2<DatabaseKey, DatabaseValue>> entrySet() {
     return ImmutableSet.from(cache.entrySet()).map(Tuple::from);
   }
+
+  @Override
+  public DatabaseSnapshot scan() {
+    return DatabaseSnapshot.of(() -> cache.entrySet().stream().map(Tuple::from).iterator());
+  }
 }
@@ -5,12 +5,38 @@
 package com.github.tonivade.claudb.data;
 
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class OnHeapDatabaseFactory implements DatabaseFactory {
 
+  private final boolean concurrent;
+  private final DatabaseClock clock;
+
+  public OnHeapDatabaseFactory() {
+    this(false);
+  }
+
+  public OnHeapDatabaseFactory(boolean concurrent) {
+    this(concurrent, DatabaseClock.system());
+  }
+
+  /**
+   * @param concurrent if true the databases can be read by many threads while other thread writes
+   * @param clock used to check the expiration of the keys
+   */
+  public OnHeapDatabaseFactory(boolean concurrent, DatabaseClock clock) {
+    this.concurrent = concurrent;
+    this.clock = clock;
+  }
+
   @Override
   public Database create(String name) {
-    return new OnHeapDatabase(new HashMap<>());
+    return new OnHeapDatabase(concurrent ? new ConcurrentHashMap<>() : new HashMap<>(), clock);
+  }
+
+  @Override
+  public boolean isConcurrent() {
+    return concurrent;
   }
 
   @Override
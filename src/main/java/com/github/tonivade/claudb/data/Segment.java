@@ -0,0 +1,385 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable file with entries sorted by key, split in blocks. The first key of every block
+ * and a bloom filter are kept in memory, so a lookup reads at most one block.
+ *
+ * Every entry is the length of the key, the key, the length of the value (-1 if the key
+ * has been removed), the expiration and the value. The blocks are followed by the index, the
+ * first key and position of every block, and the bloom filter, so the segment is opened again
+ * without reading the blocks.
+ *
+ * A segment is released by the database when it is replaced by a compaction, and by every
+ * snapshot that reads it, the file is deleted when nobody reads it anymore.
+ */
+final class Segment {
+
+  static final byte[] TOMBSTONE = new byte[0];
+  static final long NO_EXPIRE = Long.MIN_VALUE;
+
+  private static final int BLOCK_SIZE = 4096;
+  private static final int MAGIC = 0x53535431;
+  private static final int TRAILER = Long.BYTES + Integer.BYTES;
+
+  private final long id;
+  private final File file;
+  private final FileChannel channel;
+  private final BlockCache cache;
+  private final BloomFilter bloom;
+  private final byte[][] firstKeys;
+  private final long[] offsets;
+  private final int[] lengths;
+  private final int count;
+  private final long length;
+
+  private int refs = 1;
+
+  private Segment(long id, File file, BlockCache cache, BloomFilter bloom,
+                  List<byte[]> firstKeys, List<Long> offsets, List<Integer> lengths, int count) throws IOException {
+    this.id = id;
+    this.file = file;
+    this.channel = FileChannel.open(file.toPath(), READ);
+    this.length = channel.size();
+    this.cache = cache;
+    this.bloom = bloom;
+    this.firstKeys = firstKeys.toArray(new byte[0][]);
+    this.offsets = offsets.stream().mapToLong(Long::longValue).toArray();
+    this.lengths = lengths.stream().mapToInt(Integer::intValue).toArray();
+    this.count = count;
+  }
+
+  long id() {
+    return id;
+  }
+
+  int count() {
+    return count;
+  }
+
+  /**
+   * size of the file in bytes
+   */
+  long length() {
+    return length;
+  }
+
+  /**
+   * the entry of the key, a tombstone if it has been removed, or null if not present
+   */
+  Entry get(byte[] key) {
+    if (!bloom.mightContain(key)) {
+      return null;
+    }
+    int block = findBlock(key);
+    if (block < 0) {
+      return null;
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(cache.get(id, block, () -> readBlock(block)));
+    while (buffer.hasRemaining()) {
+      Entry entry = readEntry(buffer);
+      int compare = LSMDatabase.compare(entry.key, key);
+      if (compare == 0) {
+        return entry;
+      }
+      if (compare > 0) {
+        break;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * reads all the entries in order, without polluting the block cache
+   */
+  Iterator<Entry> iterator() {
+    return new Iterator<Entry>() {
+      private int block = 0;
+      private ByteBuffer buffer = ByteBuffer.allocate(0);
+
+      @Override
+      public boolean hasNext() {
+        while (!buffer.hasRemaining() && block < offsets.length) {
+          buffer = ByteBuffer.wrap(readBlock(block++));
+        }
+        return buffer.hasRemaining();
+      }
+
+      @Override
+      public Entry next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return readEntry(buffer);
+      }
+    };
+  }
+
+  synchronized void retain() {
+    refs++;
+  }
+
+  synchronized void release() {
+    if (--refs == 0) {
+      delete();
+    }
+  }
+
+  private void delete() {
+    cache.invalidate(id);
+    try {
+      channel.close();
+      Files.deleteIfExists(file.toPath());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * closes the file without deleting it
+   */
+  void close() {
+    cache.invalidate(id);
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private int findBlock(byte[] key) {
+    int low = 0;
+    int high = firstKeys.length - 1;
+    int found = -1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (LSMDatabase.compare(firstKeys[middle], key) <= 0) {
+        found = middle;
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return found;
+  }
+
+  private byte[] readBlock(int block) {
+    return read(channel, offsets[block], lengths[block], file);
+  }
+
+  private static byte[] read(FileChannel channel, long position, int length, File file) {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    try {
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, position + buffer.position()) < 0) {
+          throw new IOException("unexpected end of segment: " + file);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return buffer.array();
+  }
+
+  static void writeEntry(DataOutput output, Entry entry) throws IOException {
+    output.writeInt(entry.key.length);
+    output.write(entry.key);
+    if (entry.isTombstone()) {
+      output.writeInt(-1);
+    } else {
+      byte[] value = entry.bytes();
+      output.writeInt(value.length);
+      output.writeLong(entry.expiredAt);
+      output.write(value);
+    }
+  }
+
+  static Entry readEntry(ByteBuffer buffer) {
+    byte[] key = readBytes(buffer, buffer.getInt());
+    int length = buffer.getInt();
+    if (length < 0) {
+      return Entry.tombstone(key);
+    }
+    long expiredAt = buffer.getLong();
+    return new Entry(key, readBytes(buffer, length), expiredAt);
+  }
+
+  private static byte[] readBytes(ByteBuffer buffer, int length) {
+    if (length > buffer.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  /**
+   * Opens a segment written before, only the index and the bloom filter are read.
+   */
+  static Segment open(long id, File file, BlockCache cache) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+      long size = channel.size();
+      if (size < TRAILER) {
+        throw new IOException("invalid segment: " + file);
+      }
+      ByteBuffer trailer = ByteBuffer.wrap(read(channel, size - TRAILER, TRAILER, file));
+      long indexOffset = trailer.getLong();
+      if (trailer.getInt() != MAGIC || indexOffset < 0 || indexOffset > size - TRAILER) {
+        throw new IOException("invalid segment: " + file);
+      }
+      ByteBuffer index = ByteBuffer.wrap(read(channel, indexOffset, (int) (size - TRAILER - indexOffset), file));
+      int blocks = index.getInt();
+      List<byte[]> firstKeys = new ArrayList<>(blocks);
+      List<Long> offsets = new ArrayList<>(blocks);
+      List<Integer> lengths = new ArrayList<>(blocks);
+      for (int i = 0; i < blocks; i++) {
+        firstKeys.add(readBytes(index, index.getInt()));
+        offsets.add(index.getLong());
+        lengths.add(index.getInt());
+      }
+      BloomFilter bloom = BloomFilter.readFrom(index);
+      int count = index.getInt();
+      return new Segment(id, file, cache, bloom, firstKeys, offsets, lengths, count);
+    }
+  }
+
+  /**
+   * Writes the entries, that must be sorted by key, in a new segment file, and forces it to
+   * disk. The tombstones are not needed when the segment is going to be the oldest one.
+   */
+  static Segment write(long id, File file, BlockCache cache, int expectedKeys,
+                       Iterator<Entry> entries, boolean dropTombstones) throws IOException {
+    BloomFilter bloom = new BloomFilter(expectedKeys);
+    List<byte[]> firstKeys = new ArrayList<>();
+    List<Long> offsets = new ArrayList<>();
+    List<Integer> lengths = new ArrayList<>();
+    int count = 0;
+    long offset = 0;
+    ByteArrayOutputStream block = new ByteArrayOutputStream(BLOCK_SIZE * 2);
+    DataOutputStream output = new DataOutputStream(block);
+    try (FileOutputStream stream = new FileOutputStream(file)) {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+      while (entries.hasNext()) {
+        Entry entry = entries.next();
+        if (dropTombstones && entry.isTombstone()) {
+          continue;
+        }
+        if (block.size() == 0) {
+          firstKeys.add(entry.key);
+        }
+        writeEntry(output, entry);
+        bloom.add(entry.key);
+        count++;
+        if (block.size() >= BLOCK_SIZE) {
+          offsets.add(offset);
+          lengths.add(block.size());
+          offset += block.size();
+          block.writeTo(out);
+          block.reset();
+        }
+      }
+      if (block.size() > 0) {
+        offsets.add(offset);
+        lengths.add(block.size());
+        offset += block.size();
+        block.writeTo(out);
+      }
+      out.writeInt(firstKeys.size());
+      for (int i = 0; i < firstKeys.size(); i++) {
+        out.writeInt(firstKeys.get(i).length);
+        out.write(firstKeys.get(i));
+        out.writeLong(offsets.get(i));
+        out.writeInt(lengths.get(i));
+      }
+      bloom.writeTo(out);
+      out.writeInt(count);
+      out.writeLong(offset);
+      out.writeInt(MAGIC);
+      out.flush();
+      stream.getChannel().force(true);
+    }
+    return new Segment(id, file, cache, bloom, firstKeys, offsets, lengths, count);
+  }
+
+  /**
+   * An entry of a segment, the memtable or the log. The value is kept serialized, as read from
+   * the files, or as the value written by a command, and it is converted only when needed.
+   */
+  static final class Entry {
+
+    final byte[] key;
+    // epoch millis
+    final long expiredAt;
+
+    private byte[] bytes;
+    private DatabaseValue value;
+
+    Entry(byte[] key, byte[] bytes, long expiredAt) {
+      this.key = key;
+      this.bytes = bytes;
+      this.expiredAt = expiredAt;
+    }
+
+    private Entry(byte[] key, DatabaseValue value) {
+      this.key = key;
+      this.value = value;
+      this.expiredAt = value.expiredAt();
+    }
+
+    static Entry of(byte[] key, DatabaseValue value) {
+      return new Entry(key, value);
+    }
+
+    static Entry tombstone(byte[] key) {
+      return new Entry(key, TOMBSTONE, NO_EXPIRE);
+    }
+
+    boolean isTombstone() {
+      return bytes == TOMBSTONE;
+    }
+
+    boolean hasExpiration() {
+      return expiredAt != NO_EXPIRE;
+    }
+
+    boolean isExpired(long nowMillis) {
+      return hasExpiration() && nowMillis > expiredAt;
+    }
+
+    byte[] bytes() {
+      if (bytes == null) {
+        bytes = DatabaseSerializer.serialize(value);
+      }
+      return bytes;
+    }
+
+    DatabaseValue value() {
+      if (value == null) {
+        value = DatabaseSerializer.deserialize(bytes);
+      }
+      return value;
+    }
+  }
+}
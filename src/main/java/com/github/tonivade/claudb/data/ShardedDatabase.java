@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.tonivade.purefun.Tuple2;
+import com.github.tonivade.purefun.data.ImmutableList;
+import com.github.tonivade.purefun.data.ImmutableSet;
+import com.github.tonivade.purefun.data.Sequence;
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Database split by the hash of the key in many databases, every one of them is only used by
+ * the thread that owns the shard, except when all the shards are stopped.
+ */
+public class ShardedDatabase implements Database {
+
+  private final Database[] shards;
+
+  public ShardedDatabase(Database[] shards) {
+    this.shards = shards;
+  }
+
+  public static int shard(SafeString key, int shards) {
+    return Math.floorMod(key.hashCode(), shards);
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (Database shard : shards) {
+      size += shard.size();
+    }
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    for (Database shard : shards) {
+      if (!shard.isEmpty()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean containsKey(DatabaseKey key) {
+    return shardOf(key).containsKey(key);
+  }
+
+  @Override
+  public DatabaseValue get(DatabaseKey key) {
+    return shardOf(key).get(key);
+  }
+
+  @Override
+  public DatabaseValue put(DatabaseKey key, DatabaseValue value) {
+    return shardOf(key).put(key, value);
+  }
+
+  @Override
+  public DatabaseValue remove(DatabaseKey key) {
+    return shardOf(key).remove(key);
+  }
+
+  @Override
+  public boolean delete(DatabaseKey key) {
+    return shardOf(key).delete(key);
+  }
+
+  @Override
+  public boolean unlink(DatabaseKey key, LazyFree lazyFree) {
+    return shardOf(key).unlink(key, lazyFree);
+  }
+
+  @Override
+  public void clear() {
+    for (Database shard : shards) {
+      shard.clear();
+    }
+  }
+
+  @Override
+  public ImmutableSet<DatabaseKey> keySet() {
+    ImmutableSet<DatabaseKey> keys = ImmutableSet.empty();
+    for (Database shard : shards) {
+      keys = keys.appendAll(shard.keySet());
+    }
+    return keys;
+  }
+
+  @Override
+  public Sequence<DatabaseValue> values() {
+    List<DatabaseValue> values = new ArrayList<>();
+    for (Database shard : shards) {
+      shard.values().forEach(values::add);
+    }
+    return ImmutableList.from(values);
+  }
+
+  @Override
+  public ImmutableSet<Tuple2<DatabaseKey, DatabaseValue>> entrySet() {
+    ImmutableSet<Tuple2<DatabaseKey, DatabaseValue>> entries = ImmutableSet.empty();
+    for (Database shard : shards) {
+      entries = entries.appendAll(shard.entrySet());
+    }
+    return entries;
+  }
+
+  @Override
+  public DatabaseSnapshot snapshot() {
+    List<DatabaseSnapshot> snapshots = new ArrayList<>(shards.length);
+    for (Database shard : shards) {
+      snapshots.add(shard.snapshot());
+    }
+    return DatabaseSnapshot.concat(snapshots);
+  }
+
+  @Override
+  public ImmutableSet<DatabaseKey> evictableKeys(long nowMillis) {
+    ImmutableSet<DatabaseKey> keys = ImmutableSet.empty();
+    for (Database shard : shards) {
+      keys = keys.appendAll(shard.evictableKeys(nowMillis));
+    }
+    return keys;
+  }
+
+  private Database shardOf(DatabaseKey key) {
+    return shards[shard(key.getValue(), shards.length)];
+  }
+}
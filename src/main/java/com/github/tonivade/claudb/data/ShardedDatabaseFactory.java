@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+public class ShardedDatabaseFactory implements DatabaseFactory {
+
+  private final DatabaseFactory factory;
+  private final int shards;
+
+  public ShardedDatabaseFactory(DatabaseFactory factory, int shards) {
+    this.factory = factory;
+    this.shards = shards;
+  }
+
+  @Override
+  public Database create(String name) {
+    Database[] databases = new Database[shards];
+    for (int i = 0; i < shards; i++) {
+      databases[i] = factory.create(name + "-" + i);
+    }
+    return new ShardedDatabase(databases);
+  }
+
+  @Override
+  public void clear() {
+    factory.clear();
+  }
+
+  @Override
+  public boolean isLazyFree() {
+    return factory.isLazyFree();
+  }
+
+  @Override
+  public boolean isVersioned() {
+    return factory.isVersioned();
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.tonivade.purefun.Tuple;
+import com.github.tonivade.purefun.Tuple2;
+import com.github.tonivade.purefun.data.ImmutableList;
+import com.github.tonivade.purefun.data.ImmutableSet;
+import com.github.tonivade.purefun.data.Sequence;
+
+/**
+ * Keeps the most frequently accessed keys on heap, as live objects, and the rest of them in
+ * a cold database, usually off heap.
+ *
+ * Every access is counted in a {@link FrequencySketch}. When the hot tier is full, a key
+ * is promoted only if it is accessed more often than the least recently used hot key,
+ * which is then demoted to the cold tier. A key is never in both tiers.
+ */
+public class TieredDatabase implements Database {
+
+  private final int capacity;
+  private final Database cold;
+  private final FrequencySketch sketch;
+  private final LinkedHashMap<DatabaseKey, DatabaseValue> hot = new LinkedHashMap<>(16, 0.75f, true);
+  private final DatabaseClock clock;
+
+  private long promotions;
+  private long demotions;
+
+  public TieredDatabase(Database cold, int capacity) {
+    this(cold, capacity, DatabaseClock.system());
+  }
+
+  public TieredDatabase(Database cold, int capacity, DatabaseClock clock) {
+    this.cold = cold;
+    this.capacity = capacity;
+    this.clock = clock;
+    this.sketch = new FrequencySketch(capacity);
+  }
+
+  @Override
+  public synchronized int size() {
+    return hot.size() + cold.size();
+  }
+
+  @Override
+  public synchronized boolean isEmpty() {
+    return hot.isEmpty() && cold.isEmpty();
+  }
+
+  @Override
+  public synchronized boolean containsKey(DatabaseKey key) {
+    return hot.containsKey(key) || cold.containsKey(key);
+  }
+
+  @Override
+  public synchronized DatabaseValue get(DatabaseKey key) {
+    sketch.increment(key);
+    DatabaseValue value = hot.get(key);
+    if (value != null) {
+      if (!value.isExpired(clock.millis())) {
+        return value;
+      }
+      hot.remove(key);
+      return null;
+    }
+    value = cold.get(key);
+    if (value != null && admit(key)) {
+      cold.delete(key);
+      hot.put(key, value);
+      promotions++;
+    }
+    return value;
+  }
+
+  @Override
+  public synchronized DatabaseValue put(DatabaseKey key, DatabaseValue value) {
+    sketch.increment(key);
+    if (hot.containsKey(key)) {
+      return hot.put(key, value);
+    }
+    if (admit(key)) {
+      DatabaseValue oldValue = cold.remove(key);
+      hot.put(key, value);
+      return oldValue;
+    }
+    return cold.put(key, value);
+  }
+
+  @Override
+  public synchronized DatabaseValue remove(DatabaseKey key) {
+    DatabaseValue value = hot.remove(key);
+    return value != null ? value : cold.remove(key);
+  }
+
+  @Override
+  public synchronized boolean delete(DatabaseKey key) {
+    return hot.remove(key) != null || cold.delete(key);
+  }
+
+  @Override
+  public synchronized boolean unlink(DatabaseKey key, LazyFree lazyFree) {
+    return hot.remove(key) != null || cold.unlink(key, lazyFree);
+  }
+
+  @Override
+  public synchronized void clear() {
+    hot.clear();
+    cold.clear();
+  }
+
+  @Override
+  public synchronized ImmutableSet<DatabaseKey> keySet() {
+    return ImmutableSet.from(hot.keySet()).appendAll(cold.keySet());
+  }
+
+  @Override
+  public synchronized Sequence<DatabaseValue> values() {
+    List<DatabaseValue> values = new ArrayList<>(hot.values());
+    cold.values().forEach(values::add);
+    return ImmutableList.from(values);
+  }
+
+  @Override
+  public synchronized ImmutableSet<Tuple2<DatabaseKey, DatabaseValue>> entrySet() {
+    return ImmutableSet.from(hot.entrySet()).map(Tuple::from).appendAll(cold.entrySet());
+  }
+
+  public synchronized int getHotSize() {
+    return hot.size();
+  }
+
+  public synchronized long getPromotions() {
+    return promotions;
+  }
+
+  public synchronized long getDemotions() {
+    return demotions;
+  }
+
+  /**
+   * makes room in the hot tier for the key, if it is accessed more often than the victim
+   */
+  private boolean admit(DatabaseKey key) {
+    if (hot.size() < capacity) {
+      return true;
+    }
+    Iterator<Map.Entry<DatabaseKey, DatabaseValue>> iterator = hot.entrySet().iterator();
+    Map.Entry<DatabaseKey, DatabaseValue> victim = iterator.next();
+    if (sketch.frequency(key) <= sketch.frequency(victim.getKey())) {
+      return false;
+    }
+    iterator.remove();
+    cold.put(victim.getKey(), victim.getValue());
+    demotions++;
+    return true;
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+public class TieredDatabaseFactory implements DatabaseFactory {
+
+  private final DatabaseFactory cold;
+  private final int hotKeys;
+  private final DatabaseClock clock;
+
+  public TieredDatabaseFactory(DatabaseFactory cold, int hotKeys) {
+    this(cold, hotKeys, DatabaseClock.system());
+  }
+
+  public TieredDatabaseFactory(DatabaseFactory cold, int hotKeys, DatabaseClock clock) {
+    this.cold = cold;
+    this.hotKeys = hotKeys;
+    this.clock = clock;
+  }
+
+  @Override
+  public Database create(String name) {
+    return new TieredDatabase(cold.create(name), hotKeys, clock);
+  }
+
+  @Override
+  public void clear() {
+    cold.clear();
+  }
+
+  @Override
+  public boolean isLazyFree() {
+    return cold.isLazyFree();
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.github.tonivade.purefun.Tuple;
+import com.github.tonivade.purefun.Tuple2;
+import com.github.tonivade.purefun.data.ImmutableSet;
+import com.github.tonivade.purefun.data.Sequence;
+import com.github.tonivade.purefun.type.Option;
+
+/**
+ * Keeps the keys modified or removed since the last call to {@link #delta()}.
+ *
+ * When the whole database is cleared, flushed or swapped the keys are not walked, the database
+ * is marked as reset and the next delta has all its entries.
+ */
+public class TrackedDatabase implements Database {
+
+  private volatile Database database;
+  private volatile boolean reset;
+  private final Set<DatabaseKey> dirty = ConcurrentHashMap.newKeySet();
+
+  public TrackedDatabase(Database database) {
+    this.database = database;
+  }
+
+  /**
+   * Returns the current value of every dirty key, none if the key has been removed, or every
+   * entry if the database has been reset, and it starts tracking again from scratch.
+   */
+  public Delta delta() {
+    if (reset) {
+      reset = false;
+      dirty.clear();
+      return new Delta(true, ImmutableSet.from(database.entrySet().stream()
+          .map(entry -> Tuple.of(entry.get1(), Option.some(entry.get2())))
+          .collect(toList())));
+    }
+    List<Tuple2<DatabaseKey, Option<DatabaseValue>>> delta = new ArrayList<>();
+    for (DatabaseKey key : dirty) {
+      dirty.remove(key);
+      delta.add(Tuple.of(key, Option.of(database.get(key))));
+    }
+    return new Delta(false, ImmutableSet.from(delta));
+  }
+
+  /**
+   * Replaces the database by the given one, and the current one is returned, it is not tracked
+   * anymore so it can be cleared later.
+   */
+  public Database replace(Database empty) {
+    Database current = database;
+    database = empty;
+    reset = true;
+    return current;
+  }
+
+  /**
+   * Swaps the databases of both, both are reset.
+   */
+  public void swap(TrackedDatabase other) {
+    Database database = this.database;
+    this.database = other.database;
+    other.database = database;
+    this.reset = true;
+    other.reset = true;
+  }
+
+  @Override
+  public int size() {
+    return database.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return database.isEmpty();
+  }
+
+  @Override
+  public boolean containsKey(DatabaseKey key) {
+    return database.containsKey(key);
+  }
+
+  @Override
+  public DatabaseValue get(DatabaseKey key) {
+    return database.get(key);
+  }
+
+  @Override
+  public DatabaseValue put(DatabaseKey key, DatabaseValue value) {
+    dirty.add(key);
+    return database.put(key, value);
+  }
+
+  @Override
+  public DatabaseValue remove(DatabaseKey key) {
+    DatabaseValue value = database.remove(key);
+    if (value != null) {
+      dirty.add(key);
+    }
+    return value;
+  }
+
+  @Override
+  public boolean delete(DatabaseKey key) {
+    boolean removed = database.delete(key);
+    if (removed) {
+      dirty.add(key);
+    }
+    return removed;
+  }
+
+  @Override
+  public boolean unlink(DatabaseKey key, LazyFree lazyFree) {
+    boolean removed = database.unlink(key, lazyFree);
+    if (removed) {
+      dirty.add(key);
+    }
+    return removed;
+  }
+
+  @Override
+  public void clear() {
+    reset = true;
+    database.clear();
+  }
+
+  @Override
+  public ImmutableSet<DatabaseKey> keySet() {
+    return database.keySet();
+  }
+
+  @Override
+  public Sequence<DatabaseValue> values() {
+    return database.values();
+  }
+
+  @Override
+  public ImmutableSet<Tuple2<DatabaseKey, DatabaseValue>> entrySet() {
+    return database.entrySet();
+  }
+
+  @Override
+  public DatabaseSnapshot snapshot() {
+    return database.snapshot();
+  }
+
+  @Override
+  public ImmutableSet<DatabaseKey> evictableKeys(long nowMillis) {
+    return database.evictableKeys(nowMillis);
+  }
+
+  /**
+   * The changes of a database since the last delta. When it is reset, the keys that are not in
+   * the entries are removed.
+   */
+  public static final class Delta {
+
+    private static final Delta EMPTY = new Delta(false, ImmutableSet.empty());
+
+    private final boolean reset;
+    private final ImmutableSet<Tuple2<DatabaseKey, Option<DatabaseValue>>> entries;
+
+    public Delta(boolean reset, ImmutableSet<Tuple2<DatabaseKey, Option<DatabaseValue>>> entries) {
+      this.reset = reset;
+      this.entries = requireNonNull(entries);
+    }
+
+    public static Delta empty() {
+      return EMPTY;
+    }
+
+    public boolean isReset() {
+      return reset;
+    }
+
+    public ImmutableSet<Tuple2<DatabaseKey, Option<DatabaseValue>>> getEntries() {
+      return entries;
+    }
+
+    public boolean isEmpty() {
+      return !reset && entries.isEmpty();
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(reset, entries);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Delta)) {
+        return false;
+      }
+      Delta other = (Delta) obj;
+      return reset == other.reset && entries.equals(other.entries);
+    }
+
+    @Override
+    public String toString() {
+      return "Delta(reset=" + reset + ", entries=" + entries + ")";
+    }
+  }
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.tonivade.purefun.Tuple;
+import com.github.tonivade.purefun.Tuple2;
+import com.github.tonivade.purefun.data.ImmutableList;
+import com.github.tonivade.purefun.data.ImmutableSet;
+import com.github.tonivade.purefun.data.Sequence;
+
+/**
+ * Database that takes a snapshot without copying the keys. When a snapshot is taken the
+ * database stops writing to the wrapped one, the writes go to a new layer in memory, with
+ * the removed keys marked, and the reads look first in the layers. So the wrapped database
+ * does not change and the snapshot reads it later with {@link Database#scan()}, in other thread,
+ * with the layers that were already there.
+ *
+ * When all the snapshots are closed, every write moves some keys of the oldest layer to the
+ * wrapped database, until there are no layers. The keys written while a snapshot is open are
+ * kept in memory until then.
+ *
+ * Like the other databases, it is written by a single thread at the same time.
+ */
+public class VersionedDatabase implements Database {
+
+  private static final int FOLD_STEP = 16;
+  private static final DatabaseValue REMOVED = DatabaseValue.string("removed");
+
+  private final Database database;
+  private final DatabaseClock clock;
+
+  // newest first, only the first one is written, and only when there are layers
+  private volatile List<Layer> layers = Collections.emptyList();
+  // difference between the size of the wrapped database and the size of this one
+  private volatile int delta;
+
+  private final AtomicInteger snapshots = new AtomicInteger();
+
+  public VersionedDatabase(Database database) {
+    this(database, DatabaseClock.system());
+  }
+
+  public VersionedDatabase(Database database, DatabaseClock clock) {
+    this.database = database;
+    this.clock = clock;
+  }
+
+  @Override
+  public int size() {
+    return database.size() + delta;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public boolean containsKey(DatabaseKey key) {
+    return layers.isEmpty() ? database.containsKey(key) : get(key) != null;
+  }
+
+  @Override
+  public DatabaseValue get(DatabaseKey key) {
+    for (Layer layer : layers) {
+      DatabaseValue value = layer.entries.get(key);
+      if (value != null) {
+        return value == REMOVED || value.isExpired(clock.millis()) ? null : value;
+      }
+      if (layer.cleared) {
+        return null;
+      }
+    }
+    return database.get(key);
+  }
+
+  @Override
+  public DatabaseValue put(DatabaseKey key, DatabaseValue value) {
+    if (layers.isEmpty()) {
+      return database.put(key, value);
+    }
+    DatabaseValue previous = get(key);
+    layers.get(0).entries.put(key, value);
+    if (previous == null) {
+      delta++;
+    }
+    fold();
+    return previous;
+  }
+
+  @Override
+  public DatabaseValue remove(DatabaseKey key) {
+    if (layers.isEmpty()) {
+      return database.remove(key);
+    }
+    DatabaseValue previous = get(key);
+    layers.get(0).entries.put(key, REMOVED);
+    if (previous != null) {
+      delta--;
+    }
+    fold();
+    return previous;
+  }
+
+  @Override
+  public boolean delete(DatabaseKey key) {
+    return layers.isEmpty() ? database.delete(key) : remove(key) != null;
+  }
+
+  @Override
+  public boolean unlink(DatabaseKey key, LazyFree lazyFree) {
+    return layers.isEmpty() ? database.unlink(key, lazyFree) : remove(key) != null;
+  }
+
+  /**
+   * with an open snapshot the wrapped database is hidden by an empty layer, it is cleared
+   * when the layer is moved to it
+   */
+  @Override
+  public synchronized void clear() {
+    if (snapshots.get() > 0) {
+      layers = Collections.singletonList(new Layer(true));
+      delta = -database.size();
+    } else {
+      layers = Collections.emptyList();
+      delta = 0;
+      database.clear();
+    }
+  }
+
+  @Override
+  public ImmutableSet<DatabaseKey> keySet() {
+    return layers.isEmpty() ? database.keySet() : entrySet().map(Tuple2::get1);
+  }
+
+  @Override
+  public Sequence<DatabaseValue> values() {
+    return layers.isEmpty() ? database.values() : ImmutableList.from(entrySet().map(Tuple2::get2));
+  }
+
+  @Override
+  public ImmutableSet<Tuple2<DatabaseKey, DatabaseValue>> entrySet() {
+    List<Layer> current = layers;
+    if (current.isEmpty()) {
+      return database.entrySet();
+    }
+    Map<DatabaseKey, DatabaseValue> entries = new HashMap<>();
+    int last = 0;
+    while (last < current.size() - 1 && !current.get(last).cleared) {
+      last++;
+    }
+    if (!current.get(last).cleared) {
+      database.entrySet().forEach(entry -> entries.put(entry.get1(), entry.get2()));
+    }
+    for (int i = last; i >= 0; i--) {
+      current.get(i).entries.forEach((key, value) -> {
+        if (value == REMOVED) {
+          entries.remove(key);
+        } else {
+          entries.put(key, value);
+        }
+      });
+    }
+    return ImmutableSet.from(entries.entrySet()).map(Tuple::from);
+  }
+
+  @Override
+  public ImmutableSet<DatabaseKey> evictableKeys(long nowMillis) {
+    if (layers.isEmpty()) {
+      return database.evictableKeys(nowMillis);
+    }
+    return entrySet().filter(entry -> entry.get2().isExpired(nowMillis)).map(Tuple2::get1);
+  }
+
+  /**
+   * Only adds a new layer, it must be taken while the database is not written. The wrapped
+   * database is read when the snapshot is iterated, so it does not copy anything.
+   */
+  @Override
+  public synchronized DatabaseSnapshot snapshot() {
+    snapshots.incrementAndGet();
+    List<Layer> frozen = layers;
+    List<Layer> next = new ArrayList<>(frozen.size() + 1);
+    next.add(new Layer(false));
+    next.addAll(frozen);
+    layers = Collections.unmodifiableList(next);
+    return new Snapshot(frozen);
+  }
+
+  /**
+   * the number of layers not moved yet to the wrapped database
+   */
+  public int layers() {
+    return layers.size();
+  }
+
+  /**
+   * Moves some keys of the oldest layer to the wrapped database, if there are no open
+   * snapshots. The key is written to the wrapped database before it is removed from the layer,
+   * so a concurrent read finds the same value in both.
+   */
+  private void fold() {
+    if (snapshots.get() > 0) {
+      return;
+    }
+    synchronized (this) {
+      List<Layer> current = layers;
+      if (current.isEmpty() || snapshots.get() > 0) {
+        return;
+      }
+      Layer oldest = current.get(current.size() - 1);
+      if (oldest.cleared) {
+        int size = database.size();
+        database.clear();
+        delta += size;
+        List<Layer> next = new ArrayList<>(current);
+        next.set(next.size() - 1, new Layer(false, oldest.entries));
+        layers = Collections.unmodifiableList(next);
+        return;
+      }
+      Iterator<Map.Entry<DatabaseKey, DatabaseValue>> iterator = oldest.entries.entrySet().iterator();
+      for (int i = 0; i < FOLD_STEP && iterator.hasNext(); i++) {
+        Map.Entry<DatabaseKey, DatabaseValue> entry = iterator.next();
+        DatabaseKey key = entry.getKey();
+        DatabaseValue value = entry.getValue();
+        // the size of this database does not change, only the size of the wrapped one
+        int size = database.size();
+        if (value == REMOVED) {
+          database.delete(key);
+        } else {
+          database.put(key, value);
+        }
+        delta -= database.size() - size;
+        oldest.entries.remove(key, value);
+      }
+      if (oldest.entries.isEmpty()) {
+        List<Layer> next = new ArrayList<>(current.subList(0, current.size() - 1));
+        layers = Collections.unmodifiableList(next);
+        if (next.isEmpty()) {
+          delta = 0;
+        }
+      }
+    }
+  }
+
+  private static final class Layer {
+
+    private final Map<DatabaseKey, DatabaseValue> entries;
+    // the keys of the older layers and the wrapped database are removed
+    private final boolean cleared;
+
+    private Layer(boolean cleared) {
+      this(cleared, new ConcurrentHashMap<>());
+    }
+
+    private Layer(boolean cleared, Map<DatabaseKey, DatabaseValue> entries) {
+      this.cleared = cleared;
+      this.entries = entries;
+    }
+  }
+
+  /**
+   * The layers before the snapshot, from the newest to the oldest, and then the wrapped
+   * database, a key is read from the first one that has it.
+   */
+  private final class Snapshot implements DatabaseSnapshot {
+
+    private final List<Layer> frozen;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final List<DatabaseSnapshot> scans = new ArrayList<>();
+
+    private Snapshot(List<Layer> frozen) {
+      this.frozen = frozen;
+    }
+
+    @Override
+    public Iterator<Tuple2<DatabaseKey, DatabaseValue>> iterator() {
+      List<Iterator<Tuple2<DatabaseKey, DatabaseValue>>> sources = new ArrayList<>();
+      boolean cleared = false;
+      for (int i = 0; i < frozen.size() && !cleared; i++) {
+        Layer layer = frozen.get(i);
+        List<Layer> newer = frozen.subList(0, i);
+        sources.add(visible(layer.entries.entrySet().stream()
+            .filter(entry -> entry.getValue() != REMOVED)
+            .map(Tuple::from).iterator(), newer));
+        cleared = layer.cleared;
+      }
+      if (!cleared) {
+        DatabaseSnapshot scan = database.scan();
+        synchronized (scans) {
+          scans.add(scan);
+        }
+        sources.add(visible(scan.iterator(), frozen));
+      }
+      return concat(sources);
+    }
+
+    @Override
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        synchronized (scans) {
+          scans.forEach(DatabaseSnapshot::close);
+        }
+        snapshots.decrementAndGet();
+      }
+    }
+  }
+
+  private static Iterator<Tuple2<DatabaseKey, DatabaseValue>> visible(
+      Iterator<Tuple2<DatabaseKey, DatabaseValue>> entries, List<Layer> newer) {
+    if (newer.isEmpty()) {
+      return entries;
+    }
+    return new Iterator<Tuple2<DatabaseKey, DatabaseValue>>() {
+      private Tuple2<DatabaseKey, DatabaseValue> next = advance();
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public Tuple2<DatabaseKey, DatabaseValue> next() {
+        if (next == null) {
+          throw new NoSuchElementException();
+        }
+        Tuple2<DatabaseKey, DatabaseValue> current = next;
+        next = advance();
+        return current;
+      }
+
+      private Tuple2<DatabaseKey, DatabaseValue> advance() {
+        while (entries.hasNext()) {
+          Tuple2<DatabaseKey, DatabaseValue> entry = entries.next();
+          if (newer.stream().noneMatch(layer -> layer.entries.containsKey(entry.get1()))) {
+            return entry;
+          }
+        }
+        return null;
+      }
+    };
+  }
+
+  private static <T> Iterator<T> concat(List<Iterator<T>> iterators) {
+    Iterator<Iterator<T>> current = iterators.iterator();
+    return new Iterator<T>() {
+      private Iterator<T> entries = Collections.emptyIterator();
+
+      @Override
+      public boolean hasNext() {
+        while (!entries.hasNext() && current.hasNext()) {
+          entries = current.next();
+        }
+        return entries.hasNext();
+      }
+
+      @Override
+      public T next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return entries.next();
+      }
+    };
+  }
+}
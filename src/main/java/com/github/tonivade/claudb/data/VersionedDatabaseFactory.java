@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+/**
+ * Wraps the databases of other factory in a {@link VersionedDatabase}, so a snapshot does not
+ * copy the keys.
+ */
+public class VersionedDatabaseFactory implements DatabaseFactory {
+
+  private final DatabaseFactory factory;
+  private final DatabaseClock clock;
+
+  public VersionedDatabaseFactory(DatabaseFactory factory) {
+    this(factory, DatabaseClock.system());
+  }
+
+  public VersionedDatabaseFactory(DatabaseFactory factory, DatabaseClock clock) {
+    this.factory = factory;
+    this.clock = clock;
+  }
+
+  @Override
+  public Database create(String name) {
+    return new VersionedDatabase(factory.create(name), clock);
+  }
+
+  @Override
+  public void clear() {
+    factory.clear();
+  }
+
+  @Override
+  public boolean isLazyFree() {
+    return factory.isLazyFree();
+  }
+
+  @Override
+  public boolean isConcurrent() {
+    return factory.isConcurrent();
+  }
+
+  @Override
+  public boolean isVersioned() {
+    return true;
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.persistence;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.resp.protocol.RedisToken.array;
+import static com.github.tonivade.resp.protocol.RedisToken.string;
+
+import java.io.EOFException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.tonivade.claudb.DBServerContext;
+import com.github.tonivade.claudb.command.DBCommandProcessor;
+import com.github.tonivade.claudb.data.DatabaseKey;
+import com.github.tonivade.claudb.data.DatabaseValue;
+import com.github.tonivade.purefun.data.ImmutableMap;
+import com.github.tonivade.resp.protocol.AbstractRedisToken.ArrayRedisToken;
+import com.github.tonivade.resp.protocol.AbstractRedisToken.StringRedisToken;
+import com.github.tonivade.resp.protocol.RedisParser;
+import com.github.tonivade.resp.protocol.RedisToken;
+import com.github.tonivade.resp.protocol.RedisTokenType;
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Replays the commands stored in the AOF file.
+ *
+ * Plain SET commands (the most common ones, and the ones generated by a rewrite for strings)
+ * are written directly to the database in batches, the rest of commands are executed as usual,
+ * and the database is only selected again when it changes.
+ *
+ * If the file ends in the middle of a command, that command is ignored and the offset where it
+ * starts is kept, so the file can be truncated there before appending new commands.
+ */
+class AOFLoader {
+
+  private static final int BATCH_SIZE = 1024;
+  private static final int SET_LENGTH = 4;
+
+  private final DBServerContext server;
+  private final DBCommandProcessor processor;
+  private final Map<DatabaseKey, DatabaseValue> batch = new HashMap<>();
+
+  private SafeString batchDb;
+  private SafeString selectedDb;
+  private long commands;
+  private long truncated = -1;
+
+  AOFLoader(DBServerContext server, DBCommandProcessor processor) {
+    this.server = server;
+    this.processor = processor;
+  }
+
+  long load(AOFReader reader) {
+    load(reader, null);
+    return commands;
+  }
+
+  /**
+   * Replays the commands until the given token, the tokens that are not commands of a database
+   * (like the marks between the blocks of the delta file) are skipped.
+   *
+   * @return true if the given token is found
+   */
+  boolean load(AOFReader reader, RedisToken end) {
+    RedisParser parser = new RedisParser(PersistenceManager.MAX_FRAME_SIZE, reader);
+    try {
+      while (true) {
+        long position = reader.position();
+        RedisToken token = next(parser);
+        if (token == null || isIncomplete(token, reader)) {
+          truncated = position;
+          return false;
+        }
+        if (token.getType() == RedisTokenType.UNKNOWN) {
+          return false;
+        }
+        if (token.equals(end)) {
+          return true;
+        }
+        List<RedisToken> command = ((ArrayRedisToken) token).getValue().asList().toList();
+        if (isCommand(command)) {
+          apply(command);
+          commands++;
+        }
+      }
+    } finally {
+      flush();
+    }
+  }
+
+  long getCommands() {
+    return commands;
+  }
+
+  /**
+   * @return the offset of the incomplete command at the end of the file, or -1 if there is not
+   */
+  long getTruncated() {
+    return truncated;
+  }
+
+  private static RedisToken next(RedisParser parser) {
+    try {
+      return parser.next();
+    } catch (UncheckedIOException e) {
+      if (e.getCause() instanceof EOFException) {
+        return null;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * the parser returns unknown tokens for the elements missing at the end of the file
+   */
+  private static boolean isIncomplete(RedisToken token, AOFReader reader) {
+    return token.getType() == RedisTokenType.ARRAY && reader.available() == 0
+        && ((ArrayRedisToken) token).getValue().stream()
+            .anyMatch(element -> element.getType() == RedisTokenType.UNKNOWN);
+  }
+
+  private void apply(List<RedisToken> command) {
+    SafeString db = value(command.get(0));
+    if (isPlainSet(command)) {
+      if (!db.equals(batchDb)) {
+        flush();
+        batchDb = db;
+      }
+      batch.put(safeKey(value(command.get(2))), DatabaseValue.string(value(command.get(3))));
+      if (batch.size() >= BATCH_SIZE) {
+        flush();
+      }
+    } else {
+      flush();
+      select(db);
+      processor.processCommand((ArrayRedisToken) array(command.subList(1, command.size())));
+    }
+  }
+
+  private void flush() {
+    if (!batch.isEmpty()) {
+      server.getDatabase(Integer.parseInt(batchDb.toString())).putAll(ImmutableMap.from(batch));
+      batch.clear();
+    }
+  }
+
+  private void select(SafeString db) {
+    if (!db.equals(selectedDb)) {
+      processor.processCommand((ArrayRedisToken) array(string("select"), string(db)));
+      selectedDb = db;
+    }
+  }
+
+  private static boolean isCommand(List<RedisToken> command) {
+    if (command.size() < 2 || command.get(0).getType() != RedisTokenType.STRING) {
+      return false;
+    }
+    String db = value(command.get(0)).toString();
+    return !db.isEmpty() && db.chars().allMatch(Character::isDigit);
+  }
+
+  private static boolean isPlainSet(List<RedisToken> command) {
+    return command.size() == SET_LENGTH && value(command.get(1)).toString().equalsIgnoreCase("set");
+  }
+
+  private static SafeString value(RedisToken token) {
+    return ((StringRedisToken) token).getValue();
+  }
+}
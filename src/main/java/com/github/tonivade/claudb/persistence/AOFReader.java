@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.persistence;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.github.tonivade.resp.protocol.RedisSource;
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Reads the AOF file through a memory mapped window that moves along the file, so the RESP
+ * parser reads the frames directly from the page cache instead of doing a read per byte.
+ */
+public class AOFReader implements RedisSource, Closeable {
+
+  private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+  private static final int CRLF = 2;
+
+  private final FileChannel channel;
+  private final long size;
+  private final long windowSize;
+
+  private long offset;
+  private ByteBuffer buffer;
+
+  public AOFReader(File file) throws IOException {
+    this(file, WINDOW_SIZE);
+  }
+
+  AOFReader(File file, long windowSize) throws IOException {
+    this.channel = FileChannel.open(file.toPath(), READ);
+    this.size = channel.size();
+    this.windowSize = windowSize;
+    map(0, windowSize);
+  }
+
+  public long size() {
+    return size;
+  }
+
+  public long position() {
+    return offset + buffer.position();
+  }
+
+  public boolean startsWith(byte[] prefix) {
+    if (buffer.remaining() < prefix.length && offset + buffer.limit() < size) {
+      map(position(), Math.max(windowSize, prefix.length));
+    }
+    if (buffer.remaining() < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (buffer.get(buffer.position() + i) != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * the returned stream shares the position with this reader
+   */
+  public InputStream asInputStream() {
+    return new InputStream() {
+      @Override
+      public int read() {
+        if (!buffer.hasRemaining() && !remap()) {
+          return -1;
+        }
+        return buffer.get() & 0xFF;
+      }
+
+      @Override
+      public int read(byte[] bytes, int off, int len) {
+        if (len == 0) {
+          return 0;
+        }
+        int readed = AOFReader.this.read(bytes, off, len);
+        return readed > 0 ? readed : -1;
+      }
+
+      @Override
+      public int available() {
+        return AOFReader.this.available();
+      }
+    };
+  }
+
+  @Override
+  public int available() {
+    return (int) Math.min(Integer.MAX_VALUE, size - position());
+  }
+
+  @Override
+  public SafeString readLine() {
+    int end = lineEnd();
+    for (long length = windowSize; end < 0 && offset + buffer.limit() < size; length *= 2) {
+      // the line crosses the end of the window
+      map(position(), length);
+      end = lineEnd();
+    }
+    if (end < 0) {
+      if (buffer.hasRemaining()) {
+        throw torn("line without CRLF");
+      }
+      // end of stream
+      return new SafeString(new byte[0]);
+    }
+    byte[] bytes = new byte[end - buffer.position()];
+    buffer.get(bytes);
+    buffer.position(end + CRLF);
+    return new SafeString(bytes);
+  }
+
+  @Override
+  public SafeString readString(int length) {
+    byte[] bytes = new byte[length];
+    int readed = read(bytes, 0, length);
+    if (readed < length || skip(CRLF) < CRLF) {
+      throw torn("bulk string of " + length + " bytes");
+    }
+    return new SafeString(ByteBuffer.wrap(bytes));
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private int read(byte[] bytes, int off, int len) {
+    int readed = 0;
+    while (readed < len) {
+      if (!buffer.hasRemaining() && !remap()) {
+        break;
+      }
+      int chunk = Math.min(buffer.remaining(), len - readed);
+      buffer.get(bytes, off + readed, chunk);
+      readed += chunk;
+    }
+    return readed;
+  }
+
+  private int skip(int bytes) {
+    int skipped = 0;
+    for (; skipped < bytes; skipped++) {
+      if (!buffer.hasRemaining() && !remap()) {
+        break;
+      }
+      buffer.get();
+    }
+    return skipped;
+  }
+
+  /**
+   * the file ends in the middle of a frame, usually because the server stopped while it was
+   * writing the last command
+   */
+  private static UncheckedIOException torn(String what) {
+    return new UncheckedIOException(new EOFException("unexpected end of file reading a " + what));
+  }
+
+  private int lineEnd() {
+    for (int i = buffer.position(); i < buffer.limit() - 1; i++) {
+      if (buffer.get(i) == '\r' && buffer.get(i + 1) == '\n') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private boolean remap() {
+    if (offset + buffer.limit() < size) {
+      map(position(), windowSize);
+      return true;
+    }
+    return false;
+  }
+
+  private void map(long position, long length) {
+    try {
+      offset = position;
+      buffer = channel.map(READ_ONLY, position, Math.min(length, size - position));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
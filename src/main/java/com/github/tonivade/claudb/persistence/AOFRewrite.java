@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.persistence;
+
+import static com.github.tonivade.resp.protocol.RedisToken.array;
+import static com.github.tonivade.resp.protocol.RedisToken.string;
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.github.tonivade.claudb.data.DatabaseKey;
+import com.github.tonivade.claudb.data.DatabaseSnapshot;
+import com.github.tonivade.claudb.data.DatabaseValue;
+import com.github.tonivade.claudb.data.TrackedDatabase.Delta;
+import com.github.tonivade.purefun.Tuple2;
+import com.github.tonivade.purefun.data.ImmutableList;
+import com.github.tonivade.purefun.type.Option;
+import com.github.tonivade.resp.protocol.RedisToken;
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Writes the minimal set of commands needed to rebuild a snapshot of the databases, or
+ * a RDB preamble with the whole snapshot.
+ */
+public class AOFRewrite {
+
+  private static final int ITEMS_PER_COMMAND = 64;
+  private static final int RDB_VERSION = 6;
+
+  private final RespWriter output;
+
+  public AOFRewrite(RespWriter output) {
+    this.output = output;
+  }
+
+  public static void preamble(OutputStream output, ImmutableList<DatabaseSnapshot> snapshot)
+      throws IOException {
+    RDBOutputStream rdb = new RDBOutputStream(output);
+    rdb.preamble(RDB_VERSION);
+    rdb.databases(snapshot);
+    rdb.end();
+  }
+
+  public void database(int db, Iterable<Tuple2<DatabaseKey, DatabaseValue>> entries, long nowMillis)
+      throws IOException {
+    SafeString select = safeString(String.valueOf(db));
+    for (Tuple2<DatabaseKey, DatabaseValue> entry : entries) {
+      DatabaseValue value = entry.get2();
+      if (!value.isExpired(nowMillis)) {
+        value(select, entry.get1().getValue(), value);
+      }
+    }
+  }
+
+  /**
+   * Writes the commands needed to update the given keys, every key is deleted first and then
+   * it is created again with the new value, if it still exists. If the database was reset, it
+   * is flushed first instead.
+   */
+  public void delta(int db, Delta delta, long nowMillis) throws IOException {
+    SafeString select = safeString(String.valueOf(db));
+    if (delta.isReset()) {
+      output.write(array(string(select), string("flushdb")));
+    }
+    for (Tuple2<DatabaseKey, Option<DatabaseValue>> entry : delta.getEntries()) {
+      SafeString key = entry.get1().getValue();
+      if (!delta.isReset()) {
+        output.write(array(string(select), string("del"), string(key)));
+      }
+      Option<DatabaseValue> value = entry.get2();
+      if (value.isPresent() && !value.get().isExpired(nowMillis)) {
+        value(select, key, value.get());
+      }
+    }
+  }
+
+  private void value(SafeString db, SafeString key, DatabaseValue value) throws IOException {
+    switch (value.getType()) {
+    case STRING:
+      command(db, "set", key, value.getString());
+      break;
+    case LIST:
+      items(db, "rpush", key, value.getList());
+      break;
+    case SET:
+      items(db, "sadd", key, value.getSet());
+      break;
+    case HASH:
+      hash(db, key, value);
+      break;
+    case ZSET:
+      zset(db, key, value);
+      break;
+    default:
+      break;
+    }
+    if (value.getExpiredAt() != null) {
+      command(db, "pexpireat", key, safeString(String.valueOf(value.getExpiredAt().toEpochMilli())));
+    }
+  }
+
+  private void items(SafeString db, String command, SafeString key, Iterable<SafeString> items)
+      throws IOException {
+    List<SafeString> params = new ArrayList<>(ITEMS_PER_COMMAND);
+    for (SafeString item : items) {
+      params.add(item);
+      if (params.size() == ITEMS_PER_COMMAND) {
+        command(db, command, key, params);
+        params.clear();
+      }
+    }
+    if (!params.isEmpty()) {
+      command(db, command, key, params);
+    }
+  }
+
+  private void hash(SafeString db, SafeString key, DatabaseValue value) throws IOException {
+    List<SafeString> params = new ArrayList<>(ITEMS_PER_COMMAND * 2);
+    for (Map.Entry<SafeString, SafeString> entry : value.getHash().toMap().entrySet()) {
+      params.add(entry.getKey());
+      params.add(entry.getValue());
+      if (params.size() == ITEMS_PER_COMMAND * 2) {
+        command(db, "hmset", key, params);
+        params.clear();
+      }
+    }
+    if (!params.isEmpty()) {
+      command(db, "hmset", key, params);
+    }
+  }
+
+  private void zset(SafeString db, SafeString key, DatabaseValue value) throws IOException {
+    List<SafeString> params = new ArrayList<>(ITEMS_PER_COMMAND * 2);
+    for (Map.Entry<Double, SafeString> entry : value.getSortedSet()) {
+      params.add(safeString(String.valueOf(entry.getKey())));
+      params.add(entry.getValue());
+      if (params.size() == ITEMS_PER_COMMAND * 2) {
+        command(db, "zadd", key, params);
+        params.clear();
+      }
+    }
+    if (!params.isEmpty()) {
+      command(db, "zadd", key, params);
+    }
+  }
+
+  private void command(SafeString db, String command, SafeString key, SafeString param) throws IOException {
+    output.write(array(string(db), string(command), string(key), string(param)));
+  }
+
+  private void command(SafeString db, String command, SafeString key, List<SafeString> params)
+      throws IOException {
+    List<RedisToken> tokens = new ArrayList<>(params.size() + 3);
+    tokens.add(string(db));
+    tokens.add(string(command));
+    tokens.add(string(key));
+    for (SafeString param : params) {
+      tokens.add(string(param));
+    }
+    output.write(array(tokens));
+  }
+}
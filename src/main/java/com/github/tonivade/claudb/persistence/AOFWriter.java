@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.persistence;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.tonivade.resp.protocol.RedisToken;
+
+/**
+ * Appends commands to the AOF file in batches from a dedicated thread.
+ *
+ * Commands are queued without locking and the writer thread drains the queue, encodes every
+ * pending command into a single buffer and writes it with one call to the file channel
+ * (group commit). The fsync policy is applied after each batch, and with the always policy
+ * {@link #sync()} gives a future completed when the commands appended before are forced, so
+ * the replies can wait for it.
+ *
+ * While a rewrite is in progress the commands are also kept in memory, and they are appended
+ * to the rewritten file before it replaces the current one.
+ *
+ * If a batch fails the commands are kept, the syncs fail until the writer recovers, and the
+ * next batch reopens the file, truncates it to the end of the last batch written and writes
+ * them again. The error is cleared once the batch is written and forced.
+ */
+public class AOFWriter implements Runnable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AOFWriter.class);
+
+  private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+  private static final long EVERYSEC_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private static final RedisToken REWRITE_MARK = RedisToken.status("rewrite");
+
+  private final Queue<RedisToken> queue = new ConcurrentLinkedQueue<>();
+  private final Queue<Sync> syncs = new ConcurrentLinkedQueue<>();
+  // every command is counted before it is queued, so once the writer has taken as many
+  // commands as were counted when a sync is asked, the commands queued before are taken
+  private final AtomicLong queued = new AtomicLong();
+
+  private final File file;
+  private final AppendFsync fsync;
+  private final PersistenceStats stats;
+  private final Thread thread;
+
+  private volatile boolean running = true;
+  private volatile long forced;
+  private volatile IOException failure;
+
+  private final ChannelOpener opener;
+  // commands taken from the queue but not written yet, because the batch failed
+  private final List<RedisToken> pending = new ArrayList<>();
+
+  private RespWriter output;
+  // length of the file with the last batch written without errors
+  private long length;
+  private List<RedisToken> rewriteBuffer;
+  private long lastFsync = System.nanoTime();
+  private boolean dirty;
+  private long taken;
+
+  public AOFWriter(File file, AppendFsync fsync, PersistenceStats stats) throws IOException {
+    this(file, fsync, stats, AOFWriter::open);
+  }
+
+  AOFWriter(File file, AppendFsync fsync, PersistenceStats stats, ChannelOpener opener) throws IOException {
+    this.file = file;
+    this.fsync = fsync;
+    this.stats = stats;
+    this.opener = opener;
+    this.output = new RespWriter(opener.open(file));
+    this.length = file.length();
+    this.stats.opened(length);
+    this.thread = new Thread(this, "aof-writer");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  public void append(RedisToken command) {
+    queued.incrementAndGet();
+    queue.offer(command);
+    stats.queued();
+    LockSupport.unpark(thread);
+  }
+
+  /**
+   * @return a future completed when all the commands appended before are forced to disk, with
+   * the always policy, or an already completed future with the others
+   */
+  public CompletableFuture<Void> sync() {
+    if (fsync != AppendFsync.ALWAYS) {
+      return CompletableFuture.completedFuture(null);
+    }
+    Sync sync = new Sync(queued.get());
+    syncs.offer(sync);
+    LockSupport.unpark(thread);
+    completeSyncs();
+    return sync.future;
+  }
+
+  /**
+   * Marks the point in the stream of commands where the snapshot used by the rewrite is taken,
+   * all the commands appended after that are kept to be added to the rewritten file.
+   */
+  public void startRewrite() {
+    stats.rewriteStarted();
+    queued.incrementAndGet();
+    queue.offer(REWRITE_MARK);
+  }
+
+  public synchronized void abortRewrite() {
+    try {
+      writeBatch();
+    } catch (IOException e) {
+      LOGGER.error("error writing to AOF file", e);
+    }
+    rewriteBuffer = null;
+    stats.rewriteFinished(false, 0);
+  }
+
+  /**
+   * Appends the commands received during the rewrite to the given file, and then it replaces
+   * atomically the current AOF file with it.
+   */
+  public synchronized void finishRewrite(File rewrite) throws IOException {
+    writeBatch();
+    try (RespWriter tail = new RespWriter(FileChannel.open(rewrite.toPath(), WRITE, APPEND))) {
+      if (rewriteBuffer != null) {
+        for (RedisToken command : rewriteBuffer) {
+          tail.write(command);
+        }
+      }
+      tail.flush();
+      tail.force();
+    }
+    Files.move(rewrite.toPath(), file.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+    output.close();
+    output = new RespWriter(opener.open(file));
+    length = file.length();
+    rewriteBuffer = null;
+    dirty = false;
+    // the rewritten file was forced with every command taken until now
+    forced = taken;
+    stats.rewriteFinished(true, file.length());
+    completeSyncs();
+  }
+
+  public void close() {
+    running = false;
+    LockSupport.unpark(thread);
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    try {
+      output.close();
+    } catch (IOException e) {
+      LOGGER.error("error closing AOF file", e);
+    }
+    for (Sync sync = syncs.poll(); sync != null; sync = syncs.poll()) {
+      sync.future.complete(null);
+    }
+  }
+
+  @Override
+  public void run() {
+    while (running) {
+      if (!process()) {
+        LockSupport.parkNanos(this, IDLE_NANOS);
+      }
+    }
+    process();
+    try {
+      if (fsync != AppendFsync.NO) {
+        force();
+      }
+    } catch (IOException e) {
+      LOGGER.error("error writing to AOF file", e);
+    }
+  }
+
+  private boolean process() {
+    try {
+      if (failure != null) {
+        recover();
+      }
+      boolean written = batch();
+      if (fsync == AppendFsync.ALWAYS && (written || isDirty())) {
+        force();
+        completeSyncs();
+      } else if (fsync == AppendFsync.EVERYSEC && isDirty() && System.nanoTime() - lastFsync >= EVERYSEC_NANOS) {
+        force();
+      }
+      return written;
+    } catch (IOException e) {
+      LOGGER.error("error writing to AOF file", e);
+      failure = e;
+      completeSyncs();
+      return false;
+    }
+  }
+
+  /**
+   * Writes again the commands of the failed batch to a new channel, from the end of the last
+   * batch written, so a batch written in part is not repeated.
+   */
+  private synchronized void recover() throws IOException {
+    try {
+      output.close();
+    } catch (IOException e) {
+      LOGGER.debug("error closing AOF file", e);
+    }
+    FileChannel channel = opener.open(file);
+    output = new RespWriter(channel);
+    channel.truncate(length);
+    writeBatch();
+    force();
+    failure = null;
+    LOGGER.info("AOF file recovered, {} bytes", length);
+  }
+
+  private void completeSyncs() {
+    for (Iterator<Sync> iterator = syncs.iterator(); iterator.hasNext();) {
+      Sync sync = iterator.next();
+      if (failure != null) {
+        iterator.remove();
+        sync.future.completeExceptionally(failure);
+      } else if (sync.target <= forced) {
+        iterator.remove();
+        sync.future.complete(null);
+      }
+    }
+  }
+
+  private synchronized boolean isDirty() {
+    return dirty;
+  }
+
+  private synchronized boolean batch() throws IOException {
+    return writeBatch();
+  }
+
+  private boolean writeBatch() throws IOException {
+    for (RedisToken command = queue.poll(); command != null; command = queue.poll()) {
+      taken++;
+      if (command == REWRITE_MARK) {
+        rewriteBuffer = new ArrayList<>();
+        continue;
+      }
+      pending.add(command);
+      if (rewriteBuffer != null) {
+        rewriteBuffer.add(command);
+      }
+    }
+    if (pending.isEmpty()) {
+      return false;
+    }
+    long position = output.position();
+    for (RedisToken command : pending) {
+      output.write(command);
+    }
+    output.flush();
+    int commands = pending.size();
+    pending.clear();
+    dirty = true;
+    length = output.position();
+    stats.written(commands, length - position);
+    return true;
+  }
+
+  private synchronized void force() throws IOException {
+    long start = System.nanoTime();
+    long written = taken;
+    output.force();
+    lastFsync = System.nanoTime();
+    dirty = false;
+    forced = written;
+    stats.fsync(TimeUnit.NANOSECONDS.toMicros(lastFsync - start));
+  }
+
+  private static FileChannel open(File file) throws IOException {
+    return FileChannel.open(file.toPath(), CREATE, WRITE, APPEND);
+  }
+
+  interface ChannelOpener {
+    FileChannel open(File file) throws IOException;
+  }
+
+  private static final class Sync {
+
+    private final long target;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    private Sync(long target) {
+      this.target = target;
+    }
+  }
+}
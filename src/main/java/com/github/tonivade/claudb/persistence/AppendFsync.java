@@ -0,0 +1,9 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.persistence;
+
+public enum AppendFsync {
+  ALWAYS, EVERYSEC, NO
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.persistence;
+
+import java.util.Arrays;
+
+/**
+ * Pure java implementation of the LZF compression format (the same used by liblzf and REDIS)
+ */
+public final class LZF {
+
+  private static final byte[] MAGIC = { 'L', 'Z', 'F' };
+  private static final int HEADER_LENGTH = MAGIC.length + Integer.BYTES;
+
+  private static final int HASH_LOG = 14;
+  private static final int HASH_SIZE = 1 << HASH_LOG;
+  private static final int MAX_LITERAL = 1 << 5;
+  private static final int MAX_OFFSET = 1 << 13;
+  private static final int MAX_REFERENCE = (1 << 8) + (1 << 3);
+
+  private LZF() { }
+
+  public static byte[] compress(byte[] input) {
+    return compress(input, 0, input.length);
+  }
+
+  public static byte[] compress(byte[] input, int offset, int length) {
+    byte[] output = new byte[maxLength(length)];
+    int outputLength = compress(input, offset, length, output, 0);
+    return Arrays.copyOf(output, outputLength);
+  }
+
+  public static int compress(byte[] input, int inputOffset, int length, byte[] output, int outputOffset) {
+    int[] table = new int[HASH_SIZE];
+    int end = inputOffset + length;
+    int ip = inputOffset;
+    int op = outputOffset;
+    int literal = 0;
+
+    op++; // start run
+
+    while (ip < end - 2) {
+      int value = first(input, ip);
+      int slot = hash(value);
+      int reference = table[slot] - 1;
+      table[slot] = ip + 1;
+
+      int distance = ip - reference - 1;
+      if (reference >= inputOffset && distance < MAX_OFFSET
+          && input[reference] == input[ip]
+          && input[reference + 1] == input[ip + 1]
+          && input[reference + 2] == input[ip + 2]) {
+        int len = 2;
+        int maxLength = Math.min(end - ip - len, MAX_REFERENCE);
+
+        output[op - literal - 1] = (byte) (literal - 1); // stop run
+        if (literal == 0) {
+          op--; // undo run if length is zero
+        }
+
+        do {
+          len++;
+        } while (len < maxLength && input[reference + len] == input[ip + len]);
+
+        len -= 2;
+        ip++;
+
+        if (len < 7) {
+          output[op++] = (byte) ((distance >> 8) + (len << 5));
+        } else {
+          output[op++] = (byte) ((distance >> 8) + (7 << 5));
+          output[op++] = (byte) (len - 7);
+        }
+        output[op++] = (byte) distance;
+
+        literal = 0;
+        op++; // start run
+
+        ip += len + 1;
+
+        if (ip >= end - 2) {
+          break;
+        }
+
+        table[hash(first(input, ip - 1))] = ip;
+      } else {
+        literal++;
+        output[op++] = input[ip++];
+
+        if (literal == MAX_LITERAL) {
+          output[op - literal - 1] = (byte) (literal - 1);
+          literal = 0;
+          op++;
+        }
+      }
+    }
+
+    while (ip < end) {
+      literal++;
+      output[op++] = input[ip++];
+
+      if (literal == MAX_LITERAL) {
+        output[op - literal - 1] = (byte) (literal - 1);
+        literal = 0;
+        op++;
+      }
+    }
+
+    output[op - literal - 1] = (byte) (literal - 1); // end run
+    if (literal == 0) {
+      op--;
+    }
+
+    return op - outputOffset;
+  }
+
+  public static byte[] decompress(byte[] input, int length) {
+    return decompress(input, 0, input.length, length);
+  }
+
+  public static byte[] decompress(byte[] input, int offset, int compressedLength, int length) {
+    byte[] output = new byte[length];
+    int ip = offset;
+    int end = offset + compressedLength;
+    int op = 0;
+
+    while (ip < end) {
+      int control = input[ip++] & 0xFF;
+
+      if (control < MAX_LITERAL) {
+        control++;
+        System.arraycopy(input, ip, output, op, control);
+        ip += control;
+        op += control;
+      } else {
+        int len = control >> 5;
+        int reference = op - ((control & 0x1F) << 8) - 1;
+
+        if (len == 7) {
+          len += input[ip++] & 0xFF;
+        }
+        reference -= input[ip++] & 0xFF;
+        len += 2;
+
+        if (reference < 0 || op + len > length) {
+          throw new IllegalArgumentException("invalid lzf data");
+        }
+
+        for (int i = 0; i < len; i++) {
+          output[op++] = output[reference++];
+        }
+      }
+    }
+
+    if (op != length) {
+      throw new IllegalArgumentException("invalid lzf length: " + op + " expected " + length);
+    }
+
+    return output;
+  }
+
+  public static byte[] frame(byte[] input) {
+    byte[] compressed = new byte[HEADER_LENGTH + maxLength(input.length)];
+    System.arraycopy(MAGIC, 0, compressed, 0, MAGIC.length);
+    System.arraycopy(ByteUtils.toByteArray(input.length), 0, compressed, MAGIC.length, Integer.BYTES);
+    int length = compress(input, 0, input.length, compressed, HEADER_LENGTH);
+    return Arrays.copyOf(compressed, HEADER_LENGTH + length);
+  }
+
+  public static boolean isFramed(byte[] input) {
+    if (input.length < HEADER_LENGTH) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (input[i] != MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public static byte[] unframe(byte[] input) {
+    if (!isFramed(input)) {
+      throw new IllegalArgumentException("not a lzf frame");
+    }
+    int length = ByteUtils.byteArrayToInt(Arrays.copyOfRange(input, MAGIC.length, HEADER_LENGTH));
+    return decompress(input, HEADER_LENGTH, input.length - HEADER_LENGTH, length);
+  }
+
+  public static int maxLength(int length) {
+    return length + (length / MAX_LITERAL) + 16;
+  }
+
+  private static int first(byte[] input, int position) {
+    return ((input[position] & 0xFF) << 16) | ((input[position + 1] & 0xFF) << 8) | (input[position + 2] & 0xFF);
+  }
+
+  private static int hash(int value) {
+    return (value * 0x9E3779B1) >>> (32 - HASH_LOG);
+  }
+}
@@ -6,18 +6,30 @@ package com.github.tonivade.claudb.persistence;
 
 import static com.github.tonivade.resp.protocol.RedisToken.array;
 import static com.github.tonivade.resp.protocol.RedisToken.string;
-import static java.nio.ByteBuffer.wrap;
-import static java.util.stream.Collectors.toList;
-
-import java.io.ByteArrayOutputStream;
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -28,107 +40,346 @@ import com.github.tonivade.claudb.DBConfig;
 import com.github.tonivade.claudb.DBServerContext;
 import com.github.tonivade.claudb.DBSessionState;
 import com.github.tonivade.claudb.command.DBCommandProcessor;
+import com.github.tonivade.claudb.data.DatabaseSnapshot;
+import com.github.tonivade.claudb.data.TrackedDatabase.Delta;
+import com.github.tonivade.purefun.data.ImmutableList;
 import com.github.tonivade.resp.command.DefaultSession;
 import com.github.tonivade.resp.command.Session;
 import com.github.tonivade.resp.protocol.AbstractRedisToken.ArrayRedisToken;
+import com.github.tonivade.resp.protocol.AbstractRedisToken.StringRedisToken;
 import com.github.tonivade.resp.protocol.RedisParser;
-import com.github.tonivade.resp.protocol.RedisSerializer;
-import com.github.tonivade.resp.protocol.RedisSource;
 import com.github.tonivade.resp.protocol.RedisToken;
-import com.github.tonivade.resp.protocol.RedisTokenType;
 import com.github.tonivade.resp.protocol.SafeString;
 
 public class PersistenceManager {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(PersistenceManager.class);
 
-  private static final int MAX_FRAME_SIZE = 1024 * 1024 * 100;
-
-  private OutputStream output;
+  static final int MAX_FRAME_SIZE = 1024 * 1024 * 100;
+  private static final int CHECK_PERIOD = 1;
+  private static final String REWRITE_SUFFIX = ".rewrite";
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final String DELTA_SUFFIX = ".delta";
+  private static final String DELTA = "delta";
+  private static final String DELTA_END = "delta-end";
+  private static final String AOF = "aof";
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final byte[] REDIS_PREAMBLE = safeString("REDIS").getBytes();
+  private static final byte[] TAIL_HEADER = safeString("*3\r\n$5\r\n" + DELTA + "\r\n").getBytes();
+  private static final byte[] AOF_HEADER = safeString("*1\r\n$3\r\n" + AOF + "\r\n").getBytes();
+
+  private AOFWriter writer;
   private final DBServerContext server;
   private final DBCommandProcessor processor;
+  private final PersistenceStats stats;
   private final String dumpFile;
   private final String redoFile;
-  private final int syncPeriod;
+  private final AppendFsync appendFsync;
+  private final int rewritePercentage;
+  private final long rewriteMinSize;
+  private final boolean rdbPreamble;
+  private final int snapshotPeriod;
+  private final boolean fileStorage;
+  private final int maxSnapshotDeltas;
+
+  private int deltas;
 
   private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
 
   public PersistenceManager(DBServerContext server, DBConfig config) {
+    this(server, config, new PersistenceStats());
+  }
+
+  public PersistenceManager(DBServerContext server, DBConfig config, PersistenceStats stats) {
     this.server = server;
+    this.stats = stats;
     this.dumpFile = config.getRdbFile();
     this.redoFile = config.getAofFile();
-    this.syncPeriod = config.getSyncPeriod();
+    this.appendFsync = config.getAppendFsync();
+    this.rewritePercentage = config.getRewritePercentage();
+    this.rewriteMinSize = config.getRewriteMinSize();
+    this.rdbPreamble = config.isRdbPreamble();
+    this.snapshotPeriod = config.getSnapshotPeriod();
+    this.fileStorage = config.isMappedActive() || config.isDiskActive();
+    this.maxSnapshotDeltas = config.getMaxSnapshotDeltas();
     this.processor = new DBCommandProcessor(server, newDummySession());
   }
 
   public void start() {
-    importRDB();
-    importRedo();
-    createRedo();
-    executor.scheduleWithFixedDelay(this::run, syncPeriod, syncPeriod, TimeUnit.SECONDS);
+    if (fileStorage) {
+      // the databases are already in the mapped or segment files, and they are forced to disk
+      // following the fsync policy, so there is no AOF file to write or replay
+      LOGGER.info("AOF file disabled with file storage");
+    } else if (new File(redoFile).exists()) {
+      boolean legacy = isLegacyRedo();
+      if (legacy) {
+        // the AOF files of previous versions only have the commands after the last save of
+        // the RDB file, it is migrated once with a rewrite
+        importRDB();
+      }
+      boolean incremental = importRedo();
+      createRedo();
+      if (legacy || incremental && snapshotPeriod == 0) {
+        // without incremental snapshots the AOF file cannot depend on the RDB and delta files
+        rewrite();
+      }
+    } else {
+      boolean imported = importRDB();
+      if (imported) {
+        importDelta(null);
+      }
+      createRedo();
+      if (imported) {
+        rewrite();
+      }
+    }
+    executor.scheduleWithFixedDelay(this::run, CHECK_PERIOD, CHECK_PERIOD, TimeUnit.SECONDS);
+    if (snapshotPeriod > 0 && !fileStorage) {
+      // everything loaded is already persisted, so the changes are tracked from a new base
+      server.delta(() -> { });
+      if (stats.saveStarted()) {
+        save();
+      }
+      executor.scheduleWithFixedDelay(this::snapshot, snapshotPeriod, snapshotPeriod, TimeUnit.SECONDS);
+    }
     LOGGER.info("Persistence manager started");
   }
 
   public void stop() {
     executor.shutdown();
+    try {
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (stats.saveStarted()) {
+      save();
+    }
     closeRedo();
-    exportRDB();
     LOGGER.info("Persistence manager stopped");
   }
 
   void run() {
-    exportRDB();
-    createRedo();
+    if (writer != null && needsRewrite()) {
+      rewrite();
+    }
+  }
+
+  /**
+   * Saves the keys changed since the last snapshot in the delta file, and when there are too
+   * many deltas it folds them in a new base RDB file.
+   *
+   * Both replace the AOF file with the commands received after the snapshot, it starts with a
+   * header with the checksum of the RDB file and the number of blocks of the delta file that
+   * are applied before it, so the periodic writes only depend on the changes.
+   */
+  void snapshot() {
+    if (deltas >= maxSnapshotDeltas) {
+      if (stats.saveStarted()) {
+        save();
+      }
+    } else {
+      saveDelta();
+    }
+  }
+
+  void rewrite() {
+    File rewrite = new File(redoFile + REWRITE_SUFFIX);
+    try {
+      try (FileChannel channel = FileChannel.open(rewrite.toPath(), CREATE, WRITE, TRUNCATE_EXISTING)) {
+        ImmutableList<DatabaseSnapshot> snapshot = server.snapshot(writer::startRewrite);
+        try {
+          if (rdbPreamble) {
+            OutputStream output = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            AOFRewrite.preamble(output, snapshot);
+          } else {
+            RespWriter output = new RespWriter(channel);
+            output.write(aofHeader());
+            AOFRewrite aof = new AOFRewrite(output);
+            long now = server.getClock().preciseMillis();
+            int db = 0;
+            for (DatabaseSnapshot entries : snapshot) {
+              aof.database(db++, entries, now);
+            }
+            output.flush();
+          }
+        } finally {
+          snapshot.forEach(DatabaseSnapshot::close);
+        }
+      }
+      writer.finishRewrite(rewrite);
+      LOGGER.info("AOF file rewritten");
+    } catch (IOException | RuntimeException e) {
+      writer.abortRewrite();
+      LOGGER.error("error rewriting AOF file", e);
+    }
+  }
+
+  /**
+   * Starts a save of the RDB file in the persistence thread, returns false if there is already
+   * a save in progress.
+   */
+  public boolean bgsave() {
+    if (!stats.saveStarted()) {
+      return false;
+    }
+    try {
+      executor.execute(this::save);
+      return true;
+    } catch (RejectedExecutionException e) {
+      stats.saveFinished(false, 0);
+      return false;
+    }
   }
 
   public void append(RedisToken command) {
-    if (output != null) {
-      executor.submit(() -> appendRedo(command));
+    AOFWriter current = writer;
+    if (current != null) {
+      current.append(command);
     }
   }
 
-  private void importRDB() {
+  /**
+   * @return a future completed when the commands appended before are durable, as required by
+   * the fsync policy
+   */
+  public CompletableFuture<Void> sync() {
+    AOFWriter current = writer;
+    return current != null ? current.sync() : CompletableFuture.completedFuture(null);
+  }
+
+  public PersistenceStats getStats() {
+    return stats;
+  }
+
+  private boolean needsRewrite() {
+    long size = stats.getAofSize();
+    long base = stats.getAofBaseSize();
+    return rewritePercentage > 0
+        && !stats.isRewriteInProgress()
+        && size >= rewriteMinSize
+        && (size - base) * 100 >= base * rewritePercentage;
+  }
+
+  private boolean importRDB() {
     File file = new File(dumpFile);
     if (file.exists()) {
-      try (InputStream rdb = new FileInputStream(file)) {
+      try (InputStream rdb = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)) {
         server.importRDB(rdb);
         LOGGER.info("RDB file imported");
+        return true;
       } catch (IOException e) {
         LOGGER.error("error reading RDB", e);
       }
     }
+    return false;
   }
 
-  private void importRedo() {
+  /**
+   * The AOF files written by this version start with the RDB preamble, the tail header or the
+   * AOF header, so the AOF file contains the whole dataset or says which snapshots it follows.
+   */
+  private boolean isLegacyRedo() {
+    try (AOFReader redo = new AOFReader(new File(redoFile))) {
+      return !redo.startsWith(REDIS_PREAMBLE)
+          && !redo.startsWith(TAIL_HEADER)
+          && !redo.startsWith(AOF_HEADER);
+    } catch (IOException | UncheckedIOException e) {
+      LOGGER.error("error reading AOF file", e);
+      return false;
+    }
+  }
+
+  /**
+   * @return true if the AOF file only has the commands after the last incremental snapshot
+   */
+  private boolean importRedo() {
     File file = new File(redoFile);
+    boolean incremental = false;
+    long truncated = -1;
     if (file.exists()) {
-      try (FileInputStream redo = new FileInputStream(file)) {
-        RedisParser parse = new RedisParser(MAX_FRAME_SIZE, new RedisSourceInputStream(redo));
-
-        while (true) {
-          RedisToken token = parse.next();
-          if (token.getType() == RedisTokenType.UNKNOWN) {
-            break;
-          }
-          LOGGER.info("command: {}", token);
+      long start = System.nanoTime();
+      try (AOFReader redo = new AOFReader(file)) {
+        if (redo.startsWith(REDIS_PREAMBLE)) {
+          server.importRDB(redo.asInputStream());
+          LOGGER.info("AOF preamble imported");
+        }
 
-          processCommand((ArrayRedisToken) token);
+        RedisParser parser = new RedisParser(MAX_FRAME_SIZE, redo);
+        if (redo.startsWith(TAIL_HEADER)) {
+          incremental = true;
+          importSnapshots(parser.next());
         }
-      } catch (IOException e) {
+
+        AOFLoader loader = new AOFLoader(server, processor);
+        long commands = loader.load(redo);
+        truncated = loader.getTruncated();
+
+        long elapsed = System.nanoTime() - start;
+        stats.loaded(redo.size(), elapsed);
+        LOGGER.info("AOF file imported: {} commands, {} bytes in {} ms ({} MB/s)",
+            commands, redo.size(), TimeUnit.NANOSECONDS.toMillis(elapsed), stats.getLoadThroughput());
+      } catch (IOException | UncheckedIOException e) {
         LOGGER.error("error reading AOF file", e);
       }
     }
+    if (truncated >= 0) {
+      truncate(file, truncated);
+    }
+    return incremental;
+  }
+
+  /**
+   * Removes the incomplete command at the end of the AOF file, so the new commands are not
+   * appended after it.
+   */
+  private void truncate(File file, long size) {
+    LOGGER.warn("AOF file ends with an incomplete command, truncated from {} to {} bytes",
+        file.length(), size);
+    try (FileChannel channel = FileChannel.open(file.toPath(), WRITE)) {
+      channel.truncate(size);
+      channel.force(true);
+    } catch (IOException e) {
+      LOGGER.error("error truncating AOF file", e);
+    }
   }
 
-  private void processCommand(ArrayRedisToken array) {
-    processor.processCommand((ArrayRedisToken) selectCommand(array));
-    processor.processCommand((ArrayRedisToken) command(array));
+  /**
+   * Imports the RDB file and the blocks of the delta file given by the header of the AOF file.
+   */
+  private void importSnapshots(RedisToken header) throws IOException {
+    List<RedisToken> values = ((ArrayRedisToken) header).getValue().asList().toList();
+    String checksum = ((StringRedisToken) values.get(1)).getValue().toString();
+    int blocks = Integer.parseInt(((StringRedisToken) values.get(2)).getValue().toString());
+    File dump = new File(dumpFile);
+    File temp = new File(dumpFile + TEMP_SUFFIX);
+    if (!checksum.equals(checksum(dump)) && blocks == 0 && checksum.equals(checksum(temp))) {
+      // the last save replaced the AOF file, but it was stopped before the RDB file was moved
+      Files.move(temp.toPath(), dump.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+      deleteDelta();
+    }
+    if (!checksum.equals(checksum(dump))) {
+      LOGGER.error("RDB file ignored, it does not belong to the current AOF file");
+      return;
+    }
+    importRDB();
+    if (blocks > 0 && !importDelta(blockEnd(blocks))) {
+      LOGGER.error("RDB delta file ignored, it has less than {} blocks", blocks);
+    }
+    deltas = blocks;
   }
 
   private void createRedo() {
     try {
       closeRedo();
-      output = new FileOutputStream(redoFile);
+      File file = new File(redoFile);
+      if (file.length() == 0) {
+        try (RespWriter output = new RespWriter(FileChannel.open(file.toPath(), CREATE, WRITE, TRUNCATE_EXISTING))) {
+          output.write(aofHeader());
+          output.flush();
+        }
+      }
+      writer = new AOFWriter(new File(redoFile), appendFsync, stats);
       LOGGER.info("AOF file created");
     } catch (IOException e) {
       throw new UncheckedIOException(e);
@@ -136,110 +387,185 @@ public class PersistenceManager {
   }
 
   private void closeRedo() {
-    try {
-      if (output != null) {
-        output.close();
-        output = null;
-        LOGGER.debug("AOF file closed");
-      }
-    } catch (IOException e) {
-      LOGGER.error("error closing AOF file", e);
+    if (writer != null) {
+      writer.close();
+      writer = null;
+      LOGGER.debug("AOF file closed");
     }
   }
 
-  private void exportRDB() {
-    try (FileOutputStream rdb = new FileOutputStream(dumpFile)) {
-      server.exportRDB(rdb);
+  private void save() {
+    long start = System.nanoTime();
+    boolean ok = snapshotPeriod > 0 && writer != null ? saveBase() : exportRDB();
+    stats.saveFinished(ok, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+  }
+
+  /**
+   * Saves the RDB file, and replaces the AOF file with the commands after the snapshot. The AOF
+   * file is replaced before the RDB file is moved to its place, so if it is interrupted the RDB
+   * file is moved when the AOF file is imported.
+   */
+  private boolean saveBase() {
+    File temp = new File(dumpFile + TEMP_SUFFIX);
+    File rewrite = new File(redoFile + REWRITE_SUFFIX);
+    try {
+      ImmutableList<DatabaseSnapshot> snapshot = server.snapshot(writer::startRewrite);
+      try (FileChannel channel = FileChannel.open(temp.toPath(), CREATE, WRITE, TRUNCATE_EXISTING)) {
+        AOFRewrite.preamble(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE), snapshot);
+        channel.force(true);
+      } finally {
+        snapshot.forEach(DatabaseSnapshot::close);
+      }
+      writeTailHeader(rewrite, checksum(temp), 0);
+      writer.finishRewrite(rewrite);
+      Files.move(temp.toPath(), new File(dumpFile).toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+      deleteDelta();
       LOGGER.info("RDB file exported");
-    } catch (IOException e) {
+      return true;
+    } catch (IOException | RuntimeException e) {
+      writer.abortRewrite();
+      // the AOF file may depend on the RDB file not moved, so the next snapshot is a new base
+      deltas = maxSnapshotDeltas;
       LOGGER.error("error writing to RDB file", e);
+      return false;
     }
   }
 
-  private void appendRedo(RedisToken command) {
+  /**
+   * Appends a block with the changes to the delta file, and replaces the AOF file with the
+   * commands after the changes.
+   */
+  private void saveDelta() {
+    File file = new File(dumpFile + DELTA_SUFFIX);
+    File rewrite = new File(redoFile + REWRITE_SUFFIX);
     try {
-      RedisSerializer serializer = new RedisSerializer();
-      byte[] buffer = serializer.encodeToken(command);
-      output.write(buffer);
-      output.flush();
-      LOGGER.debug("new command: " + command);
-    } catch (IOException e) {
-      LOGGER.error("error writing to AOF file", e);
+      ImmutableList<Delta> delta = server.delta(writer::startRewrite);
+      int blocks = deltas;
+      if (!delta.stream().allMatch(Delta::isEmpty)) {
+        boolean append = deltas > 0 && file.exists();
+        try (RespWriter output = new RespWriter(
+            FileChannel.open(file.toPath(), CREATE, WRITE, append ? APPEND : TRUNCATE_EXISTING))) {
+          if (!append) {
+            output.write(deltaHeader());
+          }
+          AOFRewrite aof = new AOFRewrite(output);
+          long now = server.getClock().preciseMillis();
+          int db = 0;
+          for (Delta entries : delta) {
+            aof.delta(db++, entries, now);
+          }
+          output.write(blockEnd(++blocks));
+          output.flush();
+          output.force();
+        }
+      }
+      writeTailHeader(rewrite, checksum(new File(dumpFile)), blocks);
+      writer.finishRewrite(rewrite);
+      deltas = blocks;
+      stats.deltaSaved(deltas, file.length());
+      LOGGER.debug("RDB delta saved");
+    } catch (IOException | RuntimeException e) {
+      writer.abortRewrite();
+      // the changes are lost from the delta, so a new base is needed
+      deltas = maxSnapshotDeltas;
+      LOGGER.error("error writing RDB delta file", e);
     }
   }
 
-  private RedisToken selectCommand(ArrayRedisToken token) {
-    return array(string("select"), token.getValue().stream().findFirst().orElse(string("0")));
-  }
-
-  private RedisToken command(ArrayRedisToken token) {
-    return array(token.getValue().stream().skip(1).collect(toList()));
-  }
-
-  private Session newDummySession() {
-    DefaultSession session = new DefaultSession("dummy", null);
-    session.putValue("state", new DBSessionState());
-    return session;
+  private void writeTailHeader(File rewrite, String checksum, int blocks) throws IOException {
+    try (RespWriter output = new RespWriter(FileChannel.open(rewrite.toPath(), CREATE, WRITE, TRUNCATE_EXISTING))) {
+      output.write(array(string(DELTA), string(checksum), string(String.valueOf(blocks))));
+      output.flush();
+    }
   }
-}
-
-class RedisSourceInputStream implements RedisSource {
 
-  private final InputStream input;
-
-  RedisSourceInputStream(InputStream input) {
-    this.input = input;
+  /**
+   * Imports the delta file until the given token, or all of it if null.
+   *
+   * @return true if the token is found
+   */
+  private boolean importDelta(RedisToken end) {
+    File file = new File(dumpFile + DELTA_SUFFIX);
+    if (file.exists()) {
+      try (AOFReader delta = new AOFReader(file)) {
+        RedisParser parser = new RedisParser(MAX_FRAME_SIZE, delta);
+        if (parser.next().equals(deltaHeader())) {
+          AOFLoader loader = new AOFLoader(server, processor);
+          boolean found = loader.load(delta, end);
+          LOGGER.info("RDB delta imported: {} commands", loader.getCommands());
+          return found;
+        } else {
+          LOGGER.warn("RDB delta file ignored, it does not belong to the current RDB file");
+        }
+      } catch (IOException | UncheckedIOException e) {
+        LOGGER.error("error reading RDB delta file", e);
+      }
+    }
+    return false;
   }
 
-  @Override
-  public int available() {
+  private void deleteDelta() {
     try {
-      return input.available();
+      Files.deleteIfExists(new File(dumpFile + DELTA_SUFFIX).toPath());
+      deltas = 0;
+      stats.deltaSaved(0, 0);
     } catch (IOException e) {
-      throw new UncheckedIOException(e);
+      deltas = maxSnapshotDeltas;
+      LOGGER.error("error deleting RDB delta file", e);
     }
   }
 
-  @Override
-  public SafeString readLine() {
-    try {
-      ByteArrayOutputStream baos = new ByteArrayOutputStream();
-      boolean cr = false;
-      while (true) {
-        int read = input.read();
-
-        if (read == -1) {
-          // end of stream
-          break;
-        }
+  /**
+   * the delta file starts with the checksum of the RDB file it applies to
+   */
+  private RedisToken deltaHeader() throws IOException {
+    return array(string(DELTA), string(checksum(new File(dumpFile))));
+  }
 
-        if (read == '\r') {
-          cr = true;
-        } else if (cr && read == '\n') {
-          break;
-        } else {
-          cr = false;
+  /**
+   * the mark after the given number of blocks in the delta file
+   */
+  private static RedisToken aofHeader() {
+    return array(string(AOF));
+  }
 
-          baos.write(read);
-        }
+  private static RedisToken blockEnd(int blocks) {
+    return array(string(DELTA_END), string(String.valueOf(blocks)));
+  }
+
+  private static String checksum(File file) throws IOException {
+    if (file.exists() && file.length() >= Long.BYTES) {
+      try (RandomAccessFile rdb = new RandomAccessFile(file, "r")) {
+        byte[] bytes = new byte[Long.BYTES];
+        rdb.seek(file.length() - Long.BYTES);
+        rdb.readFully(bytes);
+        return new SafeString(bytes).toHexString();
       }
-      return new SafeString(baos.toByteArray());
-    } catch (IOException e) {
-      throw new UncheckedIOException(e);
     }
+    return "";
   }
 
-  @Override
-  public SafeString readString(int size) {
+  private boolean exportRDB() {
+    File temp = new File(dumpFile + TEMP_SUFFIX);
     try {
-      byte[] buffer = new byte[size + 2];
-      int readed = input.read(buffer);
-      if (readed > -1) {
-        return new SafeString(wrap(buffer, 0, readed - 2));
+      try (FileChannel channel = FileChannel.open(temp.toPath(), CREATE, WRITE, TRUNCATE_EXISTING)) {
+        OutputStream rdb = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+        server.exportRDB(rdb);
+        rdb.flush();
+        channel.force(true);
       }
-      return null;
-    } catch (IOException e) {
-      throw new UncheckedIOException(e);
+      Files.move(temp.toPath(), new File(dumpFile).toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+      LOGGER.info("RDB file exported");
+      return true;
+    } catch (IOException | RuntimeException e) {
+      LOGGER.error("error writing to RDB file", e);
+      return false;
     }
   }
-}
\ No newline at end of file
+
+  private Session newDummySession() {
+    DefaultSession session = new DefaultSession("dummy", null);
+    session.putValue("state", new DBSessionState());
+    return session;
+  }
+}
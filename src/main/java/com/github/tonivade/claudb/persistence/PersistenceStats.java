@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.persistence;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PersistenceStats {
+
+  private static final double MEGABYTE = 1024 * 1024;
+
+  private final AtomicLong pendingCommands = new AtomicLong();
+  private final AtomicLong unsyncedBytes = new AtomicLong();
+  private final AtomicLong aofSize = new AtomicLong();
+  private final AtomicLong fsyncs = new AtomicLong();
+  private final AtomicLong fsyncTime = new AtomicLong();
+  private final AtomicLong rewrites = new AtomicLong();
+  private final AtomicBoolean saveInProgress = new AtomicBoolean();
+
+  private volatile long lastFsyncTime;
+  private volatile long maxFsyncTime;
+  private volatile long baseSize;
+  private volatile boolean rewriteInProgress;
+  private volatile boolean lastRewriteOk = true;
+  private volatile long loadedBytes;
+  private volatile long loadTime;
+  private volatile long lastSave = System.currentTimeMillis();
+  private volatile boolean lastSaveOk = true;
+  private volatile long lastSaveTime;
+  private volatile long lastSnapshotTime;
+  private volatile int deltas;
+  private volatile long deltaSize;
+
+  void queued() {
+    pendingCommands.incrementAndGet();
+  }
+
+  void written(int commands, long bytes) {
+    pendingCommands.addAndGet(-commands);
+    unsyncedBytes.addAndGet(bytes);
+    aofSize.addAndGet(bytes);
+  }
+
+  void fsync(long micros) {
+    unsyncedBytes.set(0);
+    fsyncs.incrementAndGet();
+    fsyncTime.addAndGet(micros);
+    lastFsyncTime = micros;
+    if (micros > maxFsyncTime) {
+      maxFsyncTime = micros;
+    }
+  }
+
+  void opened(long size) {
+    unsyncedBytes.set(0);
+    aofSize.set(size);
+    baseSize = size;
+  }
+
+  void loaded(long bytes, long nanos) {
+    loadedBytes = bytes;
+    loadTime = nanos;
+  }
+
+  boolean saveStarted() {
+    return saveInProgress.compareAndSet(false, true);
+  }
+
+  void saveFinished(boolean ok, long millis) {
+    lastSaveOk = ok;
+    lastSaveTime = millis;
+    if (ok) {
+      lastSave = System.currentTimeMillis();
+    }
+    saveInProgress.set(false);
+  }
+
+  /**
+   * time spent with the commands stopped to take the snapshot of the keyspace
+   */
+  public void snapshotTaken(long micros) {
+    lastSnapshotTime = micros;
+  }
+
+  void deltaSaved(int deltas, long size) {
+    this.deltas = deltas;
+    this.deltaSize = size;
+  }
+
+  void rewriteStarted() {
+    rewriteInProgress = true;
+  }
+
+  void rewriteFinished(boolean ok, long size) {
+    rewriteInProgress = false;
+    lastRewriteOk = ok;
+    if (ok) {
+      rewrites.incrementAndGet();
+      opened(size);
+    }
+  }
+
+  public long getPendingCommands() {
+    return pendingCommands.get();
+  }
+
+  /**
+   * bytes already written to the AOF file but not fsynced yet
+   */
+  public long getUnsyncedBytes() {
+    return unsyncedBytes.get();
+  }
+
+  public long getAofSize() {
+    return aofSize.get();
+  }
+
+  public long getAofBaseSize() {
+    return baseSize;
+  }
+
+  public long getRewrites() {
+    return rewrites.get();
+  }
+
+  public boolean isRewriteInProgress() {
+    return rewriteInProgress;
+  }
+
+  public boolean isLastRewriteOk() {
+    return lastRewriteOk;
+  }
+
+  public long getFsyncs() {
+    return fsyncs.get();
+  }
+
+  public long getLastFsyncTime() {
+    return lastFsyncTime;
+  }
+
+  public long getMaxFsyncTime() {
+    return maxFsyncTime;
+  }
+
+  public long getAvgFsyncTime() {
+    long count = fsyncs.get();
+    return count > 0 ? fsyncTime.get() / count : 0;
+  }
+
+  public long getLoadedBytes() {
+    return loadedBytes;
+  }
+
+  public long getLoadTime() {
+    return TimeUnit.NANOSECONDS.toMillis(loadTime);
+  }
+
+  /**
+   * MB per second loaded from the AOF file at startup
+   */
+  public long getLoadThroughput() {
+    return loadTime > 0 ? (long) (loadedBytes / MEGABYTE / (loadTime / (double) TimeUnit.SECONDS.toNanos(1))) : 0;
+  }
+
+  public boolean isSaveInProgress() {
+    return saveInProgress.get();
+  }
+
+  /**
+   * unix time in seconds of the last successful save
+   */
+  public long getLastSave() {
+    return TimeUnit.MILLISECONDS.toSeconds(lastSave);
+  }
+
+  public boolean isLastSaveOk() {
+    return lastSaveOk;
+  }
+
+  public long getLastSaveTime() {
+    return lastSaveTime;
+  }
+
+  public long getLastSnapshotTime() {
+    return lastSnapshotTime;
+  }
+
+  /**
+   * number of incremental snapshots saved since the last base RDB file
+   */
+  public int getDeltas() {
+    return deltas;
+  }
+
+  public long getDeltaSize() {
+    return deltaSize;
+  }
+}
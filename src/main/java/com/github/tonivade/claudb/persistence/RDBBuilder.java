@@ -0,0 +1,420 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.persistence;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Builds a RDB file from a text file with a key and a value per line, without a running server.
+ *
+ * The input is split in chunks, every chunk is parsed, sorted by key and encoded in a thread
+ * of the pool, and written to a temporary file. Then the chunks are merged in a single pass,
+ * copying the encoded entries, so the memory used only depends on the size of the chunk. When
+ * a key is repeated, the last value in the input is kept.
+ */
+public class RDBBuilder {
+
+  private static final int RDB_VERSION = 6;
+  private static final int END_OF_RUN = -1;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final Comparator<Line> BY_KEY = RDBBuilder::compareLines;
+
+  public enum Format {
+    /**
+     * key,value with optional double quotes, quoted fields cannot contain line breaks
+     */
+    CSV,
+    /**
+     * key and value separated by the first tab
+     */
+    TAB
+  }
+
+  private final Format format;
+  private final int database;
+  private final int chunkSize;
+  private final int threads;
+  private final File tempDir;
+
+  private RDBBuilder(Builder builder) {
+    this.format = builder.format;
+    this.database = builder.database;
+    this.chunkSize = builder.chunkSize;
+    this.threads = builder.threads;
+    this.tempDir = builder.tempDir;
+  }
+
+  /**
+   * @return the number of keys written
+   */
+  public long build(BufferedReader input, OutputStream output) throws IOException {
+    Path directory = tempDir != null
+        ? Files.createTempDirectory(tempDir.toPath(), "rdb") : Files.createTempDirectory("rdb");
+    ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "rdb-builder");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      return merge(sort(input, directory, executor), output);
+    } finally {
+      executor.shutdownNow();
+      awaitTermination(executor);
+      deleteAll(directory);
+    }
+  }
+
+  private List<Path> sort(BufferedReader input, Path directory, ExecutorService executor) throws IOException {
+    // only the chunks being sorted and the next one are kept in memory
+    Semaphore pending = new Semaphore(threads + 1);
+    List<Future<Path>> runs = new ArrayList<>();
+    List<String> chunk = new ArrayList<>(chunkSize);
+    long first = 1;
+    String line;
+    while ((line = input.readLine()) != null) {
+      chunk.add(line);
+      if (chunk.size() == chunkSize) {
+        runs.add(submit(executor, pending, chunk, first, directory.resolve("run-" + runs.size())));
+        first += chunk.size();
+        chunk = new ArrayList<>(chunkSize);
+      }
+    }
+    if (!chunk.isEmpty()) {
+      runs.add(submit(executor, pending, chunk, first, directory.resolve("run-" + runs.size())));
+    }
+
+    List<Path> files = new ArrayList<>(runs.size());
+    for (Future<Path> run : runs) {
+      files.add(await(run));
+    }
+    return files;
+  }
+
+  private Future<Path> submit(ExecutorService executor, Semaphore pending,
+                              List<String> chunk, long first, Path file) throws IOException {
+    try {
+      pending.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
+    try {
+      return executor.submit(() -> {
+        try {
+          return run(chunk, first, file);
+        } finally {
+          pending.release();
+        }
+      });
+    } catch (RuntimeException e) {
+      pending.release();
+      throw e;
+    }
+  }
+
+  private Path run(List<String> chunk, long first, Path file) throws IOException {
+    List<Line> lines = new ArrayList<>(chunk.size());
+    for (int i = 0; i < chunk.size(); i++) {
+      if (!chunk.get(i).isEmpty()) {
+        lines.add(parse(chunk.get(i), first + i));
+      }
+    }
+    // the sort is stable, so the last line of a repeated key goes last
+    lines.sort(BY_KEY);
+
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    RDBOutputStream encoder = new RDBOutputStream(buffer);
+    try (DataOutputStream output = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+      for (int i = 0; i < lines.size(); i++) {
+        Line line = lines.get(i);
+        if (i + 1 < lines.size() && compareLines(line, lines.get(i + 1)) == 0) {
+          continue;
+        }
+        buffer.reset();
+        encoder.entry(safeKey(new SafeString(line.key)), string(line.value));
+        output.writeInt(line.key.length);
+        output.write(line.key);
+        output.writeInt(buffer.size());
+        buffer.writeTo(output);
+      }
+      output.writeInt(END_OF_RUN);
+    }
+    return file;
+  }
+
+  private long merge(List<Path> files, OutputStream output) throws IOException {
+    PriorityQueue<Run> queue = new PriorityQueue<>(Math.max(1, files.size()));
+    List<Run> runs = new ArrayList<>(files.size());
+    try {
+      for (int i = 0; i < files.size(); i++) {
+        Run run = new Run(i, files.get(i));
+        runs.add(run);
+        if (run.next()) {
+          queue.add(run);
+        }
+      }
+
+      RDBOutputStream rdb = new RDBOutputStream(output);
+      rdb.preamble(RDB_VERSION);
+      if (!queue.isEmpty()) {
+        rdb.select(database);
+      }
+      long keys = 0;
+      while (!queue.isEmpty()) {
+        Run run = queue.poll();
+        byte[] key = run.key;
+        rdb.encoded(run.entry, 0, run.entry.length);
+        keys++;
+        advance(run, queue);
+        // older values of the same key are skipped
+        while (!queue.isEmpty() && compareKeys(queue.peek().key, key) == 0) {
+          advance(queue.poll(), queue);
+        }
+      }
+      rdb.end();
+      return keys;
+    } finally {
+      for (Run run : runs) {
+        run.close();
+      }
+    }
+  }
+
+  private void advance(Run run, PriorityQueue<Run> queue) throws IOException {
+    if (run.next()) {
+      queue.add(run);
+    }
+  }
+
+  private Line parse(String line, long number) throws IOException {
+    switch (format) {
+    case TAB:
+      return parseTab(line, number);
+    case CSV:
+      return parseCsv(line, number);
+    default:
+      throw new IllegalStateException("unknown format: " + format);
+    }
+  }
+
+  private Line parseTab(String line, long number) throws IOException {
+    int separator = line.indexOf('\t');
+    if (separator < 0) {
+      throw new IOException("missing value in line " + number);
+    }
+    return new Line(line.substring(0, separator), line.substring(separator + 1));
+  }
+
+  private Line parseCsv(String line, long number) throws IOException {
+    List<String> fields = new ArrayList<>(2);
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    int i = 0;
+    while (i < line.length()) {
+      char c = line.charAt(i++);
+      if (quoted) {
+        if (c != '"') {
+          field.append(c);
+        } else if (i < line.length() && line.charAt(i) == '"') {
+          field.append(c);
+          i++;
+        } else {
+          quoted = false;
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    if (quoted) {
+      throw new IOException("unclosed quote in line " + number);
+    }
+    fields.add(field.toString());
+    if (fields.size() != 2) {
+      throw new IOException("expected key and value in line " + number);
+    }
+    return new Line(fields.get(0), fields.get(1));
+  }
+
+  private static Path await(Future<Path> run) throws IOException {
+    try {
+      return run.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  private static void awaitTermination(ExecutorService executor) throws IOException {
+    try {
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
+  }
+
+  private static void deleteAll(Path directory) throws IOException {
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      for (Path file : stream) {
+        Files.deleteIfExists(file);
+      }
+    }
+    Files.deleteIfExists(directory);
+  }
+
+  private static int compareLines(Line a, Line b) {
+    return compareKeys(a.key, b.key);
+  }
+
+  private static int compareKeys(byte[] a, byte[] b) {
+    int length = Math.min(a.length, b.length);
+    for (int i = 0; i < length; i++) {
+      int compare = Integer.compare(a[i] & 0xFF, b[i] & 0xFF);
+      if (compare != 0) {
+        return compare;
+      }
+    }
+    return Integer.compare(a.length, b.length);
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+
+    private Format format = Format.CSV;
+    private int database = 0;
+    private int chunkSize = 1_000_000;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private File tempDir;
+
+    public Builder withFormat(Format format) {
+      this.format = requireNonNull(format);
+      return this;
+    }
+
+    public Builder withDatabase(int database) {
+      this.database = database;
+      return this;
+    }
+
+    /**
+     * @param chunkSize number of lines sorted in memory at once
+     */
+    public Builder withChunkSize(int chunkSize) {
+      this.chunkSize = chunkSize;
+      return this;
+    }
+
+    public Builder withThreads(int threads) {
+      this.threads = threads;
+      return this;
+    }
+
+    public Builder withTempDir(File tempDir) {
+      this.tempDir = tempDir;
+      return this;
+    }
+
+    public RDBBuilder build() {
+      if (database < 0 || chunkSize < 1 || threads < 1) {
+        throw new IllegalArgumentException("invalid configuration");
+      }
+      return new RDBBuilder(this);
+    }
+  }
+
+  private static final class Line {
+
+    private final byte[] key;
+    private final String value;
+
+    private Line(String key, String value) {
+      this.key = safeString(key).getBytes();
+      this.value = value;
+    }
+  }
+
+  /**
+   * sorted run of encoded entries, the newest run goes first when the keys are equal
+   */
+  private static final class Run implements Comparable<Run> {
+
+    private final int index;
+    private final DataInputStream input;
+
+    private byte[] key;
+    private byte[] entry;
+
+    private Run(int index, Path file) throws IOException {
+      this.index = index;
+      this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+    }
+
+    private boolean next() throws IOException {
+      int length = input.readInt();
+      if (length == END_OF_RUN) {
+        return false;
+      }
+      key = new byte[length];
+      input.readFully(key);
+      entry = new byte[input.readInt()];
+      input.readFully(entry);
+      return true;
+    }
+
+    private void close() throws IOException {
+      input.close();
+    }
+
+    @Override
+    public int compareTo(Run other) {
+      int compare = compareKeys(key, other.key);
+      return compare != 0 ? compare : Integer.compare(other.index, index);
+    }
+  }
+}
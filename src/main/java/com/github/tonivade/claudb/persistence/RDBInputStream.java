@@ -13,11 +13,9 @@ import static com.github.tonivade.claudb.data.DatabaseValue.string;
 import static com.github.tonivade.claudb.data.DatabaseValue.zset;
 import static com.github.tonivade.claudb.persistence.ByteUtils.byteArrayToInt;
 import static com.github.tonivade.resp.protocol.SafeString.safeString;
-import static java.time.Instant.ofEpochMilli;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.time.Instant;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -27,6 +25,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.zip.CheckedInputStream;
 
+import com.github.tonivade.claudb.data.DatabaseClock;
 import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.purefun.Tuple2;
@@ -38,8 +37,16 @@ public class RDBInputStream {
 
   private static final long TO_MILLIS = 1000L;
 
-  private static final int TWO_BYTES_LENGTH = 0x4000;
-  private static final int ONE_BYTE_LENGTH = 0x40;
+  private static final int LENGTH_TYPE = 0xC0;
+  private static final int ONE_BYTE_LENGTH = 0x00;
+  private static final int TWO_BYTES_LENGTH = 0x40;
+  private static final int FOUR_BYTES_LENGTH = 0x80;
+  private static final int ENCODED = 0xC0;
+
+  private static final int ENCODED_INT8 = 0;
+  private static final int ENCODED_INT16 = 1;
+  private static final int ENCODED_INT32 = 2;
+  private static final int ENCODED_LZF = 3;
 
   private static final int HASH = 0x04;
   private static final int SORTED_SET = 0x03;
@@ -57,14 +64,46 @@ public class RDBInputStream {
   private static final int REDIS_LENGTH = 5;
 
   private final CheckedInputStream in;
+  private final DatabaseClock clock;
 
   public RDBInputStream(InputStream in) {
+    this(in, DatabaseClock.system());
+  }
+
+  /**
+   * @param clock used to skip the keys that are already expired
+   */
+  public RDBInputStream(InputStream in, DatabaseClock clock) {
     this.in = new CheckedInputStream(in, new CRC64());
+    this.clock = clock;
   }
 
   public Map<Integer, Map<DatabaseKey, DatabaseValue>> parse() throws IOException {
     Map<Integer, Map<DatabaseKey, DatabaseValue>> databases = new HashMap<>();
 
+    parse(new EntryHandler() {
+      private Map<DatabaseKey, DatabaseValue> db;
+
+      @Override
+      public void select(int index) {
+        db = new HashMap<>();
+        databases.put(index, db);
+      }
+
+      @Override
+      public void entry(DatabaseKey key, DatabaseValue value) {
+        db.put(key, value);
+      }
+    });
+
+    return databases;
+  }
+
+  /**
+   * Decodes the stream and sends every entry to the handler as soon as it is read, so the
+   * whole content of the stream is never kept in memory.
+   */
+  public void parse(EntryHandler handler) throws IOException {
     int version = version();
 
     if (version > REDIS_VERSION) {
@@ -72,13 +111,13 @@ public class RDBInputStream {
     }
 
     Long expireTime = null;
-    HashMap<DatabaseKey, DatabaseValue> db = null;
+    boolean selected = false;
     for (boolean end = false; !end;) {
       int read = in.read();
       switch (read) {
       case SELECT:
-        db = new HashMap<>();
-        databases.put(readLength(), db);
+        handler.select(readLength());
+        selected = true;
         break;
       case TTL_SECONDS:
         expireTime = parseTimeSeconds();
@@ -87,29 +126,29 @@ public class RDBInputStream {
         expireTime = parseTimeMillis();
         break;
       case STRING:
-        ensure(db, readKey(), readString(expireTime));
+        ensure(selected, handler, readKey(), readString(expireTime));
         expireTime = null;
         break;
       case LIST:
-        ensure(db, readKey(), readList(expireTime));
+        ensure(selected, handler, readKey(), readList(expireTime));
         expireTime = null;
         break;
       case SET:
-        ensure(db, readKey(), readSet(expireTime));
+        ensure(selected, handler, readKey(), readSet(expireTime));
         expireTime = null;
         break;
       case SORTED_SET:
-        ensure(db, readKey(), readSortedSet(expireTime));
+        ensure(selected, handler, readKey(), readSortedSet(expireTime));
         expireTime = null;
         break;
       case HASH:
-        ensure(db, readKey(), readHash(expireTime));
+        ensure(selected, handler, readKey(), readHash(expireTime));
         expireTime = null;
         break;
       case END_OF_STREAM:
         // end of stream
         end = true;
-        db = null;
+        selected = false;
         expireTime = null;
         break;
       default:
@@ -118,8 +157,36 @@ public class RDBInputStream {
     }
 
     verifyChecksum();
+  }
 
-    return databases;
+  /**
+   * reads a single value written by {@link RDBOutputStream#dump(DatabaseValue)}
+   */
+  public DatabaseValue restore() throws IOException {
+    DatabaseValue value = readValue(in.read());
+    byte[] version = read(Short.BYTES);
+    if (((version[0] & 0xFF) | (version[1] & 0xFF) << 8) > REDIS_VERSION) {
+      throw new IOException("invalid version");
+    }
+    verifyChecksum();
+    return value;
+  }
+
+  private DatabaseValue readValue(int type) throws IOException {
+    switch (type) {
+    case STRING:
+      return readString(null);
+    case LIST:
+      return readList(null);
+    case SET:
+      return readSet(null);
+    case SORTED_SET:
+      return readSortedSet(null);
+    case HASH:
+      return readHash(null);
+    default:
+      throw new IOException("not supported: " + type);
+    }
   }
 
   private long parseTimeSeconds() throws IOException {
@@ -163,7 +230,7 @@ public class RDBInputStream {
   }
 
   private DatabaseValue readString(Long expireTime) throws IOException {
-    return string(readSafeString()).expiredAt(expireTime != null ? ofEpochMilli(expireTime) : null);
+    return expiredAt(string(readSafeString()), expireTime);
   }
 
   private DatabaseValue readList(Long expireTime) throws IOException {
@@ -172,7 +239,7 @@ public class RDBInputStream {
     for (int i = 0; i < size; i++) {
       list.add(readSafeString());
     }
-    return list(list).expiredAt(expireTime != null ? ofEpochMilli(expireTime) : null);
+    return expiredAt(list(list), expireTime);
   }
 
   private DatabaseValue readSet(Long expireTime) throws IOException {
@@ -181,7 +248,7 @@ public class RDBInputStream {
     for (int i = 0; i < size; i++) {
       set.add(readSafeString());
     }
-    return set(set).expiredAt(expireTime != null ? ofEpochMilli(expireTime) : null);
+    return expiredAt(set(set), expireTime);
   }
 
   private DatabaseValue readSortedSet(Long expireTime) throws IOException {
@@ -192,7 +259,7 @@ public class RDBInputStream {
       Double score = readDouble();
       entries.add(score(score, value));
     }
-    return zset(entries).expiredAt(expireTime != null ? ofEpochMilli(expireTime) : null);
+    return expiredAt(zset(entries), expireTime);
   }
 
   private DatabaseValue readHash(Long expireTime) throws IOException {
@@ -201,13 +268,18 @@ public class RDBInputStream {
     for (int i = 0; i < size; i++) {
       entries.add(entry(readSafeString(), readSafeString()));
     }
-    return hash(entries).expiredAt(expireTime != null ? ofEpochMilli(expireTime) : null);
+    return expiredAt(hash(entries), expireTime);
   }
 
-  private void ensure(Map<DatabaseKey, DatabaseValue> db, DatabaseKey key, DatabaseValue value) throws IOException {
-    if (db != null) {
-      if (!value.isExpired(Instant.now())) {
-        db.put(key, value);
+  private static DatabaseValue expiredAt(DatabaseValue value, Long expireTime) {
+    return expireTime != null ? value.expiredAtMillis(expireTime) : value;
+  }
+
+  private void ensure(boolean selected, EntryHandler handler, DatabaseKey key, DatabaseValue value)
+      throws IOException {
+    if (selected) {
+      if (!value.isExpired(clock.millis())) {
+        handler.entry(key, value);
       }
     } else {
       throw new IOException("no database selected");
@@ -215,27 +287,51 @@ public class RDBInputStream {
   }
 
   private int readLength() throws IOException {
-    int length = in.read();
-    if (length < ONE_BYTE_LENGTH) {
+    return readLength(in.read());
+  }
+
+  private int readLength(int first) throws IOException {
+    switch (first & LENGTH_TYPE) {
+    case ONE_BYTE_LENGTH:
       // 1 byte: 00XXXXXX
-      return length;
-    } else if (length < TWO_BYTES_LENGTH) {
+      return first & 0x3F;
+    case TWO_BYTES_LENGTH:
       // 2 bytes: 01XXXXXX XXXXXXXX
-      int next = in.read();
-      return readLength(length, next);
-    } else {
+      return ((first & 0x3F) << 8) | (in.read() & 0xFF);
+    case FOUR_BYTES_LENGTH:
       // 5 bytes: 10...... XXXXXXXX XXXXXXXX XXXXXXXX XXXXXXXX
       return byteArrayToInt(read(Integer.BYTES));
+    default:
+      throw new IOException("invalid length: " + first);
     }
   }
 
-  private int readLength(int length, int next) {
-    return ((length & 0x3F) << 8) | (next & 0xFF);
+  private SafeString readSafeString() throws IOException {
+    int first = in.read();
+    if (first != -1 && (first & LENGTH_TYPE) == ENCODED) {
+      return readEncoded(first & 0x3F);
+    }
+    return new SafeString(read(readLength(first)));
   }
 
-  private SafeString readSafeString() throws IOException {
-    int length = readLength();
-    return new SafeString(read(length));
+  private SafeString readEncoded(int encoding) throws IOException {
+    switch (encoding) {
+    case ENCODED_INT8:
+      return safeString(String.valueOf(read(1)[0]));
+    case ENCODED_INT16:
+      byte[] int16 = read(Short.BYTES);
+      return safeString(String.valueOf((short) ((int16[0] & 0xFF) | (int16[1] << 8))));
+    case ENCODED_INT32:
+      byte[] int32 = read(Integer.BYTES);
+      return safeString(String.valueOf((int32[0] & 0xFF) | (int32[1] & 0xFF) << 8
+          | (int32[2] & 0xFF) << 16 | (int32[3] << 24)));
+    case ENCODED_LZF:
+      int compressed = readLength();
+      int length = readLength();
+      return new SafeString(LZF.decompress(read(compressed), length));
+    default:
+      throw new IOException("not supported encoding: " + encoding);
+    }
   }
 
   private DatabaseKey readKey() throws IOException {
@@ -248,11 +344,20 @@ public class RDBInputStream {
 
   private byte[] read(int size) throws IOException {
     byte[] array = new byte[size];
-    int read = in.read(array);
-    if (read != size) {
-      throw new IOException("error reading stream");
+    int readed = 0;
+    while (readed < size) {
+      int read = in.read(array, readed, size - readed);
+      if (read < 0) {
+        throw new IOException("error reading stream");
+      }
+      readed += read;
     }
     return array;
   }
 
+  public interface EntryHandler {
+    void select(int db) throws IOException;
+    void entry(DatabaseKey key, DatabaseValue value) throws IOException;
+  }
+
 }
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.persistence;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+
+import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseClock;
+import com.github.tonivade.claudb.data.DatabaseKey;
+import com.github.tonivade.claudb.data.DatabaseValue;
+import com.github.tonivade.purefun.Tuple;
+import com.github.tonivade.purefun.Tuple2;
+
+/**
+ * Loads a RDB stream straight into the databases.
+ *
+ * The stream is decoded in the calling thread and the entries are handed in batches to one
+ * inserter thread per database, so decoding overlaps with insertion and different databases
+ * are filled in parallel. The number of batches waiting to be inserted is bounded, so the
+ * memory needed does not depend on the size of the stream.
+ */
+public class RDBLoader implements RDBInputStream.EntryHandler {
+
+  private static final int BATCH_SIZE = 1024;
+  private static final int MAX_PENDING_BATCHES = 64;
+
+  private final IntFunction<Database> databases;
+  private final DatabaseClock clock;
+  private final Map<Integer, Inserter> inserters = new HashMap<>();
+  private final Semaphore pending = new Semaphore(MAX_PENDING_BATCHES);
+  private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+  private Inserter current;
+
+  public RDBLoader(IntFunction<Database> databases) {
+    this(databases, DatabaseClock.system());
+  }
+
+  public RDBLoader(IntFunction<Database> databases, DatabaseClock clock) {
+    this.databases = databases;
+    this.clock = clock;
+  }
+
+  public void load(InputStream input) throws IOException {
+    try {
+      new RDBInputStream(input, clock).parse(this);
+      if (current != null) {
+        current.flush();
+      }
+    } finally {
+      await();
+    }
+  }
+
+  @Override
+  public void select(int db) {
+    if (current != null) {
+      current.flush();
+    }
+    current = inserters.computeIfAbsent(db, index -> new Inserter(index, databases.apply(index)));
+  }
+
+  @Override
+  public void entry(DatabaseKey key, DatabaseValue value) {
+    current.add(key, value);
+  }
+
+  private void await() throws IOException {
+    for (Inserter inserter : inserters.values()) {
+      inserter.executor.shutdown();
+    }
+    try {
+      for (Inserter inserter : inserters.values()) {
+        inserter.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("interrupted while loading RDB", e);
+    }
+    if (failure.get() != null) {
+      throw new IOException("error loading RDB", failure.get());
+    }
+  }
+
+  private final class Inserter {
+
+    private final Database database;
+    private final ExecutorService executor;
+
+    private List<Tuple2<DatabaseKey, DatabaseValue>> batch = new ArrayList<>(BATCH_SIZE);
+
+    private Inserter(int db, Database database) {
+      this.database = database;
+      this.executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "rdb-loader-" + db));
+      // the content of the stream replaces the current content of the database
+      execute(database::clear);
+    }
+
+    private void add(DatabaseKey key, DatabaseValue value) {
+      batch.add(Tuple.of(key, value));
+      if (batch.size() == BATCH_SIZE) {
+        flush();
+      }
+    }
+
+    private void flush() {
+      if (!batch.isEmpty()) {
+        List<Tuple2<DatabaseKey, DatabaseValue>> entries = batch;
+        batch = new ArrayList<>(BATCH_SIZE);
+        pending.acquireUninterruptibly();
+        execute(() -> {
+          try {
+            entries.forEach(entry -> database.put(entry.get1(), entry.get2()));
+          } finally {
+            pending.release();
+          }
+        });
+      }
+    }
+
+    private void execute(Runnable task) {
+      executor.execute(() -> {
+        try {
+          task.run();
+        } catch (RuntimeException e) {
+          failure.compareAndSet(null, e);
+        }
+      });
+    }
+  }
+}
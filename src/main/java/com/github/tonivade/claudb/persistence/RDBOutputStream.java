@@ -11,6 +11,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.NavigableSet;
 import java.util.zip.CheckedOutputStream;
@@ -18,6 +19,7 @@ import java.util.zip.CheckedOutputStream;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
 import com.github.tonivade.claudb.data.DatabaseKey;
+import com.github.tonivade.claudb.data.DatabaseSnapshot;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.purefun.Tuple2;
 import com.github.tonivade.purefun.data.ImmutableList;
@@ -33,11 +35,35 @@ public class RDBOutputStream {
   private static final int END_OF_STREAM = 0xFF;
   private static final int SELECT = 0xFE;
 
+  private static final int TWO_BYTES_LENGTH = 0x40;
+  private static final int FOUR_BYTES_LENGTH = 0x80;
+
+  private static final int ENCODED_INT8 = 0xC0;
+  private static final int ENCODED_INT16 = 0xC1;
+  private static final int ENCODED_INT32 = 0xC2;
+  private static final int ENCODED_LZF = 0xC3;
+
+  private static final int MAX_INTEGER_LENGTH = 11;
+  private static final int MIN_COMPRESS_LENGTH = 20;
+  private static final int MIN_COMPRESS_SAVING = 4;
+
+  private static final int DUMP_VERSION = 6;
+
   private final CheckedOutputStream out;
+  private final boolean compression;
+
+  private byte[] compressBuffer = new byte[0];
 
   public RDBOutputStream(OutputStream out) {
-    super();
+    this(out, true);
+  }
+
+  /**
+   * @param compression if true the strings longer than 20 bytes are compressed with LZF
+   */
+  public RDBOutputStream(OutputStream out, boolean compression) {
     this.out = new CheckedOutputStream(out, new CRC64());
+    this.compression = compression;
   }
 
   public void preamble(int version) throws IOException {
@@ -58,12 +84,64 @@ public class RDBOutputStream {
     length(db);
   }
 
+  /**
+   * writes every non empty database of the snapshot, the index in the list is the database number
+   */
+  public void databases(ImmutableList<DatabaseSnapshot> snapshot) throws IOException {
+    int db = 0;
+    for (DatabaseSnapshot entries : snapshot) {
+      Iterator<Tuple2<DatabaseKey, DatabaseValue>> iterator = entries.iterator();
+      if (iterator.hasNext()) {
+        select(db);
+        while (iterator.hasNext()) {
+          Tuple2<DatabaseKey, DatabaseValue> entry = iterator.next();
+          value(entry.get1(), entry.get2());
+        }
+      }
+      db++;
+    }
+  }
+
+  /**
+   * writes a single value, without key and expiration, followed by the version and the checksum,
+   * it is the payload of the DUMP command
+   */
+  public void dump(DatabaseValue value) throws IOException {
+    type(value.getType());
+    value(value);
+    out.write(DUMP_VERSION & 0xFF);
+    out.write((DUMP_VERSION >> 8) & 0xFF);
+    out.write(toByteArray(out.getChecksum().getValue()));
+    out.flush();
+  }
+
   public void dabatase(Database db) throws IOException {
-    for (Tuple2<DatabaseKey, DatabaseValue> entry : db.entrySet()) {
+    try (DatabaseSnapshot snapshot = db.snapshot()) {
+      dabatase(snapshot);
+    }
+  }
+
+  public void dabatase(Iterable<Tuple2<DatabaseKey, DatabaseValue>> entries) throws IOException {
+    for (Tuple2<DatabaseKey, DatabaseValue> entry : entries) {
       value(entry.get1(), entry.get2());
     }
   }
 
+  /**
+   * writes a single entry, it can be encoded in another stream and copied later with
+   * {@link #encoded(byte[], int, int)}
+   */
+  public void entry(DatabaseKey key, DatabaseValue value) throws IOException {
+    value(key, value);
+  }
+
+  /**
+   * copies entries already encoded, they are included in the checksum
+   */
+  public void encoded(byte[] bytes, int offset, int length) throws IOException {
+    out.write(bytes, offset, length);
+  }
+
   private void value(DatabaseKey key, DatabaseValue value) throws IOException {
     expiredAt(value.getExpiredAt());
     type(value.getType());
@@ -114,10 +192,11 @@ public class RDBOutputStream {
       out.write(length);
     } else if (length < 0x4000) {
       // 2 bytes: 01XXXXXX XXXXXXXX
-      out.write(0x4000 & length);
+      out.write(TWO_BYTES_LENGTH | (length >> 8));
+      out.write(length & 0xFF);
     } else {
       // 5 bytes: 10...... XXXXXXXX XXXXXXXX XXXXXXXX XXXXXXXX
-      out.write(0x80);
+      out.write(FOUR_BYTES_LENGTH);
       out.write(toByteArray(length));
     }
   }
@@ -128,10 +207,81 @@ public class RDBOutputStream {
 
   private void string(SafeString value) throws IOException {
     byte[] bytes = value.getBytes();
+    if (bytes.length <= MAX_INTEGER_LENGTH && integer(bytes)) {
+      return;
+    }
+    if (compression && bytes.length > MIN_COMPRESS_LENGTH && compressed(bytes)) {
+      return;
+    }
     length(bytes.length);
     out.write(bytes);
   }
 
+  private boolean integer(byte[] bytes) throws IOException {
+    Integer value = parseInteger(bytes);
+    if (value == null) {
+      return false;
+    }
+    if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+      out.write(ENCODED_INT8);
+      out.write(value);
+    } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+      out.write(ENCODED_INT16);
+      out.write(value);
+      out.write(value >> 8);
+    } else {
+      out.write(ENCODED_INT32);
+      out.write(value);
+      out.write(value >> 8);
+      out.write(value >> 16);
+      out.write(value >> 24);
+    }
+    return true;
+  }
+
+  private boolean compressed(byte[] bytes) throws IOException {
+    int maxLength = LZF.maxLength(bytes.length);
+    if (compressBuffer.length < maxLength) {
+      compressBuffer = new byte[maxLength];
+    }
+    int length = LZF.compress(bytes, 0, bytes.length, compressBuffer, 0);
+    if (length > bytes.length - MIN_COMPRESS_SAVING) {
+      return false;
+    }
+    out.write(ENCODED_LZF);
+    length(length);
+    length(bytes.length);
+    out.write(compressBuffer, 0, length);
+    return true;
+  }
+
+  /**
+   * only the canonical representation of a 32 bits integer is accepted, so the string
+   * read back is exactly the same
+   */
+  private static Integer parseInteger(byte[] bytes) {
+    if (bytes.length == 0) {
+      return null;
+    }
+    boolean negative = bytes[0] == '-';
+    int start = negative ? 1 : 0;
+    if (start == bytes.length || (bytes[start] == '0' && (bytes.length > start + 1 || negative))) {
+      return null;
+    }
+    long value = 0;
+    for (int i = start; i < bytes.length; i++) {
+      if (bytes[i] < '0' || bytes[i] > '9') {
+        return null;
+      }
+      value = value * 10 + (bytes[i] - '0');
+    }
+    value = negative ? -value : value;
+    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      return null;
+    }
+    return (int) value;
+  }
+
   private void string(double value) throws IOException {
     string(String.valueOf(value));
   }
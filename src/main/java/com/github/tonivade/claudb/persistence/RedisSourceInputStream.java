@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.persistence;
+
+import static java.nio.ByteBuffer.wrap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+import com.github.tonivade.resp.protocol.RedisSource;
+import com.github.tonivade.resp.protocol.SafeString;
+
+public class RedisSourceInputStream implements RedisSource {
+
+  private final InputStream input;
+
+  public RedisSourceInputStream(InputStream input) {
+    this.input = input;
+  }
+
+  @Override
+  public int available() {
+    try {
+      return input.available();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public SafeString readLine() {
+    try {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      boolean cr = false;
+      while (true) {
+        int read = input.read();
+
+        if (read == -1) {
+          // end of stream
+          break;
+        }
+
+        if (read == '\r') {
+          cr = true;
+        } else if (cr && read == '\n') {
+          break;
+        } else {
+          cr = false;
+
+          baos.write(read);
+        }
+      }
+      return new SafeString(baos.toByteArray());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public SafeString readString(int size) {
+    try {
+      byte[] buffer = new byte[size + 2];
+      int readed = 0;
+      while (readed < buffer.length) {
+        int read = input.read(buffer, readed, buffer.length - readed);
+        if (read == -1) {
+          break;
+        }
+        readed += read;
+      }
+      if (readed > 0) {
+        return new SafeString(wrap(buffer, 0, Math.min(readed, size)));
+      }
+      return null;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
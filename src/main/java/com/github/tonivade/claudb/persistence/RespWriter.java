@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.github.tonivade.resp.protocol.AbstractRedisToken.ArrayRedisToken;
+import com.github.tonivade.resp.protocol.AbstractRedisToken.StringRedisToken;
+import com.github.tonivade.resp.protocol.RedisSerializer;
+import com.github.tonivade.resp.protocol.RedisToken;
+import com.github.tonivade.resp.protocol.RedisTokenType;
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Buffered RESP encoder on top of a file channel. Arrays of strings (the AOF commands) are
+ * encoded directly into the buffer, other tokens fall back to {@link RedisSerializer}.
+ */
+public class RespWriter implements Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final byte ARRAY = '*';
+  private static final byte BULK_STRING = '$';
+  private static final byte[] DELIMITER = { '\r', '\n' };
+
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private final byte[] digits = new byte[11];
+  private final RedisSerializer serializer = new RedisSerializer();
+
+  private final FileChannel channel;
+
+  public RespWriter(FileChannel channel) {
+    this.channel = channel;
+  }
+
+  public void write(RedisToken command) throws IOException {
+    if (command.getType() == RedisTokenType.ARRAY && isStringArray((ArrayRedisToken) command)) {
+      ArrayRedisToken array = (ArrayRedisToken) command;
+      putHeader(ARRAY, array.size());
+      for (RedisToken token : array.getValue()) {
+        SafeString value = ((StringRedisToken) token).getValue();
+        putHeader(BULK_STRING, value.length());
+        write(value.getBytes());
+        write(DELIMITER);
+      }
+    } else {
+      write(serializer.encodeToken(command));
+    }
+  }
+
+  public void write(byte[] bytes) throws IOException {
+    if (bytes.length > buffer.capacity()) {
+      flush();
+      write(ByteBuffer.wrap(bytes));
+    } else {
+      ensureCapacity(bytes.length);
+      buffer.put(bytes);
+    }
+  }
+
+  public void flush() throws IOException {
+    buffer.flip();
+    write(buffer);
+    buffer.clear();
+  }
+
+  public long position() throws IOException {
+    return channel.position() + buffer.position();
+  }
+
+  public void force() throws IOException {
+    channel.force(false);
+  }
+
+  @Override
+  public void close() throws IOException {
+    flush();
+    channel.close();
+  }
+
+  private boolean isStringArray(ArrayRedisToken array) {
+    for (RedisToken token : array.getValue()) {
+      if (token.getType() != RedisTokenType.STRING || ((StringRedisToken) token).getValue() == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void putHeader(byte type, int length) throws IOException {
+    int position = digits.length;
+    int value = length;
+    do {
+      digits[--position] = (byte) ('0' + value % 10);
+      value /= 10;
+    } while (value > 0);
+    ensureCapacity(1 + digits.length - position + DELIMITER.length);
+    buffer.put(type);
+    buffer.put(digits, position, digits.length - position);
+    buffer.put(DELIMITER);
+  }
+
+  private void ensureCapacity(int length) throws IOException {
+    if (buffer.remaining() < length) {
+      flush();
+    }
+  }
+
+  private void write(ByteBuffer source) throws IOException {
+    while (source.hasRemaining()) {
+      channel.write(source);
+    }
+  }
+}
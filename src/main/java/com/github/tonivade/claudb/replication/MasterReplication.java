@@ -8,6 +8,7 @@ import static com.github.tonivade.resp.protocol.RedisToken.array;
 import static com.github.tonivade.resp.protocol.RedisToken.string;
 import static java.util.stream.Collectors.toList;
 
+import java.io.ByteArrayOutputStream;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.Executors;
@@ -19,9 +20,11 @@ import org.slf4j.LoggerFactory;
 
 import com.github.tonivade.claudb.DBServerContext;
 import com.github.tonivade.claudb.DBServerState;
+import com.github.tonivade.claudb.persistence.LZF;
 import com.github.tonivade.purefun.type.Option;
 import com.github.tonivade.resp.protocol.AbstractRedisToken.ArrayRedisToken;
 import com.github.tonivade.resp.protocol.AbstractRedisTokenVisitor;
+import com.github.tonivade.resp.protocol.RedisSerializer;
 import com.github.tonivade.resp.protocol.RedisToken;
 import com.github.tonivade.resp.protocol.SafeString;
 
@@ -31,10 +34,16 @@ public class MasterReplication implements Runnable {
 
   private static final String SELECT_COMMAND = "SELECT";
   private static final String PING_COMMAND = "PING";
+  private static final String REPLCONF_COMMAND = "REPLCONF";
+  private static final String GETACK = "GETACK";
+  private static final String REPLBATCH_COMMAND = "REPLBATCH";
   private static final int TASK_DELAY = 2;
 
   private final DBServerContext server;
   private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+  private final RedisSerializer serializer = new RedisSerializer();
+
+  private long offset;
 
   public MasterReplication(DBServerContext server) {
     this.server = server;
@@ -61,18 +70,44 @@ public class MasterReplication implements Runnable {
   @Override
   public void run() {
     List<RedisToken> commands = createCommands();
-
-    for (SafeString slave : getServerState().getSlaves()) {
-      for (RedisToken command : commands) {
-        server.publish(slave.toString(), command);
+    byte[] raw = serialize(commands);
+    byte[] compressed = null;
+
+    DBServerState serverState = getServerState();
+    for (SafeString slave : serverState.getSlaves()) {
+      if (serverState.isCompressedSlave(slave.toString())) {
+        if (compressed == null) {
+          compressed = LZF.frame(raw);
+        }
+        server.publish(slave.toString(), batchCommand(compressed));
+        serverState.getReplicationStats().sent(raw.length, compressed.length);
+      } else {
+        for (RedisToken command : commands) {
+          server.publish(slave.toString(), command);
+        }
+        serverState.getReplicationStats().sent(raw.length, raw.length);
       }
     }
   }
 
+  private RedisToken batchCommand(byte[] compressed) {
+    return array(string(REPLBATCH_COMMAND), string(new SafeString(compressed)));
+  }
+
+  private byte[] serialize(List<RedisToken> commands) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    for (RedisToken command : commands) {
+      byte[] buffer = serializer.encodeToken(command);
+      output.write(buffer, 0, buffer.length);
+    }
+    return output.toByteArray();
+  }
+
   private List<RedisToken> createCommands() {
     List<RedisToken> commands = new LinkedList<>();
     commands.add(pingCommand());
     commands.addAll(commandsToReplicate());
+    commands.add(getAckCommand());
     return commands;
   }
 
@@ -80,6 +115,7 @@ public class MasterReplication implements Runnable {
     List<RedisToken> commands = new LinkedList<>();
 
     for (RedisToken command : server.getCommandsToReplicate()) {
+      offset++;
       command.accept(new AbstractRedisTokenVisitor<Void>() {
         @Override
         public Void array(ArrayRedisToken token) {
@@ -101,6 +137,10 @@ public class MasterReplication implements Runnable {
     return array(string(PING_COMMAND));
   }
 
+  private RedisToken getAckCommand() {
+    return array(string(REPLCONF_COMMAND), string(GETACK), string(String.valueOf(offset)));
+  }
+
   private RedisToken command(ArrayRedisToken token) {
     return array(token.getValue().stream().skip(1).collect(toList()));
   }
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.replication;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+public class ReplicationAcks {
+
+  private final AtomicLong offset = new AtomicLong();
+  private final Map<String, Ack> acks = new ConcurrentHashMap<>();
+  private final List<Waiting> waiting = new CopyOnWriteArrayList<>();
+
+  private ScheduledExecutorService timer;
+
+  public long increment() {
+    return offset.incrementAndGet();
+  }
+
+  public long getOffset() {
+    return offset.get();
+  }
+
+  public void ack(String slave, long slaveOffset) {
+    acks.put(slave, new Ack(slaveOffset, System.currentTimeMillis()));
+    for (Waiting wait : waiting) {
+      wait.check();
+    }
+  }
+
+  public void remove(String slave) {
+    acks.remove(slave);
+  }
+
+  public int count(long target) {
+    int count = 0;
+    for (Ack ack : acks.values()) {
+      if (ack.offset >= target) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  public void await(long target, int numReplicas, long timeoutMillis, IntConsumer callback) {
+    Waiting wait = new Waiting(target, numReplicas, callback);
+    waiting.add(wait);
+    if (timeoutMillis > 0) {
+      wait.timeout = timer().schedule(wait::expire, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+    wait.check();
+  }
+
+  public Map<String, String> lag() {
+    long now = System.currentTimeMillis();
+    long current = offset.get();
+    Map<String, String> lag = new LinkedHashMap<>();
+    for (Map.Entry<String, Ack> entry : acks.entrySet()) {
+      Ack ack = entry.getValue();
+      lag.put(entry.getKey(), "offset=" + ack.offset
+          + ",offset_lag=" + Math.max(0, current - ack.offset)
+          + ",lag=" + TimeUnit.MILLISECONDS.toSeconds(now - ack.time));
+    }
+    return lag;
+  }
+
+  public synchronized void clear() {
+    for (Waiting wait : waiting) {
+      wait.expire();
+    }
+    acks.clear();
+    if (timer != null) {
+      timer.shutdown();
+      timer = null;
+    }
+  }
+
+  private synchronized ScheduledExecutorService timer() {
+    if (timer == null) {
+      timer = Executors.newSingleThreadScheduledExecutor();
+    }
+    return timer;
+  }
+
+  private static final class Ack {
+    private final long offset;
+    private final long time;
+
+    private Ack(long offset, long time) {
+      this.offset = offset;
+      this.time = time;
+    }
+  }
+
+  private final class Waiting {
+    private final long target;
+    private final int numReplicas;
+    private final IntConsumer callback;
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    private ScheduledFuture<?> timeout;
+
+    private Waiting(long target, int numReplicas, IntConsumer callback) {
+      this.target = target;
+      this.numReplicas = numReplicas;
+      this.callback = callback;
+    }
+
+    private void check() {
+      int count = count(target);
+      if (count >= numReplicas) {
+        complete(count);
+      }
+    }
+
+    private void expire() {
+      complete(count(target));
+    }
+
+    private void complete(int count) {
+      if (done.compareAndSet(false, true)) {
+        waiting.remove(this);
+        if (timeout != null) {
+          timeout.cancel(false);
+        }
+        callback.accept(count);
+      }
+    }
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.replication;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ReplicationStats {
+
+  private final AtomicLong rawBytes = new AtomicLong();
+  private final AtomicLong sentBytes = new AtomicLong();
+  private final long started = System.nanoTime();
+
+  public void sent(long raw, long sent) {
+    rawBytes.addAndGet(raw);
+    sentBytes.addAndGet(sent);
+  }
+
+  public long getRawBytes() {
+    return rawBytes.get();
+  }
+
+  public long getSentBytes() {
+    return sentBytes.get();
+  }
+
+  public double getCompressionRatio() {
+    long sent = sentBytes.get();
+    return sent > 0 ? (double) rawBytes.get() / sent : 1.0;
+  }
+
+  public long getThroughput() {
+    long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started));
+    return sentBytes.get() / seconds;
+  }
+}
@@ -21,15 +21,19 @@ import org.slf4j.LoggerFactory;
 import com.github.tonivade.resp.RespCallback;
 import com.github.tonivade.resp.RespClient;
 import com.github.tonivade.resp.command.Session;
+import com.github.tonivade.resp.protocol.AbstractRedisToken.ArrayRedisToken;
 import com.github.tonivade.resp.protocol.AbstractRedisToken.StringRedisToken;
+import com.github.tonivade.resp.protocol.RedisParser;
 import com.github.tonivade.resp.protocol.RedisToken;
+import com.github.tonivade.resp.protocol.RedisTokenType;
 import com.github.tonivade.resp.protocol.RedisTokenVisitor;
-import com.github.tonivade.resp.protocol.SafeString;
 import com.github.tonivade.claudb.DBServerContext;
 import com.github.tonivade.claudb.command.DBCommandProcessor;
 import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.claudb.persistence.ByteBufferInputStream;
+import com.github.tonivade.claudb.persistence.LZF;
+import com.github.tonivade.claudb.persistence.RedisSourceInputStream;
 
 public class SlaveReplication implements RespCallback {
 
@@ -38,17 +42,31 @@ public class SlaveReplication implements RespCallback {
   private static final Logger LOGGER = LoggerFactory.getLogger(SlaveReplication.class);
 
   private static final String SYNC_COMMAND = "SYNC";
+  private static final String REPLCONF_COMMAND = "REPLCONF";
+  private static final String GETACK = "GETACK";
+  private static final String ACK = "ACK";
+  private static final String CAPA = "CAPA";
+  private static final String LZF_CAPA = "lzf";
+  private static final String REPLBATCH_COMMAND = "REPLBATCH";
+
+  private static final int MAX_FRAME_SIZE = 1024 * 1024 * 100;
 
   private final RespClient client;
   private final DBServerContext server;
   private final DBCommandProcessor processor;
   private final String host;
   private final int port;
+  private final boolean compression;
 
   public SlaveReplication(DBServerContext server, Session session, String host, int port) {
+    this(server, session, host, port, false);
+  }
+
+  public SlaveReplication(DBServerContext server, Session session, String host, int port, boolean compression) {
     this.server = server;
     this.host = host;
     this.port = port;
+    this.compression = compression;
     this.client = new RespClient(host, port, this);
     this.processor = new DBCommandProcessor(server, session);
   }
@@ -67,6 +85,9 @@ public class SlaveReplication implements RespCallback {
   @Override
   public void onConnect() {
     LOGGER.info("Connected with master");
+    if (compression) {
+      client.send(REPLCONF_COMMAND, CAPA, LZF_CAPA);
+    }
     client.send(array(string(SYNC_COMMAND)));
     server.getAdminDatabase().put(MASTER_KEY, createState(true));
   }
@@ -85,23 +106,68 @@ public class SlaveReplication implements RespCallback {
           return null;
         })
         .onArray(array -> {
-          processor.processCommand(array);
+          processCommand(array);
           return null;
         }).build());
   }
 
+  private void processCommand(ArrayRedisToken array) {
+    if (isGetAck(array)) {
+      client.send(REPLCONF_COMMAND, ACK, param(array, 2));
+    } else if (isBatch(array)) {
+      processBatch(array);
+    } else {
+      processor.processCommand(array);
+    }
+  }
+
+  private void processBatch(ArrayRedisToken array) {
+    byte[] batch = LZF.unframe(array.getValue().stream().skip(1).findFirst()
+        .map(token -> token.accept(RedisTokenVisitor.<byte[]>builder()
+            .onString(string -> string.getValue().getBytes()).build()))
+        .orElse(new byte[0]));
+
+    RedisParser parser = new RedisParser(MAX_FRAME_SIZE,
+        new RedisSourceInputStream(new ByteBufferInputStream(batch)));
+
+    while (true) {
+      RedisToken token = parser.next();
+      if (token.getType() != RedisTokenType.ARRAY) {
+        break;
+      }
+      processCommand((ArrayRedisToken) token);
+    }
+  }
+
+  private boolean isBatch(ArrayRedisToken array) {
+    return array.size() == 2 && REPLBATCH_COMMAND.equalsIgnoreCase(param(array, 0));
+  }
+
+  private boolean isGetAck(ArrayRedisToken array) {
+    return array.size() == 3
+        && REPLCONF_COMMAND.equalsIgnoreCase(param(array, 0))
+        && GETACK.equalsIgnoreCase(param(array, 1));
+  }
+
+  private String param(ArrayRedisToken array, int i) {
+    return array.getValue().stream().skip(i).findFirst()
+        .map(token -> token.accept(RedisTokenVisitor.<String>builder()
+            .onString(string -> string.getValue().toString()).build()))
+        .orElse("");
+  }
+
   private void processRDB(StringRedisToken token) {
     try {
-      SafeString value = token.getValue();
-      server.importRDB(toStream(value));
+      byte[] value = token.getValue().getBytes();
+      server.importRDB(toStream(LZF.isFramed(value) ? LZF.unframe(value) : value));
       LOGGER.info("loaded RDB file from master");
     } catch (IOException e) {
       LOGGER.error("error importing RDB file", e);
     }
   }
 
-  private InputStream toStream(SafeString value) {
-    return new ByteBufferInputStream(value.getBytes());
+  private InputStream toStream(byte[] value) {
+    return new ByteBufferInputStream(value);
   }
 
   private DatabaseValue createState(boolean connected) {
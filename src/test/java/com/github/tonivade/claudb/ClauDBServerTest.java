@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+public class ClauDBServerTest {
+
+  @Rule
+  public final ClauDBRule server = new ClauDBRule("localhost", 34244, DBConfig.builder().withIoThreads(2).build());
+
+  @Test
+  public void testCommands() {
+    try (Jedis jedis = new Jedis("localhost", 34244)) {
+      assertThat(jedis.ping(), equalTo("PONG"));
+      assertThat(jedis.set("a", "1"), equalTo("OK"));
+      assertThat(jedis.get("a"), equalTo("1"));
+      assertThat(jedis.get("b"), nullValue());
+      assertThat(jedis.del("a"), equalTo(1L));
+    }
+  }
+
+  @Test
+  public void testPipeline() {
+    try (Jedis jedis = new Jedis("localhost", 34244)) {
+      Pipeline pipeline = jedis.pipelined();
+      for (int i = 0; i < 100; i++) {
+        pipeline.set("key:" + i, "value:" + i);
+      }
+      Response<String> get = pipeline.get("key:99");
+      Response<Long> size = pipeline.dbSize();
+      pipeline.sync();
+
+      assertThat(get.get(), equalTo("value:99"));
+      assertThat(size.get(), equalTo(100L));
+      assertThat(jedis.get("key:0"), equalTo("value:0"));
+    }
+  }
+
+  @Test
+  public void testClients() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Long>> results = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        results.add(executor.submit(() -> {
+          try (Jedis jedis = new Jedis("localhost", 34244)) {
+            long last = 0;
+            for (int j = 0; j < 100; j++) {
+              last = jedis.incr("counter");
+            }
+            return last;
+          }
+        }));
+      }
+      for (Future<Long> result : results) {
+        result.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    try (Jedis jedis = new Jedis("localhost", 34244)) {
+      assertThat(jedis.get("counter"), equalTo("400"));
+    }
+  }
+
+  @Test
+  public void testWaitInPipeline() throws Exception {
+    try (Socket slave = new Socket("localhost", 34244);
+         Socket client = new Socket("localhost", 34244);
+         Jedis jedis = new Jedis("localhost", 34244)) {
+      // a slave that never acknowledges the commands
+      slave.getOutputStream().write("*1\r\n$4\r\nSYNC\r\n".getBytes(StandardCharsets.UTF_8));
+      assertThat(slave.getInputStream().read() >= 0, equalTo(true));
+      jedis.set("a", "1");
+
+      long start = System.nanoTime();
+      client.getOutputStream().write(
+          "*3\r\n$4\r\nWAIT\r\n$1\r\n1\r\n$3\r\n200\r\n*1\r\n$4\r\nPING\r\n".getBytes(StandardCharsets.UTF_8));
+
+      assertThat(read(client.getInputStream(), 11), equalTo(":0\r\n+PONG\r\n"));
+      // the reply comes after the timeout, so the client was suspended
+      assertThat(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200), equalTo(true));
+    }
+  }
+
+  private String read(InputStream input, int length) throws IOException {
+    byte[] buffer = new byte[length];
+    int offset = 0;
+    while (offset < length) {
+      int read = input.read(buffer, offset, length - offset);
+      if (read < 0) {
+        break;
+      }
+      offset += read;
+    }
+    return new String(buffer, 0, offset, StandardCharsets.UTF_8);
+  }
+}
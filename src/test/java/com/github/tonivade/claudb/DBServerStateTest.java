@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import java.util.Collections;
+import java.util.stream.StreamSupport;
+
+import org.junit.Test;
+
+import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseFactory;
+import com.github.tonivade.claudb.data.OnHeapDatabaseFactory;
+import com.github.tonivade.claudb.data.TrackedDatabase;
+import com.github.tonivade.claudb.data.TrackedDatabase.Delta;
+import com.github.tonivade.purefun.Tuple;
+import com.github.tonivade.purefun.data.ImmutableList;
+import com.github.tonivade.purefun.data.ImmutableSet;
+import com.github.tonivade.purefun.type.Option;
+
+public class DBServerStateTest {
+
+  private final DatabaseFactory factory = spy(new OnHeapDatabaseFactory());
+  private final DatabaseFactory other = spy(new OnHeapDatabaseFactory());
+
+  private final DBServerState state = new DBServerState(factory, Collections.singletonMap(3, other), 10);
+
+  @Test
+  public void testLazyCreation() {
+    verify(factory).create("admin");
+    verify(factory, never()).create("db-0");
+
+    Database database = state.getDatabase(0);
+
+    verify(factory).create("db-0");
+    assertThat(state.getDatabase(0), sameInstance(database));
+  }
+
+  @Test
+  public void testDatabaseFactory() {
+    state.getDatabase(3);
+
+    verify(other).create("db-3");
+    verify(factory, never()).create("db-3");
+  }
+
+  @Test
+  public void testSnapshot() {
+    state.getDatabase(1).put(safeKey("a"), string("1"));
+
+    assertThat(state.snapshot().size(), is(10));
+    assertThat(state.snapshot().stream().mapToLong(db -> StreamSupport.stream(db.spliterator(), false).count()).sum(), is(1L));
+    verify(factory, never()).create("db-0");
+    verify(other, never()).create(anyString());
+  }
+
+  @Test
+  public void testOpenFileDatabases() {
+    DatabaseFactory files = spy(new OnHeapDatabaseFactory());
+    doReturn(false).when(files).isLazyFree();
+
+    new DBServerState(factory, Collections.singletonMap(3, files), 10);
+
+    verify(files).create("db-3");
+    verify(factory, never()).create("db-0");
+  }
+
+  @Test
+  public void testTrackChanges() {
+    state.getDatabase(0);
+    state.trackChanges();
+
+    assertThat(state.getDatabase(0), instanceOf(TrackedDatabase.class));
+    assertThat(state.getDatabase(1), instanceOf(TrackedDatabase.class));
+  }
+
+  @Test
+  public void testFlushAsync() throws InterruptedException {
+    Database database = state.getDatabase(0);
+    database.put(safeKey("a"), string("1"));
+    int version = state.getVersion();
+
+    state.flush(0, true);
+
+    assertThat(state.getDatabase(0), not(sameInstance(database)));
+    assertThat(state.getDatabase(0).isEmpty(), is(true));
+    assertThat(state.getVersion(), not(version));
+
+    waitLazyFree();
+
+    assertThat(database.isEmpty(), is(true));
+    assertThat(state.getLazyFree().getFreedObjects(), is(1L));
+  }
+
+  @Test
+  public void testFlushAsyncTracked() throws InterruptedException {
+    state.getDatabase(0).put(safeKey("a"), string("1"));
+    state.trackChanges();
+    state.delta();
+
+    state.flushAll(true);
+    state.getDatabase(0).put(safeKey("b"), string("2"));
+
+    assertThat(state.delta().head().get(),
+        is(new Delta(true, ImmutableSet.of(Tuple.of(safeKey("b"), Option.some(string("2")))))));
+    waitLazyFree();
+  }
+
+  @Test
+  public void testFlushSync() {
+    Database database = state.getDatabase(0);
+    database.put(safeKey("a"), string("1"));
+
+    state.flushAll(false);
+
+    assertThat(state.getDatabase(0), sameInstance(database));
+    assertThat(database.isEmpty(), is(true));
+  }
+
+  @Test
+  public void testSwap() {
+    Database first = state.getDatabase(0);
+    first.put(safeKey("a"), string("1"));
+    int version = state.getVersion();
+
+    state.swap(0, 1);
+
+    assertThat(state.getDatabase(1), sameInstance(first));
+    assertThat(state.getDatabase(0).isEmpty(), is(true));
+    assertThat(state.getVersion(), not(version));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testSwapDifferentFactories() {
+    state.swap(0, 3);
+  }
+
+  @Test
+  public void testSwapTracked() {
+    state.getDatabase(0).put(safeKey("a"), string("1"));
+    state.getDatabase(1).put(safeKey("b"), string("2"));
+    state.trackChanges();
+    state.delta();
+
+    state.swap(0, 1);
+
+    assertThat(state.getDatabase(0).get(safeKey("b")), is(string("2")));
+    ImmutableList<Delta> delta = state.delta();
+    assertThat(delta.head().get(),
+        is(new Delta(true, ImmutableSet.of(Tuple.of(safeKey("b"), Option.some(string("2")))))));
+    assertThat(delta.tail().head().get(),
+        is(new Delta(true, ImmutableSet.of(Tuple.of(safeKey("a"), Option.some(string("1")))))));
+  }
+
+  private void waitLazyFree() throws InterruptedException {
+    while (state.getLazyFree().getPendingObjects() > 0) {
+      Thread.sleep(10);
+    }
+  }
+}
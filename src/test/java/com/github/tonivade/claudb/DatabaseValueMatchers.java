@@ -8,7 +8,6 @@ package com.github.tonivade.claudb;
 import static com.github.tonivade.claudb.data.DatabaseValue.string;
 import static com.github.tonivade.resp.protocol.SafeString.safeString;
 
-import java.time.Instant;
 import java.util.Map.Entry;
 
 import org.hamcrest.Matcher;
@@ -75,7 +74,7 @@ public class DatabaseValueMatchers {
 
     @Override
     protected boolean matchesSafely(DatabaseValue item) {
-      return item.isExpired(Instant.now());
+      return item.isExpired(System.currentTimeMillis());
     }
   }
 
@@ -88,7 +87,7 @@ public class DatabaseValueMatchers {
 
     @Override
     protected boolean matchesSafely(DatabaseValue item) {
-      return !item.isExpired(Instant.now());
+      return !item.isExpired(System.currentTimeMillis());
     }
   }
 
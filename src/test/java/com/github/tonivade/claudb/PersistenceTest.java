@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.tonivade.resp.RespServer;
+
+import redis.clients.jedis.Jedis;
+
+public class PersistenceTest {
+
+  private static final int PORT = 34247;
+  private static final String DUMP_FILE = "dump.rdb";
+  private static final String REDO_FILE = "redo.aof";
+
+  @Before
+  public void setUp() {
+    deleteFiles();
+  }
+
+  @After
+  public void tearDown() {
+    deleteFiles();
+  }
+
+  @Test
+  public void testRewriteWithConcurrentWrites() throws Exception {
+    DBConfig config = DBConfig.builder().withPersistence().withAutoRewrite(1, 1).build();
+
+    long total = 0;
+    RespServer server = ClauDB.builder().port(PORT).config(config).build();
+    server.start();
+    try {
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+        List<Future<Long>> writers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+          writers.add(executor.submit(() -> {
+            long count = 0;
+            try (Jedis jedis = new Jedis("localhost", PORT)) {
+              while (System.nanoTime() < deadline) {
+                jedis.incr("counter");
+                jedis.lpush("list", "x");
+                count++;
+              }
+            }
+            return count;
+          }));
+        }
+        for (Future<Long> writer : writers) {
+          total += writer.get();
+        }
+      } finally {
+        executor.shutdown();
+      }
+    } finally {
+      server.stop();
+    }
+
+    // the rewritten file starts with the RDB preamble
+    assertThat(startsWithPreamble(new File(REDO_FILE)), is(true));
+
+    server = ClauDB.builder().port(PORT).config(config).build();
+    server.start();
+    try (Jedis jedis = new Jedis("localhost", PORT)) {
+      assertThat(jedis.get("counter"), equalTo(String.valueOf(total)));
+      assertThat(jedis.llen("list"), equalTo(total));
+    } finally {
+      server.stop();
+    }
+  }
+
+  private boolean startsWithPreamble(File file) throws IOException {
+    byte[] preamble = new byte[5];
+    try (InputStream input = new FileInputStream(file)) {
+      return input.read(preamble) == preamble.length
+          && new String(preamble, StandardCharsets.UTF_8).equals("REDIS");
+    }
+  }
+
+  private void deleteFiles() {
+    new File(DUMP_FILE).delete();
+    new File(REDO_FILE).delete();
+  }
+}
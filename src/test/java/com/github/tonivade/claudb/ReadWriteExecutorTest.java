@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import redis.clients.jedis.Jedis;
+
+public class ReadWriteExecutorTest {
+
+  @Rule
+  public final ClauDBRule server = new ClauDBRule("localhost", 34243, DBConfig.builder().withConcurrentReads().build());
+
+  private final ReadWriteExecutor executor = new ReadWriteExecutor();
+
+  @Test
+  public void testRead() {
+    assertThat(executor.read(() -> "value"), is("value"));
+    assertThat(executor.getRetries(), is(0L));
+  }
+
+  @Test
+  public void testWrite() {
+    assertThat(executor.write(() -> executor.write(() -> executor.read(() -> "nested"))), is("nested"));
+  }
+
+  @Test
+  public void testReadRetry() throws InterruptedException {
+    AtomicInteger executions = new AtomicInteger();
+    CountDownLatch reading = new CountDownLatch(1);
+    CountDownLatch written = new CountDownLatch(1);
+
+    Thread writer = new Thread(() -> {
+      await(reading);
+      executor.write(() -> null);
+      written.countDown();
+    });
+    writer.start();
+
+    String result = executor.read(() -> {
+      if (executions.incrementAndGet() == 1) {
+        reading.countDown();
+        await(written);
+      }
+      return "value";
+    });
+    writer.join();
+
+    assertThat(result, is("value"));
+    assertThat(executions.get(), is(2));
+    assertThat(executor.getRetries(), is(1L));
+  }
+
+  @Test
+  public void testCommands() {
+    try (Jedis jedis = new Jedis("localhost", 34243)) {
+      assertThat(jedis.set("a", "1"), equalTo("OK"));
+      assertThat(jedis.mset("b", "2", "c", "3"), equalTo("OK"));
+      assertThat(jedis.get("a"), equalTo("1"));
+      assertThat(jedis.get("d"), nullValue());
+      assertThat(jedis.mget("a", "b", "c"), equalTo(Arrays.asList("1", "2", "3")));
+      assertThat(jedis.keys("*").size(), equalTo(3));
+      assertThat(jedis.del("a"), equalTo(1L));
+      assertThat(jedis.exists("a"), equalTo(false));
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
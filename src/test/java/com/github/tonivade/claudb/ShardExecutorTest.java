@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tonivade.claudb.data.OnHeapDatabaseFactory;
+import com.github.tonivade.claudb.data.ShardedDatabase;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+public class ShardExecutorTest {
+
+  @Rule
+  public final ClauDBRule server = new ClauDBRule("localhost", 34242, DBConfig.builder().withShards(4).build());
+
+  private final ShardExecutor executor = new ShardExecutor(4);
+
+  @After
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  @Test
+  public void testExecute() {
+    String thread = executor.execute(1, () -> Thread.currentThread().getName());
+
+    assertThat(thread, is("shard-1"));
+    assertThat(executor.execute(1, () -> executor.execute(1, () -> "nested")), is("nested"));
+  }
+
+  @Test
+  public void testExecuteAll() {
+    AtomicInteger running = new AtomicInteger();
+
+    String thread = executor.executeAll(() -> {
+      running.incrementAndGet();
+      // the shards are stopped, so the tasks run in the calling thread
+      return executor.execute(2, () -> executor.executeAll(() -> Thread.currentThread().getName()));
+    });
+
+    assertThat(thread, is(Thread.currentThread().getName()));
+    assertThat(running.get(), is(1));
+    assertThat(executor.execute(2, () -> Thread.currentThread().getName()), is("shard-2"));
+  }
+
+  @Test
+  public void testExecuteEach() {
+    Map<Integer, Supplier<String>> tasks = new HashMap<>();
+    tasks.put(1, () -> Thread.currentThread().getName());
+    tasks.put(3, () -> Thread.currentThread().getName());
+
+    Map<Integer, String> threads = executor.executeEach(tasks);
+
+    assertThat(threads.get(1), is("shard-1"));
+    assertThat(threads.get(3), is("shard-3"));
+  }
+
+  @Test
+  public void testDatabaseFactories() {
+    OnHeapDatabaseFactory factory = new OnHeapDatabaseFactory();
+    DBConfig config = DBConfig.builder().withShards(4)
+        .withDatabaseFactory(1, factory).withDatabaseFactory(2, factory).build();
+    ClauDB db = new ClauDB("localhost", 34248, config);
+    db.start();
+    try {
+      // the shard threads write at the same time to every database
+      assertThat(db.getDatabase(0), instanceOf(ShardedDatabase.class));
+      assertThat(db.getDatabase(1), instanceOf(ShardedDatabase.class));
+      assertThat(db.getDatabase(2), instanceOf(ShardedDatabase.class));
+    } finally {
+      db.stop();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testExecuteError() {
+    executor.execute(0, () -> {
+      throw new IllegalArgumentException();
+    });
+  }
+
+  @Test
+  public void testCommands() {
+    try (Jedis jedis = new Jedis("localhost", 34242)) {
+      for (int i = 0; i < 100; i++) {
+        assertThat(jedis.set("key:" + i, "value:" + i), equalTo("OK"));
+      }
+      assertThat(jedis.get("key:1"), equalTo("value:1"));
+      assertThat(jedis.get("key:100"), nullValue());
+      assertThat(jedis.mget("key:1", "key:2", "key:3"), equalTo(Arrays.asList("value:1", "value:2", "value:3")));
+      assertThat(jedis.dbSize(), equalTo(100L));
+      assertThat(jedis.keys("key:*").size(), equalTo(100));
+      assertThat(jedis.del("key:1", "key:2", "key:3"), equalTo(3L));
+      assertThat(jedis.dbSize(), equalTo(97L));
+      assertThat(jedis.rename("key:4", "key:1"), equalTo("OK"));
+      assertThat(jedis.get("key:1"), equalTo("value:4"));
+    }
+  }
+
+  @Test
+  public void testPipeline() {
+    try (Jedis jedis = new Jedis("localhost", 34242)) {
+      Pipeline pipeline = jedis.pipelined();
+      for (int i = 0; i < 100; i++) {
+        pipeline.set("key:" + i, "value:" + i);
+      }
+      Response<Long> size = pipeline.dbSize();
+      pipeline.multi();
+      pipeline.incr("key:1000");
+      pipeline.incr("key:1001");
+      Response<List<Object>> exec = pipeline.exec();
+      List<Response<Long>> counters = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        counters.add(pipeline.incr("key:" + (1000 + i % 2)));
+      }
+      Response<List<String>> values = pipeline.mget("key:0", "key:50", "key:99");
+      pipeline.sync();
+
+      assertThat(size.get(), equalTo(100L));
+      assertThat(exec.get(), equalTo(Arrays.<Object>asList(1L, 1L)));
+      for (int i = 0; i < 10; i++) {
+        assertThat(counters.get(i).get(), equalTo(2L + i / 2));
+      }
+      assertThat(values.get(), equalTo(Arrays.asList("value:0", "value:50", "value:99")));
+    }
+  }
+}
@@ -5,12 +5,14 @@
 package com.github.tonivade.claudb.command;
 
 import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
-import static com.github.tonivade.resp.protocol.SafeString.safeString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.util.function.Supplier;
+
 import org.hamcrest.Matcher;
 import org.junit.Assert;
 import org.junit.rules.TestRule;
@@ -23,6 +25,7 @@ import com.github.tonivade.claudb.DBServerContext;
 import com.github.tonivade.claudb.DBServerState;
 import com.github.tonivade.claudb.DBSessionState;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseClock;
 import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.claudb.data.OnHeapDatabaseFactory;
@@ -94,7 +97,10 @@ public class CommandRule implements TestRule {
         when(session.removeValue("tx")).thenReturn(Option.none());
         when(server.getAdminDatabase()).thenReturn(serverState.getAdminDatabase());
         when(server.isMaster()).thenReturn(true);
+        when(server.getClock()).thenReturn(DatabaseClock.system());
         when(server.getValue("state")).thenReturn(Option.some(serverState));
+        when(server.executeOnKeys(any(), any()))
+            .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
 
         MockitoAnnotations.initMocks(target);
 
@@ -138,16 +144,23 @@ public class CommandRule implements TestRule {
 
   public CommandRule withParams(String ... params) {
     if (params != null) {
-      when(request.getParams()).thenReturn(ImmutableArray.of(params).map(SafeString::safeString));
+      withSafeParams(ImmutableArray.of(params).map(SafeString::safeString).toList().toArray(new SafeString[0]));
+    }
+    return this;
+  }
+
+  public CommandRule withSafeParams(SafeString ... params) {
+    if (params != null) {
+      when(request.getParams()).thenReturn(ImmutableArray.of(params));
       int i = 0;
-      for (String param : params) {
-        when(request.getParam(i++)).thenReturn(safeString(param));
+      for (SafeString param : params) {
+        when(request.getParam(i++)).thenReturn(param);
       }
       when(request.getLength()).thenReturn(params.length);
       when(request.getOptionalParam(anyInt())).thenAnswer(invocation -> {
         Integer param = (Integer) invocation.getArguments()[0];
         if (param < params.length) {
-          return Option.some(safeString(params[param]));
+          return Option.some(params[param]);
         }
         return Option.none();
       });
@@ -12,6 +12,8 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import org.junit.Before;
@@ -116,6 +118,20 @@ public class CommandWrapperTest {
     assertThat(response, equalTo(error("WRONGTYPE Operation against a key holding the wrong kind of value")));
   }
 
+  @Test
+  public void testKeyCommand() {
+    when(db.isType(any(DatabaseKey.class), eq(DataType.STRING))).thenReturn(true);
+    when(request.getParam(0)).thenReturn(safeString("test"));
+
+    KeyCommand command = new KeyCommand();
+    DBCommandWrapper wrapper = new DBCommandWrapper(command);
+
+    RedisToken response = wrapper.execute(request);
+
+    assertThat(response, equalTo(responseOk()));
+    verify(db).isType(same(command.key), eq(DataType.STRING));
+  }
+
   @Command("test")
   private static class SomeCommand implements DBCommand {
     @Override
@@ -141,4 +157,16 @@ public class CommandWrapperTest {
       return responseOk();
     }
   }
+
+  @Command("test")
+  @ParamType(DataType.STRING)
+  private static class KeyCommand implements DBKeyCommand {
+    private DatabaseKey key;
+
+    @Override
+    public RedisToken execute(Database db, DatabaseKey key, Request request) {
+      this.key = key;
+      return responseOk();
+    }
+  }
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.command.key;
+
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tonivade.claudb.command.CommandRule;
+import com.github.tonivade.claudb.command.CommandUnderTest;
+import com.github.tonivade.claudb.persistence.ByteBufferInputStream;
+import com.github.tonivade.claudb.persistence.RDBInputStream;
+import com.github.tonivade.resp.protocol.AbstractRedisToken.StringRedisToken;
+import com.github.tonivade.resp.protocol.RedisToken;
+
+@CommandUnderTest(DumpCommand.class)
+public class DumpCommandTest {
+
+  @Rule
+  public final CommandRule rule = new CommandRule(this);
+
+  @Test
+  public void testExecute() throws IOException {
+    rule.withData("a", string("test").expiredAtMillis(System.currentTimeMillis() + 10000))
+    .withParams("a")
+    .execute();
+
+    StringRedisToken response = (StringRedisToken) rule.getResponse();
+    RDBInputStream input = new RDBInputStream(new ByteBufferInputStream(response.getValue().getBytes()));
+
+    assertThat(input.restore(), is(string("test")));
+  }
+
+  @Test
+  public void testNotExists() {
+    rule.withParams("a")
+    .execute()
+    .assertThat(RedisToken.nullString());
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+
+package com.github.tonivade.claudb.command.key;
+
+import static com.github.tonivade.claudb.DatabaseValueMatchers.isNotExpired;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static org.hamcrest.CoreMatchers.is;
+
+import java.time.Instant;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tonivade.resp.protocol.RedisToken;
+import com.github.tonivade.claudb.command.CommandRule;
+import com.github.tonivade.claudb.command.CommandUnderTest;
+
+@CommandUnderTest(ExpireAtMillisCommand.class)
+public class ExpireAtMillisCommandTest {
+
+  @Rule
+  public final CommandRule rule = new CommandRule(this);
+
+  @Test
+  public void testExecute() {
+    String timestamp = String.valueOf(Instant.now().plusSeconds(10).toEpochMilli());
+
+    rule.withData("test", string("value"))
+    .withParams("test", timestamp)
+    .execute()
+    .assertValue("test", isNotExpired())
+    .assertValue("test", is(string("value")))
+    .assertThat(RedisToken.integer(true));
+
+    rule.withParams("notExists", timestamp)
+    .execute()
+    .assertThat(RedisToken.integer(false));
+  }
+
+  @Test
+  public void testInvalidTimestamp() {
+    rule.withData("test", string("value"))
+    .withParams("test", "a")
+    .execute()
+    .assertThat(RedisToken.error("ERR value is not an integer or out of range"));
+  }
+}
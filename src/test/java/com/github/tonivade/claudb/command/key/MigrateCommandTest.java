@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.command.key;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+
+import com.github.tonivade.claudb.ClauDBRule;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol.Command;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.params.MigrateParams;
+import redis.clients.jedis.util.SafeEncoder;
+
+public class MigrateCommandTest {
+
+  private static final int SOURCE = 34245;
+  private static final int TARGET = 34246;
+
+  @Rule
+  public final RuleChain servers = RuleChain
+      .outerRule(new ClauDBRule("localhost", SOURCE))
+      .around(new ClauDBRule("localhost", TARGET));
+
+  @Test
+  public void testDumpRestore() {
+    try (Jedis source = new Jedis("localhost", SOURCE); Jedis target = new Jedis("localhost", TARGET)) {
+      source.sadd("a", "1", "2", "3");
+
+      byte[] payload = source.dump("a");
+
+      assertThat(target.restore("a", 0, payload), equalTo("OK"));
+      assertThat(target.smembers("a"), equalTo(new HashSet<>(Arrays.asList("1", "2", "3"))));
+    }
+  }
+
+  @Test
+  public void testMigrate() {
+    try (Jedis source = new Jedis("localhost", SOURCE); Jedis target = new Jedis("localhost", TARGET)) {
+      source.set("a", "1");
+
+      assertThat(source.migrate("localhost", TARGET, "a", 1, 1000), equalTo("OK"));
+
+      assertThat(source.get("a"), nullValue());
+      target.select(1);
+      assertThat(target.get("a"), equalTo("1"));
+    }
+  }
+
+  @Test
+  public void testMigrateKeys() {
+    try (Jedis source = new Jedis("localhost", SOURCE); Jedis target = new Jedis("localhost", TARGET)) {
+      for (int i = 0; i < 100; i++) {
+        source.set("key:" + i, "value:" + i);
+      }
+      source.expire("key:0", 100);
+      String[] keys = new String[101];
+      for (int i = 0; i < keys.length; i++) {
+        keys[i] = "key:" + i;
+      }
+
+      assertThat(source.migrate("localhost", TARGET, 0, 1000, new MigrateParams().copy(), keys), equalTo("OK"));
+
+      assertThat(source.dbSize(), equalTo(100L));
+      assertThat(target.dbSize(), equalTo(100L));
+      assertThat(target.get("key:99"), equalTo("value:99"));
+      assertThat(target.pttl("key:0") > 0, equalTo(true));
+      assertThat(target.ttl("key:1"), equalTo(-1L));
+    }
+  }
+
+  @Test
+  public void testMigrateBusyKey() {
+    try (Jedis source = new Jedis("localhost", SOURCE); Jedis target = new Jedis("localhost", TARGET)) {
+      source.set("a", "1");
+      target.set("a", "2");
+
+      try {
+        source.migrate("localhost", TARGET, "a", 0, 1000);
+        fail("target key exists");
+      } catch (JedisDataException e) {
+        assertThat(e.getMessage(), equalTo("ERR Target instance replied with error: BUSYKEY Target key name already exists."));
+      }
+      assertThat(source.get("a"), equalTo("1"));
+      assertThat(target.get("a"), equalTo("2"));
+
+      Object reply = source.sendCommand(Command.MIGRATE, "localhost", String.valueOf(TARGET), "a", "0", "1000", "REPLACE");
+
+      assertThat(SafeEncoder.encode((byte[]) reply), equalTo("OK"));
+      assertThat(source.exists("a"), equalTo(false));
+      assertThat(target.get("a"), equalTo("1"));
+    }
+  }
+
+  @Test
+  public void testNoKey() {
+    try (Jedis source = new Jedis("localhost", SOURCE)) {
+      assertThat(source.migrate("localhost", TARGET, "a", 0, 1000), equalTo("NOKEY"));
+    }
+  }
+}
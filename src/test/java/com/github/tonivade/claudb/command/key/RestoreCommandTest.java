@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.command.key;
+
+import static com.github.tonivade.claudb.DatabaseValueMatchers.isNotExpired;
+import static com.github.tonivade.claudb.DatabaseValueMatchers.isString;
+import static com.github.tonivade.claudb.DatabaseValueMatchers.list;
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tonivade.claudb.command.CommandRule;
+import com.github.tonivade.claudb.command.CommandUnderTest;
+import com.github.tonivade.resp.protocol.RedisToken;
+import com.github.tonivade.resp.protocol.SafeString;
+
+@CommandUnderTest(RestoreCommand.class)
+public class RestoreCommandTest {
+
+  @Rule
+  public final CommandRule rule = new CommandRule(this);
+
+  @Test
+  public void testExecute() throws IOException {
+    rule.withSafeParams(safeString("a"), safeString("0"), DumpCommand.dump(list("1", "2")))
+    .execute()
+    .assertThat(RedisToken.responseOk())
+    .assertValue("a", is(list("1", "2")))
+    .assertValue("a", isNotExpired());
+  }
+
+  @Test
+  public void testExecuteWithTtl() throws IOException {
+    rule.withSafeParams(safeString("a"), safeString("10000"), DumpCommand.dump(string("test")))
+    .execute()
+    .assertThat(RedisToken.responseOk());
+
+    long ttl = rule.getDatabase().get(safeKey("a")).timeToLiveMillis(System.currentTimeMillis());
+    assertThat(ttl > 0 && ttl <= 10000, is(true));
+  }
+
+  @Test
+  public void testBusyKey() throws IOException {
+    rule.withData("a", string("old"))
+    .withSafeParams(safeString("a"), safeString("0"), DumpCommand.dump(string("test")))
+    .execute()
+    .assertThat(RedisToken.error("BUSYKEY Target key name already exists."))
+    .assertValue("a", isString("old"));
+  }
+
+  @Test
+  public void testReplace() throws IOException {
+    rule.withData("a", string("old"))
+    .withSafeParams(safeString("a"), safeString("0"), DumpCommand.dump(string("test")), safeString("replace"))
+    .execute()
+    .assertThat(RedisToken.responseOk())
+    .assertValue("a", isString("test"));
+  }
+
+  @Test
+  public void testInvalidPayload() {
+    rule.withSafeParams(safeString("a"), safeString("0"), new SafeString(new byte[] { 0, 1, 2 }))
+    .execute()
+    .assertThat(RedisToken.error("ERR DUMP payload version or checksum are wrong"));
+  }
+
+  @Test
+  public void testInvalidTtl() throws IOException {
+    rule.withSafeParams(safeString("a"), safeString("-1"), DumpCommand.dump(string("test")))
+    .execute()
+    .assertThat(RedisToken.error("ERR Invalid TTL value, must be >= 0"));
+  }
+}
@@ -8,7 +8,6 @@ package com.github.tonivade.claudb.command.key;
 import static com.github.tonivade.resp.protocol.SafeString.safeString;
 import static com.github.tonivade.claudb.data.DatabaseValue.string;
 
-import java.time.Instant;
 
 import org.junit.Test;
 
@@ -21,9 +20,9 @@ public class TimeToLiveMillisCommandTest extends TimeToLiveCommandTest {
 
   @Test
   public void testExecute() {
-    Instant now = Instant.now();
+    long now = System.currentTimeMillis();
 
-    rule.withData(new DatabaseKey(safeString("test")), string("value").expiredAt(now.plusSeconds(10)))
+    rule.withData(new DatabaseKey(safeString("test")), string("value").expiredAtMillis(now + 10000))
     .withParams("test")
     .execute()
     .assertThat(org.hamcrest.Matchers.any(RedisToken.class));
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.command.server;
+
+import static com.github.tonivade.resp.protocol.RedisToken.error;
+import static com.github.tonivade.resp.protocol.RedisToken.status;
+import static org.mockito.Mockito.when;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tonivade.claudb.command.CommandRule;
+import com.github.tonivade.claudb.command.CommandUnderTest;
+
+@CommandUnderTest(BackgroundSaveCommand.class)
+public class BackgroundSaveCommandTest {
+
+  @Rule
+  public final CommandRule rule = new CommandRule(this);
+
+  @Test
+  public void execute() {
+    when(rule.getServer().bgsave()).thenReturn(true);
+
+    rule.execute()
+        .assertThat(status("Background saving started"));
+  }
+
+  @Test
+  public void withoutPersistence() {
+    rule.execute()
+        .assertThat(error("ERR persistence is not enabled"));
+  }
+}
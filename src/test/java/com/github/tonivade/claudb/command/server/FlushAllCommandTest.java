@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+
+package com.github.tonivade.claudb.command.server;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static com.github.tonivade.resp.protocol.RedisToken.status;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tonivade.claudb.command.CommandRule;
+import com.github.tonivade.claudb.command.CommandUnderTest;
+
+@CommandUnderTest(FlushAllCommand.class)
+public class FlushAllCommandTest {
+
+  @Rule
+  public final CommandRule rule = new CommandRule(this);
+
+  @Test
+  public void testExecute() {
+    rule.withData("a", string("test"))
+    .execute()
+    .assertThat(status("OK"));
+
+    assertThat(rule.getDatabase().isEmpty(), is(true));
+  }
+
+  @Test
+  public void testAsync() {
+    rule.withData("a", string("test"))
+    .withParams("ASYNC")
+    .execute()
+    .assertThat(status("OK"));
+
+    assertThat(rule.getServerState().getDatabase(0).containsKey(safeKey("a")), is(false));
+  }
+}
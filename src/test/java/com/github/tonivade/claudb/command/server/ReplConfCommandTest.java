@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+
+package com.github.tonivade.claudb.command.server;
+
+import static com.github.tonivade.claudb.DBServerContext.NO_REPLY;
+import static com.github.tonivade.resp.protocol.RedisToken.responseOk;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tonivade.claudb.command.CommandRule;
+import com.github.tonivade.claudb.command.CommandUnderTest;
+
+@CommandUnderTest(ReplConfCommand.class)
+public class ReplConfCommandTest {
+
+  @Rule
+  public final CommandRule rule = new CommandRule(this);
+
+  @Test
+  public void ack() {
+    rule.withParams("ACK", "10")
+        .execute()
+        .assertThat(NO_REPLY);
+
+    assertThat(rule.getServerState().getReplicationAcks().count(10), is(1));
+  }
+
+  @Test
+  public void capa() {
+    rule.withParams("CAPA", "lzf")
+        .execute()
+        .assertThat(responseOk());
+
+    assertThat(rule.getServerState().isCompressedSlave(rule.getSession().getId()), is(true));
+  }
+
+  @Test
+  public void otherOptions() {
+    rule.withParams("listening-port", "7082")
+        .execute()
+        .assertThat(responseOk());
+  }
+}
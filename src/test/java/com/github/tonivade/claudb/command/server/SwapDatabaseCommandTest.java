@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+
+package com.github.tonivade.claudb.command.server;
+
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static com.github.tonivade.resp.protocol.RedisToken.error;
+import static com.github.tonivade.resp.protocol.RedisToken.status;
+import static org.hamcrest.CoreMatchers.is;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tonivade.claudb.command.CommandRule;
+import com.github.tonivade.claudb.command.CommandUnderTest;
+
+@CommandUnderTest(SwapDatabaseCommand.class)
+public class SwapDatabaseCommandTest {
+
+  @Rule
+  public final CommandRule rule = new CommandRule(this);
+
+  @Test
+  public void testExecute() {
+    rule.withData("a", string("test"))
+    .withParams("0", "0")
+    .execute()
+    .assertThat(status("OK"))
+    .assertValue("a", is(string("test")));
+  }
+
+  @Test
+  public void testOutOfRange() {
+    rule.withParams("0", "1")
+    .execute()
+    .assertThat(error("ERR DB index is out of range"));
+  }
+
+  @Test
+  public void testInvalidIndex() {
+    rule.withParams("0", "a")
+    .execute()
+    .assertThat(error("ERR invalid second DB index"));
+  }
+}
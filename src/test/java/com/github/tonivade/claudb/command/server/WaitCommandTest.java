@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+
+package com.github.tonivade.claudb.command.server;
+
+import static com.github.tonivade.claudb.DBServerContext.NO_REPLY;
+import static com.github.tonivade.resp.protocol.RedisToken.array;
+import static com.github.tonivade.resp.protocol.RedisToken.error;
+import static com.github.tonivade.resp.protocol.RedisToken.integer;
+import static com.github.tonivade.resp.protocol.RedisToken.string;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tonivade.claudb.command.CommandRule;
+import com.github.tonivade.claudb.command.CommandUnderTest;
+
+@CommandUnderTest(WaitCommand.class)
+public class WaitCommandTest {
+
+  @Rule
+  public final CommandRule rule = new CommandRule(this);
+
+  @Test
+  public void withoutSlaves() {
+    rule.withParams("1", "100")
+        .execute()
+        .assertThat(integer(0));
+  }
+
+  @Test
+  public void alreadyAcknowledged() {
+    rule.getServerState().addSlave("slave:1");
+    rule.getServerState().append(array(string("0"), string("set"), string("a"), string("1")));
+    rule.getServerState().getReplicationAcks().ack("slave:1", 1);
+
+    rule.withParams("1", "100")
+        .execute()
+        .assertThat(integer(1));
+  }
+
+  @Test
+  public void waitUntilAcknowledged() {
+    rule.getServerState().addSlave("slave:1");
+    rule.getServerState().append(array(string("0"), string("set"), string("a"), string("1")));
+
+    rule.withParams("1", "0")
+        .execute()
+        .assertThat(NO_REPLY);
+
+    rule.getServerState().getReplicationAcks().ack("slave:1", 1);
+
+    assertThat(rule.getSessionState().resume().get().getNow(null), equalTo(integer(1)));
+  }
+
+  @Test
+  public void waitUntilTimeout() throws Exception {
+    rule.getServerState().addSlave("slave:1");
+    rule.getServerState().append(array(string("0"), string("set"), string("a"), string("1")));
+
+    rule.withParams("1", "100")
+        .execute()
+        .assertThat(NO_REPLY);
+
+    assertThat(rule.getSessionState().resume().get().get(1, TimeUnit.SECONDS), equalTo(integer(0)));
+  }
+
+  @Test
+  public void invalidTimeout() {
+    rule.withParams("1", "a")
+        .execute()
+        .assertThat(error("ERR value is not an integer or out of range"));
+  }
+}
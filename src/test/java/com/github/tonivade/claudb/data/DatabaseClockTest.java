@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import com.github.tonivade.claudb.data.DatabaseClock.CachedClock;
+import com.github.tonivade.claudb.data.DatabaseClock.ManualClock;
+
+public class DatabaseClockTest {
+
+  private final ManualClock clock = DatabaseClock.manual(1000);
+
+  @Test
+  public void testManualClock() {
+    Database database = new OnHeapDatabaseFactory(false, clock).create("test");
+    database.put(safeKey("a"), string("value").expiredAtMillis(clock.preciseMillis() + 10000));
+
+    assertThat(database.get(safeKey("a")), notNullValue());
+    assertThat(database.get(safeKey("a")).timeToLiveSeconds(clock.millis()), is(10));
+
+    clock.advance(10000);
+
+    assertThat(database.get(safeKey("a")), notNullValue());
+
+    clock.advance(1);
+
+    assertThat(database.get(safeKey("a")), nullValue());
+    assertThat(database.isEmpty(), is(false));
+
+    database.evictableKeys(clock.millis()).forEach(database::delete);
+
+    assertThat(database.isEmpty(), is(true));
+  }
+
+  @Test
+  public void testEvictableKeys() {
+    Database database = new OnHeapDatabaseFactory(false, clock).create("test");
+    database.put(safeKey("a"), string("value").expiredAtMillis(2000));
+    database.put(safeKey("b"), string("value").expiredAtMillis(3000));
+    database.put(safeKey("c"), string("value"));
+
+    clock.set(2500);
+
+    assertThat(database.evictableKeys(clock.millis()).size(), is(1));
+    assertThat(database.evictableKeys(clock.millis()).contains(safeKey("a")), is(true));
+  }
+
+  @Test
+  public void testCachedClock() throws InterruptedException {
+    CachedClock cached = new CachedClock(1);
+
+    cached.start();
+    try {
+      long first = cached.millis();
+
+      Thread.sleep(50);
+
+      assertThat(cached.millis(), greaterThan(first));
+      assertThat(cached.millis(), lessThanOrEqualTo(cached.preciseMillis()));
+    } finally {
+      cached.stop();
+    }
+  }
+}
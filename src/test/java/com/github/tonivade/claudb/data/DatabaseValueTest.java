@@ -13,6 +13,7 @@ import static com.github.tonivade.claudb.data.DatabaseValue.string;
 import static com.github.tonivade.claudb.data.DatabaseValue.zset;
 import static com.github.tonivade.resp.protocol.SafeString.safeString;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertThat;
 
@@ -33,7 +34,7 @@ public class DatabaseValueTest {
 
   @Test
   public void testNoExpirationValue() {
-    Instant now = Instant.now();
+    long now = System.currentTimeMillis();
 
     DatabaseValue nonExpiredValue = string("hola");
 
@@ -44,21 +45,43 @@ public class DatabaseValueTest {
 
   @Test
   public void testExpiredKey() {
-    Instant now = Instant.now();
+    long now = System.currentTimeMillis();
 
-    DatabaseValue expiredValue = string("hola").expiredAt(now.plusSeconds(10));
+    DatabaseValue expiredValue = string("hola").expiredAtMillis(now + 10000);
 
     assertThat(expiredValue.isExpired(now), is(false));
     assertThat(expiredValue.timeToLiveSeconds(now), is(10));
     assertThat(expiredValue.timeToLiveMillis(now), is(10000L));
 
-    Instant expired = now.plusSeconds(11);
+    long expired = now + 11000;
 
     assertThat(expiredValue.isExpired(expired), is(true));
     assertThat(expiredValue.timeToLiveMillis(expired), is(-1000L));
     assertThat(expiredValue.timeToLiveSeconds(expired), is(-1));
   }
 
+  @Test
+  public void testExpirationKeepsType() {
+    long now = System.currentTimeMillis();
+
+    DatabaseValue value = list(safeString("a")).expiredAtMillis(now + 10000);
+
+    assertThat(value.getType(), is(DataType.LIST));
+    assertThat(value.getExpiredAt(), is(Instant.ofEpochMilli(now + 10000)));
+    assertThat(value.noExpire().getType(), is(DataType.LIST));
+    assertThat(value.noExpire().getExpiredAt(), is(nullValue()));
+    assertThat(value, equalTo(list(safeString("a"))));
+  }
+
+  @Test
+  public void testExpirationFarAway() {
+    long now = System.currentTimeMillis();
+
+    DatabaseValue value = string("hola").expiredAtMillis(Long.MAX_VALUE);
+
+    assertThat(value.isExpired(now), is(false));
+  }
+
   @Test
   public void getValue() {
     assertThat(string("hola").getString(), is(safeString("hola")));
@@ -85,6 +108,7 @@ public class DatabaseValueTest {
     verifySerializable(hash(entry(safeString("key"), safeString("value"))));
     verifySerializable(zset(score(1., safeString("value"))));
     verifySerializable(string("hello world!"));
+    verifySerializable(string("hello world!").expiredAtMillis(System.currentTimeMillis() + 10000));
   }
 
   private void verifySerializable(DatabaseValue value) throws IOException, ClassNotFoundException {
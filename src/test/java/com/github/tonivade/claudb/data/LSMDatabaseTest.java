@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.tonivade.purefun.Tuple;
+import com.github.tonivade.purefun.Tuple2;
+import com.github.tonivade.purefun.data.ImmutableSet;
+import com.github.tonivade.purefun.data.Sequence;
+
+public class LSMDatabaseTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final BlockCache cache = new BlockCache(1024 * 1024);
+
+  private LSMDatabase database;
+
+  @Before
+  public void setUp() {
+    database = new LSMDatabase(folder.getRoot(), "test", Runnable::run, cache, 4);
+  }
+
+  @Test
+  public void testDatabase() {
+    database.put(safeKey("a"), string("value"));
+
+    assertThat(database.get(safeKey("a")).getString(), is(safeString("value")));
+    assertThat(database.containsKey(safeKey("a")), is(true));
+    assertThat(database.containsKey(safeKey("b")), is(false));
+    assertThat(database.isEmpty(), is(false));
+    assertThat(database.size(), is(1));
+
+    Sequence<DatabaseValue> values = database.values();
+
+    assertThat(values.size(), is(1));
+    assertThat(values.contains(string("value")), is(true));
+
+    Sequence<DatabaseKey> keySet = database.keySet();
+
+    assertThat(keySet.size(), is(1));
+    assertThat(keySet.contains(safeKey("a")), is(true));
+
+    Sequence<Tuple2<DatabaseKey, DatabaseValue>> entrySet = database.entrySet();
+
+    assertThat(entrySet.size(), is(1));
+
+    Tuple2<DatabaseKey, DatabaseValue> entry = entrySet.iterator().next();
+
+    assertThat(entry.get1(), is(safeKey("a")));
+    assertThat(entry.get2(), is(string("value")));
+  }
+
+  @Test
+  public void testSegments() {
+    for (int i = 0; i < 12; i++) {
+      database.put(safeKey("key" + i), string("value" + i));
+    }
+
+    assertThat(database.segments(), is(3));
+    assertThat(database.size(), is(12));
+
+    database.put(safeKey("key0"), string("updated"));
+    database.remove(safeKey("key1"));
+
+    assertThat(database.get(safeKey("key0")), is(string("updated")));
+    assertThat(database.get(safeKey("key1")), nullValue());
+    assertThat(database.get(safeKey("key2")), is(string("value2")));
+    assertThat(database.size(), is(11));
+    assertThat(database.keySet().size(), is(11));
+    assertThat(database.keySet().contains(safeKey("key1")), is(false));
+    assertThat(cache.getMisses() > 0, is(true));
+  }
+
+  @Test
+  public void testDelete() {
+    for (int i = 0; i < 12; i++) {
+      database.put(safeKey("key" + i), string("value" + i));
+    }
+
+    assertThat(database.delete(safeKey("key1")), is(true));
+    assertThat(database.delete(safeKey("key1")), is(false));
+    assertThat(database.delete(safeKey("other")), is(false));
+    assertThat(database.get(safeKey("key1")), nullValue());
+    assertThat(database.size(), is(11));
+  }
+
+  @Test
+  public void testCompaction() {
+    for (int i = 0; i < 20; i++) {
+      database.put(safeKey("key" + (i % 10)), string("value" + i));
+    }
+    database.remove(safeKey("key0"));
+    for (int i = 0; i < 3; i++) {
+      database.put(safeKey("other" + i), string("value" + i));
+    }
+
+    assertThat(database.segments() <= 4, is(true));
+    assertThat(database.size(), is(12));
+    assertThat(database.get(safeKey("key0")), nullValue());
+    assertThat(database.get(safeKey("key9")), is(string("value19")));
+    assertThat(database.entrySet().size(), is(12));
+    assertThat(segmentFiles(), is(database.segments()));
+  }
+
+  @Test
+  public void testClear() {
+    for (int i = 0; i < 10; i++) {
+      database.put(safeKey("key" + i), string("value" + i));
+    }
+
+    database.clear();
+    database.put(safeKey("a"), string("1"));
+
+    assertThat(database.get(safeKey("key0")), nullValue());
+    assertThat(database.size(), is(1));
+    assertThat(database.segments(), is(0));
+    assertThat(segmentFiles(), is(0));
+  }
+
+  @Test
+  public void testReopen() {
+    for (int i = 0; i < 10; i++) {
+      database.put(safeKey("key" + i), string("value" + i));
+    }
+    database.remove(safeKey("key3"));
+    database.close();
+
+    LSMDatabase reopened = new LSMDatabase(folder.getRoot(), "test", Runnable::run, cache, 4);
+
+    assertThat(reopened.size(), is(9));
+    assertThat(reopened.get(safeKey("key0")), is(string("value0")));
+    assertThat(reopened.get(safeKey("key3")), nullValue());
+    assertThat(reopened.get(safeKey("key9")), is(string("value9")));
+    assertThat(reopened.segments() > 0, is(true));
+  }
+
+  @Test
+  public void testEvictableKeys() {
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < 10; i++) {
+      database.put(safeKey("key" + i), string("value" + i));
+    }
+    database.put(safeKey("key1"), string("value1").expiredAtMillis(now - 10000));
+    database.put(safeKey("key2"), string("value2").expiredAtMillis(now + 10000));
+    database.put(safeKey("key4"), string("value4").expiredAtMillis(now - 10000));
+    database.put(safeKey("key4"), string("value4"));
+
+    ImmutableSet<DatabaseKey> keys = database.evictableKeys(now);
+
+    assertThat(keys.size(), is(1));
+    assertThat(keys.contains(safeKey("key1")), is(true));
+    assertThat(database.get(safeKey("key1")), nullValue());
+    assertThat(database.evictableKeys(now).isEmpty(), is(true));
+  }
+
+  @Test
+  public void testSnapshot() {
+    for (int i = 0; i < 12; i++) {
+      database.put(safeKey("key" + i), string("value" + i));
+    }
+
+    List<Tuple2<DatabaseKey, DatabaseValue>> entries = new ArrayList<>();
+    try (DatabaseSnapshot snapshot = database.snapshot()) {
+      for (int i = 0; i < 12; i++) {
+        database.put(safeKey("key" + i), string("updated" + i));
+      }
+      database.remove(safeKey("key0"));
+      snapshot.forEach(entries::add);
+    }
+
+    assertThat(entries.size(), is(12));
+    assertThat(entries.contains(Tuple.of(safeKey("key0"), string("value0"))), is(true));
+    assertThat(entries.contains(Tuple.of(safeKey("key5"), string("value5"))), is(true));
+    assertThat(segmentFiles(), is(database.segments()));
+  }
+
+  private int segmentFiles() {
+    return folder.getRoot().list((dir, name) -> name.endsWith(".sst")).length;
+  }
+}
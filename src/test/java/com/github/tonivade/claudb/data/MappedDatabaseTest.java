@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.tonivade.purefun.Tuple2;
+import com.github.tonivade.purefun.data.Sequence;
+
+public class MappedDatabaseTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testDatabase() {
+    Database database = new MappedDatabase(folder.getRoot(), "test");
+
+    database.put(safeKey("a"), string("value"));
+
+    assertThat(database.get(safeKey("a")).getString(), is(safeString("value")));
+    assertThat(database.containsKey(safeKey("a")), is(true));
+    assertThat(database.containsKey(safeKey("b")), is(false));
+    assertThat(database.isEmpty(), is(false));
+    assertThat(database.size(), is(1));
+
+    Sequence<DatabaseValue> values = database.values();
+
+    assertThat(values.size(), is(1));
+    assertThat(values.contains(string("value")), is(true));
+
+    Sequence<DatabaseKey> keySet = database.keySet();
+
+    assertThat(keySet.size(), is(1));
+    assertThat(keySet.contains(safeKey("a")), is(true));
+
+    Sequence<Tuple2<DatabaseKey, DatabaseValue>> entrySet = database.entrySet();
+
+    assertThat(entrySet.size(), is(1));
+
+    Tuple2<DatabaseKey, DatabaseValue> entry = entrySet.iterator().next();
+
+    assertThat(entry.get1(), is(safeKey("a")));
+    assertThat(entry.get2(), is(string("value")));
+  }
+
+  @Test
+  public void testRemove() {
+    Database database = new MappedDatabase(folder.getRoot(), "test");
+
+    database.put(safeKey("a"), string("1"));
+    database.put(safeKey("b"), string("2"));
+
+    assertThat(database.remove(safeKey("a")), is(string("1")));
+    assertThat(database.remove(safeKey("a")), nullValue());
+    assertThat(database.get(safeKey("a")), nullValue());
+    assertThat(database.get(safeKey("b")), is(string("2")));
+    assertThat(database.size(), is(1));
+  }
+
+  @Test
+  public void testDelete() {
+    Database database = new MappedDatabase(folder.getRoot(), "test");
+
+    database.put(safeKey("a"), string("1"));
+    database.put(safeKey("b"), string("2"));
+
+    assertThat(database.delete(safeKey("a")), is(true));
+    assertThat(database.delete(safeKey("a")), is(false));
+    assertThat(database.get(safeKey("a")), nullValue());
+    assertThat(database.get(safeKey("b")), is(string("2")));
+    assertThat(database.size(), is(1));
+  }
+
+  @Test
+  public void testForceWrites() {
+    MappedDatabase database = new MappedDatabase(folder.getRoot(), "test", true);
+
+    database.put(safeKey("a"), string("1"));
+    database.put(safeKey("b"), string("2"));
+    database.remove(safeKey("a"));
+
+    MappedDatabase reopened = new MappedDatabase(folder.getRoot(), "test");
+
+    assertThat(reopened.get(safeKey("a")), nullValue());
+    assertThat(reopened.get(safeKey("b")), is(string("2")));
+    assertThat(reopened.size(), is(1));
+  }
+
+  @Test
+  public void testReopen() {
+    MappedDatabase database = new MappedDatabase(folder.getRoot(), "test");
+    for (int i = 0; i < 5000; i++) {
+      database.put(safeKey("key" + i), string("value" + i));
+    }
+    database.remove(safeKey("key0"));
+    database.close();
+
+    Database reopened = new MappedDatabase(folder.getRoot(), "test");
+
+    assertThat(reopened.size(), is(4999));
+    assertThat(reopened.get(safeKey("key0")), nullValue());
+    for (int i = 1; i < 5000; i++) {
+      assertThat(reopened.get(safeKey("key" + i)), is(string("value" + i)));
+    }
+  }
+
+  @Test
+  public void testCompaction() {
+    MappedDatabase database = new MappedDatabase(folder.getRoot(), "test");
+    char[] chars = new char[10000];
+    for (int i = 0; i < 300; i++) {
+      Arrays.fill(chars, (char) ('a' + i % 26));
+      database.put(safeKey("a"), string(new String(chars)));
+    }
+    database.put(safeKey("b"), string("1"));
+
+    assertThat(database.needsCompaction(), is(true));
+
+    database.compact();
+
+    assertThat(database.needsCompaction(), is(false));
+    assertThat(database.get(safeKey("a")), is(string(new String(chars))));
+    assertThat(database.get(safeKey("b")), is(string("1")));
+    assertThat(new File(folder.getRoot(), "test.0.dat").exists(), is(false));
+    assertThat(new File(folder.getRoot(), "test.1.dat").exists(), is(true));
+
+    database.close();
+    Database reopened = new MappedDatabase(folder.getRoot(), "test");
+
+    assertThat(reopened.size(), is(2));
+    assertThat(reopened.get(safeKey("b")), is(string("1")));
+  }
+
+  @Test
+  public void testWritesDuringCompaction() throws InterruptedException {
+    MappedDatabase database = new MappedDatabase(folder.getRoot(), "test");
+    char[] chars = new char[10000];
+    for (int i = 0; i < 300; i++) {
+      database.put(safeKey("a"), string(new String(chars)));
+    }
+    for (int i = 0; i < 5000; i++) {
+      database.put(safeKey("key" + i), string("value" + i));
+    }
+
+    Thread compactor = new Thread(database::compact);
+    compactor.start();
+    for (int i = 0; i < 5000; i++) {
+      if (i % 2 == 0) {
+        database.put(safeKey("key" + i), string("updated" + i));
+      } else {
+        database.remove(safeKey("key" + i));
+      }
+      database.put(safeKey("new" + i), string("value" + i));
+    }
+    compactor.join();
+
+    assertThat(new File(folder.getRoot(), "test.1.dat").exists(), is(true));
+    database.close();
+    MappedDatabase reopened = new MappedDatabase(folder.getRoot(), "test");
+
+    assertThat(reopened.size(), is(7501));
+    for (int i = 0; i < 5000; i++) {
+      assertThat(reopened.get(safeKey("key" + i)), is(i % 2 == 0 ? string("updated" + i) : null));
+      assertThat(reopened.get(safeKey("new" + i)), is(string("value" + i)));
+    }
+  }
+
+  @Test
+  public void testScanDelaysCompaction() {
+    MappedDatabase database = new MappedDatabase(folder.getRoot(), "test");
+    char[] chars = new char[10000];
+    for (int i = 0; i < 300; i++) {
+      database.put(safeKey("a"), string(new String(chars)));
+    }
+    for (int i = 0; i < 2000; i++) {
+      database.put(safeKey("key" + i), string("value" + i));
+    }
+
+    int count = 0;
+    try (DatabaseSnapshot scan = database.scan()) {
+      assertThat(database.needsCompaction(), is(false));
+
+      for (Tuple2<DatabaseKey, DatabaseValue> entry : scan) {
+        database.compact();
+        count++;
+      }
+    }
+
+    assertThat(count, is(2001));
+    assertThat(database.needsCompaction(), is(true));
+  }
+
+  @Test
+  public void testClear() {
+    MappedDatabase database = new MappedDatabase(folder.getRoot(), "test");
+    database.put(safeKey("a"), string("1"));
+
+    database.clear();
+    database.put(safeKey("b"), string("2"));
+
+    assertThat(database.get(safeKey("a")), nullValue());
+    assertThat(database.get(safeKey("b")), is(string("2")));
+    assertThat(database.size(), is(1));
+  }
+}
@@ -7,6 +7,7 @@ package com.github.tonivade.claudb.data;
 import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.string;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
 import org.junit.Before;
@@ -53,6 +54,28 @@ public class OffHeapDatabaseTest {
                                                        entry(safeKey("c"), string("3"))));
   }
 
+  @Test
+  public void unlink() throws InterruptedException {
+    LazyFree lazyFree = new LazyFree();
+    StringBuilder large = new StringBuilder();
+    for (int i = 0; i < 100_000; i++) {
+      large.append('x');
+    }
+    database.put(safeKey("a"), string("1"));
+    database.put(safeKey("b"), string(large.toString()));
+
+    assertThat(database.unlink(safeKey("a"), lazyFree), is(true));
+    assertThat(database.unlink(safeKey("b"), lazyFree), is(true));
+    assertThat(database.unlink(safeKey("c"), lazyFree), is(false));
+    assertThat(database.isEmpty(), is(true));
+
+    while (lazyFree.getPendingObjects() > 0) {
+      Thread.sleep(10);
+    }
+    // only the large value is released in background
+    assertThat(lazyFree.getFreedObjects(), is(1L));
+  }
+
   private Tuple2<DatabaseKey, DatabaseValue> entry(DatabaseKey key, DatabaseValue value) {
     return Tuple.of(key, value);
   }
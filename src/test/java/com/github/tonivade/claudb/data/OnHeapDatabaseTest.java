@@ -8,8 +8,10 @@ import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.string;
 import static com.github.tonivade.resp.protocol.SafeString.safeString;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 
+
 import org.junit.Test;
 
 import com.github.tonivade.purefun.Tuple2;
@@ -48,4 +50,22 @@ public class OnHeapDatabaseTest {
     assertThat(entry.get1(), is(safeKey("a")));
     assertThat(entry.get2(), is(string("value")));
   }
+
+  @Test
+  public void testExpiredIsNotRemovedByReads() {
+    database.put(safeKey("a"), string("value").expiredAtMillis(System.currentTimeMillis() - 10000));
+
+    assertThat(database.get(safeKey("a")), is(nullValue()));
+    assertThat(database.containsKey(safeKey("a")), is(false));
+    assertThat(database.size(), is(1));
+    assertThat(database.evictableKeys(System.currentTimeMillis()).contains(safeKey("a")), is(true));
+    assertThat(database.remove(safeKey("a")), is(nullValue()));
+    assertThat(database.size(), is(0));
+  }
+
+  @Test
+  public void testConcurrent() {
+    assertThat(new OnHeapDatabaseFactory().isConcurrent(), is(false));
+    assertThat(new OnHeapDatabaseFactory(true).isConcurrent(), is(true));
+  }
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class ShardedDatabaseTest {
+
+  private final Database[] shards = {
+      new OnHeapDatabaseFactory().create("db-0"),
+      new OnHeapDatabaseFactory().create("db-1"),
+      new OnHeapDatabaseFactory().create("db-2")
+  };
+  private final ShardedDatabase database = new ShardedDatabase(shards);
+
+  @Test
+  public void testShard() {
+    for (int i = 0; i < 100; i++) {
+      int shard = ShardedDatabase.shard(safeString("key:" + i), 3);
+
+      assertThat(shard >= 0 && shard < 3, is(true));
+      assertThat(ShardedDatabase.shard(safeString("key:" + i), 3), is(shard));
+    }
+  }
+
+  @Test
+  public void testPut() {
+    for (int i = 0; i < 100; i++) {
+      database.put(safeKey("key:" + i), string("value:" + i));
+    }
+
+    for (int i = 0; i < 100; i++) {
+      int shard = ShardedDatabase.shard(safeString("key:" + i), 3);
+      assertThat(shards[shard].get(safeKey("key:" + i)), is(string("value:" + i)));
+      assertThat(database.get(safeKey("key:" + i)), is(string("value:" + i)));
+    }
+    assertThat(database.size(), is(100));
+    assertThat(database.keySet().size(), is(100));
+    assertThat(database.values().size(), is(100));
+    assertThat(database.entrySet().size(), is(100));
+    assertThat(shards[0].size() + shards[1].size() + shards[2].size(), is(100));
+  }
+
+  @Test
+  public void testRemove() {
+    database.put(safeKey("a"), string("1"));
+    database.put(safeKey("b"), string("2"));
+
+    assertThat(database.remove(safeKey("a")), is(string("1")));
+    assertThat(database.get(safeKey("a")), nullValue());
+    assertThat(database.containsKey(safeKey("b")), is(true));
+    assertThat(database.size(), is(1));
+  }
+
+  @Test
+  public void testClear() {
+    database.put(safeKey("a"), string("1"));
+    database.put(safeKey("b"), string("2"));
+
+    database.clear();
+
+    assertThat(database.isEmpty(), is(true));
+    assertThat(database.size(), is(0));
+  }
+}
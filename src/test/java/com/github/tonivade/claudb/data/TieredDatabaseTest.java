@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class TieredDatabaseTest {
+
+  private final Database cold = new OnHeapDatabaseFactory().create("cold");
+  private final TieredDatabase database = new TieredDatabase(cold, 2);
+
+  @Test
+  public void testColdKeys() {
+    database.put(safeKey("a"), string("1"));
+    database.put(safeKey("b"), string("2"));
+    database.put(safeKey("c"), string("3"));
+
+    assertThat(database.getHotSize(), is(2));
+    assertThat(cold.containsKey(safeKey("c")), is(true));
+    assertThat(database.size(), is(3));
+    assertThat(database.keySet().size(), is(3));
+    assertThat(database.entrySet().size(), is(3));
+    assertThat(database.values().size(), is(3));
+  }
+
+  @Test
+  public void testPromotion() {
+    database.put(safeKey("a"), string("1"));
+    database.put(safeKey("b"), string("2"));
+    database.put(safeKey("c"), string("3"));
+
+    assertThat(database.get(safeKey("c")), is(string("3")));
+
+    assertThat(database.getPromotions(), is(1L));
+    assertThat(database.getDemotions(), is(1L));
+    assertThat(cold.containsKey(safeKey("c")), is(false));
+    assertThat(cold.containsKey(safeKey("a")), is(true));
+    assertThat(database.get(safeKey("a")), is(string("1")));
+    assertThat(database.size(), is(3));
+  }
+
+  @Test
+  public void testRemove() {
+    database.put(safeKey("a"), string("1"));
+    database.put(safeKey("b"), string("2"));
+    database.put(safeKey("c"), string("3"));
+
+    assertThat(database.remove(safeKey("a")), is(string("1")));
+    assertThat(database.remove(safeKey("c")), is(string("3")));
+    assertThat(database.get(safeKey("c")), nullValue());
+    assertThat(database.size(), is(1));
+
+    database.clear();
+
+    assertThat(database.isEmpty(), is(true));
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import com.github.tonivade.claudb.data.TrackedDatabase.Delta;
+import com.github.tonivade.purefun.Tuple;
+import com.github.tonivade.purefun.data.ImmutableSet;
+import com.github.tonivade.purefun.type.Option;
+
+public class TrackedDatabaseTest {
+
+  private final TrackedDatabase database = new TrackedDatabase(new OnHeapDatabaseFactory().create("test"));
+
+  @Test
+  public void testPut() {
+    database.put(safeKey("a"), string("1"));
+    database.putIfAbsent(safeKey("b"), string("2"));
+
+    assertThat(database.delta(), is(new Delta(false, ImmutableSet.of(
+        Tuple.of(safeKey("a"), Option.some(string("1"))),
+        Tuple.of(safeKey("b"), Option.some(string("2")))))));
+    assertThat(database.delta(), is(Delta.empty()));
+  }
+
+  @Test
+  public void testRemove() {
+    database.put(safeKey("a"), string("1"));
+    database.delta();
+
+    database.remove(safeKey("a"));
+    database.remove(safeKey("b"));
+
+    assertThat(database.delta(), is(new Delta(false, ImmutableSet.of(Tuple.of(safeKey("a"), Option.none())))));
+  }
+
+  @Test
+  public void testClear() {
+    database.put(safeKey("a"), string("1"));
+    database.put(safeKey("b"), string("2"));
+    database.delta();
+
+    database.clear();
+    database.put(safeKey("c"), string("3"));
+
+    assertThat(database.delta(), is(new Delta(true, ImmutableSet.of(Tuple.of(safeKey("c"), Option.some(string("3")))))));
+    assertThat(database.delta(), is(Delta.empty()));
+  }
+}
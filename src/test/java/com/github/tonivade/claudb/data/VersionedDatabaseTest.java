@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.github.tonivade.purefun.Tuple2;
+
+public class VersionedDatabaseTest {
+
+  private final Database wrapped = new OnHeapDatabaseFactory().create("test");
+  private final VersionedDatabase database = new VersionedDatabase(wrapped);
+
+  @Test
+  public void testSnapshot() {
+    database.put(safeKey("a"), string("1"));
+    database.put(safeKey("b"), string("2"));
+
+    try (DatabaseSnapshot snapshot = database.snapshot()) {
+      database.put(safeKey("a"), string("updated"));
+      database.remove(safeKey("b"));
+      database.put(safeKey("c"), string("3"));
+
+      assertThat(database.get(safeKey("a")), is(string("updated")));
+      assertThat(database.get(safeKey("b")), nullValue());
+      assertThat(database.size(), is(2));
+      assertThat(wrapped.get(safeKey("a")), is(string("1")));
+
+      Map<DatabaseKey, DatabaseValue> entries = read(snapshot);
+
+      assertThat(entries.size(), is(2));
+      assertThat(entries.get(safeKey("a")), is(string("1")));
+      assertThat(entries.get(safeKey("b")), is(string("2")));
+    }
+
+    assertThat(database.layers(), is(1));
+
+    database.put(safeKey("d"), string("4"));
+
+    assertThat(database.layers(), is(0));
+    assertThat(wrapped.size(), is(3));
+    assertThat(wrapped.get(safeKey("a")), is(string("updated")));
+    assertThat(wrapped.get(safeKey("b")), nullValue());
+    assertThat(database.size(), is(3));
+    assertThat(database.entrySet().size(), is(3));
+  }
+
+  @Test
+  public void testClear() {
+    database.put(safeKey("a"), string("1"));
+
+    try (DatabaseSnapshot snapshot = database.snapshot()) {
+      database.clear();
+      database.put(safeKey("b"), string("2"));
+
+      assertThat(database.get(safeKey("a")), nullValue());
+      assertThat(database.size(), is(1));
+      assertThat(database.keySet().size(), is(1));
+      assertThat(read(snapshot).get(safeKey("a")), is(string("1")));
+    }
+
+    database.put(safeKey("c"), string("3"));
+    database.put(safeKey("d"), string("4"));
+
+    assertThat(database.layers(), is(0));
+    assertThat(wrapped.size(), is(3));
+    assertThat(wrapped.get(safeKey("a")), nullValue());
+  }
+
+  @Test
+  public void testNestedSnapshots() {
+    database.put(safeKey("a"), string("1"));
+
+    DatabaseSnapshot first = database.snapshot();
+    database.put(safeKey("a"), string("2"));
+    DatabaseSnapshot second = database.snapshot();
+    database.put(safeKey("a"), string("3"));
+
+    assertThat(read(first).get(safeKey("a")), is(string("1")));
+    assertThat(read(second).get(safeKey("a")), is(string("2")));
+    assertThat(read(second).size(), is(1));
+    assertThat(database.get(safeKey("a")), is(string("3")));
+
+    first.close();
+    second.close();
+    database.put(safeKey("b"), string("4"));
+    database.put(safeKey("c"), string("5"));
+
+    assertThat(database.layers(), is(0));
+    assertThat(wrapped.get(safeKey("a")), is(string("3")));
+    assertThat(database.size(), is(3));
+  }
+
+  private static Map<DatabaseKey, DatabaseValue> read(DatabaseSnapshot snapshot) {
+    Map<DatabaseKey, DatabaseValue> entries = new HashMap<>();
+    for (Tuple2<DatabaseKey, DatabaseValue> entry : snapshot) {
+      entries.put(entry.get1(), entry.get2());
+    }
+    return entries;
+  }
+}
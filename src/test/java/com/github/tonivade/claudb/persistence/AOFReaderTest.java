@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.persistence;
+
+import static com.github.tonivade.resp.protocol.RedisToken.array;
+import static com.github.tonivade.resp.protocol.RedisToken.string;
+import static com.github.tonivade.resp.protocol.RedisTokenType.UNKNOWN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.tonivade.resp.protocol.RedisParser;
+import com.github.tonivade.resp.protocol.RedisToken;
+
+public class AOFReaderTest {
+
+  private static final String COMMANDS =
+      "*4\r\n$1\r\n0\r\n$3\r\nset\r\n$1\r\na\r\n$1\r\n1\r\n" +
+      "*4\r\n$1\r\n0\r\n$3\r\nset\r\n$1\r\nb\r\n$10\r\n0123456789\r\n";
+
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    file = File.createTempFile("redo", ".aof");
+  }
+
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+
+  @Test
+  public void parse() throws IOException {
+    write(COMMANDS);
+
+    try (AOFReader reader = new AOFReader(file)) {
+      assertThat(readTokens(reader), contains(array(string("0"), string("set"), string("a"), string("1")),
+                                              array(string("0"), string("set"), string("b"), string("0123456789"))));
+      assertThat(reader.available(), is(0));
+    }
+  }
+
+  @Test
+  public void parseWithSmallWindow() throws IOException {
+    write(COMMANDS);
+
+    try (AOFReader reader = new AOFReader(file, 8)) {
+      assertThat(readTokens(reader), contains(array(string("0"), string("set"), string("a"), string("1")),
+                                              array(string("0"), string("set"), string("b"), string("0123456789"))));
+    }
+  }
+
+  @Test
+  public void preamble() throws IOException {
+    write("REDIS" + COMMANDS);
+
+    try (AOFReader reader = new AOFReader(file, 3)) {
+      assertThat(reader.startsWith("REDIS".getBytes(UTF_8)), is(true));
+
+      InputStream input = reader.asInputStream();
+      byte[] preamble = new byte[5];
+      assertThat(input.read(preamble), is(5));
+      assertThat(reader.position(), is(5L));
+
+      assertThat(readTokens(reader).size(), is(2));
+    }
+  }
+
+  @Test(expected = UncheckedIOException.class)
+  public void tornBulkString() throws IOException {
+    write(COMMANDS.substring(0, COMMANDS.length() - 7));
+
+    try (AOFReader reader = new AOFReader(file)) {
+      readTokens(reader);
+    }
+  }
+
+  private void write(String content) throws IOException {
+    Files.write(file.toPath(), content.getBytes(UTF_8));
+  }
+
+  private List<RedisToken> readTokens(AOFReader reader) {
+    RedisParser parser = new RedisParser(1024 * 1024, reader);
+    List<RedisToken> tokens = new LinkedList<>();
+    while (true) {
+      RedisToken token = parser.next();
+      if (token.getType() == UNKNOWN) {
+        break;
+      }
+      tokens.add(token);
+    }
+    return tokens;
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.persistence;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.list;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.time.Instant;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.tonivade.purefun.Tuple;
+import com.github.tonivade.purefun.data.ImmutableSet;
+
+public class AOFRewriteTest {
+
+  private final File file = new File("rewrite.aof");
+
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+
+  @Test
+  public void rewriteString() throws IOException {
+    Instant now = Instant.now();
+
+    try (RespWriter output = new RespWriter(FileChannel.open(file.toPath(), CREATE, WRITE, TRUNCATE_EXISTING))) {
+      new AOFRewrite(output).database(1, ImmutableSet.of(
+          Tuple.of(safeKey("a"), string("1").expiredAtMillis(now.toEpochMilli() + 1000)),
+          Tuple.of(safeKey("b"), string("2").expiredAtMillis(now.toEpochMilli() - 1000))), now.toEpochMilli());
+    }
+
+    assertThat(read(), is("*4\r\n$1\r\n1\r\n$3\r\nset\r\n$1\r\na\r\n$1\r\n1\r\n"
+        + "*4\r\n$1\r\n1\r\n$9\r\npexpireat\r\n$1\r\na\r\n$13\r\n" + (now.toEpochMilli() + 1000) + "\r\n"));
+  }
+
+  @Test
+  public void rewriteList() throws IOException {
+    try (RespWriter output = new RespWriter(FileChannel.open(file.toPath(), CREATE, WRITE, TRUNCATE_EXISTING))) {
+      new AOFRewrite(output).database(0, ImmutableSet.of(
+          Tuple.of(safeKey("a"), list(safeString("1"), safeString("2")))), System.currentTimeMillis());
+    }
+
+    assertThat(read(), is("*5\r\n$1\r\n0\r\n$5\r\nrpush\r\n$1\r\na\r\n$1\r\n1\r\n$1\r\n2\r\n"));
+  }
+
+  private String read() throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), UTF_8);
+  }
+}
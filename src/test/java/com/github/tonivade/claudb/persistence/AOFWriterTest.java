@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.persistence;
+
+import static com.github.tonivade.resp.protocol.RedisToken.array;
+import static com.github.tonivade.resp.protocol.RedisToken.string;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.tonivade.resp.protocol.RedisToken;
+
+public class AOFWriterTest {
+
+  private static final String COMMAND = "*4\r\n$1\r\n0\r\n$3\r\nset\r\n$1\r\na\r\n$1\r\n1\r\n";
+
+  private final File file = new File("writer.aof");
+  private final PersistenceStats stats = new PersistenceStats();
+
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+
+  @Test
+  public void appendAlways() throws IOException {
+    AOFWriter writer = new AOFWriter(file, AppendFsync.ALWAYS, stats);
+
+    writer.append(setCommand());
+    writer.append(setCommand());
+    writer.close();
+
+    assertThat(read(), is(COMMAND + COMMAND));
+    assertThat(stats.getAofSize(), is((long) COMMAND.length() * 2));
+    assertThat(stats.getPendingCommands(), is(0L));
+    assertThat(stats.getUnsyncedBytes(), is(0L));
+    assertThat(stats.getFsyncs() > 0, is(true));
+  }
+
+  @Test
+  public void syncAlways() throws Exception {
+    AOFWriter writer = new AOFWriter(file, AppendFsync.ALWAYS, stats);
+
+    writer.append(setCommand());
+    writer.append(setCommand());
+    writer.sync().get(1, TimeUnit.SECONDS);
+
+    assertThat(stats.getUnsyncedBytes(), is(0L));
+    assertThat(stats.getFsyncs() > 0, is(true));
+    assertThat(read(), is(COMMAND + COMMAND));
+
+    writer.close();
+  }
+
+  @Test
+  public void syncNo() throws IOException {
+    AOFWriter writer = new AOFWriter(file, AppendFsync.NO, stats);
+
+    writer.append(setCommand());
+
+    assertThat(writer.sync().isDone(), is(true));
+
+    writer.close();
+  }
+
+  @Test
+  public void appendNo() throws IOException {
+    AOFWriter writer = new AOFWriter(file, AppendFsync.NO, stats);
+
+    writer.append(setCommand());
+    writer.close();
+
+    assertThat(read(), is(COMMAND));
+    assertThat(stats.getFsyncs(), is(0L));
+    assertThat(stats.getUnsyncedBytes(), is((long) COMMAND.length()));
+  }
+
+  @Test
+  public void rewrite() throws IOException {
+    File rewrite = new File("writer.aof.rewrite");
+    AOFWriter writer = new AOFWriter(file, AppendFsync.EVERYSEC, stats);
+
+    writer.append(setCommand());
+    writer.append(setCommand());
+    writer.startRewrite();
+    writer.append(setCommand());
+    Files.write(rewrite.toPath(), COMMAND.getBytes(UTF_8));
+    writer.finishRewrite(rewrite);
+    writer.close();
+
+    assertThat(rewrite.exists(), is(false));
+    assertThat(read(), is(COMMAND + COMMAND));
+    assertThat(stats.getAofBaseSize(), is((long) COMMAND.length() * 2));
+    assertThat(stats.getRewrites(), is(1L));
+  }
+
+  @Test
+  public void appendToExistingFile() throws IOException {
+    Files.write(file.toPath(), COMMAND.getBytes(UTF_8));
+    AOFWriter writer = new AOFWriter(file, AppendFsync.NO, stats);
+
+    writer.append(setCommand());
+    writer.close();
+
+    assertThat(read(), is(COMMAND + COMMAND));
+    assertThat(stats.getAofSize(), is((long) COMMAND.length() * 2));
+  }
+
+  @Test
+  public void recoverAfterFailure() throws Exception {
+    Files.write(file.toPath(), COMMAND.getBytes(UTF_8));
+    AtomicInteger opened = new AtomicInteger();
+    AOFWriter writer = new AOFWriter(file, AppendFsync.ALWAYS, stats, path -> {
+      FileChannel channel = FileChannel.open(path.toPath(), CREATE, WRITE, APPEND);
+      if (opened.getAndIncrement() == 0) {
+        // the first batch fails
+        channel.close();
+      }
+      return channel;
+    });
+
+    writer.append(setCommand());
+    syncUntilRecovered(writer);
+    writer.append(setCommand());
+    writer.sync().get(1, TimeUnit.SECONDS);
+    writer.close();
+
+    assertThat(opened.get(), is(2));
+    assertThat(read(), is(COMMAND + COMMAND + COMMAND));
+  }
+
+  private void syncUntilRecovered(AOFWriter writer) throws Exception {
+    for (int i = 0; i < 50; i++) {
+      try {
+        writer.sync().get(1, TimeUnit.SECONDS);
+        return;
+      } catch (ExecutionException e) {
+        Thread.sleep(20);
+      }
+    }
+    throw new AssertionError("not recovered");
+  }
+
+  private String read() throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), UTF_8);
+  }
+
+  private RedisToken setCommand() {
+    return array(string("0"), string("set"), string("a"), string("1"));
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.persistence;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.github.tonivade.resp.protocol.SafeString;
+
+public class LZFTest {
+
+  @Test
+  public void compress() {
+    byte[] bytes = "aaaaaaaaaa".getBytes(StandardCharsets.UTF_8);
+
+    assertThat(new SafeString(LZF.compress(bytes)).toHexString(), is("0061a000016161"));
+  }
+
+  @Test
+  public void roundTrip() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      sb.append("*3\r\n$3\r\nset\r\n$5\r\nkey:").append(i % 10).append("\r\n$5\r\nvalue\r\n");
+    }
+    byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+    byte[] compressed = LZF.compress(bytes);
+
+    assertThat(compressed.length < bytes.length / 10, is(true));
+    assertThat(LZF.decompress(compressed, bytes.length), is(bytes));
+  }
+
+  @Test
+  public void incompressible() {
+    byte[] bytes = new byte[10000];
+    new Random(1).nextBytes(bytes);
+
+    assertThat(LZF.decompress(LZF.compress(bytes), bytes.length), is(bytes));
+  }
+
+  @Test
+  public void frame() {
+    byte[] bytes = "hello hello hello hello".getBytes(StandardCharsets.UTF_8);
+
+    byte[] frame = LZF.frame(bytes);
+
+    assertThat(LZF.isFramed(frame), is(true));
+    assertThat(LZF.isFramed(bytes), is(false));
+    assertThat(LZF.unframe(frame), is(bytes));
+  }
+
+  @Test
+  public void empty() {
+    assertThat(LZF.unframe(LZF.frame(new byte[0])), is(new byte[0]));
+  }
+}
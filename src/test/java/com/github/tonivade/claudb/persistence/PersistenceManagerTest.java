@@ -4,16 +4,21 @@
  */
 package com.github.tonivade.claudb.persistence;
 
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.resp.protocol.RedisToken.array;
 import static com.github.tonivade.resp.protocol.RedisToken.string;
 import static com.github.tonivade.resp.protocol.SafeString.fromHexString;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -22,7 +27,9 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.util.Map;
 
 import org.junit.After;
@@ -36,17 +43,31 @@ import org.mockito.stubbing.Answer;
 
 import com.github.tonivade.claudb.DBConfig;
 import com.github.tonivade.claudb.DBServerContext;
+import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseClock;
 import com.github.tonivade.claudb.data.DatabaseKey;
+import com.github.tonivade.claudb.data.DatabaseSnapshot;
 import com.github.tonivade.claudb.data.DatabaseValue;
+import com.github.tonivade.claudb.data.OnHeapDatabaseFactory;
+import com.github.tonivade.claudb.data.TrackedDatabase.Delta;
+import com.github.tonivade.purefun.Tuple;
+import com.github.tonivade.purefun.data.ImmutableList;
+import com.github.tonivade.purefun.data.ImmutableSet;
+import com.github.tonivade.purefun.type.Option;
 import com.github.tonivade.resp.command.RespCommand;
 import com.github.tonivade.resp.protocol.RedisToken;
+import com.github.tonivade.resp.protocol.SafeString;
 
 @RunWith(MockitoJUnitRunner.class)
 public class PersistenceManagerTest {
 
+  private static final String AOF_HEADER = "*1\r\n$3\r\naof\r\n";
   private static final String COMMAND = "*4\r\n$1\r\n0\r\n$3\r\nset\r\n$1\r\na\r\n$1\r\n1\r\n";
+  private static final String SET_B_COMMAND = "*4\r\n$1\r\n0\r\n$3\r\nset\r\n$1\r\nb\r\n$1\r\n2\r\n";
+  private static final String DEL_COMMAND = "*3\r\n$1\r\n0\r\n$3\r\ndel\r\n$1\r\na\r\n";
   private static final String REDO_FILE = "redo.aof";
   private static final String DUMP_FILE = "dump.rdb";
+  private static final String DELTA_FILE = "dump.rdb.delta";
 
   @Mock
   private DBServerContext server;
@@ -55,6 +76,7 @@ public class PersistenceManagerTest {
 
   @Before
   public void setUp() {
+    lenient().when(server.getClock()).thenReturn(DatabaseClock.system());
     this.manager = new PersistenceManager(server, DBConfig.builder().withPersistence().build());
     deleteFiles();
   }
@@ -65,38 +87,295 @@ public class PersistenceManagerTest {
   }
 
   @Test
-  public void testRun() throws IOException {
-    doAnswer(new ExportRDB()).when(server).exportRDB(any());
+  public void testRun() throws InterruptedException {
+    this.manager = new PersistenceManager(server,
+        DBConfig.builder().withPersistence().withoutRdbPreamble().withAutoRewrite(100, 1).build());
+    when(server.snapshot(any())).thenAnswer(new Snapshot());
+
+    manager.start();
+    manager.append(setCommand());
+    manager.append(setCommand());
+
+    Thread.sleep(500);
+
+    manager.run();
+
+    assertThat(readAOF(), is(AOF_HEADER + COMMAND));
+  }
+
+  @Test
+  public void testRunBelowThreshold() throws InterruptedException {
+    manager.start();
+    manager.append(setCommand());
+
+    Thread.sleep(500);
 
     manager.run();
 
+    verify(server, never()).snapshot(any());
+    assertThat(readAOF(), is(AOF_HEADER + COMMAND));
+  }
+
+  @Test
+  public void testStop() throws IOException {
+    doAnswer(new ExportRDB()).when(server).exportRDB(any());
+
+    manager.stop();
+
+    verify(server).exportRDB(any());
+
+    assertThat(new File(DUMP_FILE).exists(), is(true));
+
     RDBInputStream input = new RDBInputStream(new FileInputStream(DUMP_FILE));
     Map<Integer, Map<DatabaseKey, DatabaseValue>> databases = input.parse();
     assertThat(databases, notNullValue());
   }
 
   @Test
-  public void testStop() throws IOException {
+  public void testBgsave() throws IOException {
+    doAnswer(new ExportRDB()).when(server).exportRDB(any());
+
+    manager.start();
+
+    assertThat(manager.bgsave(), is(true));
+
+    verify(server, timeout(1000)).exportRDB(any());
+
     manager.stop();
 
-    verify(server).exportRDB(any());
+    assertThat(new File(DUMP_FILE).exists(), is(true));
+    assertThat(manager.getStats().isSaveInProgress(), is(false));
+    assertThat(manager.getStats().isLastSaveOk(), is(true));
+  }
+
+  @Test
+  public void testSnapshot() throws IOException {
+    this.manager = new PersistenceManager(server,
+        DBConfig.builder().withPersistence().withIncrementalSnapshots(60, 10).build());
+    when(server.snapshot(any())).thenAnswer(new Snapshot());
+    when(server.delta(any()))
+      .thenAnswer(delta(Delta.empty()))
+      .thenAnswer(delta(Option.some(DatabaseValue.string("1"))))
+      .thenAnswer(delta(Delta.empty()))
+      .thenAnswer(delta(Option.none()));
+
+    manager.start();
+    manager.snapshot();
+    manager.snapshot();
+    manager.snapshot();
+
+    String checksum = checksum(DUMP_FILE);
+    assertThat(readFile(DELTA_FILE), is(deltaHeader(checksum)
+        + DEL_COMMAND + COMMAND + blockEnd(1) + DEL_COMMAND + blockEnd(2)));
+    assertThat(readAOF(), is(tailHeader(checksum, 2)));
+    assertThat(manager.getStats().getDeltas(), is(2));
+  }
+
+  @Test
+  public void testSnapshotCompaction() throws IOException {
+    this.manager = new PersistenceManager(server,
+        DBConfig.builder().withPersistence().withIncrementalSnapshots(60, 1).build());
+    when(server.snapshot(any())).thenAnswer(new Snapshot());
+    when(server.delta(any()))
+      .thenAnswer(delta(Delta.empty()))
+      .thenAnswer(delta(Option.some(DatabaseValue.string("1"))));
 
+    manager.start();
+    manager.snapshot();
+
+    assertThat(new File(DELTA_FILE).exists(), is(true));
+
+    manager.snapshot();
+
+    verify(server, times(2)).snapshot(any());
+    assertThat(new File(DELTA_FILE).exists(), is(false));
+    assertThat(new File(DUMP_FILE).exists(), is(true));
+    assertThat(readAOF(), is(tailHeader(checksum(DUMP_FILE), 0)));
+    assertThat(manager.getStats().getDeltas(), is(0));
+  }
+
+  @Test
+  public void testStartWithDelta() throws IOException {
+    this.manager = new PersistenceManager(server,
+        DBConfig.builder().withPersistence().withIncrementalSnapshots(60, 10).build());
+    Database database = stubDatabase();
+    when(server.snapshot(any())).thenAnswer(new Snapshot());
+
+    writeFile(DUMP_FILE, fromHexString("524544495330303033fe00ff77de0394ac9d23ea").getBytes());
+    writeFile(DELTA_FILE, (deltaHeader("77de0394ac9d23ea") + COMMAND).getBytes(UTF_8));
+
+    manager.start();
+
+    verify(server).importRDB(any());
+    assertThat(database.get(safeKey("a")), is(DatabaseValue.string("1")));
+  }
+
+  @Test
+  public void testStartWithStaleDelta() throws IOException {
+    this.manager = new PersistenceManager(server,
+        DBConfig.builder().withPersistence().withIncrementalSnapshots(60, 10).build());
+    when(server.snapshot(any())).thenAnswer(new Snapshot());
+
+    writeFile(DUMP_FILE, fromHexString("524544495330303033fe00ff77de0394ac9d23ea").getBytes());
+    writeFile(DELTA_FILE, (deltaHeader("0000000000000000") + COMMAND).getBytes(UTF_8));
+
+    manager.start();
+
+    verify(server).importRDB(any());
+    verify(server, never()).getDatabase(0);
+  }
+
+  @Test
+  public void testStartWithDeltaAndTail() throws IOException {
+    this.manager = new PersistenceManager(server,
+        DBConfig.builder().withPersistence().withIncrementalSnapshots(60, 10).build());
+    Database database = stubDatabase();
+    when(server.snapshot(any())).thenAnswer(new Snapshot());
+
+    writeFile(DUMP_FILE, fromHexString("524544495330303033fe00ff77de0394ac9d23ea").getBytes());
+    writeFile(DELTA_FILE, (deltaHeader("77de0394ac9d23ea")
+        + COMMAND + blockEnd(1) + DEL_COMMAND + blockEnd(2)).getBytes(UTF_8));
+    writeAOF(tailHeader("77de0394ac9d23ea", 1) + SET_B_COMMAND);
+
+    manager.start();
+
+    // only the first block of the delta is applied before the AOF file
+    verify(server).importRDB(any());
+    assertThat(database.get(safeKey("a")), is(DatabaseValue.string("1")));
+    assertThat(database.get(safeKey("b")), is(DatabaseValue.string("2")));
+    // and then everything is saved in a new base
+    assertThat(new File(DELTA_FILE).exists(), is(false));
+    assertThat(readAOF(), is(tailHeader(checksum(DUMP_FILE), 0)));
+  }
+
+  @Test
+  public void testStartWithMissingDumpAfterSave() throws IOException {
+    Database database = stubDatabase();
+    when(server.snapshot(any())).thenAnswer(new Snapshot());
+
+    writeFile(DUMP_FILE + ".tmp", fromHexString("524544495330303033fe00ff77de0394ac9d23ea").getBytes());
+    writeFile(DELTA_FILE, (deltaHeader("") + COMMAND).getBytes(UTF_8));
+    writeAOF(tailHeader("77de0394ac9d23ea", 0) + SET_B_COMMAND);
+
+    manager.start();
+
+    // the save was interrupted after the AOF file was replaced, so the RDB file is moved now
+    verify(server).importRDB(any());
     assertThat(new File(DUMP_FILE).exists(), is(true));
+    assertThat(new File(DELTA_FILE).exists(), is(false));
+    assertThat(database.get(safeKey("a")), is(nullValue()));
+    assertThat(database.get(safeKey("b")), is(DatabaseValue.string("2")));
+    // without incremental snapshots the AOF file is rewritten to not depend on the RDB file
+    assertThat(readAOF().startsWith("REDIS"), is(true));
   }
 
   @Test
   public void testStart() throws IOException {
-    RespCommand cmd = stubCommand();
+    Database database = stubDatabase();
+
+    writeRDB();
+    writeAOF(AOF_HEADER + COMMAND);
+
+    manager.start();
+
+    verify(server, never()).importRDB(any());
+
+    assertThat(database.get(safeKey("a")), is(DatabaseValue.string("1")));
+    assertThat(readAOF(), is(AOF_HEADER + COMMAND));
+  }
+
+  @Test
+  public void testStartWithLegacyAOF() throws IOException {
+    Database database = stubDatabase();
+    doAnswer(invocation -> database.put(safeKey("a"), DatabaseValue.string("1"))).when(server).importRDB(any());
+    when(server.snapshot(any())).thenAnswer(new Snapshot());
 
     writeRDB();
-    writeAOF();
+    writeAOF(SET_B_COMMAND);
 
     manager.start();
 
     verify(server).importRDB(any());
+    assertThat(database.get(safeKey("a")), is(DatabaseValue.string("1")));
+    assertThat(database.get(safeKey("b")), is(DatabaseValue.string("2")));
+    assertThat(readAOF().startsWith("REDIS"), is(true));
+  }
+
+  @Test
+  public void testStartWithMappedStorage() throws IOException {
+    this.manager = new PersistenceManager(server,
+        DBConfig.builder().withPersistence().withMappedStorage().build());
+
+    writeRDB();
+    writeAOF(COMMAND);
+
+    manager.start();
+    manager.append(setCommand());
+    manager.stop();
+
+    // the mapped files are not replayed, so the AOF file is not written either
+    verify(server, never()).importRDB(any());
+    verify(server, never()).getDatabase(0);
+    assertThat(readAOF(), is(COMMAND));
+  }
+
+  @Test
+  public void testStartWithCommands() throws IOException {
+    Database database = stubDatabase();
+    RespCommand cmd = mock(RespCommand.class);
+    when(server.getCommand("select")).thenReturn(cmd);
+    when(server.getCommand("del")).thenReturn(cmd);
+
+    writeAOF(AOF_HEADER + COMMAND + DEL_COMMAND + COMMAND);
+
+    manager.start();
+
     verify(cmd, times(2)).execute(any());
+    assertThat(database.get(safeKey("a")), is(DatabaseValue.string("1")));
+    assertThat(manager.getStats().getLoadedBytes(), is((long) readAOF().length()));
+  }
+
+  @Test
+  public void testStartWithTornTail() throws InterruptedException {
+    Database database = stubDatabase();
+    String torn = SET_B_COMMAND.substring(0, SET_B_COMMAND.length() - 3);
+
+    writeAOF(AOF_HEADER + COMMAND + torn);
+
+    manager.start();
+    manager.append(setCommand());
+
+    Thread.sleep(1000);
+
+    assertThat(database.get(safeKey("a")), is(DatabaseValue.string("1")));
+    assertThat(database.get(safeKey("b")), is(nullValue()));
+    assertThat(readAOF(), is(AOF_HEADER + COMMAND + COMMAND));
+  }
+
+  @Test
+  public void testStartWithoutAOF() throws IOException {
+    when(server.snapshot(any())).thenAnswer(new Snapshot());
+
+    writeRDB();
+
+    manager.start();
+
+    verify(server).importRDB(any());
+
+    assertThat(readAOF().startsWith("REDIS0006"), is(true));
+  }
+
+  @Test
+  public void testStartWithPreamble() throws IOException {
+    Database database = stubDatabase();
+    doAnswer(new ImportRDB()).when(server).importRDB(any());
+
+    writeHybridAOF();
+
+    manager.start();
 
-    assertThat(new File(REDO_FILE).exists(), is(true));
+    verify(server).importRDB(any());
+    assertThat(database.get(safeKey("a")), is(DatabaseValue.string("1")));
   }
 
   @Test
@@ -106,12 +385,15 @@ public class PersistenceManagerTest {
 
     Thread.sleep(1000);
 
-    assertThat(readAOF(), is(COMMAND));
+    assertThat(readAOF(), is(AOF_HEADER + COMMAND));
   }
 
   private void deleteFiles() {
     deleteFile(DUMP_FILE);
     deleteFile(REDO_FILE);
+    deleteFile(REDO_FILE + ".rewrite");
+    deleteFile(DELTA_FILE);
+    deleteFile(DUMP_FILE + ".tmp");
   }
 
   private void deleteFile(String name) {
@@ -131,17 +413,38 @@ public class PersistenceManagerTest {
     }
   }
 
-  private void writeAOF() {
+  private void writeAOF(String commands) {
+    try (FileOutputStream out = new FileOutputStream(REDO_FILE)) {
+      out.write(commands.getBytes(UTF_8));
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private void writeHybridAOF() {
     try (FileOutputStream out = new FileOutputStream(REDO_FILE)) {
+      out.write(fromHexString("524544495330303033fe00ff77de0394ac9d23ea").getBytes());
       out.write(COMMAND.getBytes(UTF_8));
     } catch (IOException e) {
       e.printStackTrace();
     }
   }
 
+  private void writeFile(String name, byte[] content) {
+    try (FileOutputStream out = new FileOutputStream(name)) {
+      out.write(content);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
   private String readAOF() {
+    return readFile(REDO_FILE);
+  }
+
+  private String readFile(String name) {
     String str = null;
-    try (FileInputStream in = new FileInputStream(REDO_FILE)) {
+    try (FileInputStream in = new FileInputStream(name)) {
       byte[] buffer = new byte[1024];
       int readed = in.read(buffer);
       if (readed > -1) {
@@ -166,10 +469,60 @@ public class PersistenceManagerTest {
     }
   }
 
-  private RespCommand stubCommand() {
-    RespCommand cmd = mock(RespCommand.class);
-    when(server.getCommand("select")).thenReturn(cmd);
-    when(server.getCommand("set")).thenReturn(cmd);
-    return cmd;
+  private static class ImportRDB implements Answer<Void> {
+    @Override
+    public Void answer(InvocationOnMock invocation) throws Throwable {
+      InputStream input = (InputStream) invocation.getArguments()[0];
+      new RDBInputStream(input).parse();
+      return null;
+    }
+  }
+
+  private static class Snapshot implements Answer<ImmutableList<DatabaseSnapshot>> {
+    @Override
+    public ImmutableList<DatabaseSnapshot> answer(InvocationOnMock invocation) {
+      Runnable onSnapshot = (Runnable) invocation.getArguments()[0];
+      onSnapshot.run();
+      return ImmutableList.of(DatabaseSnapshot.of(ImmutableSet.of(Tuple.of(safeKey("a"), DatabaseValue.string("1")))));
+    }
+  }
+
+  private Answer<ImmutableList<Delta>> delta(Option<DatabaseValue> value) {
+    return delta(new Delta(false, ImmutableSet.of(Tuple.of(safeKey("a"), value))));
+  }
+
+  private Answer<ImmutableList<Delta>> delta(Delta delta) {
+    return invocation -> {
+      Runnable onDelta = (Runnable) invocation.getArguments()[0];
+      onDelta.run();
+      return ImmutableList.of(delta);
+    };
+  }
+
+  private String checksum(String name) throws IOException {
+    try (RandomAccessFile file = new RandomAccessFile(name, "r")) {
+      byte[] bytes = new byte[Long.BYTES];
+      file.seek(file.length() - Long.BYTES);
+      file.readFully(bytes);
+      return new SafeString(bytes).toHexString();
+    }
+  }
+
+  private String deltaHeader(String checksum) {
+    return "*2\r\n$5\r\ndelta\r\n$" + checksum.length() + "\r\n" + checksum + "\r\n";
+  }
+
+  private String tailHeader(String checksum, int blocks) {
+    return "*3\r\n$5\r\ndelta\r\n$" + checksum.length() + "\r\n" + checksum + "\r\n$1\r\n" + blocks + "\r\n";
+  }
+
+  private String blockEnd(int blocks) {
+    return "*2\r\n$9\r\ndelta-end\r\n$1\r\n" + blocks + "\r\n";
+  }
+
+  private Database stubDatabase() {
+    Database database = new OnHeapDatabaseFactory().create("test");
+    when(server.getDatabase(0)).thenReturn(database);
+    return database;
   }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.persistence;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.github.tonivade.claudb.data.DatabaseKey;
+import com.github.tonivade.claudb.data.DatabaseValue;
+import com.github.tonivade.claudb.persistence.RDBBuilder.Format;
+
+public class RDBBuilderTest {
+
+  @Test
+  public void testBuild() throws IOException {
+    StringBuilder input = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      input.append("key:").append(i).append(",value:").append(i).append('\n');
+    }
+    input.append("key:1,last\n");
+
+    RDBBuilder builder = RDBBuilder.builder().withChunkSize(64).withThreads(4).withDatabase(3).build();
+
+    Map<Integer, Map<DatabaseKey, DatabaseValue>> databases = build(builder, input.toString(), 1000);
+
+    assertThat(databases.size(), is(1));
+    assertThat(databases.get(3).size(), is(1000));
+    assertThat(databases.get(3).get(safeKey("key:0")), is(string("value:0")));
+    assertThat(databases.get(3).get(safeKey("key:1")), is(string("last")));
+    assertThat(databases.get(3).get(safeKey("key:999")), is(string("value:999")));
+  }
+
+  @Test
+  public void testCsv() throws IOException {
+    String input = "a,1\n\n\"b,c\",\"say \"\"hi\"\"\"\nd,\n";
+
+    Map<Integer, Map<DatabaseKey, DatabaseValue>> databases = build(RDBBuilder.builder().build(), input, 3);
+
+    assertThat(databases.get(0).get(safeKey("a")), is(string("1")));
+    assertThat(databases.get(0).get(safeKey("b,c")), is(string("say \"hi\"")));
+    assertThat(databases.get(0).get(safeKey("d")), is(string("")));
+  }
+
+  @Test
+  public void testTab() throws IOException {
+    String input = "a\t1,2\nb\tx\ty\n";
+
+    RDBBuilder builder = RDBBuilder.builder().withFormat(Format.TAB).build();
+
+    Map<Integer, Map<DatabaseKey, DatabaseValue>> databases = build(builder, input, 2);
+
+    assertThat(databases.get(0).get(safeKey("a")), is(string("1,2")));
+    assertThat(databases.get(0).get(safeKey("b")), is(string("x\ty")));
+  }
+
+  @Test
+  public void testEmpty() throws IOException {
+    Map<Integer, Map<DatabaseKey, DatabaseValue>> databases = build(RDBBuilder.builder().build(), "", 0);
+
+    assertThat(databases.isEmpty(), is(true));
+  }
+
+  @Test(expected = IOException.class)
+  public void testInvalidLine() throws IOException {
+    build(RDBBuilder.builder().withChunkSize(1).build(), "a,1\nb\n", 1);
+  }
+
+  private Map<Integer, Map<DatabaseKey, DatabaseValue>> build(RDBBuilder builder, String input, long keys)
+      throws IOException {
+    ByteBufferOutputStream output = new ByteBufferOutputStream();
+
+    assertThat(builder.build(new BufferedReader(new StringReader(input)), output), is(keys));
+
+    return new RDBInputStream(new ByteBufferInputStream(output.toByteArray())).parse();
+  }
+}
@@ -23,8 +23,10 @@ import java.util.Map;
 
 import org.junit.Test;
 
+import com.github.tonivade.claudb.data.Database;
 import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.claudb.data.DatabaseValue;
+import com.github.tonivade.claudb.data.OnHeapDatabaseFactory;
 
 public class RDBInputStreamTest {
 
@@ -54,6 +56,60 @@ public class RDBInputStreamTest {
     assertThat(databases.get(5).isEmpty(), is(true));
   }
 
+  @Test
+  public void testEncodedStrings() throws IOException {
+    String longValue = new String(new char[100]).replace('\0', 'a');
+    ByteBufferOutputStream output = new ByteBufferOutputStream();
+    RDBOutputStream out = new RDBOutputStream(output);
+    out.preamble(6);
+    out.select(0);
+    out.dabatase(database(longValue, "-1", "1000", "-100000", "007"));
+    out.end();
+
+    RDBInputStream in = new RDBInputStream(new ByteBufferInputStream(output.toByteArray()));
+
+    Map<DatabaseKey, DatabaseValue> db = in.parse().get(0);
+
+    assertThat(db.get(safeKey(longValue)), is(string(longValue)));
+    assertThat(db.get(safeKey("-1")), is(string("-1")));
+    assertThat(db.get(safeKey("1000")), is(string("1000")));
+    assertThat(db.get(safeKey("-100000")), is(string("-100000")));
+    assertThat(db.get(safeKey("007")), is(string("007")));
+  }
+
+  @Test
+  public void testDumpRestore() throws IOException {
+    assertThat(dumpRestore(string("test")), is(string("test")));
+    assertThat(dumpRestore(list("a", "b")), is(list("a", "b")));
+    assertThat(dumpRestore(set("a", "b")), is(set("a", "b")));
+    assertThat(dumpRestore(zset(score(1.0, "test"))), is(zset(score(1.0, "test"))));
+    assertThat(dumpRestore(hash(entry("1", "test"))), is(hash(entry("1", "test"))));
+  }
+
+  @Test(expected = IOException.class)
+  public void testRestoreInvalidChecksum() throws IOException {
+    ByteBufferOutputStream output = new ByteBufferOutputStream();
+    new RDBOutputStream(output).dump(string("test"));
+    byte[] payload = output.toByteArray();
+    payload[payload.length - 1] ^= 1;
+
+    new RDBInputStream(new ByteBufferInputStream(payload)).restore();
+  }
+
+  private DatabaseValue dumpRestore(DatabaseValue value) throws IOException {
+    ByteBufferOutputStream output = new ByteBufferOutputStream();
+    new RDBOutputStream(output).dump(value);
+    return new RDBInputStream(new ByteBufferInputStream(output.toByteArray())).restore();
+  }
+
+  private Database database(String... values) {
+    Database db = new OnHeapDatabaseFactory().create("test");
+    for (String value : values) {
+      db.put(safeKey(value), string(value));
+    }
+    return db;
+  }
+
   private void assertDB(Map<DatabaseKey, DatabaseValue> db, DatabaseValue value) {
     assertThat(db, notNullValue());
     assertThat(db.get(safeKey("a")), is(value));
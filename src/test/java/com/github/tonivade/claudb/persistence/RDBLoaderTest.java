@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2015-2020, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.persistence;
+
+import static com.github.tonivade.claudb.DatabaseValueMatchers.entry;
+import static com.github.tonivade.claudb.DatabaseValueMatchers.list;
+import static com.github.tonivade.claudb.DatabaseValueMatchers.score;
+import static com.github.tonivade.claudb.DatabaseValueMatchers.set;
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.hash;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static com.github.tonivade.claudb.data.DatabaseValue.zset;
+import static com.github.tonivade.resp.protocol.SafeString.fromHexString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.OnHeapDatabaseFactory;
+
+public class RDBLoaderTest {
+
+  private final List<Database> databases = new ArrayList<>();
+
+  @Before
+  public void setUp() {
+    OnHeapDatabaseFactory factory = new OnHeapDatabaseFactory();
+    for (int i = 0; i < 7; i++) {
+      databases.add(factory.create("db-" + i));
+    }
+  }
+
+  @Test
+  public void load() throws IOException {
+    databases.get(0).put(safeKey("b"), string("old"));
+    databases.get(6).put(safeKey("b"), string("old"));
+
+    load("524544495330303033FE000001610474657374FE01010161010474657374FE02020161010474657374FE0303016101047465737403312E30FE040401610101310474657374FE05FC00000000000000010001610474657374FFA9D1F09C463A7043");
+
+    assertThat(databases.get(0).get(safeKey("a")), is(string("test")));
+    assertThat(databases.get(0).containsKey(safeKey("b")), is(false));
+    assertThat(databases.get(1).get(safeKey("a")), is(list("test")));
+    assertThat(databases.get(2).get(safeKey("a")), is(set("test")));
+    assertThat(databases.get(3).get(safeKey("a")), is(zset(score(1.0, "test"))));
+    assertThat(databases.get(4).get(safeKey("a")), is(hash(entry("1", "test"))));
+    assertThat(databases.get(5).isEmpty(), is(true));
+    assertThat(databases.get(6).get(safeKey("b")), is(string("old")));
+  }
+
+  @Test
+  public void loadManyBatches() throws IOException {
+    Database source = new OnHeapDatabaseFactory().create("source");
+    for (int i = 0; i < 10000; i++) {
+      source.put(safeKey("key" + i), string("value" + i));
+    }
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    RDBOutputStream rdb = new RDBOutputStream(output);
+    rdb.preamble(6);
+    rdb.select(1);
+    rdb.dabatase(source);
+    rdb.end();
+
+    new RDBLoader(databases::get).load(new ByteBufferInputStream(output.toByteArray()));
+
+    assertThat(databases.get(1).size(), is(10000));
+    assertThat(databases.get(1).get(safeKey("key9999")), is(string("value9999")));
+  }
+
+  @Test(expected = IOException.class)
+  public void invalidChecksum() throws IOException {
+    load("524544495330303033FE000001610474657374FF0000000000000000");
+  }
+
+  private void load(String hex) throws IOException {
+    new RDBLoader(databases::get).load(new ByteBufferInputStream(fromHexString(hex).getBytes()));
+  }
+}
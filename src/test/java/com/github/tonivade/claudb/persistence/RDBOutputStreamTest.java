@@ -17,7 +17,6 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 
 import java.io.IOException;
-import java.time.Instant;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -57,7 +56,7 @@ public class RDBOutputStreamTest {
 
   @Test
   public void testStringTtl() throws IOException  {
-    out.dabatase(database().add(new DatabaseKey(safeString("a")), string("test").expiredAt(Instant.ofEpochMilli(1L))).build());
+    out.dabatase(database().add(new DatabaseKey(safeString("a")), string("test").expiredAtMillis(1L)).build());
 
     assertThat(toHexString(baos.toByteArray()), is("fc00000000000000010001610474657374"));
   }
@@ -87,7 +86,32 @@ public class RDBOutputStreamTest {
   public void testHash() throws IOException  {
     out.dabatase(database().add(safeKey("a"), hash(entry("1", "test"))).build());
 
-    assertThat(toHexString(baos.toByteArray()), is("0401610101310474657374"));
+    assertThat(toHexString(baos.toByteArray()), is("04016101c0010474657374"));
+  }
+
+  @Test
+  public void testIntegerString() throws IOException  {
+    out.dabatase(database().add(safeKey("a"), string("-1")).build());
+    out.dabatase(database().add(safeKey("a"), string("1000")).build());
+    out.dabatase(database().add(safeKey("a"), string("100000")).build());
+    out.dabatase(database().add(safeKey("a"), string("007")).build());
+
+    assertThat(toHexString(baos.toByteArray()), is("000161c0ff" + "000161c1e803" + "000161c2a0860100" + "00016103303037"));
+  }
+
+  @Test
+  public void testLongString() throws IOException  {
+    RDBOutputStream uncompressed = new RDBOutputStream(baos, false);
+    uncompressed.dabatase(database().add(safeKey("a"), string(repeat("a", 100))).build());
+
+    assertThat(toHexString(baos.toByteArray()), is("0001614064" + toHexString(repeat("a", 100).getBytes())));
+  }
+
+  @Test
+  public void testCompressedString() throws IOException  {
+    out.dabatase(database().add(safeKey("a"), string(repeat("a", 100))).build());
+
+    assertThat(toHexString(baos.toByteArray()), is("000161c3084064" + "0061e05800016161"));
   }
 
   @Test
@@ -104,10 +128,18 @@ public class RDBOutputStreamTest {
     out.select(4);
     out.dabatase(database().add(safeKey("a"), hash(entry("1", "test"))).build());
     out.select(5);
-    out.dabatase(database().add(new DatabaseKey(safeString("a")), string("test").expiredAt(Instant.ofEpochMilli(1L))).build());
+    out.dabatase(database().add(new DatabaseKey(safeString("a")), string("test").expiredAtMillis(1L)).build());
     out.end();
 
-    assertThat(toHexString(baos.toByteArray()), is("524544495330303033fe000001610474657374fe01010161010474657374fe02020161010474657374fe0303016101047465737403312e30fe040401610101310474657374fe05fc00000000000000010001610474657374ffa9d1f09c463a7043"));
+    assertThat(toHexString(baos.toByteArray()), is("524544495330303033fe000001610474657374fe01010161010474657374fe02020161010474657374fe0303016101047465737403312e30fe0404016101c0010474657374fe05fc00000000000000010001610474657374ff9ca29fc3e1630a62"));
+  }
+
+  private String repeat(String value, int times) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < times; i++) {
+      sb.append(value);
+    }
+    return sb.toString();
   }
 
   private String toHexString(byte[] byteArray) {
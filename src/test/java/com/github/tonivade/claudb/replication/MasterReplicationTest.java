@@ -9,6 +9,9 @@ import static com.github.tonivade.resp.protocol.RedisToken.array;
 import static com.github.tonivade.resp.protocol.RedisToken.integer;
 import static com.github.tonivade.resp.protocol.RedisToken.string;
 import static org.mockito.ArgumentMatchers.any;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
@@ -47,8 +50,27 @@ public class MasterReplicationTest {
 
     master.start();
 
-    verify(server, timeout(3000).times(3)).publish(eq("slave:1"), any(RedisToken.class));
-    verify(server, timeout(3000).times(3)).publish(eq("slave:2"), any(RedisToken.class));
+    verify(server, timeout(3000).times(4)).publish(eq("slave:1"), any(RedisToken.class));
+    verify(server, timeout(3000).times(4)).publish(eq("slave:2"), any(RedisToken.class));
+    verify(server).publish("slave:1", getAck(1));
+  }
+
+  @Test
+  public void testCompressedReplication()  {
+    when(server.getCommandsToReplicate()).thenReturn(listOf(request()));
+    when(server.getValue("state")).thenReturn(Option.some(serverState));
+
+    master.addSlave("slave:1");
+    serverState.addCompressedSlave("slave:1");
+
+    master.start();
+
+    verify(server, timeout(3000)).publish(eq("slave:1"), argThat(token -> token.toString().contains("REPLBATCH")));
+    assertThat(serverState.getReplicationStats().getRawBytes() > 0, is(true));
+  }
+
+  private RedisToken getAck(int offset) {
+    return array(string("REPLCONF"), string("GETACK"), string(String.valueOf(offset)));
   }
 
   private RedisToken request() {
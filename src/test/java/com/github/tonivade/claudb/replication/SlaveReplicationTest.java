@@ -13,6 +13,8 @@ import static com.github.tonivade.resp.protocol.SafeString.safeString;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -31,9 +33,11 @@ import org.mockito.junit.MockitoJUnitRunner;
 import com.github.tonivade.claudb.ClauDBRule;
 import com.github.tonivade.claudb.DBServerContext;
 import com.github.tonivade.claudb.data.OnHeapDatabaseFactory;
+import com.github.tonivade.claudb.persistence.LZF;
 import com.github.tonivade.resp.command.Request;
 import com.github.tonivade.resp.command.RespCommand;
 import com.github.tonivade.resp.command.Session;
+import com.github.tonivade.resp.protocol.RedisSerializer;
 import com.github.tonivade.resp.protocol.SafeString;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -76,6 +80,27 @@ public class SlaveReplicationTest {
     verifyCommandExecuted();
   }
 
+  @Test
+  public void testGetAck()  {
+    SlaveReplication slave = new SlaveReplication(context, session, "localhost", 7081);
+
+    slave.onMessage(array(string("REPLCONF"), string("GETACK"), string("1")));
+
+    verify(context, never()).getCommand(anyString());
+  }
+
+  @Test
+  public void testProcessBatch()  {
+    when(context.getCommand("PING")).thenReturn(command);
+
+    SlaveReplication slave = new SlaveReplication(context, session, "localhost", 7081, true);
+
+    byte[] batch = new RedisSerializer().encodeToken(array(string("PING")));
+    slave.onMessage(array(string("REPLBATCH"), string(new SafeString(LZF.frame(batch)))));
+
+    verifyCommandExecuted();
+  }
+
   private void verifyCommandExecuted() {
     verify(command).execute(requestCaptor.capture());
 